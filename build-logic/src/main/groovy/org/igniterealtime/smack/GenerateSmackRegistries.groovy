@@ -0,0 +1,178 @@
+package org.igniterealtime.smack
+
+import groovy.xml.XmlSlurper
+
+import org.gradle.api.DefaultTask
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.FileTree
+import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.InputFiles
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.TaskAction
+
+/**
+ * Compiles Smack's provider files (*.providers) and configuration
+ * files (*.xml with a <smack/> root element) into Java classes,
+ * so that Smack's initialization does neither have to parse XML nor
+ * to instantiate the providers via reflection.
+ *
+ * A file 'some.package/name.ext' results in the class
+ * 'some.package.NameExtRegistry', which extends
+ * org.jivesoftware.smack.initializer.GeneratedRegistry. Keep the
+ * naming scheme in sync with GeneratedRegistry.getRegistryClassName().
+ */
+@CacheableTask
+abstract class GenerateSmackRegistries extends DefaultTask {
+
+	private static final Map<String, String> PROVIDER_TYPES = [
+		iqProvider: 'IQProviderInfo',
+		extensionProvider: 'ExtensionProviderInfo',
+		streamFeatureProvider: 'StreamFeatureProviderInfo',
+	]
+
+	@Internal
+	abstract DirectoryProperty getResourcesDirectory()
+
+	@OutputDirectory
+	abstract DirectoryProperty getOutputDirectory()
+
+	@InputFiles
+	@PathSensitive(PathSensitivity.RELATIVE)
+	FileTree getRegistrySources() {
+		resourcesDirectory.asFileTree.matching {
+			include '*/*.providers'
+			include '*/*.xml'
+		}
+	}
+
+	@TaskAction
+	void generate() {
+		File outputDir = outputDirectory.get().asFile
+		outputDir.deleteDir()
+		outputDir.mkdirs()
+
+		registrySources.visit { FileVisitDetails details ->
+			if (details.directory) {
+				return
+			}
+
+			String packageName = details.relativePath.segments[0]
+			if (!(packageName ==~ /[a-zA-Z_][a-zA-Z0-9_]*(\.[a-zA-Z_][a-zA-Z0-9_]*)*/)) {
+				return
+			}
+
+			def root = new XmlSlurper().parse(details.file)
+			String source
+			String className = registryClassName(details.name)
+			String origin = details.relativePath.pathString
+			switch (root.name()) {
+			case 'smackProviders':
+				source = generateProviderRegistry(packageName, className, origin, root)
+				break
+			case 'smack':
+				source = generateConfigRegistry(packageName, className, origin, root)
+				break
+			default:
+				return
+			}
+
+			File packageDir = new File(outputDir, packageName.replace('.', '/'))
+			packageDir.mkdirs()
+			new File(packageDir, className + '.java').setText(source, 'UTF-8')
+		}
+	}
+
+	static String registryClassName(String fileName) {
+		StringBuilder sb = new StringBuilder()
+		fileName.split(/[^a-zA-Z0-9]+/).each { String part ->
+			if (part) {
+				sb.append(Character.toUpperCase(part.charAt(0))).append(part.substring(1))
+			}
+		}
+		sb.append('Registry')
+		sb.toString()
+	}
+
+	static String generateProviderRegistry(String packageName, String className, String origin, def root) {
+		Map<String, List<String>> entries = PROVIDER_TYPES.collectEntries { [(it.key): []] }
+		root.children().each { provider ->
+			String type = provider.name()
+			if (!entries.containsKey(type)) {
+				throw new IllegalArgumentException("Unknown provider type '$type' in $origin")
+			}
+			String elementName = childText(provider, 'elementName')
+			String namespace = childText(provider, 'namespace')
+			String providerClass = childText(provider, 'className').replace('$', '.')
+			entries[type] << "${type}(${literal(elementName)}, ${literal(namespace)}, new ${providerClass}())".toString()
+		}
+
+		StringBuilder methods = new StringBuilder()
+		PROVIDER_TYPES.each { type, infoClass ->
+			if (entries[type].isEmpty()) {
+				return
+			}
+			String getter = type == 'iqProvider' ? 'getIQProviderInfo' : 'get' + type.capitalize() + 'Info'
+			methods << """
+    @Override
+    public List<org.jivesoftware.smack.provider.${infoClass}> ${getter}() {
+        return Arrays.asList(
+${entries[type].collect { '            ' + it }.join(',\n')}
+        );
+    }
+"""
+		}
+		classSource(packageName, className, origin, methods)
+	}
+
+	static String generateConfigRegistry(String packageName, String className, String origin, def root) {
+		StringBuilder methods = new StringBuilder()
+		[startupClasses: 'getStartupClasses', optionalStartupClasses: 'getOptionalStartupClasses'].each { element, getter ->
+			List<String> classNames = []
+			root.children().findAll { it.name() == element }.each { classes ->
+				classes.children().findAll { it.name() == 'className' }.each {
+					classNames << literal(it.text().trim())
+				}
+			}
+			if (classNames.isEmpty()) {
+				return
+			}
+			methods << """
+    @Override
+    public List<String> ${getter}() {
+        return Arrays.asList(
+${classNames.collect { '            ' + it }.join(',\n')}
+        );
+    }
+"""
+		}
+		classSource(packageName, className, origin, methods)
+	}
+
+	static String classSource(String packageName, String className, String origin, CharSequence methods) {
+		"""// Generated from ${origin} by the generateSmackRegistries task. Do not edit.
+package ${packageName};
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The content of {@code ${origin}}, compiled into Java code.
+ */
+@SuppressWarnings("deprecation")
+public final class ${className} extends org.jivesoftware.smack.initializer.GeneratedRegistry {
+${methods}}
+"""
+	}
+
+	static String childText(def node, String name) {
+		node.children().find { it.name() == name }.text().trim()
+	}
+
+	static String literal(String string) {
+		'"' + string.replace('\\', '\\\\').replace('"', '\\"') + '"'
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the shared selector of the {@link SmackReactor} with its sharded mode. Opens many loopback connections to a
+ * local stub which echoes every stanza, and measures the time until a stanza sent over every connection has been echoed
+ * back and handled by the reactor. Note that the benchmark requires twice as many file descriptors as connections.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SmackReactorShardingJmh {
+
+    private static final byte[] STANZA = "<message to='juliet@example.org' id='jmh'><body>Hello</body></message>"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private static final int ECHO_THREAD_COUNT = 4;
+
+    @Param({"10000"})
+    private int connectionCount;
+
+    /**
+     * The number of shards, where 0 uses the shared selector.
+     */
+    @Param({"0", "4"})
+    private int shardCount;
+
+    private SmackReactor reactor;
+
+    private ServerSocketChannel serverSocketChannel;
+
+    private final List<EchoThread> echoThreads = new ArrayList<>(ECHO_THREAD_COUNT);
+
+    private final List<SocketChannel> channels = new ArrayList<>();
+
+    private final AtomicLong bytesEchoed = new AtomicLong();
+
+    @Setup
+    public void setup() throws IOException {
+        reactor = new SmackReactor("Jmh");
+        if (shardCount > 0) {
+            reactor.setShardCount(shardCount);
+        }
+
+        serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), connectionCount);
+        for (int i = 0; i < ECHO_THREAD_COUNT; i++) {
+            EchoThread echoThread = new EchoThread();
+            echoThreads.add(echoThread);
+            echoThread.start();
+        }
+
+        for (int i = 0; i < connectionCount; i++) {
+            SocketChannel channel = SocketChannel.open(serverSocketChannel.getLocalAddress());
+            channel.configureBlocking(false);
+            channels.add(channel);
+
+            SocketChannel serverSideChannel = serverSocketChannel.accept();
+            echoThreads.get(i % ECHO_THREAD_COUNT).add(serverSideChannel);
+
+            ByteBuffer readBuffer = ByteBuffer.allocate(STANZA.length * 4);
+            reactor.registerWithSelector(channel, SelectionKey.OP_READ, (selectedChannel, selectionKey) -> {
+                try {
+                    readBuffer.clear();
+                    int read = channel.read(readBuffer);
+                    if (read < 0) {
+                        selectionKey.cancel();
+                        return;
+                    }
+                    bytesEchoed.addAndGet(read);
+                } catch (IOException e) {
+                    selectionKey.cancel();
+                    return;
+                }
+                reactor.setInterestOps(selectionKey, SelectionKey.OP_READ);
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        for (EchoThread echoThread : echoThreads) {
+            echoThread.interrupt();
+            echoThread.selector.close();
+        }
+        serverSocketChannel.close();
+    }
+
+    @Benchmark
+    public void echoStanzaOverEveryConnection() throws IOException {
+        final long expectedBytesEchoed = bytesEchoed.get() + (long) connectionCount * STANZA.length;
+        for (SocketChannel channel : channels) {
+            ByteBuffer buffer = ByteBuffer.wrap(STANZA);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        while (bytesEchoed.get() < expectedBytesEchoed) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static final class EchoThread extends Thread {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+        private EchoThread() throws IOException {
+            selector = Selector.open();
+            setDaemon(true);
+            setName("Echo stub");
+        }
+
+        private void add(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    for (SocketChannel channel; (channel = newChannels.poll()) != null;) {
+                        channel.configureBlocking(false);
+                        channel.register(selector, SelectionKey.OP_READ);
+                    }
+
+                    selector.select();
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey selectionKey = it.next();
+                        it.remove();
+                        SocketChannel channel = (SocketChannel) selectionKey.channel();
+                        buffer.clear();
+                        if (channel.read(buffer) < 0) {
+                            selectionKey.cancel();
+                            continue;
+                        }
+                        buffer.flip();
+                        while (buffer.hasRemaining()) {
+                            channel.write(buffer);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // The selector was closed on tear down.
+            }
+        }
+    }
+}
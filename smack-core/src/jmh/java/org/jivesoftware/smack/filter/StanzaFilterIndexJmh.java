@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.stringprep.XmppStringprepException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the dispatch of an incoming stanza via a {@link StanzaFilterIndex} with the linear scan over all registered
+ * filters. The indexed dispatch should take constant time regardless of the number of registered filters.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StanzaFilterIndexJmh {
+
+    @Param({"10", "1000", "10000"})
+    private int filterCount;
+
+    private final Map<Object, StanzaFilter> linear = new LinkedHashMap<>();
+
+    private final StanzaFilterIndex<Object, StanzaFilter> index = new StanzaFilterIndex<>();
+
+    private Stanza stanza;
+
+    @Setup
+    public void setup() throws XmppStringprepException {
+        for (int i = 0; i < filterCount; i++) {
+            // Typical filters of pending IQ requests, MUC rooms and other per-entity listeners.
+            StanzaFilter idFilter = new StanzaIdFilter("id-" + i);
+            StanzaFilter fromFilter = new AndFilter(StanzaTypeFilter.MESSAGE,
+                            FromMatchesFilter.create(JidCreate.entityBareFrom("room" + i + "@muc.example.org")));
+            Object idKey = new Object();
+            Object fromKey = new Object();
+            linear.put(idKey, idFilter);
+            linear.put(fromKey, fromFilter);
+            index.put(idKey, idFilter, idFilter);
+            index.put(fromKey, fromFilter, fromFilter);
+        }
+
+        int target = filterCount / 2;
+        stanza = StanzaBuilder.buildMessage("unrelated-id")
+                        .from(JidCreate.entityFullFrom("room" + target + "@muc.example.org/nick"))
+                        .build();
+    }
+
+    @Benchmark
+    public void linearDispatch(Blackhole blackhole) {
+        List<StanzaFilter> matching = new ArrayList<>();
+        for (StanzaFilter filter : linear.values()) {
+            if (filter.accept(stanza)) {
+                matching.add(filter);
+            }
+        }
+        blackhole.consume(matching);
+    }
+
+    @Benchmark
+    public void indexedDispatch(Blackhole blackhole) {
+        List<StanzaFilter> candidates = new ArrayList<>();
+        index.addCandidatesFor(stanza, candidates);
+        List<StanzaFilter> matching = new ArrayList<>(candidates.size());
+        for (StanzaFilter filter : candidates) {
+            if (filter.accept(stanza)) {
+                matching.add(filter);
+            }
+        }
+        blackhole.consume(matching);
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.namespace.QName;
+
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building stanzas, round-tripping them through their builder and looking up their extension elements. The
+ * message shape has a body and <code>extensionCount - 1</code> further extension elements, the presence shape carries
+ * entity capabilities and a vCard update, as most presences do. Run with <code>-prof gc</code> to see the bytes
+ * allocated per operation.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class StanzaExtensionsJmh {
+
+    private static final EntityFullJid FROM = JidCreate.entityFullFromOrThrowUnchecked("juliet@example.org/balcony");
+    private static final EntityBareJid TO = JidCreate.entityBareFromOrThrowUnchecked("romeo@example.org");
+
+    private static final XmlElement CAPS = StandardExtensionElement.builder("c", "http://jabber.org/protocol/caps")
+                    .addAttribute("hash", "sha-1")
+                    .addAttribute("node", "https://igniterealtime.org/projects/smack")
+                    .addAttribute("ver", "QgayPKawpkPSDYmwT/WM94uAlu0=")
+                    .build();
+
+    private static final XmlElement VCARD_UPDATE = StandardExtensionElement.builder("x", "vcard-temp:x:update")
+                    .addElement("photo", "01b87fcd030b72895ff8e88db57ec525450f000d")
+                    .build();
+
+    @Param({"1", "4", "16"})
+    private int extensionCount;
+
+    private final List<XmlElement> messageExtensions = new ArrayList<>();
+
+    private QName lastMessageExtensionQName;
+
+    private Message message;
+
+    private Presence presence;
+
+    @Setup
+    public void setup() {
+        messageExtensions.add(new Message.Body(null, "Hello"));
+        for (int i = 1; i < extensionCount; i++) {
+            messageExtensions.add(StandardExtensionElement.builder("x" + i, "urn:example:jmh:" + i).build());
+        }
+        lastMessageExtensionQName = messageExtensions.get(messageExtensions.size() - 1).getQName();
+
+        message = buildMessage();
+        presence = buildPresence();
+    }
+
+    @Benchmark
+    public Message buildMessage() {
+        return StanzaBuilder.buildMessage("jmh")
+                        .from(FROM)
+                        .to(TO)
+                        .addExtensions(messageExtensions)
+                        .build();
+    }
+
+    @Benchmark
+    public Message messageBuilderRoundTrip() {
+        return message.asBuilder().to(FROM).build();
+    }
+
+    @Benchmark
+    public XmlElement messageGetExtension() {
+        return message.getExtension(lastMessageExtensionQName);
+    }
+
+    @Benchmark
+    public String messageGetBody() {
+        return message.getBody();
+    }
+
+    @Benchmark
+    public Presence buildPresence() {
+        return StanzaBuilder.buildPresence("jmh")
+                        .from(FROM)
+                        .addExtension(CAPS)
+                        .addExtension(VCARD_UPDATE)
+                        .build();
+    }
+
+    @Benchmark
+    public XmlElement presenceGetExtension() {
+        return presence.getExtension(VCARD_UPDATE.getQName());
+    }
+}
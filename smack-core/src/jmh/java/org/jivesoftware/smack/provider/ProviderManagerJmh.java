@@ -0,0 +1,66 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the provider lookups performed for every parsed element. Run with <code>-prof gc</code> to verify that
+ * the lookups do not allocate.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ProviderManagerJmh {
+
+    // Not a compile time constant, as the parser would also hand out strings that are not interned.
+    private final String bodyNamespace = new String(Message.Body.NAMESPACE);
+
+    private final String unknownNamespace = "urn:example:unknown";
+
+    @Benchmark
+    public ExtensionElementProvider<ExtensionElement> getExtensionProvider() {
+        return ProviderManager.getExtensionProvider(Message.Body.ELEMENT, bodyNamespace);
+    }
+
+    @Benchmark
+    public ExtensionElementProvider<ExtensionElement> getUnknownExtensionProvider() {
+        return ProviderManager.getExtensionProvider("unknown", unknownNamespace);
+    }
+
+    @Benchmark
+    public IqProvider<IQ> getIQProvider() {
+        return ProviderManager.getIQProvider("bind", "urn:ietf:params:xml:ns:xmpp-bind");
+    }
+}
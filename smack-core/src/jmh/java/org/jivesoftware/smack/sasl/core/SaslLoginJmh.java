@@ -0,0 +1,234 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.core;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.jivesoftware.smack.SmackException.SmackSaslException;
+import org.jivesoftware.smack.util.MAC;
+import org.jivesoftware.smack.util.SHA1;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Performs {@value #ACCOUNTS} simulated logins, one for each account, against a local SASL stub server. Compares
+ * SCRAM-SHA-1 with a keys cache too small for the number of accounts, SCRAM-SHA-1 with a keys cache sized for the number
+ * of accounts, and HT-SHA-256-NONE using the tokens obtained via FAST. The first warmup iteration populates the keys
+ * cache, the reported time is per login.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SaslLoginJmh {
+
+    private static final int ACCOUNTS = 10000;
+
+    private static final int ITERATIONS = 4096;
+
+    private static final byte[] CLIENT_KEY = "Client Key".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] SERVER_KEY = "Server Key".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"scram-small-cache", "scram-sized-cache", "fast-token"})
+    public String loginKind;
+
+    private Account[] accounts;
+
+    private int previousKeysCacheSize;
+
+    @Setup
+    public void setup() throws GeneralSecurityException {
+        Base64.setEncoder(new Base64.Encoder() {
+            @Override
+            public byte[] decode(String string) {
+                return java.util.Base64.getDecoder().decode(string);
+            }
+
+            @Override
+            public String encodeToString(byte[] input) {
+                return java.util.Base64.getEncoder().encodeToString(input);
+            }
+
+            @Override
+            public String encodeToStringWithoutPadding(byte[] input) {
+                return java.util.Base64.getEncoder().withoutPadding().encodeToString(input);
+            }
+
+            @Override
+            public byte[] encode(byte[] input) {
+                return java.util.Base64.getEncoder().encode(input);
+            }
+        });
+
+        previousKeysCacheSize = ScramMechanism.getKeysCacheSize();
+        switch (loginKind) {
+        case "scram-small-cache":
+            ScramMechanism.setKeysCacheSize(10);
+            break;
+        case "scram-sized-cache":
+            ScramMechanism.setKeysCacheSize(ACCOUNTS);
+            break;
+        }
+
+        SecureRandom random = new SecureRandom();
+        SecretKeyFactory pbkdf2 = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
+        accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = new Account("user" + i, "password" + i, random, pbkdf2);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        ScramMechanism.setKeysCacheSize(previousKeysCacheSize);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ACCOUNTS)
+    public void login() throws GeneralSecurityException, SmackSaslException {
+        boolean fast = loginKind.equals("fast-token");
+        for (Account account : accounts) {
+            if (fast) {
+                account.fastLogin();
+            } else {
+                account.scramLogin();
+            }
+        }
+    }
+
+    /**
+     * An account as known to the stub server, together with the credentials the client uses to log in.
+     */
+    private static final class Account {
+        private final String username;
+        private final String password;
+        private final String salt;
+        private final byte[] storedKey;
+        private final byte[] serverKey;
+        private final String token;
+        private final SecureRandom random;
+
+        private Account(String username, String password, SecureRandom random, SecretKeyFactory pbkdf2)
+                        throws GeneralSecurityException {
+            this.username = username;
+            this.password = password;
+            this.random = random;
+
+            byte[] saltBytes = new byte[16];
+            random.nextBytes(saltBytes);
+            salt = Base64.encodeToString(saltBytes);
+            PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), saltBytes, ITERATIONS, 160);
+            byte[] saltedPassword = pbkdf2.generateSecret(keySpec).getEncoded();
+            storedKey = SHA1.bytes(MAC.hmacsha1(saltedPassword, CLIENT_KEY));
+            serverKey = MAC.hmacsha1(saltedPassword, SERVER_KEY);
+
+            byte[] tokenBytes = new byte[32];
+            random.nextBytes(tokenBytes);
+            token = Base64.encodeToString(tokenBytes);
+        }
+
+        private void scramLogin() throws GeneralSecurityException, SmackSaslException {
+            BenchmarkScramSha1Mechanism mechanism = new BenchmarkScramSha1Mechanism(username, password);
+
+            String clientFirstMessage = new String(mechanism.getAuthenticationText(), StandardCharsets.UTF_8);
+            String clientFirstMessageBare = clientFirstMessage.substring(clientFirstMessage.indexOf("n=", 2));
+            String clientNonce = clientFirstMessageBare.substring(clientFirstMessageBare.indexOf(",r=") + 3);
+            byte[] serverNonceBytes = new byte[18];
+            random.nextBytes(serverNonceBytes);
+            String serverFirstMessage = "r=" + clientNonce + Base64.encodeToString(serverNonceBytes) + ",s=" + salt
+                            + ",i=" + ITERATIONS;
+
+            String clientFinalMessage = new String(mechanism.evaluateChallenge(toBytes(serverFirstMessage)),
+                            StandardCharsets.UTF_8);
+            int proofIndex = clientFinalMessage.lastIndexOf(",p=");
+            byte[] clientProof = Base64.decode(clientFinalMessage.substring(proofIndex + 3));
+            byte[] authMessage = toBytes(clientFirstMessageBare + ',' + serverFirstMessage + ','
+                            + clientFinalMessage.substring(0, proofIndex));
+
+            byte[] clientSignature = MAC.hmacsha1(storedKey, authMessage);
+            byte[] clientKey = new byte[clientProof.length];
+            for (int i = 0; i < clientKey.length; i++) {
+                clientKey[i] = (byte) (clientProof[i] ^ clientSignature[i]);
+            }
+            if (!MessageDigest.isEqual(storedKey, SHA1.bytes(clientKey))) {
+                throw new IllegalStateException("Invalid client proof of " + username);
+            }
+
+            String serverFinalMessage = "v=" + Base64.encodeToString(MAC.hmacsha1(serverKey, authMessage));
+            mechanism.evaluateChallenge(toBytes(serverFinalMessage));
+            mechanism.checkIfSuccessfulOrThrow();
+        }
+
+        private void fastLogin() throws GeneralSecurityException, SmackSaslException {
+            BenchmarkHtSha256NoneMechanism mechanism = new BenchmarkHtSha256NoneMechanism(username, token);
+
+            byte[] initialResponse = mechanism.getAuthenticationText();
+            byte[] tokenBytes = toBytes(token);
+            byte[] expected = MAC.hmacsha256(tokenBytes, toBytes("Initiator"));
+            int separator = username.length() + 1;
+            byte[] initiatorHashedToken = new byte[initialResponse.length - separator];
+            System.arraycopy(initialResponse, separator, initiatorHashedToken, 0, initiatorHashedToken.length);
+            if (!MessageDigest.isEqual(expected, initiatorHashedToken)) {
+                throw new IllegalStateException("Invalid token of " + username);
+            }
+
+            mechanism.evaluateChallenge(MAC.hmacsha256(tokenBytes, toBytes("Responder")));
+            mechanism.checkIfSuccessfulOrThrow();
+        }
+
+        private static byte[] toBytes(String string) {
+            return string.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class BenchmarkScramSha1Mechanism extends SCRAMSHA1Mechanism {
+        private BenchmarkScramSha1Mechanism(String username, String password) {
+            this.authenticationId = username;
+            this.password = password;
+        }
+    }
+
+    private static final class BenchmarkHtSha256NoneMechanism extends HtSha256NoneMechanism {
+        private BenchmarkHtSha256NoneMechanism(String username, String token) {
+            this.authenticationId = username;
+            this.password = token;
+        }
+    }
+}
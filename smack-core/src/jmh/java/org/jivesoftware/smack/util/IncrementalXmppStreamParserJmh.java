@@ -0,0 +1,86 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares parsing the incoming top-level elements of a stream by wrapping each element into the stream open and close
+ * tags and creating a new parser for it, with feeding the elements into a long-lived
+ * {@link IncrementalXmppStreamParser}. Run with the GC profiler, i.e., <code>-prof gc</code>, to compare the
+ * allocation rate per parsed stanza.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class IncrementalXmppStreamParserJmh {
+
+    private static final String STREAM_OPEN = "<stream:stream xmlns='jabber:client'"
+                    + " xmlns:stream='http://etherx.jabber.org/streams' xml:lang='en'>";
+
+    private static final String STREAM_CLOSE = "</stream:stream>";
+
+    private static final String ELEMENT = "<message from='juliet@example.com/balcony' to='romeo@example.net'"
+                    + " id='ktx72v49' type='chat'><body>Art thou not Romeo, and a Montague?</body></message>";
+
+    private final JxmppContext jxmppContext = JxmppContext.getDefaultContext();
+
+    private IncrementalXmppStreamParser incrementalXmppStreamParser;
+
+    @Setup
+    public void setup() throws XmlPullParserException, IOException {
+        incrementalXmppStreamParser = new IncrementalXmppStreamParser();
+        incrementalXmppStreamParser.streamOpened(STREAM_OPEN);
+    }
+
+    @Benchmark
+    public Stanza wrappedElementParsing() throws XmlPullParserException, IOException, SmackParsingException {
+        String wrappedElement = STREAM_OPEN + ELEMENT + STREAM_CLOSE;
+        XmlPullParser parser = PacketParserUtils.getParserFor(wrappedElement);
+        // Skip the enclosing stream open.
+        parser.next();
+        return PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY, jxmppContext);
+    }
+
+    @Benchmark
+    public Stanza incrementalElementParsing() throws XmlPullParserException, IOException, SmackParsingException {
+        XmlPullParser parser = incrementalXmppStreamParser.feed(ELEMENT);
+        return PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY, jxmppContext);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the outgoing element queues under contention, like a connection's writer thread draining the elements sent
+ * by many application threads. The producers put {@link #ELEMENTS} elements in total, while the benchmark thread takes
+ * them, either one per wakeup or in batches.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class OutgoingQueueContentionJmh {
+
+    private static final int ELEMENTS = 64 * 1024;
+
+    private static final int QUEUE_SIZE = 500;
+
+    private static final int MAX_BATCH_SIZE = 64;
+
+    private static final Object ELEMENT = new Object();
+
+    @Param({"1", "4", "16", "64"})
+    private int producerCount;
+
+    private ExecutorService producers;
+
+    @Setup
+    public void setup() {
+        producers = Executors.newFixedThreadPool(producerCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        producers.shutdownNow();
+    }
+
+    private interface Put {
+        void put(Object element) throws InterruptedException;
+    }
+
+    private CountDownLatch startProducers(Put put) {
+        final int elementsPerProducer = ELEMENTS / producerCount;
+        CountDownLatch producersDone = new CountDownLatch(producerCount);
+        for (int i = 0; i < producerCount; i++) {
+            producers.execute(() -> {
+                try {
+                    for (int j = 0; j < elementsPerProducer; j++) {
+                        put.put(ELEMENT);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    producersDone.countDown();
+                }
+            });
+        }
+        return producersDone;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void arrayBlockingQueueWithShutdown(Blackhole blackhole) throws InterruptedException {
+        ArrayBlockingQueueWithShutdown<Object> queue = new ArrayBlockingQueueWithShutdown<>(QUEUE_SIZE, true);
+        CountDownLatch producersDone = startProducers(queue::put);
+        for (int i = 0; i < ELEMENTS; i++) {
+            blackhole.consume(queue.take());
+        }
+        producersDone.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void mpscArrayQueueWithShutdown(Blackhole blackhole) throws InterruptedException {
+        MpscArrayQueueWithShutdown<Object> queue = new MpscArrayQueueWithShutdown<>(QUEUE_SIZE);
+        CountDownLatch producersDone = startProducers(queue::put);
+        for (int i = 0; i < ELEMENTS; i++) {
+            blackhole.consume(queue.take());
+        }
+        producersDone.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ELEMENTS)
+    public void mpscArrayQueueWithShutdownBatchDrain(Blackhole blackhole) throws InterruptedException {
+        MpscArrayQueueWithShutdown<Object> queue = new MpscArrayQueueWithShutdown<>(QUEUE_SIZE);
+        CountDownLatch producersDone = startProducers(queue::put);
+        List<Object> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        int taken = 0;
+        while (taken < ELEMENTS) {
+            batch.add(queue.take());
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            for (Object element : batch) {
+                blackhole.consume(element);
+            }
+            taken += batch.size();
+            batch.clear();
+        }
+        producersDone.await();
+    }
+}
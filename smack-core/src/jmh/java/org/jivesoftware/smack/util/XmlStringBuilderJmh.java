@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2025 Florian Schmaus
+ * Copyright 2025-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,16 @@
  */
 package org.jivesoftware.smack.util;
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
@@ -31,7 +39,12 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
-
+/**
+ * Measures the serialization of a large {@link XmlStringBuilder}. Besides {@link XmlStringBuilder#toString()}, this
+ * compares encoding the fragments returned by {@link XmlStringBuilder#toList(XmlEnvironment)} one-by-one with a
+ * {@link CharsetEncoder}, which is how the transports used to write elements, with the {@link XmlUtf8Serializer}.
+ * Both write into a re-used direct buffer, which is drained whenever it fills up.
+ */
 @Fork(value = 1)
 @Warmup(iterations = 3)
 @Measurement(iterations = 3)
@@ -45,6 +58,14 @@ public class XmlStringBuilderJmh {
 
     private XmlStringBuilder xmlStringBuilder;
 
+    private final ByteBuffer byteBuffer = ByteBuffer.allocateDirect(8 * 1024);
+
+    private final CharsetEncoder utf8Encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    private final XmlUtf8Serializer xmlUtf8Serializer = new XmlUtf8Serializer();
+
     @Setup(Level.Invocation)
     public void setup() {
         xmlStringBuilder = new XmlStringBuilder();
@@ -62,4 +83,40 @@ public class XmlStringBuilderJmh {
         var string = xmlStringBuilder.toString();
         blackhole.consume(string);
     }
+
+    @Benchmark
+    public void charsetEncoderToByteBuffer(Blackhole blackhole) {
+        for (CharSequence csq : xmlStringBuilder.toList(XmlEnvironment.EMPTY)) {
+            CharBuffer charBuffer = CharBuffer.wrap(csq);
+            while (true) {
+                CoderResult coderResult = utf8Encoder.encode(charBuffer, byteBuffer, true);
+                if (coderResult.isUnderflow()) {
+                    coderResult = utf8Encoder.flush(byteBuffer);
+                }
+                if (coderResult.isUnderflow()) {
+                    break;
+                }
+                drain(blackhole);
+            }
+            utf8Encoder.reset();
+        }
+        drain(blackhole);
+    }
+
+    @Benchmark
+    public void xmlUtf8SerializerToByteBuffer(Blackhole blackhole) {
+        xmlUtf8Serializer.reset(xmlStringBuilder, XmlEnvironment.EMPTY);
+        while (!xmlUtf8Serializer.writeTo(byteBuffer)) {
+            drain(blackhole);
+        }
+        drain(blackhole);
+    }
+
+    private void drain(Blackhole blackhole) {
+        ((java.nio.Buffer) byteBuffer).flip();
+        if (byteBuffer.hasRemaining()) {
+            blackhole.consume(byteBuffer.get(byteBuffer.limit() - 1));
+        }
+        ((java.nio.Buffer) byteBuffer).clear();
+    }
 }
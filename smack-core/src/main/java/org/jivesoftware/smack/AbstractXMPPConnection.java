@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2009 Jive Software, 2018-2025 Florian Schmaus.
+ * Copyright 2009 Jive Software, 2018-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,13 +24,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
@@ -74,6 +72,7 @@ import org.jivesoftware.smack.debugger.SmackDebugger;
 import org.jivesoftware.smack.debugger.SmackDebuggerFactory;
 import org.jivesoftware.smack.filter.IQReplyFilter;
 import org.jivesoftware.smack.filter.StanzaFilter;
+import org.jivesoftware.smack.filter.StanzaFilterIndex;
 import org.jivesoftware.smack.filter.StanzaIdFilter;
 import org.jivesoftware.smack.internal.SmackTlsContext;
 import org.jivesoftware.smack.iqrequest.IQRequestHandler;
@@ -106,17 +105,22 @@ import org.jivesoftware.smack.parsing.SmackParsingException;
 import org.jivesoftware.smack.provider.ExtensionElementProvider;
 import org.jivesoftware.smack.provider.NonzaProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.provider.Sasl2AuthenticationFeatureProvider;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
 import org.jivesoftware.smack.sasl.core.SASLAnonymous;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza;
 import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.CollectionUtil;
+import org.jivesoftware.smack.util.HashedWheelTimer;
 import org.jivesoftware.smack.util.MultiMap;
 import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.util.ParserUtils;
 import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.VirtualThreads;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
@@ -193,26 +197,31 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
      * A collection of StanzaCollectors which collects packets for a specified filter
      * and perform blocking and polling operations on the result queue.
      * <p>
-     * We use a ConcurrentLinkedQueue here, because its Iterator is weakly
-     * consistent and we want {@link #invokeStanzaCollectorsAndNotifyRecvListeners(Stanza)} for-each
-     * loop to be lock free. As drawback, removing a StanzaCollector is O(n).
-     * The alternative would be a synchronized HashSet, but this would mean a
-     * synchronized block around every usage of <code>collectors</code>.
+     * The collectors are indexed by the key of their stanza filter, see {@link StanzaFilterIndex}. This makes
+     * {@link #invokeStanzaCollectorsAndNotifyRecvListeners(Stanza)} only consider the collectors which are candidates
+     * for the incoming stanza, and makes removing a StanzaCollector O(1). The monitor of the index is only held while
+     * looking up the candidates, the stanza filters are invoked without holding it.
      * </p>
      */
-    private final Collection<StanzaCollector> collectors = new ConcurrentLinkedQueue<>();
+    private final StanzaFilterIndex<StanzaCollector, StanzaCollector> collectors = new StanzaFilterIndex<>();
 
-    private final Map<StanzaListener, ListenerWrapper> recvListeners = new LinkedHashMap<>();
+    /**
+     * The IQ requests waiting for their response. Responses are correlated by their stanza ID, instead of registering a
+     * stanza collector or listener for every request.
+     */
+    private final PendingIqRequests pendingIqRequests = new PendingIqRequests();
+
+    private final StanzaFilterIndex<StanzaListener, ListenerWrapper> recvListeners = new StanzaFilterIndex<>();
 
     /**
      * List of PacketListeners that will be notified synchronously when a new stanza was received.
      */
-    private final Map<StanzaListener, ListenerWrapper> syncRecvListeners = new LinkedHashMap<>();
+    private final StanzaFilterIndex<StanzaListener, ListenerWrapper> syncRecvListeners = new StanzaFilterIndex<>();
 
     /**
      * List of PacketListeners that will be notified asynchronously when a new stanza was received.
      */
-    private final Map<StanzaListener, ListenerWrapper> asyncRecvListeners = new LinkedHashMap<>();
+    private final StanzaFilterIndex<StanzaListener, ListenerWrapper> asyncRecvListeners = new StanzaFilterIndex<>();
 
     /**
      * List of PacketListeners that will be notified when a new stanza was sent.
@@ -329,6 +338,13 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     private ParsingExceptionCallback parsingExceptionCallback = SmackConfiguration.getDefaultParsingExceptionCallback();
 
+    private static final Thread.UncaughtExceptionHandler UNCAUGHT_EXCEPTION_HANDLER = new Thread.UncaughtExceptionHandler() {
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            LOGGER.log(Level.WARNING, t + " encountered uncaught exception", e);
+        }
+    };
+
     /**
      * A cached thread pool executor service with custom thread factory to set meaningful names on the threads and set
      * them 'daemon'.
@@ -339,16 +355,18 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             Thread thread = new Thread(runnable);
             thread.setName("Smack Cached Executor");
             thread.setDaemon(true);
-            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
-                @Override
-                public void uncaughtException(Thread t, Throwable e) {
-                    LOGGER.log(Level.WARNING, t + " encountered uncaught exception", e);
-                }
-            });
+            thread.setUncaughtExceptionHandler(UNCAUGHT_EXCEPTION_HANDLER);
             return thread;
         }
     });
 
+    /**
+     * The factory for the virtual threads used if the {@link SmackConfiguration.ExecutionMode#virtualThreads} execution
+     * mode is set. Is <code>null</code> if the runtime does not support virtual threads.
+     */
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = VirtualThreads.newThreadFactory("Smack Virtual Executor ",
+                    UNCAUGHT_EXCEPTION_HANDLER);
+
     protected static final AsyncButOrdered<AbstractXMPPConnection> ASYNC_BUT_ORDERED = new AsyncButOrdered<>();
 
     /**
@@ -411,6 +429,21 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 }
             })
             .listenFor(SaslNonza.SASLFailure.class, f -> saslAuthentication.authenticationFailed(f))
+            .listenFor(Sasl2Nonza.Challenge.class, c -> {
+                try {
+                    saslAuthentication.challengeReceived(c);
+                } catch (SmackException | InterruptedException e) {
+                    saslAuthentication.authenticationFailed(e);
+                }
+            })
+            .listenFor(Sasl2Nonza.Success.class, s -> {
+                try {
+                    saslAuthentication.authenticated(s);
+                } catch (SmackSaslException | NotConnectedException | InterruptedException e) {
+                    saslAuthentication.authenticationFailed(e);
+                }
+            })
+            .listenFor(Sasl2Nonza.Failure.class, f -> saslAuthentication.authenticationFailed(f))
             .install();
 
         SmackDebuggerFactory debuggerFactory = configuration.getDebuggerFactory();
@@ -764,8 +797,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         // Set the connections user to the result of resource binding. It is important that we don't infer the user
         // from the login() arguments and the configurations service name, as, for example, when SASL External is used,
         // the username is not given to login but taken from the 'external' certificate.
-        user = response.getJid();
-        xmppServiceDomain = user.asDomainBareJid();
+        setBoundUser(response.getJid());
 
         Session.Feature sessionFeature = getFeature(Session.Feature.class);
         // Only bind the session if it's announced as stream feature by the server, is not optional and not disabled
@@ -827,6 +859,16 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     private DomainBareJid xmppServiceDomain;
 
+    /**
+     * Set the XMPP address of this connection, as assigned by the service once a resource was bound.
+     *
+     * @param user the XMPP address of this connection.
+     */
+    protected final void setBoundUser(EntityFullJid user) {
+        this.user = user;
+        xmppServiceDomain = user.asDomainBareJid();
+    }
+
     protected Lock getConnectionLock() {
         return connectionLock;
     }
@@ -918,6 +960,31 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         return saslMechanism;
     }
 
+    /**
+     * Authenticate using Extensible SASL Profile (SASL2, XEP-0388). Unlike {@link #authenticate(String, String,
+     * EntityBareJid, SSLSession)}, this does not restart the stream, as SASL2 does not require it.
+     *
+     * @param username the username that is authenticating with the server.
+     * @param password the password to send to the server.
+     * @param authzid the authorization identifier (typically null).
+     * @param sslSession the optional SSL/TLS session (if one was established)
+     * @param inlineElements the elements to include inline in the authenticate element.
+     * @return the SASL2 success element, containing the results of the inline requests.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws SASLErrorException if a SASL protocol error was returned.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackSaslException if a SASL specific error occurred.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws NoResponseException if there was no response from the remote entity.
+     */
+    protected final Sasl2Nonza.Success authenticateWithSasl2(String username, String password, EntityBareJid authzid,
+                    SSLSession sslSession, List<? extends XmlElement> inlineElements) throws XMPPErrorException,
+                    SASLErrorException, SmackSaslException, NotConnectedException, NoResponseException, IOException,
+                    InterruptedException {
+        return saslAuthentication.authenticateWithSasl2(username, password, authzid, sslSession, inlineElements);
+    }
+
     /**
      * Hook for subclasses right after successful SASL authentication. RFC 6120 § 6.4.6. specifies a that the initiating
      * entity, needs to initiate a new stream in this case. But some transports, like BOSH, requires a special handling.
@@ -1010,9 +1077,14 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
             // case the Exception is a StreamErrorException.
             instantShutdown();
 
-            for (StanzaCollector collector : collectors) {
+            List<StanzaCollector> collectorsToNotify;
+            synchronized (collectors) {
+                collectorsToNotify = collectors.values();
+            }
+            for (StanzaCollector collector : collectorsToNotify) {
                 collector.notifyConnectionError(exception);
             }
+            pendingIqRequests.notifyConnectionError(exception);
 
             Async.go(() -> {
                 // Notify connection listeners of the error.
@@ -1067,9 +1139,30 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     @Override
     public StanzaCollector createStanzaCollectorAndSend(IQ packet) throws NotConnectedException, InterruptedException {
-        StanzaFilter packetFilter = new IQReplyFilter(packet, this);
-        // Create the packet collector before sending the packet
-        StanzaCollector packetCollector = createStanzaCollectorAndSend(packetFilter, packet);
+        IQReplyFilter replyFilter = new IQReplyFilter(packet, this);
+        StanzaCollector.Configuration configuration = StanzaCollector.newConfiguration()
+                        .setStanzaFilter(replyFilter)
+                        .setRequest(packet);
+        // Create the packet collector before sending the packet. Note that the collector is not added to the active
+        // collectors, instead the response is delivered to it via the table of pending IQ requests.
+        StanzaCollector packetCollector = new StanzaCollector(this, configuration);
+        PendingIqRequests.PendingIqRequest pendingIqRequest = new PendingIqRequests.CollectorPendingIqRequest(packet,
+                        replyFilter, packetCollector);
+        boolean added = pendingIqRequests.add(pendingIqRequest);
+        if (!added) {
+            // There is already a pending request with the same stanza ID, fall back to an active collector.
+            synchronized (collectors) {
+                collectors.put(packetCollector, replyFilter, packetCollector);
+            }
+        }
+        try {
+            // Now we can send the packet as the collector has been created
+            sendStanza(packet);
+        }
+        catch (InterruptedException | NotConnectedException | RuntimeException e) {
+            packetCollector.cancel();
+            throw e;
+        }
         return packetCollector;
     }
 
@@ -1102,13 +1195,30 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     public StanzaCollector createStanzaCollector(StanzaCollector.Configuration configuration) {
         StanzaCollector collector = new StanzaCollector(this, configuration);
         // Add the collector to the list of active collectors.
-        collectors.add(collector);
+        synchronized (collectors) {
+            collectors.put(collector, collector.getStanzaFilter(), collector);
+        }
         return collector;
     }
 
     @Override
     public void removeStanzaCollector(StanzaCollector collector) {
-        collectors.remove(collector);
+        StanzaCollector removed;
+        synchronized (collectors) {
+            removed = collectors.remove(collector);
+        }
+        if (removed == null) {
+            pendingIqRequests.remove(collector);
+        }
+    }
+
+    /**
+     * Get the number of IQ requests which are waiting for their response.
+     *
+     * @return the number of pending IQ requests.
+     */
+    public int getPendingIqRequestCount() {
+        return pendingIqRequests.size();
     }
 
     @Override
@@ -1118,7 +1228,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         }
         ListenerWrapper wrapper = new ListenerWrapper(stanzaListener, stanzaFilter);
         synchronized (recvListeners) {
-            recvListeners.put(stanzaListener, wrapper);
+            recvListeners.put(stanzaListener, stanzaFilter, wrapper);
         }
         return new ListenerHandle.StanzaListenerHandle(this, stanzaListener);
     }
@@ -1137,7 +1247,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         }
         ListenerWrapper wrapper = new ListenerWrapper(packetListener, packetFilter);
         synchronized (syncRecvListeners) {
-            syncRecvListeners.put(packetListener, wrapper);
+            syncRecvListeners.put(packetListener, packetFilter, wrapper);
         }
         return new ListenerHandle.SyncStanzaListenerHandle(this, packetListener);
     }
@@ -1156,7 +1266,7 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         }
         ListenerWrapper wrapper = new ListenerWrapper(packetListener, packetFilter);
         synchronized (asyncRecvListeners) {
-            asyncRecvListeners.put(packetListener, wrapper);
+            asyncRecvListeners.put(packetListener, packetFilter, wrapper);
         }
         return new ListenerHandle.AsyncStanzaListenerHandle(this, packetListener);
     }
@@ -1659,8 +1769,17 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
         // Notify collectors after we invoked the listeners. This allows the listeners to adjust their behavior on state
         // changing operations, e.g., leaving a MUC, which are often based on collectors.
-        // Loop through all collectors and notify the appropriate ones.
-        for (StanzaCollector collector : collectors) {
+        // First complete the pending IQ request this stanza is a response to, if any.
+        if (packet instanceof IQ) {
+            pendingIqRequests.processResponse((IQ) packet, this);
+        }
+
+        // Loop through all candidate collectors and notify the appropriate ones.
+        final List<StanzaCollector> collectorsToNotify = new ArrayList<>();
+        synchronized (collectors) {
+            collectors.addCandidatesFor(packet, collectorsToNotify);
+        }
+        for (StanzaCollector collector : collectorsToNotify) {
             collector.processStanza(packet);
         }
 
@@ -1699,13 +1818,17 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
         });
     }
 
-    private static void extractMatchingListeners(Stanza stanza, Map<StanzaListener, ListenerWrapper> listeners,
+    private static void extractMatchingListeners(Stanza stanza,
+                    StanzaFilterIndex<StanzaListener, ListenerWrapper> listeners,
                     Collection<StanzaListener> listenersToNotify) {
+        final List<ListenerWrapper> candidates = new ArrayList<>();
+        // Only hold the monitor while looking up the candidates, the filters are invoked without holding it.
         synchronized (listeners) {
-            for (ListenerWrapper listenerWrapper : listeners.values()) {
-                if (listenerWrapper.filterMatches(stanza)) {
-                    listenersToNotify.add(listenerWrapper.getListener());
-                }
+            listeners.addCandidatesFor(stanza, candidates);
+        }
+        for (ListenerWrapper listenerWrapper : candidates) {
+            if (listenerWrapper.filterMatches(stanza)) {
+                listenersToNotify.add(listenerWrapper.getListener());
             }
         }
     }
@@ -1902,6 +2025,12 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
                 case Compress.Feature.ELEMENT:
                     streamFeature = PacketParserUtils.parseCompressionFeature(parser);
                     break;
+                case Sasl2AuthenticationFeature.ELEMENT:
+                    if (Sasl2AuthenticationFeature.NAMESPACE.equals(namespace)) {
+                        streamFeature = Sasl2AuthenticationFeatureProvider.INSTANCE.parse(parser,
+                                        incomingStreamXmlEnvironment, getJxmppContext());
+                    }
+                    break;
                 default:
                     ExtensionElementProvider<ExtensionElement> provider = ProviderManager.getStreamFeatureProvider(name, namespace);
                     if (provider != null) {
@@ -1973,8 +2102,48 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
 
     @Override
     public SmackFuture<IQ, Exception> sendIqRequestAsync(IQ request, long timeout) {
-        StanzaFilter replyFilter = new IQReplyFilter(request, this);
-        return sendAsync(request, replyFilter, timeout);
+        IQReplyFilter replyFilter = new IQReplyFilter(request, this);
+
+        final InternalSmackFuture<IQ, Exception> future = new InternalSmackFuture<>();
+        final PendingIqRequests.FuturePendingIqRequest pendingIqRequest = new PendingIqRequests.FuturePendingIqRequest(
+                        request, replyFilter, future);
+        boolean added = pendingIqRequests.add(pendingIqRequest);
+        if (!added) {
+            // There is already a pending request with the same stanza ID, fall back to a reply listener.
+            return sendAsync(request, replyFilter, timeout);
+        }
+
+        HashedWheelTimer.Timeout noResponseTimeout = PendingIqRequests.TIMEOUT_WHEEL.newTimeout(() -> {
+            boolean removed = pendingIqRequests.remove(pendingIqRequest);
+            if (!removed) {
+                // We lost a race against the response, there is nothing more to do here.
+                return;
+            }
+
+            Exception exception;
+            if (!isConnected()) {
+                // If the connection is no longer connected, throw a not connected exception.
+                exception = new NotConnectedException(AbstractXMPPConnection.this, replyFilter);
+            }
+            else {
+                exception = NoResponseException.newWith(AbstractXMPPConnection.this, replyFilter);
+            }
+            pendingIqRequest.setException(exception);
+        }, timeout, TimeUnit.MILLISECONDS);
+        pendingIqRequest.setTimeout(noResponseTimeout);
+
+        try {
+            sendStanzaNonBlocking(request);
+        }
+        catch (NotConnectedException | OutgoingQueueFullException exception) {
+            boolean removed = pendingIqRequests.remove(pendingIqRequest);
+            if (removed) {
+                pendingIqRequest.cancelTimeout();
+                pendingIqRequest.setException(exception);
+            }
+        }
+
+        return future;
     }
 
     @Override
@@ -2266,6 +2435,11 @@ public abstract class AbstractXMPPConnection implements XMPPConnection {
     }
 
     protected static void asyncGo(Runnable runnable) {
+        if (VIRTUAL_THREAD_FACTORY != null
+                        && SmackConfiguration.getExecutionMode() == SmackConfiguration.ExecutionMode.virtualThreads) {
+            VIRTUAL_THREAD_FACTORY.newThread(runnable).start();
+            return;
+        }
         CACHED_EXECUTOR_SERVICE.execute(runnable);
     }
 
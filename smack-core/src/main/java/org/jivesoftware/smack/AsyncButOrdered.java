@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2019 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,10 @@
  */
 package org.jivesoftware.smack;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Queue;
-import java.util.WeakHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 
 /**
@@ -46,23 +45,32 @@ import java.util.concurrent.Executor;
  * runnables of subsequent invocations are always executed after the runnables of previous invocations using the same
  * key.
  * </p>
+ * <p>
+ * The pending runnables are kept in per-key queues, which are distributed over a fixed number of lock stripes. Hence
+ * invocations for different keys do rarely contend, even if the instance is shared by many connections.
+ * </p>
  *
  * @param <K> the type of the key
  * @since 4.3
  */
 public class AsyncButOrdered<K> {
 
-    /**
-     * A map with the currently pending runnables for a given key. Note that this is a weak hash map, so we do not have
-     * to take care of removing the keys ourselves from the map.
-     */
-    private final Map<K, Queue<Runnable>> pendingRunnables = new WeakHashMap<>();
+    private static final int STRIPE_COUNT;
+
+    static {
+        int stripeCount = 1;
+        // Use about four stripes per processor, so that contention is unlikely.
+        while (stripeCount < 4 * Runtime.getRuntime().availableProcessors() && stripeCount < 256) {
+            stripeCount <<= 1;
+        }
+        STRIPE_COUNT = stripeCount;
+    }
 
     /**
-     * A marker map if there is an active thread for the given key. Holds the responsible handler thread if one is
-     * active, otherwise the key is non-existent in the map.
+     * The lock stripes. Every stripe holds the queues of the keys with pending runnables mapping to the stripe. A key's
+     * queue is removed once its handler has run all runnables, hence the stripes do not keep references to keys.
      */
-    private final Map<K, Handler> threadActiveMap = new HashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
 
     private final Executor executor;
 
@@ -72,6 +80,16 @@ public class AsyncButOrdered<K> {
 
     public AsyncButOrdered(Executor executor) {
         this.executor = executor;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    private Stripe stripeFor(K key) {
+        int hash = key == null ? 0 : key.hashCode();
+        // Spread the higher bits, like HashMap does.
+        hash ^= hash >>> 16;
+        return stripes[hash & (stripes.length - 1)];
     }
 
     private void scheduleHandler(Handler handler) {
@@ -90,29 +108,18 @@ public class AsyncButOrdered<K> {
      * @return true if a new thread was created
      */
     public boolean performAsyncButOrdered(K key, Runnable runnable) {
-        // First check if a key queue already exists, create one if not.
-        Queue<Runnable> keyQueue;
-        synchronized (pendingRunnables) {
-            keyQueue = pendingRunnables.get(key);
-            if (keyQueue == null) {
-                keyQueue = new ConcurrentLinkedQueue<>();
-                pendingRunnables.put(key, keyQueue);
-            }
-        }
+        Stripe stripe = stripeFor(key);
 
-        // Then add the task to the queue.
-        keyQueue.add(runnable);
-
-        // Finally check if there is already a handler working on that queue, create one if not.
         Handler newlyCreatedHandler = null;
-        synchronized (threadActiveMap) {
-            if (!threadActiveMap.containsKey(key)) {
-                newlyCreatedHandler = new Handler(keyQueue, key);
-
-                // Mark that there is thread active for the given key. Note that this has to be done before scheduling
-                // the handler thread.
-                threadActiveMap.put(key, newlyCreatedHandler);
+        synchronized (stripe) {
+            Queue<Runnable> keyQueue = stripe.pendingRunnables.get(key);
+            if (keyQueue == null) {
+                // There is no handler active for the given key, as the handler removes the queue once it is empty.
+                keyQueue = new ArrayDeque<>();
+                stripe.pendingRunnables.put(key, keyQueue);
+                newlyCreatedHandler = new Handler(stripe, keyQueue, key);
             }
+            keyQueue.add(runnable);
         }
 
         if (newlyCreatedHandler != null) {
@@ -132,42 +139,42 @@ public class AsyncButOrdered<K> {
         };
     }
 
+    private static final class Stripe {
+        private final Map<Object, Queue<Runnable>> pendingRunnables = new HashMap<>();
+    }
+
     private class Handler implements Runnable {
+        private final Stripe stripe;
         private final Queue<Runnable> keyQueue;
         private final K key;
 
-        Handler(Queue<Runnable> keyQueue, K key) {
+        Handler(Stripe stripe, Queue<Runnable> keyQueue, K key) {
+            this.stripe = stripe;
             this.keyQueue = keyQueue;
             this.key = key;
         }
 
         @Override
         public void run() {
-            mainloop:
             while (true) {
-                Runnable runnable = null;
-                while ((runnable = keyQueue.poll()) != null) {
-                    try {
-                        runnable.run();
-                    } catch (Throwable t) {
-                        // The run() method threw, this handler thread is going to terminate because of that. We create
-                        // a new handler to continue working on the queue while throwing the throwable so that the
-                        // executor can handle it.
-                        Handler newlyCreatedHandler = new Handler(keyQueue, key);
-                        synchronized (threadActiveMap) {
-                            threadActiveMap.put(key, newlyCreatedHandler);
-                        }
-                        scheduleHandler(newlyCreatedHandler);
-                        throw t;
+                Runnable runnable;
+                synchronized (stripe) {
+                    runnable = keyQueue.poll();
+                    if (runnable == null) {
+                        // The queue is empty, stop this handler. The next invocation for the key creates a new one.
+                        stripe.pendingRunnables.remove(key);
+                        return;
                     }
                 }
 
-                synchronized (threadActiveMap) {
-                    // If the queue is empty, stop this handler, otherwise continue looping.
-                    if (keyQueue.isEmpty()) {
-                        threadActiveMap.remove(key);
-                        break mainloop;
-                    }
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    // The run() method threw, this handler thread is going to terminate because of that. We create
+                    // a new handler to continue working on the queue while throwing the throwable so that the
+                    // executor can handle it.
+                    scheduleHandler(new Handler(stripe, keyQueue, key));
+                    throw t;
                 }
             }
         }
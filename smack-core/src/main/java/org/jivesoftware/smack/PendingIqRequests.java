@@ -0,0 +1,206 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.SmackFuture.InternalSmackFuture;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.filter.IQReplyFilter;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.util.HashedWheelTimer;
+
+/**
+ * The table of IQ requests of a connection that are waiting for their response. The requests are keyed by their stanza
+ * ID, which makes correlating an incoming IQ response with its request O(1), without registering a stanza listener
+ * or collector per request. The 'from' address of a response is verified by the {@link IQReplyFilter} of the request.
+ * The timeouts of asynchronous requests are managed by a shared {@link HashedWheelTimer}.
+ */
+final class PendingIqRequests {
+
+    static final HashedWheelTimer TIMEOUT_WHEEL = new HashedWheelTimer("IQ Response Timeout", 100,
+                    TimeUnit.MILLISECONDS, 512);
+
+    private final Map<String, PendingIqRequest> pendingRequests = new ConcurrentHashMap<>();
+
+    /**
+     * Add the given pending IQ request.
+     *
+     * @param pendingIqRequest the pending IQ request.
+     * @return <code>true</code> if the request was added, <code>false</code> if there is already a pending request with
+     *         the same stanza ID.
+     */
+    boolean add(PendingIqRequest pendingIqRequest) {
+        PendingIqRequest previous = pendingRequests.putIfAbsent(pendingIqRequest.stanzaId, pendingIqRequest);
+        return previous == null;
+    }
+
+    boolean remove(PendingIqRequest pendingIqRequest) {
+        return pendingRequests.remove(pendingIqRequest.stanzaId, pendingIqRequest);
+    }
+
+    boolean remove(StanzaCollector collector) {
+        Stanza request = collector.getRequest();
+        if (request == null) {
+            return false;
+        }
+        String stanzaId = request.getStanzaId();
+        if (stanzaId == null) {
+            return false;
+        }
+        PendingIqRequest pendingIqRequest = pendingRequests.get(stanzaId);
+        if (!(pendingIqRequest instanceof CollectorPendingIqRequest)) {
+            return false;
+        }
+        CollectorPendingIqRequest collectorPendingIqRequest = (CollectorPendingIqRequest) pendingIqRequest;
+        if (collectorPendingIqRequest.collector != collector) {
+            return false;
+        }
+        return remove(pendingIqRequest);
+    }
+
+    int size() {
+        return pendingRequests.size();
+    }
+
+    /**
+     * Process the given IQ response. If there is a pending request with the same stanza ID and the response passes the
+     * request's {@link IQReplyFilter}, then the request is removed from this table and completed.
+     *
+     * @param response the IQ response.
+     * @param connection the connection the response was received on.
+     * @return <code>true</code> if the response completed a pending request.
+     */
+    boolean processResponse(IQ response, AbstractXMPPConnection connection) {
+        assert response.isResponseIQ();
+
+        String stanzaId = response.getStanzaId();
+        if (stanzaId == null) {
+            return false;
+        }
+
+        PendingIqRequest pendingIqRequest = pendingRequests.get(stanzaId);
+        if (pendingIqRequest == null) {
+            return false;
+        }
+
+        if (!pendingIqRequest.replyFilter.accept(response)) {
+            return false;
+        }
+
+        boolean removed = remove(pendingIqRequest);
+        if (!removed) {
+            // We lost a race against the timeout or a concurrent response.
+            return false;
+        }
+
+        pendingIqRequest.processResponse(response, connection);
+        return true;
+    }
+
+    void notifyConnectionError(Exception exception) {
+        for (PendingIqRequest pendingIqRequest : pendingRequests.values()) {
+            pendingIqRequest.notifyConnectionError(exception);
+        }
+    }
+
+    abstract static class PendingIqRequest {
+        final String stanzaId;
+        final IQReplyFilter replyFilter;
+
+        PendingIqRequest(IQ request, IQReplyFilter replyFilter) {
+            this.stanzaId = request.getStanzaId();
+            this.replyFilter = replyFilter;
+        }
+
+        abstract void processResponse(IQ response, AbstractXMPPConnection connection);
+
+        void notifyConnectionError(Exception exception) {
+        }
+    }
+
+    /**
+     * A pending request whose response is delivered to a {@link StanzaCollector} that is not registered with the
+     * connection.
+     */
+    static final class CollectorPendingIqRequest extends PendingIqRequest {
+        private final StanzaCollector collector;
+
+        CollectorPendingIqRequest(IQ request, IQReplyFilter replyFilter, StanzaCollector collector) {
+            super(request, replyFilter);
+            this.collector = collector;
+        }
+
+        @Override
+        void processResponse(IQ response, AbstractXMPPConnection connection) {
+            collector.processStanza(response);
+        }
+
+        @Override
+        void notifyConnectionError(Exception exception) {
+            collector.notifyConnectionError(exception);
+        }
+    }
+
+    /**
+     * A pending request whose response is delivered to a {@link SmackFuture}.
+     */
+    static final class FuturePendingIqRequest extends PendingIqRequest {
+        private final InternalSmackFuture<IQ, Exception> future;
+
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        FuturePendingIqRequest(IQ request, IQReplyFilter replyFilter, InternalSmackFuture<IQ, Exception> future) {
+            super(request, replyFilter);
+            this.future = future;
+        }
+
+        void setTimeout(HashedWheelTimer.Timeout timeout) {
+            this.timeout = timeout;
+        }
+
+        void cancelTimeout() {
+            HashedWheelTimer.Timeout timeout = this.timeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+
+        void setException(Exception exception) {
+            future.setException(exception);
+        }
+
+        @Override
+        void processResponse(IQ response, AbstractXMPPConnection connection) {
+            cancelTimeout();
+            // Completing the future may invoke user provided completion callbacks, hence do not complete the future in
+            // the thread processing the incoming stanzas.
+            connection.asyncGoLimited(() -> {
+                try {
+                    XMPPErrorException.ifHasErrorThenThrow(response);
+                    future.setResult(response);
+                }
+                catch (XMPPErrorException exception) {
+                    future.setException(exception);
+                }
+            });
+        }
+    }
+}
@@ -18,6 +18,7 @@
 package org.jivesoftware.smack;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -26,6 +27,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
@@ -35,17 +37,32 @@ import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.fast.FastToken;
+import org.jivesoftware.smack.fast.FastTokenStore;
+import org.jivesoftware.smack.fast.InMemoryFastTokenStore;
+import org.jivesoftware.smack.fast.packet.FastFeature;
+import org.jivesoftware.smack.fast.packet.FastUsage;
+import org.jivesoftware.smack.fast.packet.RequestToken;
+import org.jivesoftware.smack.fast.packet.Token;
 import org.jivesoftware.smack.packet.Mechanisms;
+import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.sasl.core.HtSha256NoneMechanism;
 import org.jivesoftware.smack.sasl.core.ScramSha1PlusMechanism;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza.SASLFailure;
 import org.jivesoftware.smack.sasl.packet.SaslNonza.Success;
+import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.StringUtils;
 
 import org.jxmpp.jid.DomainBareJid;
 import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Localpart;
+import org.jxmpp.stringprep.XmppStringprepException;
 
 /**
  * <p>This class is responsible authenticating the user using SASL, binding the resource
@@ -152,9 +169,30 @@ public final class SASLAuthentication {
         return Collections.unmodifiableSet(BLACKLISTED_MECHANISMS);
     }
 
+    private static final HtSha256NoneMechanism FAST_MECHANISM = new HtSha256NoneMechanism();
+
+    private static FastTokenStore fastTokenStore = new InMemoryFastTokenStore();
+
+    /**
+     * Set the store for the tokens obtained via Fast Authentication Streamlining Tokens (FAST, XEP-0484). If the
+     * service supports FAST, Smack requests a token when authenticating via SASL2 and uses it for subsequent
+     * authentications of the same account. Authenticating with a token only requires a single HMAC computation,
+     * instead of the costly key derivation of SCRAM. The default store keeps the tokens in memory.
+     *
+     * @param fastTokenStore the store for FAST tokens.
+     */
+    public static void setFastTokenStore(FastTokenStore fastTokenStore) {
+        SASLAuthentication.fastTokenStore = Objects.requireNonNull(fastTokenStore);
+    }
+
+    public static FastTokenStore getFastTokenStore() {
+        return fastTokenStore;
+    }
+
     private final AbstractXMPPConnection connection;
     private final ConnectionConfiguration configuration;
     private SASLMechanism currentMechanism = null;
+    private Sasl2Nonza.Success sasl2Success;
 
     SASLAuthentication(AbstractXMPPConnection connection, ConnectionConfiguration configuration) {
         this.configuration = configuration;
@@ -185,7 +223,148 @@ public final class SASLAuthentication {
     SASLMechanism authenticate(String username, String password, EntityBareJid authzid, SSLSession sslSession)
                     throws XMPPErrorException, SASLErrorException, IOException,
                     InterruptedException, SmackSaslException, NotConnectedException, NoResponseException {
-        final SASLMechanism mechanism = selectMechanism(authzid, password);
+        final SASLMechanism mechanism = selectMechanism(authzid, password, getServerMechanisms());
+        authenticate(mechanism, username, password, authzid, sslSession);
+        return mechanism;
+    }
+
+    /**
+     * Performs authentication using Extensible SASL Profile (SASL2, XEP-0388), which does not require a stream restart
+     * and allows to include further requests, like resource binding, inline within the authentication exchange.
+     * <p>
+     * If the service supports FAST (XEP-0484), then a previously obtained token is used to authenticate. Should the
+     * service reject the token, it is discarded and the authentication is retried with the password. Every successful
+     * authentication requests a new token from the service.
+     * </p>
+     *
+     * @param username the username that is authenticating with the server.
+     * @param password the password to send to the server.
+     * @param authzid the authorization identifier (typically null).
+     * @param sslSession the optional SSL/TLS session (if one was established)
+     * @param inlineElements the elements to include inline in the authenticate element.
+     * @return the SASL2 success element, containing the results of the inline requests.
+     * @throws SASLErrorException if a SASL protocol error was returned.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws SmackSaslException if a SASL specific error occurred.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     */
+    Sasl2Nonza.Success authenticateWithSasl2(String username, String password, EntityBareJid authzid,
+                    SSLSession sslSession, List<? extends XmlElement> inlineElements)
+                    throws XMPPErrorException, SASLErrorException, IOException, InterruptedException,
+                    SmackSaslException, NotConnectedException, NoResponseException {
+        Sasl2AuthenticationFeature sasl2Feature = connection.getFeature(Sasl2AuthenticationFeature.class);
+        if (sasl2Feature == null) {
+            throw new SmackException.SmackSaslException("Server does not support SASL2");
+        }
+
+        final EntityBareJid fastAccount = getFastAccount(sasl2Feature, username, authzid);
+        if (fastAccount != null) {
+            FastToken token = fastTokenStore.getToken(fastAccount);
+            if (token != null && token.isExpired()) {
+                fastTokenStore.removeToken(fastAccount);
+                token = null;
+            }
+            if (token != null) {
+                List<XmlElement> fastInlineElements = new ArrayList<>(inlineElements.size() + 2);
+                fastInlineElements.addAll(inlineElements);
+                fastInlineElements.add(new FastUsage(token.nextUsageCount()));
+                fastInlineElements.add(new RequestToken(HtSha256NoneMechanism.NAME));
+
+                SASLMechanism fastMechanism = FAST_MECHANISM.instanceForAuthentication(connection, configuration);
+                try {
+                    Sasl2Nonza.Success success = authenticateWithSasl2(fastMechanism, username, token.getToken(),
+                                    authzid, sslSession, fastInlineElements);
+                    storeFastToken(fastAccount, success);
+                    return success;
+                } catch (SASLErrorException e) {
+                    LOGGER.log(Level.FINE, "FAST token of " + fastAccount
+                                    + " got rejected, falling back to authentication with password", e);
+                    fastTokenStore.removeToken(fastAccount);
+                }
+            }
+
+            List<XmlElement> requestTokenInlineElements = new ArrayList<>(inlineElements.size() + 1);
+            requestTokenInlineElements.addAll(inlineElements);
+            requestTokenInlineElements.add(new RequestToken(HtSha256NoneMechanism.NAME));
+            inlineElements = requestTokenInlineElements;
+        }
+
+        final SASLMechanism mechanism = selectMechanism(authzid, password, sasl2Feature.getMechanisms());
+        Sasl2Nonza.Success success = authenticateWithSasl2(mechanism, username, password, authzid, sslSession,
+                        inlineElements);
+        if (fastAccount != null) {
+            storeFastToken(fastAccount, success);
+        }
+        return success;
+    }
+
+    private Sasl2Nonza.Success authenticateWithSasl2(SASLMechanism mechanism, String username, String password,
+                    EntityBareJid authzid, SSLSession sslSession, List<? extends XmlElement> inlineElements)
+                    throws SASLErrorException, SmackSaslException, NotConnectedException, InterruptedException,
+                    NoResponseException {
+        mechanism.useSasl2(inlineElements);
+        synchronized (this) {
+            sasl2Success = null;
+        }
+
+        authenticate(mechanism, username, password, authzid, sslSession);
+
+        synchronized (this) {
+            Sasl2Nonza.Success success = sasl2Success;
+            sasl2Success = null;
+            return success;
+        }
+    }
+
+    /**
+     * Get the account for which FAST tokens are requested and used, or <code>null</code> if FAST can not be used.
+     */
+    private EntityBareJid getFastAccount(Sasl2AuthenticationFeature sasl2Feature, String username,
+                    EntityBareJid authzid) {
+        FastFeature fastFeature = sasl2Feature.getInlineFeature(FastFeature.class);
+        if (fastFeature == null || !fastFeature.getMechanisms().contains(HtSha256NoneMechanism.NAME)) {
+            return null;
+        }
+        if (!sasl2Feature.getMechanisms().contains(HtSha256NoneMechanism.NAME)) {
+            return null;
+        }
+        // The token is used in place of the password, hence FAST is only possible if the credentials are not obtained
+        // via a callback handler. The HT mechanisms do not support an authorization identity.
+        if (username == null || authzid != null || configuration.getCallbackHandler() != null) {
+            return null;
+        }
+        synchronized (BLACKLISTED_MECHANISMS) {
+            if (BLACKLISTED_MECHANISMS.contains(HtSha256NoneMechanism.NAME)) {
+                return null;
+            }
+        }
+        if (!configuration.isEnabledSaslMechanism(HtSha256NoneMechanism.NAME)) {
+            return null;
+        }
+
+        try {
+            return JidCreate.entityBareFrom(Localpart.from(username), connection.getXMPPServiceDomain());
+        } catch (XmppStringprepException e) {
+            LOGGER.log(Level.FINE, "Not using FAST, as '" + username + "' is not a valid localpart", e);
+            return null;
+        }
+    }
+
+    private static void storeFastToken(EntityBareJid fastAccount, Sasl2Nonza.Success success) {
+        Token token = success.getInlineResult(Token.class);
+        if (token == null) {
+            return;
+        }
+        Instant expiry = token.getExpiry() != null ? token.getExpiry().toInstant() : null;
+        fastTokenStore.putToken(fastAccount, new FastToken(HtSha256NoneMechanism.NAME, token.getToken(), expiry));
+    }
+
+    private void authenticate(SASLMechanism mechanism, String username, String password, EntityBareJid authzid,
+                    SSLSession sslSession) throws SASLErrorException, SmackSaslException, NotConnectedException,
+                    InterruptedException, NoResponseException {
         final CallbackHandler callbackHandler = configuration.getCallbackHandler();
         final String host = connection.getHost();
         final DomainBareJid xmppServiceDomain = connection.getXMPPServiceDomain();
@@ -210,8 +389,6 @@ public final class SASLAuthentication {
         }
 
         mechanism.throwExceptionIfRequired();
-
-        return mechanism;
     }
 
     /**
@@ -272,6 +449,28 @@ public final class SASLAuthentication {
         }
     }
 
+    void challengeReceived(Sasl2Nonza.Challenge challenge) throws SmackException, InterruptedException {
+        challengeReceived(challenge.getData(), false);
+    }
+
+    void authenticated(Sasl2Nonza.Success success) throws InterruptedException, SmackSaslException, NotConnectedException {
+        // XEP-0388 § 2.6.3: The additional data is handled like the additional data of a RFC 6120 success.
+        if (success.getAdditionalData() != null) {
+            challengeReceived(success.getAdditionalData(), true);
+        }
+
+        synchronized (this) {
+            sasl2Success = success;
+            currentMechanism.afterFinalSaslChallenge();
+
+            notify();
+        }
+    }
+
+    void authenticationFailed(Sasl2Nonza.Failure failure) {
+        authenticationFailed(failure.toSaslFailure());
+    }
+
     /**
      * Notification message saying that SASL authentication has failed. The server may have
      * closed the connection depending on the number of possible retries.
@@ -312,11 +511,11 @@ public final class SASLAuthentication {
         return lastUsedMech.getName();
     }
 
-    private SASLMechanism selectMechanism(EntityBareJid authzid, String password) throws SmackException.SmackSaslException {
+    private SASLMechanism selectMechanism(EntityBareJid authzid, String password, List<String> serverMechanisms)
+                    throws SmackException.SmackSaslException {
         final boolean passwordAvailable = StringUtils.isNotEmpty(password);
 
         Iterator<SASLMechanism> it = REGISTERED_MECHANISMS.iterator();
-        final List<String> serverMechanisms = getServerMechanisms();
         if (serverMechanisms.isEmpty()) {
             LOGGER.warning("Server did not report any SASL mechanisms");
         }
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2024 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.jivesoftware.smack;
 import java.util.Date;
 import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jivesoftware.smack.util.Async;
 
@@ -29,16 +30,36 @@ public class ScheduledAction implements Delayed {
         Blocking,
     }
 
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int RUN = 2;
+
     private final Runnable action;
     final Date releaseTime;
+    final long releaseTimeEpoch;
     final SmackReactor smackReactor;
     final Kind kind;
 
-    ScheduledAction(Runnable action, Date releaseTime, SmackReactor smackReactor, Kind kind) {
+    /**
+     * The shard of the reactor this action is scheduled with, or <code>null</code> if it is scheduled with the shared
+     * delay queue.
+     */
+    final SmackReactor.Shard shard;
+
+    /**
+     * The state of an action scheduled with a shard. Not used for actions scheduled with the shared delay queue,
+     * which are cancelled by removing them from the queue.
+     */
+    private final AtomicInteger state = new AtomicInteger(PENDING);
+
+    @SuppressWarnings("JavaUtilDate")
+    ScheduledAction(Runnable action, Date releaseTime, SmackReactor smackReactor, Kind kind, SmackReactor.Shard shard) {
         this.action = action;
         this.releaseTime = releaseTime;
+        this.releaseTimeEpoch = releaseTime.getTime();
         this.smackReactor = smackReactor;
         this.kind = kind;
+        this.shard = shard;
     }
 
     /**
@@ -50,16 +71,27 @@ public class ScheduledAction implements Delayed {
         return smackReactor.cancel(this);
     }
 
+    boolean tryCancel() {
+        return state.compareAndSet(PENDING, CANCELLED);
+    }
+
+    boolean tryClaimForRun() {
+        return state.compareAndSet(PENDING, RUN);
+    }
+
+    boolean isCancelled() {
+        return state.get() == CANCELLED;
+    }
+
     @SuppressWarnings("JavaUtilDate")
     public boolean isDue() {
         Date now = new Date();
         return now.after(releaseTime);
     }
 
-    @SuppressWarnings("JavaUtilDate")
     public long getTimeToDueMillis() {
         long now = System.currentTimeMillis();
-        return releaseTime.getTime() - now;
+        return releaseTimeEpoch - now;
     }
 
     @Override
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software, 2018-2025 Florian Schmaus.
+ * Copyright 2003-2007 Jive Software, 2018-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -37,6 +37,7 @@ import org.jivesoftware.smack.debugger.SmackDebuggerFactory;
 import org.jivesoftware.smack.parsing.ExceptionLoggingCallback;
 import org.jivesoftware.smack.parsing.ParsingExceptionCallback;
 import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.VirtualThreads;
 
 import org.jxmpp.JxmppContext;
 
@@ -383,6 +384,73 @@ public final class SmackConfiguration {
         return defaultConcurrencyLevelLimit;
     }
 
+    public enum ExecutionMode {
+        /**
+         * Run asynchronous tasks, like the invocation of listeners, on a shared pool of cached platform threads.
+         */
+        platformThreads,
+
+        /**
+         * Run every asynchronous task, like the invocation of listeners, on its own virtual thread. Requires Java 21 or
+         * higher, Smack falls back to {@link #platformThreads} on older runtimes.
+         */
+        virtualThreads,
+    }
+
+    private static volatile ExecutionMode executionMode = ExecutionMode.platformThreads;
+
+    public static ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Set the execution mode used for asynchronous tasks of all connections. Using virtual threads avoids the creation
+     * and churn of platform threads if there are many connections in one JVM.
+     *
+     * @param executionMode the execution mode.
+     * @return <code>true</code> if the mode is supported by the runtime, <code>false</code> if Smack falls back to
+     *         platform threads.
+     * @see VirtualThreads#areSupported()
+     */
+    public static boolean setExecutionMode(ExecutionMode executionMode) {
+        SmackConfiguration.executionMode = Objects.requireNonNull(executionMode, "Must set mode");
+        return executionMode != ExecutionMode.virtualThreads || VirtualThreads.areSupported();
+    }
+
+    /**
+     * Enable the sharded mode of the reactor used by the modular connections, or increase the number of shards. In the
+     * sharded mode, every connection is pinned to one of the shards, each owning its own selector and reactor thread.
+     * This scales better if there are thousands of connections in one JVM. The shard count can not be decreased.
+     *
+     * @param shardCount the number of shards, e.g., the number of available processors.
+     */
+    public static void setReactorShardCount(int shardCount) {
+        SmackReactor.getInstance().setShardCount(shardCount);
+    }
+
+    public static int getReactorShardCount() {
+        return SmackReactor.getInstance().getShardCount();
+    }
+
+    private static volatile boolean lazyExtensionElementParsing = false;
+
+    /**
+     * Enable or disable the lazy parsing of the extension elements of received message and presence stanzas. If
+     * enabled, extension elements are only retained as raw XML when the stanza is parsed, and handed to their provider
+     * on the first access, e.g., via {@link org.jivesoftware.smack.packet.Stanza#getExtension(Class)}. Extension
+     * elements that are never looked at are never parsed, and are re-emitted verbatim if the stanza is forwarded.
+     *
+     * @param lazyExtensionElementParsing <code>true</code> to enable lazy parsing.
+     * @see org.jivesoftware.smack.packet.LazyExtensionElement
+     */
+    public static void setLazyExtensionElementParsing(boolean lazyExtensionElementParsing) {
+        SmackConfiguration.lazyExtensionElementParsing = lazyExtensionElementParsing;
+    }
+
+    public static boolean isLazyExtensionElementParsing() {
+        return lazyExtensionElementParsing;
+    }
+
     private static final Set<Class<? extends ModularXmppClientToServerConnectionModuleDescriptor>> KNOWN_MODULES = new HashSet<>();
 
     public static boolean addModule(Class<? extends ModularXmppClientToServerConnectionModuleDescriptor> moduleDescriptor) {
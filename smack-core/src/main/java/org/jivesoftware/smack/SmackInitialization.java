@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software, 2014-2024 Florian Schmaus
+ * Copyright 2003-2007 Jive Software, 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -33,6 +33,11 @@ import org.jivesoftware.smack.compression.CompressionModuleDescriptor;
 import org.jivesoftware.smack.compression.Java7ZlibInputOutputStream;
 import org.jivesoftware.smack.compression.XmppCompressionManager;
 import org.jivesoftware.smack.compression.zlib.ZlibXmppCompressionFactory;
+import org.jivesoftware.smack.fast.packet.FastFeature;
+import org.jivesoftware.smack.fast.packet.Token;
+import org.jivesoftware.smack.fast.provider.FastFeatureProvider;
+import org.jivesoftware.smack.fast.provider.TokenProvider;
+import org.jivesoftware.smack.initializer.GeneratedRegistry;
 import org.jivesoftware.smack.initializer.SmackInitializer;
 import org.jivesoftware.smack.isr.InstantStreamResumptionModuleDescriptor;
 import org.jivesoftware.smack.packet.Bind;
@@ -42,6 +47,9 @@ import org.jivesoftware.smack.provider.BodyElementProvider;
 import org.jivesoftware.smack.provider.MessageSubjectElementProvider;
 import org.jivesoftware.smack.provider.MessageThreadElementProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.provider.Sasl2ChallengeProvider;
+import org.jivesoftware.smack.provider.Sasl2FailureProvider;
+import org.jivesoftware.smack.provider.Sasl2SuccessProvider;
 import org.jivesoftware.smack.provider.SaslChallengeProvider;
 import org.jivesoftware.smack.provider.SaslFailureProvider;
 import org.jivesoftware.smack.provider.SaslSuccessProvider;
@@ -91,19 +99,30 @@ public final class SmackInitialization {
             for (String s : splitDisabledClasses) SmackConfiguration.disabledSmackClasses.add(s);
         }
 
-        InputStream configFileStream;
-        try {
-            configFileStream = FileUtils.getStreamForClasspathFile(DEFAULT_CONFIG_FILE, null);
-        }
-        catch (Exception e) {
-            throw new IllegalStateException("Could not load Smack configuration file", e);
-        }
+        GeneratedRegistry configRegistry = GeneratedRegistry.forClasspathFile(DEFAULT_CONFIG_FILE,
+                        SmackInitialization.class.getClassLoader());
+        if (configRegistry != null) {
+            try {
+                processConfig(configRegistry, null, SmackInitialization.class.getClassLoader());
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Could not process Smack configuration", e);
+            }
+        } else {
+            InputStream configFileStream;
+            try {
+                configFileStream = FileUtils.getStreamForClasspathFile(DEFAULT_CONFIG_FILE, null);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Could not load Smack configuration file", e);
+            }
 
-        try {
-            processConfigFile(configFileStream, null);
-        }
-        catch (Exception e) {
-            throw new IllegalStateException("Could not parse Smack configuration file", e);
+            try {
+                processConfigFile(configFileStream, null);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException("Could not parse Smack configuration file", e);
+            }
         }
 
         // Add the Java7 compression handler first, since it's preferred
@@ -133,10 +152,15 @@ public final class SmackInitialization {
         ProviderManager.addExtensionProvider(Message.Body.ELEMENT, Message.Body.NAMESPACE, new BodyElementProvider());
         ProviderManager.addExtensionProvider(Message.Thread.ELEMENT, Message.Thread.NAMESPACE, new MessageThreadElementProvider());
         ProviderManager.addExtensionProvider(Message.Subject.ELEMENT, Message.Subject.NAMESPACE, new MessageSubjectElementProvider());
+        ProviderManager.addExtensionProvider(FastFeature.ELEMENT, FastFeature.NAMESPACE, FastFeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Token.ELEMENT, Token.NAMESPACE, TokenProvider.INSTANCE);
 
         ProviderManager.addNonzaProvider(SaslChallengeProvider.INSTANCE);
         ProviderManager.addNonzaProvider(SaslSuccessProvider.INSTANCE);
         ProviderManager.addNonzaProvider(SaslFailureProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(Sasl2ChallengeProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(Sasl2SuccessProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(Sasl2FailureProvider.INSTANCE);
         ProviderManager.addNonzaProvider(TlsProceedProvider.INSTANCE);
         ProviderManager.addNonzaProvider(TlsFailureProvider.INSTANCE);
         ProviderManager.addNonzaProvider(CompressedProvider.INSTANCE);
@@ -173,35 +197,58 @@ public final class SmackInitialization {
         CloseableUtil.maybeClose(cfgFileStream, LOGGER);
     }
 
+    /**
+     * Load the startup classes of a configuration file which was compiled into a {@link GeneratedRegistry}.
+     *
+     * @param registry the generated registry of the configuration file.
+     * @param exceptions a collection the exceptions are added to, or <code>null</code> if they should be thrown.
+     * @param classLoader the class loader used to load the startup classes.
+     * @throws Exception if a startup class could not be loaded and no exceptions collection was given.
+     */
+    public static void processConfig(GeneratedRegistry registry, Collection<Exception> exceptions,
+                    ClassLoader classLoader) throws Exception {
+        for (String classToLoad : registry.getStartupClasses()) {
+            loadSmackClass(classToLoad, false, exceptions, classLoader);
+        }
+        for (String classToLoad : registry.getOptionalStartupClasses()) {
+            loadSmackClass(classToLoad, true, exceptions, classLoader);
+        }
+    }
+
     private static void parseClassesToLoad(XmlPullParser parser, boolean optional,
                     Collection<Exception> exceptions, ClassLoader classLoader)
                     throws Exception {
         final String startName = parser.getName();
         XmlPullParser.Event eventType;
-        outerloop: do {
+        do {
             eventType = parser.next();
             if (eventType == XmlPullParser.Event.START_ELEMENT && "className".equals(parser.getName())) {
                 String classToLoad = parser.nextText();
-                if (SmackConfiguration.isDisabledSmackClass(classToLoad)) {
-                    continue outerloop;
-                }
-
-                try {
-                    loadSmackClass(classToLoad, optional, classLoader);
-                } catch (Exception e) {
-                    // Don't throw the exception if an exceptions collection is given, instead
-                    // record it there. This is used for unit testing purposes.
-                    if (exceptions != null) {
-                        exceptions.add(e);
-                    } else {
-                        throw e;
-                    }
-                }
+                loadSmackClass(classToLoad, optional, exceptions, classLoader);
             }
         }
         while (!(eventType == XmlPullParser.Event.END_ELEMENT && startName.equals(parser.getName())));
     }
 
+    private static void loadSmackClass(String className, boolean optional, Collection<Exception> exceptions,
+                    ClassLoader classLoader) throws Exception {
+        if (SmackConfiguration.isDisabledSmackClass(className)) {
+            return;
+        }
+
+        try {
+            loadSmackClass(className, optional, classLoader);
+        } catch (Exception e) {
+            // Don't throw the exception if an exceptions collection is given, instead
+            // record it there. This is used for unit testing purposes.
+            if (exceptions != null) {
+                exceptions.add(e);
+            } else {
+                throw e;
+            }
+        }
+    }
+
     private static void loadSmackClass(String className, boolean optional, ClassLoader classLoader) throws Exception {
         Class<?> initClass;
         try {
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2024 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,16 +25,20 @@ import java.nio.channels.Selector;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -47,7 +51,16 @@ import java.util.logging.Logger;
  * <ul>
  * <li>Multiple reactor threads</li>
  * <li>Scheduled actions</li>
+ * <li>Optional sharded mode</li>
  * </ul>
+ * <p>
+ * By default, all reactor threads share a single {@link Selector} and race for it. In the sharded mode, enabled via
+ * {@link #setShardCount(int)}, every shard owns its own selector, which is only ever used by the shard's thread. A
+ * newly registered channel is pinned to one shard, and its callback is always invoked by the shard's thread. Other
+ * threads hand over interest ops changes and scheduled actions via the shard's lock-free queues, and every shard keeps
+ * its own timer heap. This avoids the contention on the shared selector and the global queues when there are many
+ * connections.
+ * </p>
  *
  * <pre>
  *
@@ -102,6 +115,13 @@ public class SmackReactor {
 
     private final Queue<SetInterestOps> pendingSetInterestOps = new ConcurrentLinkedQueue<>();
 
+    /**
+     * The shards of the sharded mode. Empty if the sharded mode is not enabled.
+     */
+    private final List<Shard> shards = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger nextShard = new AtomicInteger();
+
     SmackReactor(String reactorName) {
         this.reactorName = reactorName;
 
@@ -117,7 +137,12 @@ public class SmackReactor {
 
     public SelectionKey registerWithSelector(SelectableChannel channel, int ops, ChannelSelectedCallback callback)
             throws ClosedChannelException {
-        SelectionKeyAttachment selectionKeyAttachment = new SelectionKeyAttachment(callback);
+        Shard shard = nextShard();
+        if (shard != null) {
+            return shard.register(channel, ops, callback);
+        }
+
+        SelectionKeyAttachment selectionKeyAttachment = new SelectionKeyAttachment(callback, null);
 
         registrationLock.lock();
         try {
@@ -129,6 +154,13 @@ public class SmackReactor {
     }
 
     public void setInterestOps(SelectionKey selectionKey, int interestOps) {
+        SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
+        Shard shard = selectionKeyAttachment.shard;
+        if (shard != null) {
+            shard.setInterestOps(selectionKey, interestOps);
+            return;
+        }
+
         SetInterestOps setInterestOps = new SetInterestOps(selectionKey, interestOps);
         pendingSetInterestOps.add(setInterestOps);
         selector.wakeup();
@@ -148,7 +180,15 @@ public class SmackReactor {
     ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit, ScheduledAction.Kind scheduledActionKind) {
         long releaseTimeEpoch = System.currentTimeMillis() + unit.toMillis(delay);
         Date releaseTimeDate = new Date(releaseTimeEpoch);
-        ScheduledAction scheduledAction = new ScheduledAction(runnable, releaseTimeDate, this, scheduledActionKind);
+
+        Shard shard = shardForScheduledAction();
+        if (shard != null) {
+            ScheduledAction scheduledAction = new ScheduledAction(runnable, releaseTimeDate, this, scheduledActionKind, shard);
+            shard.schedule(scheduledAction);
+            return scheduledAction;
+        }
+
+        ScheduledAction scheduledAction = new ScheduledAction(runnable, releaseTimeDate, this, scheduledActionKind, null);
         scheduledActions.add(scheduledAction);
         selector.wakeup();
         return scheduledAction;
@@ -161,9 +201,62 @@ public class SmackReactor {
      * @return <code>true</code> if the scheduled action was still pending and got removed, <code>false</code> otherwise.
      */
     boolean cancel(ScheduledAction scheduledAction) {
+        Shard shard = scheduledAction.shard;
+        if (shard != null) {
+            return shard.cancel(scheduledAction);
+        }
         return scheduledActions.remove(scheduledAction);
     }
 
+    private Shard nextShard() {
+        // Read the shards only once, as they may be added concurrently.
+        Object[] currentShards = shards.toArray();
+        if (currentShards.length == 0) {
+            return null;
+        }
+        int index = Math.floorMod(nextShard.getAndIncrement(), currentShards.length);
+        return (Shard) currentShards[index];
+    }
+
+    private Shard shardForScheduledAction() {
+        // Keep scheduled actions scheduled by a shard's thread, e.g., from a channel selected callback, on that shard.
+        Thread currentThread = Thread.currentThread();
+        if (currentThread instanceof Shard && ((Shard) currentThread).getSmackReactor() == this) {
+            return (Shard) currentThread;
+        }
+        return nextShard();
+    }
+
+    /**
+     * Enable the sharded mode, or increase the number of shards. Channels registered afterwards are distributed
+     * round-robin over the shards, channels registered before stay with the selector they are registered with.
+     *
+     * @param shardCount the number of shards.
+     * @throws IllegalArgumentException if the shard count is lower than the current one.
+     */
+    public void setShardCount(int shardCount) {
+        synchronized (shards) {
+            if (shardCount < shards.size()) {
+                throw new IllegalArgumentException(
+                                "Can not decrease the shard count from " + shards.size() + " to " + shardCount);
+            }
+            for (int i = shards.size(); i < shardCount; i++) {
+                Shard shard;
+                try {
+                    shard = new Shard(i);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                shard.start();
+                shards.add(shard);
+            }
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
     private final class Reactor extends Thread {
 
         private volatile long shutdownRequestTimestamp = -1;
@@ -351,23 +444,23 @@ public class SmackReactor {
             handleSelectedKeys(selectedKeys);
         }
 
-        private void setInterestOpsCancelledKeySafe(SelectionKey selectionKey, int interestOps) {
-            try {
-                selectionKey.interestOps(interestOps);
-            }
-            catch (CancelledKeyException e) {
-                final Level keyCancelledLogLevel = Level.FINER;
-                if (LOGGER.isLoggable(keyCancelledLogLevel)) {
-                    LOGGER.log(keyCancelledLogLevel, "Key '" + selectionKey + "' has been cancelled", e);
-                }
-            }
-        }
-
         void requestShutdown() {
             shutdownRequestTimestamp = System.currentTimeMillis();
         }
     }
 
+    private static void setInterestOpsCancelledKeySafe(SelectionKey selectionKey, int interestOps) {
+        try {
+            selectionKey.interestOps(interestOps);
+        }
+        catch (CancelledKeyException e) {
+            final Level keyCancelledLogLevel = Level.FINER;
+            if (LOGGER.isLoggable(keyCancelledLogLevel)) {
+                LOGGER.log(keyCancelledLogLevel, "Key '" + selectionKey + "' has been cancelled", e);
+            }
+        }
+    }
+
     private static void handleSelectedKeys(Collection<SelectionKey> selectedKeys) {
         for (SelectionKey selectionKey : selectedKeys) {
             SelectableChannel channel = selectionKey.channel();
@@ -420,12 +513,189 @@ public class SmackReactor {
         }
     }
 
+    private static final Comparator<ScheduledAction> RELEASE_TIME_COMPARATOR = Comparator.comparingLong(
+                    scheduledAction -> scheduledAction.releaseTimeEpoch);
+
+    /**
+     * A shard of the sharded mode. The shard's selector, and the timer heap of its scheduled actions, are only accessed
+     * by the shard's thread.
+     */
+    final class Shard extends Thread {
+
+        /**
+         * The number of cancelled scheduled actions, after which the timer heap is purged, as cancelled actions are
+         * otherwise only removed once they are due.
+         */
+        private static final int PURGE_CANCELLED_SCHEDULED_ACTIONS_THRESHOLD = 1024;
+
+        private final Selector shardSelector;
+
+        private final Lock shardRegistrationLock = new ReentrantLock();
+
+        private final Queue<SetInterestOps> shardPendingSetInterestOps = new ConcurrentLinkedQueue<>();
+
+        private final Queue<ScheduledAction> newScheduledActions = new ConcurrentLinkedQueue<>();
+
+        private final PriorityQueue<ScheduledAction> shardScheduledActions = new PriorityQueue<>(RELEASE_TIME_COMPARATOR);
+
+        private final AtomicInteger cancelledScheduledActions = new AtomicInteger();
+
+        private final List<SelectionKey> selectedKeys = new ArrayList<>();
+
+        private Shard(int index) throws IOException {
+            shardSelector = Selector.open();
+            setDaemon(true);
+            setName("Smack " + reactorName + " Shard #" + index);
+        }
+
+        private SmackReactor getSmackReactor() {
+            return SmackReactor.this;
+        }
+
+        private boolean isShardThread() {
+            return Thread.currentThread() == this;
+        }
+
+        private SelectionKey register(SelectableChannel channel, int ops, ChannelSelectedCallback callback)
+                        throws ClosedChannelException {
+            SelectionKeyAttachment selectionKeyAttachment = new SelectionKeyAttachment(callback, this);
+            if (isShardThread()) {
+                return channel.register(shardSelector, ops, selectionKeyAttachment);
+            }
+
+            shardRegistrationLock.lock();
+            try {
+                shardSelector.wakeup();
+                return channel.register(shardSelector, ops, selectionKeyAttachment);
+            } finally {
+                shardRegistrationLock.unlock();
+            }
+        }
+
+        private void setInterestOps(SelectionKey selectionKey, int interestOps) {
+            if (isShardThread()) {
+                // The shard's thread is not in select() right now, hence we can set the interest ops directly.
+                setInterestOpsCancelledKeySafe(selectionKey, interestOps);
+                return;
+            }
+
+            shardPendingSetInterestOps.add(new SetInterestOps(selectionKey, interestOps));
+            shardSelector.wakeup();
+        }
+
+        private void schedule(ScheduledAction scheduledAction) {
+            newScheduledActions.add(scheduledAction);
+            if (!isShardThread()) {
+                shardSelector.wakeup();
+            }
+        }
+
+        private boolean cancel(ScheduledAction scheduledAction) {
+            if (!scheduledAction.tryCancel()) {
+                return false;
+            }
+            cancelledScheduledActions.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("LockNotBeforeTry")
+        public void run() {
+            while (true) {
+                long selectWait = handleScheduledActions();
+
+                for (SetInterestOps setInterestOps; (setInterestOps = shardPendingSetInterestOps.poll()) != null;) {
+                    setInterestOpsCancelledKeySafe(setInterestOps.selectionKey, setInterestOps.interestOps);
+                }
+
+                // See the comment in handleScheduledActionsOrPerformSelect().
+                shardRegistrationLock.lock();
+                shardRegistrationLock.unlock();
+
+                int newSelectedKeysCount;
+                try {
+                    newSelectedKeysCount = shardSelector.select(selectWait);
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "IOException while using select()", e);
+                    continue;
+                }
+
+                if (newSelectedKeysCount == 0) {
+                    continue;
+                }
+
+                // Keep the protocol of the shared selector: The interest ops of a selected key are reset until the
+                // channel selected callback sets them again.
+                Set<SelectionKey> selectedKeySet = shardSelector.selectedKeys();
+                for (SelectionKey selectionKey : selectedKeySet) {
+                    SelectionKeyAttachment selectionKeyAttachment = (SelectionKeyAttachment) selectionKey.attachment();
+                    selectionKeyAttachment.setRacing();
+                    setInterestOpsCancelledKeySafe(selectionKey, 0);
+                    selectedKeys.add(selectionKey);
+                }
+                selectedKeySet.clear();
+
+                try {
+                    handleSelectedKeys(selectedKeys);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, this + " caught exception of channel selected callback", e);
+                } finally {
+                    selectedKeys.clear();
+                }
+            }
+        }
+
+        /**
+         * Run the due scheduled actions.
+         *
+         * @return the time in milliseconds until the next scheduled action is due, or 0 if there is none.
+         */
+        private long handleScheduledActions() {
+            for (ScheduledAction scheduledAction; (scheduledAction = newScheduledActions.poll()) != null;) {
+                if (!scheduledAction.isCancelled()) {
+                    shardScheduledActions.add(scheduledAction);
+                }
+            }
+
+            if (cancelledScheduledActions.get() > PURGE_CANCELLED_SCHEDULED_ACTIONS_THRESHOLD) {
+                cancelledScheduledActions.set(0);
+                shardScheduledActions.removeIf(ScheduledAction::isCancelled);
+            }
+
+            ScheduledAction nextScheduledAction;
+            while ((nextScheduledAction = shardScheduledActions.peek()) != null) {
+                long timeToDueMillis = nextScheduledAction.getTimeToDueMillis();
+                if (timeToDueMillis > 0) {
+                    return timeToDueMillis;
+                }
+
+                shardScheduledActions.poll();
+                if (!nextScheduledAction.tryClaimForRun()) {
+                    // The scheduled action was cancelled.
+                    continue;
+                }
+                try {
+                    nextScheduledAction.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.SEVERE, this + " caught exception of scheduled action", e);
+                }
+            }
+            return 0;
+        }
+    }
+
     public static final class SelectionKeyAttachment {
         private final ChannelSelectedCallback channelSelectedCallback;
         private final AtomicBoolean reactorThreadRacing = new AtomicBoolean();
 
-        private SelectionKeyAttachment(ChannelSelectedCallback channelSelectedCallback) {
+        /**
+         * The shard the channel is pinned to, or <code>null</code> if it is registered with the shared selector.
+         */
+        private final Shard shard;
+
+        private SelectionKeyAttachment(ChannelSelectedCallback channelSelectedCallback, Shard shard) {
             this.channelSelectedCallback = channelSelectedCallback;
+            this.shard = shard;
         }
 
         private void setRacing() {
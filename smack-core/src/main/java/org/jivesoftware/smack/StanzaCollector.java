@@ -108,6 +108,10 @@ public final class StanzaCollector implements AutoCloseable {
         return packetFilter;
     }
 
+    Stanza getRequest() {
+        return request;
+    }
+
     /**
      * Polls to see if a stanza is currently available and returns it, or
      * immediately returns <code>null</code> if no packets are currently in the
@@ -0,0 +1,67 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2;
+
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.packet.XmlElement;
+
+/**
+ * A feature which can be requested inline within the Bind 2 request, so that it is enabled in the same round trip as
+ * the authentication and the resource binding. Inline features are registered with
+ * {@link Bind2Module#addInlineFeature(Bind2InlineFeature)}.
+ */
+public interface Bind2InlineFeature {
+
+    /**
+     * The namespace of the feature, as announced by the service within the Bind 2 inline features.
+     *
+     * @return the namespace of the feature.
+     */
+    String getNamespace();
+
+    /**
+     * Get the element to include inline in the Bind 2 request.
+     *
+     * @param connection the connection which is about to bind a resource.
+     * @return the inline request, or <code>null</code> if the feature should not be requested.
+     */
+    XmlElement getInlineRequest(ModularXmppClientToServerConnection connection);
+
+    /**
+     * Invoked once the service bound a resource, if {@link #getInlineRequest(ModularXmppClientToServerConnection)}
+     * returned a request. The result of the inline request, if any, is contained in the given bound element.
+     *
+     * @param connection the connection which bound a resource.
+     * @param bound the bound element.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    void onBound(ModularXmppClientToServerConnection connection, Bound bound)
+                    throws NotConnectedException, InterruptedException;
+
+    /**
+     * Invoked when the connection, which bound a resource with this feature requested inline, was closed. The default
+     * implementation does nothing.
+     *
+     * @param connection the connection.
+     */
+    default void onConnectionReset(ModularXmppClientToServerConnection connection) {
+    }
+
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,86 @@
  */
 package org.jivesoftware.smack.bind2;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackException.SmackMessageException;
+import org.jivesoftware.smack.XMPPException;
+import org.jivesoftware.smack.bind2.packet.BindFeature;
+import org.jivesoftware.smack.bind2.packet.BindRequest;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.bind2.provider.BindFeatureProvider;
+import org.jivesoftware.smack.bind2.provider.BoundProvider;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ConnectedButUnauthenticatedStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.SaslAuthenticationStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModule;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.c2s.internal.WalkStateGraphContext;
+import org.jivesoftware.smack.fsm.LoginContext;
 import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
 
+/**
+ * Bind 2 (<a href="https://xmpp.org/extensions/xep-0386.html">XEP-0386</a>) for the modular connection.
+ * <p>
+ * If the service supports Bind 2 via Extensible SASL Profile (SASL2, XEP-0388), then the module binds the resource as
+ * part of the authentication exchange. Features registered via {@link #addInlineFeature(Bind2InlineFeature)}, like
+ * Stream Management or Message Carbons, are enabled in the same round trip. Otherwise, the connection falls back to
+ * SASL authentication and resource binding of RFC 6120.
+ * </p>
+ */
 public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2ModuleDescriptor> {
 
+    private static final Set<Bind2InlineFeature> INLINE_FEATURES = new CopyOnWriteArraySet<>();
+
+    static {
+        ProviderManager.addExtensionProvider(BindFeature.ELEMENT, BindFeature.NAMESPACE, BindFeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Bound.ELEMENT, Bound.NAMESPACE, BoundProvider.INSTANCE);
+    }
+
+    /**
+     * Add a feature which is requested inline within the Bind 2 request, if the service supports it.
+     *
+     * @param inlineFeature the inline feature.
+     * @return <code>true</code> if the inline feature was not already added.
+     */
+    public static boolean addInlineFeature(Bind2InlineFeature inlineFeature) {
+        return INLINE_FEATURES.add(inlineFeature);
+    }
+
+    public static boolean removeInlineFeature(Bind2InlineFeature inlineFeature) {
+        return INLINE_FEATURES.remove(inlineFeature);
+    }
+
+    private boolean useBind2 = true;
+
+    /**
+     * The inline features requested by the last Bind 2 request. Guarded by this.
+     */
+    private List<Bind2InlineFeature> requestedInlineFeatures = Collections.emptyList();
+
+    /**
+     * The inline features requested on the current connection, once the resource was bound. Guarded by this.
+     */
+    private List<Bind2InlineFeature> boundInlineFeatures = Collections.emptyList();
+
     protected Bind2Module(Bind2ModuleDescriptor moduleDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         super(moduleDescriptor, connectionInternal);
@@ -35,7 +103,7 @@ public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2
 
     public static final class Bind2StateDescriptor extends StateDescriptor {
         private Bind2StateDescriptor() {
-            super(Bind2State.class, 386, StateDescriptor.Property.notImplemented);
+            super(Bind2State.class, 386);
 
             addPredeccessor(ConnectedButUnauthenticatedStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -50,7 +118,7 @@ public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2
         }
     }
 
-    private static final class Bind2State extends State {
+    private final class Bind2State extends State {
 
         private Bind2State(Bind2StateDescriptor bind2StateDescriptor,
                         ModularXmppClientToServerConnectionInternal connectionInternal) {
@@ -59,19 +127,169 @@ public class Bind2Module extends ModularXmppClientToServerConnectionModule<Bind2
 
         @Override
         public StateTransitionResult.TransitionImpossible isTransitionToPossible(WalkStateGraphContext walkStateGraphContext) {
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            if (!useBind2) {
+                return new StateTransitionResult.TransitionImpossibleReason("Bind 2 not enabled");
+            }
+
+            if (getBindFeature() == null) {
+                return new StateTransitionResult.TransitionImpossibleReason("Bind 2 not supported by service");
+            }
+
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("Bind2 not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws IOException, SmackException, InterruptedException, XMPPException {
+            LoginContext loginContext = walkStateGraphContext.getLoginContext();
+            BindRequest bindRequest = createBindRequest(loginContext.resource);
+
+            Sasl2Nonza.Success success = connectionInternal.authenticateWithSasl2(loginContext,
+                            Collections.singletonList(bindRequest));
+
+            Bound bound = success.getInlineResult(Bound.class);
+            if (bound == null) {
+                throw new SmackMessageException("Service did not bind a resource via Bind 2");
+            }
+
+            EntityFullJid user = processBound(success, bound);
+
+            return new Bind2SuccessResult(user);
+        }
+
+        @Override
+        public void resetState() {
+            onConnectionReset();
         }
 
     }
 
-    public Bind2State constructBind2State(Bind2StateDescriptor bind2StateDescriptor,
+    public static final class Bind2SuccessResult extends StateTransitionResult.Success {
+        private final EntityFullJid user;
+
+        private Bind2SuccessResult(EntityFullJid user) {
+            super("Authenticated and bound '" + user + "' via Bind 2");
+            this.user = user;
+        }
+
+        public EntityFullJid getUser() {
+            return user;
+        }
+    }
+
+    private Bind2State constructBind2State(Bind2StateDescriptor bind2StateDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         return new Bind2State(bind2StateDescriptor, connectionInternal);
     }
 
+    /**
+     * Get the Bind 2 inline feature announced by the service within the SASL2 stream feature.
+     *
+     * @return the Bind 2 feature, or <code>null</code> if Bind 2 is not supported by the service.
+     */
+    public BindFeature getBindFeature() {
+        Sasl2AuthenticationFeature sasl2Feature = connectionInternal.connection.getFeature(
+                        Sasl2AuthenticationFeature.class);
+        if (sasl2Feature == null) {
+            return null;
+        }
+        return sasl2Feature.getInlineFeature(BindFeature.class);
+    }
+
+    /**
+     * Create a Bind 2 request, including the requests of all inline features supported by the service.
+     *
+     * @param tag the tag the service uses to derive the resource, may be <code>null</code>.
+     * @return the Bind 2 request.
+     */
+    public synchronized BindRequest createBindRequest(Resourcepart tag) {
+        BindFeature bindFeature = getBindFeature();
+        List<Bind2InlineFeature> requestedInlineFeatures = new ArrayList<>(INLINE_FEATURES.size());
+        List<XmlElement> inlineRequests = new ArrayList<>(INLINE_FEATURES.size());
+        for (Bind2InlineFeature inlineFeature : INLINE_FEATURES) {
+            if (bindFeature == null || !bindFeature.supportsInlineFeature(inlineFeature.getNamespace())) {
+                continue;
+            }
+            XmlElement inlineRequest = inlineFeature.getInlineRequest(connectionInternal.connection);
+            if (inlineRequest == null) {
+                continue;
+            }
+            requestedInlineFeatures.add(inlineFeature);
+            inlineRequests.add(inlineRequest);
+        }
+        this.requestedInlineFeatures = requestedInlineFeatures;
+
+        String tagString = tag != null ? tag.toString() : null;
+        return new BindRequest(tagString, inlineRequests);
+    }
+
+    /**
+     * Process the result of a Bind 2 request created by {@link #createBindRequest(Resourcepart)}. This sets the XMPP
+     * address of the connection and informs the inline features about the bound resource.
+     *
+     * @param success the SASL2 success containing the bound element.
+     * @param bound the bound element.
+     * @return the XMPP address bound by the service.
+     * @throws SmackMessageException if the service did not provide a full JID as authorization identifier.
+     * @throws IOException if the authorization identifier is not a valid XMPP address.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public EntityFullJid processBound(Sasl2Nonza.Success success, Bound bound)
+                    throws SmackMessageException, IOException, NotConnectedException, InterruptedException {
+        EntityFullJid user = getBoundAddress(success);
+        connectionInternal.setUser(user);
+        // The stream was not resumed, as a new resource was bound.
+        connectionInternal.setStreamResumed(false);
+
+        final List<Bind2InlineFeature> requestedInlineFeatures;
+        synchronized (this) {
+            requestedInlineFeatures = this.requestedInlineFeatures;
+            this.requestedInlineFeatures = Collections.emptyList();
+            boundInlineFeatures = requestedInlineFeatures;
+        }
+        for (Bind2InlineFeature inlineFeature : requestedInlineFeatures) {
+            inlineFeature.onBound(connectionInternal.connection, bound);
+        }
+
+        return user;
+    }
+
+    /**
+     * Inform the inline features requested on the current connection that the connection was closed.
+     */
+    public void onConnectionReset() {
+        final List<Bind2InlineFeature> boundInlineFeatures;
+        synchronized (this) {
+            boundInlineFeatures = this.boundInlineFeatures;
+            this.boundInlineFeatures = Collections.emptyList();
+        }
+        for (Bind2InlineFeature inlineFeature : boundInlineFeatures) {
+            inlineFeature.onConnectionReset(connectionInternal.connection);
+        }
+    }
+
+    /**
+     * Get the full JID of the session, as signalled by the service in the authorization identifier of the SASL2
+     * success.
+     *
+     * @param success the SASL2 success.
+     * @return the full JID of the session.
+     * @throws SmackMessageException if the authorization identifier is not a full JID.
+     * @throws IOException if the authorization identifier is not a valid XMPP address.
+     */
+    public static EntityFullJid getBoundAddress(Sasl2Nonza.Success success) throws SmackMessageException, IOException {
+        Jid authorizationIdentifier = JidCreate.from(success.getAuthorizationIdentifier());
+        EntityFullJid user = authorizationIdentifier.asEntityFullJidIfPossible();
+        if (user == null) {
+            throw new SmackMessageException("The SASL2 authorization identifier '" + authorizationIdentifier
+                            + "' is not a full JID");
+        }
+        return user;
+    }
+
+    public void setBind2Enabled(boolean useBind2) {
+        this.useBind2 = useBind2;
+    }
+
 }
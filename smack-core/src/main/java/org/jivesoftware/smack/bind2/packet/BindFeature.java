@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2.packet;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * The Bind 2 inline feature of the SASL2 stream feature. Lists the features which can be requested inline within
+ * the bind request, identified by their namespace.
+ */
+public class BindFeature implements ExtensionElement {
+
+    public static final String ELEMENT = "bind";
+    public static final String NAMESPACE = "urn:xmpp:bind:0";
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final Set<String> inlineFeatures;
+
+    public BindFeature(Set<String> inlineFeatures) {
+        this.inlineFeatures = Collections.unmodifiableSet(inlineFeatures);
+    }
+
+    public Set<String> getInlineFeatures() {
+        return inlineFeatures;
+    }
+
+    public boolean supportsInlineFeature(String namespace) {
+        return inlineFeatures.contains(namespace);
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        if (inlineFeatures.isEmpty()) {
+            return xml.closeEmptyElement();
+        }
+        xml.rightAngleBracket();
+        xml.openElement("inline");
+        for (String inlineFeature : inlineFeatures) {
+            xml.halfOpenElement("feature").attribute("var", inlineFeature).closeEmptyElement();
+        }
+        xml.closeElement("inline");
+        xml.closeElement(this);
+        return xml;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2.packet;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * The Bind 2 request, which is included in the SASL2 authenticate element. It optionally carries a tag, from which the
+ * service derives the resource, and the requests for the features which should be enabled inline.
+ */
+public class BindRequest implements ExtensionElement {
+
+    public static final String ELEMENT = BindFeature.ELEMENT;
+    public static final String NAMESPACE = BindFeature.NAMESPACE;
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final String tag;
+
+    private final List<XmlElement> inlineRequests;
+
+    public BindRequest(String tag, List<XmlElement> inlineRequests) {
+        this.tag = tag;
+        this.inlineRequests = Collections.unmodifiableList(inlineRequests);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public List<XmlElement> getInlineRequests() {
+        return inlineRequests;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        if (tag == null && inlineRequests.isEmpty()) {
+            return xml.closeEmptyElement();
+        }
+        xml.rightAngleBracket();
+        xml.optElement("tag", tag);
+        xml.append(inlineRequests);
+        xml.closeElement(this);
+        return xml;
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2.packet;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * The Bind 2 result, which is included in the SASL2 success element once the service bound a resource. It carries the
+ * results of the inline requests.
+ */
+public class Bound implements ExtensionElement {
+
+    public static final String ELEMENT = "bound";
+    public static final String NAMESPACE = BindFeature.NAMESPACE;
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final List<XmlElement> inlineResults;
+
+    public Bound(List<XmlElement> inlineResults) {
+        this.inlineResults = Collections.unmodifiableList(inlineResults);
+    }
+
+    public List<XmlElement> getInlineResults() {
+        return inlineResults;
+    }
+
+    /**
+     * Get the result of an inline request of the given type.
+     *
+     * @param <X> the type of the inline result.
+     * @param inlineResultClass the class of the inline result.
+     * @return the inline result or <code>null</code>.
+     */
+    public <X extends XmlElement> X getInlineResult(Class<X> inlineResultClass) {
+        QName qname = XmppElementUtil.getQNameFor(inlineResultClass);
+        for (XmlElement inlineResult : inlineResults) {
+            if (inlineResult.getQName().equals(qname) && inlineResultClass.isInstance(inlineResult)) {
+                return inlineResultClass.cast(inlineResult);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        if (inlineResults.isEmpty()) {
+            return xml.closeEmptyElement();
+        }
+        xml.rightAngleBracket();
+        xml.append(inlineResults);
+        xml.closeElement(this);
+        return xml;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.bind2.provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+public final class BoundProvider extends ExtensionElementProvider<Bound> {
+
+    public static final BoundProvider INSTANCE = new BoundProvider();
+
+    private BoundProvider() {
+    }
+
+    @Override
+    public Bound parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException, SmackParsingException {
+        List<XmlElement> inlineResults = new ArrayList<>();
+        outerloop: while (true) {
+            XmlPullParser.TagEvent event = parser.nextTag();
+            switch (event) {
+            case START_ELEMENT:
+                XmlElement inlineResult = PacketParserUtils.parseNonzaOrExtensionElement(parser, xmlEnvironment,
+                                jxmppContext);
+                inlineResults.add(inlineResult);
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new Bound(inlineResults);
+    }
+
+}
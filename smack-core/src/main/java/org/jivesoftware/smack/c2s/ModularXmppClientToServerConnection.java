@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2024 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,8 @@ import java.util.logging.Logger;
 import javax.net.ssl.SSLSession;
 
 import org.jivesoftware.smack.AbstractXMPPConnection;
+import org.jivesoftware.smack.NonzaCallback;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -73,10 +75,12 @@ import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.packet.Presence;
 import org.jivesoftware.smack.packet.StreamError;
 import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
 import org.jivesoftware.smack.parsing.SmackParsingException;
 import org.jivesoftware.smack.sasl.SASLErrorException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.util.ArrayBlockingQueueWithShutdown;
 import org.jivesoftware.smack.util.ExtendedAppendable;
 import org.jivesoftware.smack.util.PacketParserUtils;
@@ -85,6 +89,7 @@ import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
 import org.jxmpp.jid.DomainBareJid;
+import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.util.XmppStringUtils;
 
@@ -182,6 +187,11 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 ModularXmppClientToServerConnection.this.parseAndProcessElement(wrappedCompleteElement);
             }
 
+            @Override
+            public void parseAndProcessElement(XmlPullParser parser) {
+                ModularXmppClientToServerConnection.this.parseAndProcessElement(parser);
+            }
+
             @Override
             public void notifyConnectionError(Exception e) {
                 ModularXmppClientToServerConnection.this.notifyConnectionError(e);
@@ -213,6 +223,15 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 return outgoingStreamXmlEnvironment;
             }
 
+            @Override
+            public TopLevelStreamElement pollOutgoingElement() {
+                TopLevelStreamElement element = outgoingElementsQueue.poll();
+                if (element != null) {
+                    onOutgoingElementDequeued(element);
+                }
+                return element;
+            }
+
             @Override
             public void addXmppInputOutputFilter(XmppInputOutputFilter xmppInputOutputFilter) {
                 inputOutputFilters.add(0, xmppInputOutputFilter);
@@ -253,11 +272,26 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                                 failedNonzaClass);
             }
 
+            @Override
+            public void sendInternal(TopLevelStreamElement element) throws NotConnectedException, InterruptedException {
+                ModularXmppClientToServerConnection.this.sendInternal(element);
+            }
+
+            @Override
+            public NonzaCallback.Builder buildNonzaCallback() {
+                return ModularXmppClientToServerConnection.this.buildNonzaCallback();
+            }
+
             @Override
             public void asyncGo(Runnable runnable) {
                 AbstractXMPPConnection.asyncGo(runnable);
             }
 
+            @Override
+            public ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit) {
+                return AbstractXMPPConnection.schedule(runnable, delay, unit);
+            }
+
             @Override
             public void waitForConditionOrThrowConnectionException(Supplier<Boolean> condition, String waitFor)
                             throws InterruptedException, SmackWrappedException, NoResponseException {
@@ -274,6 +308,24 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
                 ModularXmppClientToServerConnection.this.compressionEnabled = compressionEnabled;
             }
 
+            @Override
+            public void setStreamResumed(boolean streamResumed) {
+                ModularXmppClientToServerConnection.this.streamResumed = streamResumed;
+            }
+
+            @Override
+            public Sasl2Nonza.Success authenticateWithSasl2(LoginContext loginContext,
+                            List<? extends XmlElement> inlineElements)
+                            throws SmackException, XMPPException, IOException, InterruptedException {
+                return ModularXmppClientToServerConnection.this.authenticateWithSasl2(loginContext.username,
+                                loginContext.password, config.getAuthzid(), getSSLSession(), inlineElements);
+            }
+
+            @Override
+            public void setUser(EntityFullJid user) {
+                setBoundUser(user);
+            }
+
             @Override
             public void setTransport(XmppClientToServerTransport xmppTransport) {
                 ModularXmppClientToServerConnection.this.activeTransport = xmppTransport;
@@ -570,6 +622,12 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         notifyWaitingThreads();
     }
 
+    private void onOutgoingElementDequeued(TopLevelStreamElement element) {
+        for (ModularXmppClientToServerConnectionModule<?> connectionModule : connectionModules.values()) {
+            connectionModule.onOutgoingElementDequeued(element);
+        }
+    }
+
     private void parseAndProcessElement(String element) {
         try {
             XmlPullParser parser = PacketParserUtils.getParserFor(element);
@@ -581,32 +639,7 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
             outerloop: while (true) {
                 switch (event) {
                 case START_ELEMENT:
-                    final String name = parser.getName();
-                    // Note that we don't handle "stream" here as it's done in the splitter.
-                    switch (name) {
-                    case Message.ELEMENT:
-                    case IQ.IQ_ELEMENT:
-                    case Presence.ELEMENT:
-                        try {
-                            parseAndProcessStanza(parser);
-                        } finally {
-                            // TODO: Here would be the following stream management code.
-                            // clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
-                        }
-                        break;
-                    case "error":
-                        StreamError streamError = PacketParserUtils.parseStreamError(parser, null, getJxmppContext());
-                        StreamErrorException streamErrorException = new StreamErrorException(streamError);
-                        setCurrentConnectionExceptionAndNotify(streamErrorException);
-                        throw streamErrorException;
-                    case "features":
-                        parseFeatures(parser);
-                        afterFeaturesReceived();
-                        break;
-                    default:
-                        parseAndProcessNonza(parser);
-                        break;
-                    }
+                    parseAndProcessTopLevelElement(parser);
                     break;
                 case END_DOCUMENT:
                     break outerloop;
@@ -620,6 +653,46 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
         }
     }
 
+    private void parseAndProcessElement(XmlPullParser parser) {
+        try {
+            parseAndProcessTopLevelElement(parser);
+        } catch (XmlPullParserException | IOException | InterruptedException | StreamErrorException
+                        | SmackParsingException e) {
+            notifyConnectionError(e);
+        }
+    }
+
+    private void parseAndProcessTopLevelElement(XmlPullParser parser) throws XmlPullParserException, IOException,
+                    InterruptedException, StreamErrorException, SmackParsingException {
+        final String name = parser.getName();
+        // Note that we don't handle "stream" here as it's done in the splitter.
+        switch (name) {
+        case Message.ELEMENT:
+        case IQ.IQ_ELEMENT:
+        case Presence.ELEMENT:
+            try {
+                parseAndProcessStanza(parser);
+            } finally {
+                for (ModularXmppClientToServerConnectionModule<?> connectionModule : connectionModules.values()) {
+                    connectionModule.onIncomingStanzaHandled();
+                }
+            }
+            break;
+        case "error":
+            StreamError streamError = PacketParserUtils.parseStreamError(parser, null, getJxmppContext());
+            StreamErrorException streamErrorException = new StreamErrorException(streamError);
+            setCurrentConnectionExceptionAndNotify(streamErrorException);
+            throw streamErrorException;
+        case "features":
+            parseFeatures(parser);
+            afterFeaturesReceived();
+            break;
+        default:
+            parseAndProcessNonza(parser);
+            break;
+        }
+    }
+
     private synchronized void prepareToWaitForFeaturesReceived() {
         featuresReceived = false;
     }
@@ -929,8 +1002,7 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
             LoginContext loginContext = walkStateGraphContext.getLoginContext();
             Resourcepart resource = bindResourceAndEstablishSession(loginContext.resource);
 
-            // TODO: This should be a field in the Stream Management (SM) module. Here should be hook which the SM
-            // module can use to set the field instead.
+            // A stream resumption, e.g., by the Stream Management (SM) module, would not go via resource binding.
             streamResumed = false;
 
             return new ResourceBoundResult(resource, loginContext.resource);
@@ -1106,6 +1178,15 @@ public final class ModularXmppClientToServerConnection extends AbstractXMPPConne
             activeTransport.disconnect();
             activeTransport = null;
 
+            // Elements which have not been sent are not sent on the next connection, as they would, for example,
+            // precede the stream open. But the connection modules are informed about them, so that the Stream
+            // Management module is able to resend the stanzas after the stream was resumed.
+            List<TopLevelStreamElement> unsentElements = new ArrayList<>(outgoingElementsQueue.size());
+            outgoingElementsQueue.drainTo(unsentElements);
+            for (TopLevelStreamElement unsentElement : unsentElements) {
+                onOutgoingElementDequeued(unsentElement);
+            }
+
             authenticated = connected = false;
 
             return StateTransitionResult.Success.EMPTY_INSTANCE;
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.c2s;
 
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
 
 public abstract class ModularXmppClientToServerConnectionModule<MD extends ModularXmppClientToServerConnectionModuleDescriptor> {
 
@@ -37,4 +38,20 @@ public abstract class ModularXmppClientToServerConnectionModule<MD extends Modul
     protected XmppClientToServerTransport getTransport() {
         return null;
     }
+
+    /**
+     * Invoked by the connection after an incoming stanza has been handled. The default implementation does nothing.
+     */
+    protected void onIncomingStanzaHandled() {
+    }
+
+    /**
+     * Invoked by the connection after an outgoing top-level stream element was taken out of the outgoing elements
+     * queue. This is the case if a transport is about to put the element on the wire, or if the connection was closed
+     * before the element could be sent. The default implementation does nothing.
+     *
+     * @param element the outgoing top-level stream element.
+     */
+    protected void onOutgoingElementDequeued(TopLevelStreamElement element) {
+    }
 }
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2020-2025 Florian Schmaus
+ * Copyright 2020-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,11 +20,15 @@ import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
+import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.jivesoftware.smack.NonzaCallback;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
@@ -38,14 +42,19 @@ import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
 import org.jivesoftware.smack.c2s.XmppClientToServerTransport;
 import org.jivesoftware.smack.debugger.SmackDebugger;
 import org.jivesoftware.smack.fsm.ConnectionStateEvent;
+import org.jivesoftware.smack.fsm.LoginContext;
 import org.jivesoftware.smack.internal.SmackTlsContext;
 import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
+import org.jxmpp.jid.EntityFullJid;
+
 public abstract class ModularXmppClientToServerConnectionInternal {
 
     private final SmackReactor reactor;
@@ -83,10 +92,38 @@ public abstract class ModularXmppClientToServerConnectionInternal {
 
     public abstract XmlEnvironment getOutgoingStreamXmlEnvironment();
 
+    /**
+     * Retrieve and remove the next element of the {@link #outgoingElementsQueue}. Transports should use this method
+     * instead of polling the queue directly, as it allows connection modules, like Stream Management, to keep track of
+     * the elements put on the wire.
+     *
+     * @return the next outgoing top-level stream element or <code>null</code> if the queue is empty.
+     */
+    public abstract TopLevelStreamElement pollOutgoingElement();
+
+    /**
+     * Send the given top-level stream element without invoking the stanza interceptors of the connection. This is, for
+     * example, used to resend stanzas which have already been intercepted when they were sent the first time.
+     *
+     * @param element the top-level stream element to send.
+     * @throws NotConnectedException if the connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public abstract void sendInternal(TopLevelStreamElement element) throws NotConnectedException, InterruptedException;
+
     // TODO: The incomingElement parameter was previously of type TopLevelStreamElement, but I believe it has to be
     // of type string. But would this also work for BOSH or WebSocket?
     public abstract void parseAndProcessElement(String wrappedCompleteIncomingElement);
 
+    /**
+     * Parse and process the top-level element the given parser is positioned at. This is used by transports which
+     * feed the incoming top-level elements into a long-lived parser that is positioned within the stream element, for
+     * example via an {@link org.jivesoftware.smack.util.IncrementalXmppStreamParser}.
+     *
+     * @param parser the parser positioned at the start tag of a top-level element.
+     */
+    public abstract void parseAndProcessElement(XmlPullParser parser);
+
     public abstract void notifyConnectionError(Exception e);
 
     public final String onStreamOpen(String streamOpen) {
@@ -126,8 +163,12 @@ public abstract class ModularXmppClientToServerConnectionInternal {
                     Class<SN> successNonzaClass, Class<FN> failedNonzaClass)
                     throws NoResponseException, NotConnectedException, FailedNonzaException, InterruptedException;
 
+    public abstract NonzaCallback.Builder buildNonzaCallback();
+
     public abstract void asyncGo(Runnable runnable);
 
+    public abstract ScheduledAction schedule(Runnable runnable, long delay, TimeUnit unit);
+
     public abstract void waitForConditionOrThrowConnectionException(Supplier<Boolean> condition, String waitFor)
                     throws InterruptedException, SmackWrappedException, NoResponseException;
 
@@ -135,6 +176,37 @@ public abstract class ModularXmppClientToServerConnectionInternal {
 
     public abstract void setCompressionEnabled(boolean compressionEnabled);
 
+    /**
+     * Set if the XMPP session was established by resuming a previous stream, in which case the connection will not
+     * perform the actions usually done after a fresh login, like sending the initial presence.
+     *
+     * @param streamResumed <code>true</code> if the stream was resumed.
+     */
+    public abstract void setStreamResumed(boolean streamResumed);
+
+    /**
+     * Authenticate using Extensible SASL Profile (SASL2, XEP-0388). The stream is not restarted afterwards.
+     *
+     * @param loginContext the login context.
+     * @param inlineElements the elements to include inline in the authenticate element.
+     * @return the SASL2 success element, containing the results of the inline requests.
+     * @throws SmackException if Smack detected an exceptional situation.
+     * @throws XMPPException if an XMPP protocol error was received.
+     * @throws IOException if an I/O error occurred.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public abstract Sasl2Nonza.Success authenticateWithSasl2(LoginContext loginContext,
+                    List<? extends XmlElement> inlineElements)
+                    throws SmackException, XMPPException, IOException, InterruptedException;
+
+    /**
+     * Set the XMPP address of the connection, as assigned by the service when a resource was bound without resource
+     * binding of RFC 6120, for example as part of a Bind 2 (XEP-0386) or an inline stream resumption.
+     *
+     * @param user the XMPP address of the connection.
+     */
+    public abstract void setUser(EntityFullJid user);
+
     /**
      * Set the active transport (TCP, BOSH, WebSocket, …) to be used for the XMPP connection. Also marks the connection
      * as connected.
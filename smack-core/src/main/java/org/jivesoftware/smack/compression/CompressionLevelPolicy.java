@@ -0,0 +1,393 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression;
+
+import java.util.zip.Deflater;
+
+/**
+ * A policy deciding which compression level is used by a compressing {@link org.jivesoftware.smack.XmppInputOutputFilter}.
+ * Levels follow the zlib scale, where 1 is the fastest and 9 the best compression, and 0 means no compression.
+ * <p>
+ * A policy is either fixed, which always uses the same level, or adaptive. An adaptive policy observes the compression
+ * ratio and the time spent compressing over windows of a configurable amount of uncompressed bytes. After every
+ * window it
+ * </p>
+ * <ul>
+ * <li>lowers the level if the time spent per input byte exceeded the CPU budget,</li>
+ * <li>lowers the level if the last increase did not improve the compression ratio by at least the configured amount,
+ * and</li>
+ * <li>otherwise probes the next higher level.</li>
+ * </ul>
+ * <p>
+ * Levels which were found to be too expensive, or not worth it, are not probed again for
+ * {@value #REPROBE_WINDOWS} windows, since the characteristics of the traffic may change over the lifetime of a
+ * connection.
+ * </p>
+ * <p>
+ * Policies are immutable and can be shared between connections. The per-connection state is kept by the
+ * {@link Controller} returned by {@link #newController()}.
+ * </p>
+ */
+public final class CompressionLevelPolicy {
+
+    public static final int MIN_LEVEL = Deflater.NO_COMPRESSION;
+
+    public static final int MAX_LEVEL = Deflater.BEST_COMPRESSION;
+
+    /**
+     * The number of windows after which a level, that was previously found to be too expensive, is probed again.
+     */
+    public static final int REPROBE_WINDOWS = 64;
+
+    public static final int DEFAULT_WINDOW_BYTES = 64 * 1024;
+
+    /**
+     * The default policy, which always uses the default level of zlib.
+     */
+    public static final CompressionLevelPolicy DEFAULT = fixed(Deflater.DEFAULT_COMPRESSION);
+
+    private static final CompressionLevelPolicy BANDWIDTH_OPTIMIZED = builder()
+                    .setLevels(6, MAX_LEVEL)
+                    .setInitialLevel(6)
+                    .setMaxNanosPerByte(500)
+                    .setMinRatioImprovement(0.002)
+                    .build();
+
+    private static final CompressionLevelPolicy CPU_OPTIMIZED = builder()
+                    .setLevels(1, 6)
+                    .setInitialLevel(1)
+                    .setMaxNanosPerByte(25)
+                    .setMinRatioImprovement(0.02)
+                    .build();
+
+    private final boolean adaptive;
+    private final int minLevel;
+    private final int maxLevel;
+    private final int initialLevel;
+    private final long maxNanosPerByte;
+    private final double minRatioImprovement;
+    private final int windowBytes;
+
+    private CompressionLevelPolicy(Builder builder) {
+        adaptive = builder.adaptive;
+        minLevel = builder.minLevel;
+        maxLevel = builder.maxLevel;
+        initialLevel = builder.initialLevel;
+        maxNanosPerByte = builder.maxNanosPerByte;
+        minRatioImprovement = builder.minRatioImprovement;
+        windowBytes = builder.windowBytes;
+    }
+
+    /**
+     * A policy always using the given level.
+     *
+     * @param level the compression level, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @return a fixed compression level policy.
+     */
+    public static CompressionLevelPolicy fixed(int level) {
+        if (level != Deflater.DEFAULT_COMPRESSION) {
+            checkLevel(level);
+        }
+        Builder builder = new Builder();
+        builder.adaptive = false;
+        builder.minLevel = builder.maxLevel = builder.initialLevel = level;
+        return builder.build();
+    }
+
+    /**
+     * An adaptive policy for bandwidth-bound connections, e.g. on metered links. It starts with zlib's default level
+     * and increases the level as long as this reduces the size of the compressed data, while only backing off if
+     * compressing becomes excessively expensive.
+     *
+     * @return a policy optimizing for bandwidth.
+     */
+    public static CompressionLevelPolicy bandwidthOptimized() {
+        return BANDWIDTH_OPTIMIZED;
+    }
+
+    /**
+     * An adaptive policy for CPU-bound connections, e.g. server-side bots. It starts with the fastest level and only
+     * increases the level if this noticeably improves the compression ratio within a tight CPU budget.
+     *
+     * @return a policy optimizing for CPU time.
+     */
+    public static CompressionLevelPolicy cpuOptimized() {
+        return CPU_OPTIMIZED;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getMinLevel() {
+        return minLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    public int getInitialLevel() {
+        return initialLevel;
+    }
+
+    public long getMaxNanosPerByte() {
+        return maxNanosPerByte;
+    }
+
+    public double getMinRatioImprovement() {
+        return minRatioImprovement;
+    }
+
+    public int getWindowBytes() {
+        return windowBytes;
+    }
+
+    /**
+     * Create a new controller applying this policy. Controllers are not thread-safe and are meant to be used by a
+     * single compressor.
+     *
+     * @return a new controller.
+     */
+    public Controller newController() {
+        return new Controller(this);
+    }
+
+    @Override
+    public String toString() {
+        if (!adaptive) {
+            return "CompressionLevelPolicy(fixed " + initialLevel + ')';
+        }
+        return "CompressionLevelPolicy(adaptive " + minLevel + '-' + maxLevel + ", initial " + initialLevel
+                        + ", max " + maxNanosPerByte + " ns/byte, min ratio improvement " + minRatioImprovement
+                        + ", window " + windowBytes + " bytes)";
+    }
+
+    private static void checkLevel(int level) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+    }
+
+    /**
+     * Applies a {@link CompressionLevelPolicy} to a single compressor.
+     */
+    public static final class Controller {
+
+        private final CompressionLevelPolicy policy;
+
+        private int level;
+
+        private long windowInBytes;
+        private long windowOutBytes;
+        private long windowNanos;
+
+        private double previousRatio = Double.NaN;
+
+        private boolean lastChangeWasIncrease;
+
+        /**
+         * The lowest level which must currently not be probed.
+         */
+        private int ceiling;
+
+        private int windowsSinceCeilingSet;
+
+        private int levelChanges;
+
+        private Controller(CompressionLevelPolicy policy) {
+            this.policy = policy;
+            level = policy.initialLevel;
+            ceiling = policy.maxLevel + 1;
+        }
+
+        public CompressionLevelPolicy getPolicy() {
+            return policy;
+        }
+
+        /**
+         * Get the compression level that should currently be used.
+         *
+         * @return the current compression level.
+         */
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Get the number of times the level was changed by this controller.
+         *
+         * @return the number of level changes.
+         */
+        public int getLevelChanges() {
+            return levelChanges;
+        }
+
+        /**
+         * Record the outcome of a compression operation.
+         *
+         * @param inBytes the number of uncompressed bytes.
+         * @param outBytes the number of compressed bytes.
+         * @param nanos the time spent compressing in nanoseconds.
+         * @return <code>true</code> if the level changed and the caller should apply the new level.
+         */
+        public boolean record(long inBytes, long outBytes, long nanos) {
+            if (!policy.adaptive) {
+                return false;
+            }
+
+            windowInBytes += inBytes;
+            windowOutBytes += outBytes;
+            windowNanos += nanos;
+
+            if (windowInBytes < policy.windowBytes) {
+                return false;
+            }
+
+            final double ratio = (double) windowOutBytes / windowInBytes;
+            final long nanosPerByte = windowNanos / windowInBytes;
+            windowInBytes = windowOutBytes = windowNanos = 0;
+
+            if (ceiling <= policy.maxLevel && ++windowsSinceCeilingSet >= REPROBE_WINDOWS) {
+                ceiling = policy.maxLevel + 1;
+            }
+
+            int newLevel = level;
+            if (nanosPerByte > policy.maxNanosPerByte) {
+                if (level > policy.minLevel) {
+                    newLevel = level - 1;
+                    setCeiling(level);
+                }
+            } else if (lastChangeWasIncrease && previousRatio - ratio < policy.minRatioImprovement) {
+                // The last increase did not pay off.
+                newLevel = level - 1;
+                setCeiling(level);
+            } else if (level < policy.maxLevel && level + 1 < ceiling) {
+                newLevel = level + 1;
+            }
+
+            previousRatio = ratio;
+            lastChangeWasIncrease = newLevel > level;
+            if (newLevel == level) {
+                return false;
+            }
+
+            level = newLevel;
+            levelChanges++;
+            return true;
+        }
+
+        private void setCeiling(int ceiling) {
+            this.ceiling = ceiling;
+            windowsSinceCeilingSet = 0;
+        }
+    }
+
+    public static final class Builder {
+        private boolean adaptive = true;
+        private int minLevel = 1;
+        private int maxLevel = MAX_LEVEL;
+        private int initialLevel = 6;
+        private long maxNanosPerByte = 100;
+        private double minRatioImprovement = 0.01;
+        private int windowBytes = DEFAULT_WINDOW_BYTES;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the range of levels the adaptive policy may choose from.
+         *
+         * @param minLevel the lowest level.
+         * @param maxLevel the highest level.
+         * @return a reference to this builder.
+         */
+        public Builder setLevels(int minLevel, int maxLevel) {
+            checkLevel(minLevel);
+            checkLevel(maxLevel);
+            if (minLevel > maxLevel) {
+                throw new IllegalArgumentException("The minimum level must not be greater than the maximum level");
+            }
+            this.minLevel = minLevel;
+            this.maxLevel = maxLevel;
+            return this;
+        }
+
+        public Builder setInitialLevel(int initialLevel) {
+            checkLevel(initialLevel);
+            this.initialLevel = initialLevel;
+            return this;
+        }
+
+        /**
+         * Set the CPU budget, that is, the maximum time spent compressing a single uncompressed byte, averaged over a
+         * window.
+         *
+         * @param maxNanosPerByte the maximum time per byte in nanoseconds.
+         * @return a reference to this builder.
+         */
+        public Builder setMaxNanosPerByte(long maxNanosPerByte) {
+            if (maxNanosPerByte <= 0) {
+                throw new IllegalArgumentException("The CPU budget must be positive");
+            }
+            this.maxNanosPerByte = maxNanosPerByte;
+            return this;
+        }
+
+        /**
+         * Set the minimum improvement of the compression ratio, that is, compressed bytes divided by uncompressed
+         * bytes, a higher level has to achieve in order to be kept.
+         *
+         * @param minRatioImprovement the minimum improvement of the compression ratio, e.g. 0.01 for one percentage
+         *        point.
+         * @return a reference to this builder.
+         */
+        public Builder setMinRatioImprovement(double minRatioImprovement) {
+            if (minRatioImprovement < 0 || minRatioImprovement >= 1) {
+                throw new IllegalArgumentException("Invalid minimum ratio improvement: " + minRatioImprovement);
+            }
+            this.minRatioImprovement = minRatioImprovement;
+            return this;
+        }
+
+        /**
+         * Set the number of uncompressed bytes after which the adaptive policy re-evaluates the level.
+         *
+         * @param windowBytes the window size in bytes.
+         * @return a reference to this builder.
+         */
+        public Builder setWindowBytes(int windowBytes) {
+            if (windowBytes <= 0) {
+                throw new IllegalArgumentException("The window size must be positive");
+            }
+            this.windowBytes = windowBytes;
+            return this;
+        }
+
+        public CompressionLevelPolicy build() {
+            if (adaptive && (initialLevel < minLevel || initialLevel > maxLevel)) {
+                throw new IllegalArgumentException(
+                                "The initial level " + initialLevel + " is not within " + minLevel + '-' + maxLevel);
+            }
+            return new CompressionLevelPolicy(this);
+        }
+    }
+}
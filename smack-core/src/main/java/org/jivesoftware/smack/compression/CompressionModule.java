@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2020 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -55,11 +55,15 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
     }
 
     private static final class CompressionState extends State {
+        private final CompressionModuleDescriptor moduleDescriptor;
+
         private XmppCompressionFactory selectedCompressionFactory;
         private XmppInputOutputFilter usedXmppInputOutputCompressionFitler;
 
-        private CompressionState(StateDescriptor stateDescriptor, ModularXmppClientToServerConnectionInternal connectionInternal) {
+        private CompressionState(StateDescriptor stateDescriptor, CompressionModuleDescriptor moduleDescriptor,
+                        ModularXmppClientToServerConnectionInternal connectionInternal) {
             super(stateDescriptor, connectionInternal);
+            this.moduleDescriptor = moduleDescriptor;
         }
 
         @Override
@@ -75,13 +79,15 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
                 return new StateTransitionResult.TransitionImpossibleReason("Stream compression not supported or enabled by service");
             }
 
-            selectedCompressionFactory = XmppCompressionManager.getBestFactory(compressFeature);
+            selectedCompressionFactory = XmppCompressionManager.getBestFactory(compressFeature,
+                            moduleDescriptor.getPreferredCompressionMethods());
             if (selectedCompressionFactory == null) {
                 return new StateTransitionResult.TransitionImpossibleReason(
                                 "No matching compression factory for " + compressFeature.getMethods());
             }
 
-            usedXmppInputOutputCompressionFitler = selectedCompressionFactory.fabricate(config);
+            usedXmppInputOutputCompressionFitler = selectedCompressionFactory.fabricate(config,
+                            moduleDescriptor.getCompressionLevelPolicy());
 
             return null;
         }
@@ -124,6 +130,6 @@ public class CompressionModule extends ModularXmppClientToServerConnectionModule
 
     public CompressionState constructCompressionState(CompressionStateDescriptor compressionStateDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
-        return new CompressionState(compressionStateDescriptor, connectionInternal);
+        return new CompressionState(compressionStateDescriptor, moduleDescriptor, connectionInternal);
     }
 }
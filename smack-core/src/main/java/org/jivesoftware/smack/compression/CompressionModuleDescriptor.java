@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2024 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,17 +16,27 @@
  */
 package org.jivesoftware.smack.compression;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModuleDescriptor;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.fsm.StateDescriptor;
+import org.jivesoftware.smack.util.Objects;
 
 public class CompressionModuleDescriptor extends ModularXmppClientToServerConnectionModuleDescriptor {
 
-    private static final CompressionModuleDescriptor INSTANCE = new CompressionModuleDescriptor();
+    private final CompressionLevelPolicy compressionLevelPolicy;
+
+    private final List<String> preferredCompressionMethods;
+
+    public CompressionModuleDescriptor(Builder builder) {
+        compressionLevelPolicy = builder.compressionLevelPolicy;
+        preferredCompressionMethods = builder.preferredCompressionMethods;
+    }
 
     @Override
     protected Set<Class<? extends StateDescriptor>> getStateDescriptors() {
@@ -39,6 +49,14 @@ public class CompressionModuleDescriptor extends ModularXmppClientToServerConnec
         return new CompressionModule(this, connectionInternal);
     }
 
+    public CompressionLevelPolicy getCompressionLevelPolicy() {
+        return compressionLevelPolicy;
+    }
+
+    public List<String> getPreferredCompressionMethods() {
+        return preferredCompressionMethods;
+    }
+
     public static final class Builder extends ModularXmppClientToServerConnectionModuleDescriptor.Builder {
 
         // Invoked via reflection.
@@ -47,9 +65,39 @@ public class CompressionModuleDescriptor extends ModularXmppClientToServerConnec
             super(connectionConfigurationBuilder);
         }
 
+        private CompressionLevelPolicy compressionLevelPolicy = CompressionLevelPolicy.DEFAULT;
+
+        private List<String> preferredCompressionMethods = Collections.emptyList();
+
+        /**
+         * Set the policy deciding the compression level. The default is {@link CompressionLevelPolicy#DEFAULT}, which
+         * always uses zlib's default level. Use {@link CompressionLevelPolicy#bandwidthOptimized()} for
+         * bandwidth-bound and {@link CompressionLevelPolicy#cpuOptimized()} for CPU-bound connections.
+         *
+         * @param compressionLevelPolicy the compression level policy.
+         * @return a reference to this builder.
+         */
+        public Builder setCompressionLevelPolicy(CompressionLevelPolicy compressionLevelPolicy) {
+            this.compressionLevelPolicy = Objects.requireNonNull(compressionLevelPolicy);
+            return this;
+        }
+
+        /**
+         * Set the compression methods which should be preferred over the priority of the registered compression
+         * factories, if announced by the service.
+         *
+         * @param preferredCompressionMethods the preferred compression methods, most preferred first.
+         * @return a reference to this builder.
+         * @see XmppCompressionManager#getBestFactory(org.jivesoftware.smack.compress.packet.Compress.Feature, List)
+         */
+        public Builder setPreferredCompressionMethods(String... preferredCompressionMethods) {
+            this.preferredCompressionMethods = Collections.unmodifiableList(Arrays.asList(preferredCompressionMethods));
+            return this;
+        }
+
         @Override
-        protected ModularXmppClientToServerConnectionModuleDescriptor build() {
-            return INSTANCE;
+        protected CompressionModuleDescriptor build() {
+            return new CompressionModuleDescriptor(this);
         }
 
     }
@@ -0,0 +1,94 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression;
+
+/**
+ * Statistics of a compressing {@link org.jivesoftware.smack.XmppInputOutputFilter}, as returned by its
+ * {@link org.jivesoftware.smack.XmppInputOutputFilter#getStats()} method. The compression ratio is the number of
+ * compressed bytes divided by the number of uncompressed bytes, hence smaller values are better.
+ */
+public final class CompressionStats {
+    public final String compressionMethod;
+
+    public final int compressionLevel;
+    public final int compressionLevelChanges;
+
+    public final long compressorInBytes;
+    public final long compressorOutBytes;
+    public final double compressionRatio;
+    public final long compressorNanos;
+
+    public final long decompressorInBytes;
+    public final long decompressorOutBytes;
+    public final double decompressionRatio;
+
+    public final int maxOutputOutput;
+    public final int maxInputOutput;
+
+    public final int maxBytesWrittenAfterFullFlush;
+
+    public final long bufferAllocations;
+
+    public CompressionStats(String compressionMethod, int compressionLevel, int compressionLevelChanges,
+                    long compressorInBytes, long compressorOutBytes, long compressorNanos,
+                    long decompressorInBytes, long decompressorOutBytes,
+                    int maxOutputOutput, int maxInputOutput, int maxBytesWrittenAfterFullFlush,
+                    long bufferAllocations) {
+        this.compressionMethod = compressionMethod;
+        this.compressionLevel = compressionLevel;
+        this.compressionLevelChanges = compressionLevelChanges;
+        this.compressorInBytes = compressorInBytes;
+        this.compressorOutBytes = compressorOutBytes;
+        this.compressionRatio = (double) compressorOutBytes / compressorInBytes;
+        this.compressorNanos = compressorNanos;
+        this.decompressorInBytes = decompressorInBytes;
+        this.decompressorOutBytes = decompressorOutBytes;
+        this.decompressionRatio = (double) decompressorInBytes / decompressorOutBytes;
+        this.maxOutputOutput = maxOutputOutput;
+        this.maxInputOutput = maxInputOutput;
+        this.maxBytesWrittenAfterFullFlush = maxBytesWrittenAfterFullFlush;
+        this.bufferAllocations = bufferAllocations;
+    }
+
+    private transient String toStringCache;
+
+    @Override
+    public String toString() {
+        if (toStringCache != null) {
+            return toStringCache;
+        }
+
+        toStringCache =
+            "compression-method: " + compressionMethod + '\n'
+          + "compression-level: " + compressionLevel + '\n'
+          + "compression-level-changes: " + compressionLevelChanges + '\n'
+          + "compressor-in-bytes: "  + compressorInBytes + '\n'
+          + "compressor-out-bytes: " + compressorOutBytes + '\n'
+          + "compression-ratio: " + compressionRatio + '\n'
+          + "compressor-nanos: " + compressorNanos + '\n'
+          + "decompressor-in-bytes: " + decompressorInBytes + '\n'
+          + "decompressor-out-bytes: " + decompressorOutBytes + '\n'
+          + "decompression-ratio: " + decompressionRatio + '\n'
+          + "max-output-output: " + maxOutputOutput + '\n'
+          + "max-input-output: " + maxInputOutput + '\n'
+          + "max-bytes-written-after-full-flush: " + maxBytesWrittenAfterFullFlush + '\n'
+          + "buffer-allocations: " + bufferAllocations + '\n'
+          ;
+
+        return toStringCache;
+    }
+}
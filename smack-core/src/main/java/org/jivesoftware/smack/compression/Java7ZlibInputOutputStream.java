@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2013-2020 Florian Schmaus
+ * Copyright 2013-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -39,7 +39,26 @@ import java.util.zip.InflaterInputStream;
  * @author Florian Schmaus
  */
 public class Java7ZlibInputOutputStream extends XMPPInputOutputStream {
-    private static final int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private static int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Set the compression level used by streams created afterwards. The default is
+     * {@link Deflater#DEFAULT_COMPRESSION}. Note that the modular connection does not use this class, but a
+     * {@link CompressionLevelPolicy} configured via its {@link CompressionModuleDescriptor}.
+     *
+     * @param compressionLevel the compression level between 0 and 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public static void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+                        && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        Java7ZlibInputOutputStream.compressionLevel = compressionLevel;
+    }
+
+    public static int getCompressionLevel() {
+        return compressionLevel;
+    }
 
     public Java7ZlibInputOutputStream() {
         super("zlib");
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,10 @@ package org.jivesoftware.smack.compression;
 import org.jivesoftware.smack.ConnectionConfiguration;
 import org.jivesoftware.smack.XmppInputOutputFilter;
 
+/**
+ * A factory for the {@link XmppInputOutputFilter} implementing a stream compression method of XEP-0138. Factories are
+ * registered with the {@link XmppCompressionManager}.
+ */
 public abstract class XmppCompressionFactory implements Comparable<XmppCompressionFactory> {
 
     private final String method;
@@ -44,4 +48,17 @@ public abstract class XmppCompressionFactory implements Comparable<XmppCompressi
 
     public abstract XmppInputOutputFilter fabricate(ConnectionConfiguration configuration);
 
+    /**
+     * Fabricate a new compression filter using the given compression level policy. Factories of compression methods
+     * with a notion of compression levels should override this method. The default implementation ignores the policy.
+     *
+     * @param configuration the configuration of the connection.
+     * @param compressionLevelPolicy the compression level policy.
+     * @return a new compression filter.
+     */
+    public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration,
+                    CompressionLevelPolicy compressionLevelPolicy) {
+        return fabricate(configuration);
+    }
+
 }
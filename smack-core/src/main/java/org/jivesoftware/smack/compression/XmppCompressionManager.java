@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,14 @@ import java.util.List;
 
 import org.jivesoftware.smack.compress.packet.Compress;
 
+/**
+ * Manages the stream compression methods (XEP-0138) available to the modular connection. A method is made available
+ * by registering a {@link XmppCompressionFactory} for it. The methods are negotiated via the 'compression' stream
+ * feature, in which the service announces its supported methods: the client selects the best method that is announced
+ * and has a registered factory, and requests it via the 'compress' nonza. Smack registers a factory for 'zlib' by
+ * default; further methods, e.g. based on a third-party compression library, can be added by registering their
+ * factory.
+ */
 public class XmppCompressionManager {
 
     private static final List<XmppCompressionFactory> xmppCompressionFactories = new ArrayList<>(4);
@@ -49,10 +57,64 @@ public class XmppCompressionManager {
         return previousFactory;
     }
 
+    /**
+     * Unregister the factory for the given compression method.
+     *
+     * @param method the compression method.
+     * @return the unregistered factory or <code>null</code>.
+     */
+    public static XmppCompressionFactory unregisterXmppCompressionFactory(String method) {
+        synchronized (xmppCompressionFactories) {
+            for (Iterator<XmppCompressionFactory> it = xmppCompressionFactories.iterator(); it.hasNext(); ) {
+                XmppCompressionFactory factory = it.next();
+                if (factory.getCompressionMethod().equals(method)) {
+                    it.remove();
+                    return factory;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the registered factories, ordered by their priority.
+     *
+     * @return the registered factories.
+     */
+    public static List<XmppCompressionFactory> getXmppCompressionFactories() {
+        synchronized (xmppCompressionFactories) {
+            return new ArrayList<>(xmppCompressionFactories);
+        }
+    }
+
     public static XmppCompressionFactory getBestFactory(Compress.Feature compressFeature) {
+        return getBestFactory(compressFeature, Collections.emptyList());
+    }
+
+    /**
+     * Get the best factory for the compression methods announced by the service. Registered factories of the
+     * preferred methods are considered first, in the given order, before all other registered factories are
+     * considered by their priority.
+     *
+     * @param compressFeature the compression stream feature announced by the service.
+     * @param preferredMethods the preferred compression methods.
+     * @return the best factory or <code>null</code> if there is none for any of the announced methods.
+     */
+    public static XmppCompressionFactory getBestFactory(Compress.Feature compressFeature, List<String> preferredMethods) {
         List<String> announcedMethods = compressFeature.getMethods();
 
         synchronized (xmppCompressionFactories) {
+            for (String preferredMethod : preferredMethods) {
+                if (!announcedMethods.contains(preferredMethod)) {
+                    continue;
+                }
+                for (XmppCompressionFactory factory : xmppCompressionFactories) {
+                    if (factory.getCompressionMethod().equals(preferredMethod)) {
+                        return factory;
+                    }
+                }
+            }
+
             for (XmppCompressionFactory factory : xmppCompressionFactories) {
                 if (announcedMethods.contains(factory.getCompressionMethod())) {
                     return factory;
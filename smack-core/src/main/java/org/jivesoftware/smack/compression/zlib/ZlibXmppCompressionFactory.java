@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,33 +24,52 @@ import java.util.zip.Inflater;
 
 import org.jivesoftware.smack.ConnectionConfiguration;
 import org.jivesoftware.smack.XmppInputOutputFilter;
+import org.jivesoftware.smack.compression.CompressionLevelPolicy;
+import org.jivesoftware.smack.compression.CompressionStats;
 import org.jivesoftware.smack.compression.XMPPInputOutputStream;
 import org.jivesoftware.smack.compression.XMPPInputOutputStream.FlushMethod;
 import org.jivesoftware.smack.compression.XmppCompressionFactory;
 
 public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
 
+    public static final String METHOD = "zlib";
+
     public static final ZlibXmppCompressionFactory INSTANCE = new ZlibXmppCompressionFactory();
 
     private ZlibXmppCompressionFactory() {
-        super("zlib", 100);
+        super(METHOD, 100);
     }
 
     @Override
     public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration) {
-        return new ZlibXmppInputOutputFilter();
+        return fabricate(configuration, CompressionLevelPolicy.DEFAULT);
     }
 
-    private static final class ZlibXmppInputOutputFilter implements XmppInputOutputFilter {
+    @Override
+    public XmppInputOutputFilter fabricate(ConnectionConfiguration configuration,
+                    CompressionLevelPolicy compressionLevelPolicy) {
+        return new ZlibXmppInputOutputFilter(compressionLevelPolicy);
+    }
 
-        private static final int MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE = 4;
+    static final class ZlibXmppInputOutputFilter implements XmppInputOutputFilter {
+
+        private static final int MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE = 256;
         private static final int MINIMUM_OUTPUT_BUFFER_INCREASE = 480;
 
+        /**
+         * Buffers larger than this, which were grown to hold an exceptionally large element, are not retained for
+         * reuse.
+         */
+        private static final int MAXIMUM_REUSED_BUFFER_SIZE = 64 * 1024;
+
         private final Deflater compressor;
         private final Inflater decompressor = new Inflater();
 
+        private final CompressionLevelPolicy.Controller compressionLevelController;
+
         private long compressorInBytes;
         private long compressorOutBytes;
+        private long compressorNanos;
 
         private long decompressorInBytes;
         private long decompressorOutBytes;
@@ -60,87 +79,140 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
 
         private int maxBytesWrittenAfterFullFlush = -1;
 
-        private ZlibXmppInputOutputFilter() {
-            this(Deflater.DEFAULT_COMPRESSION);
-        }
-
-        private ZlibXmppInputOutputFilter(int compressionLevel) {
-            compressor = new Deflater(compressionLevel);
-        }
+        private long bufferAllocations;
 
+        /**
+         * The buffer the compressor currently writes into.
+         */
         private ByteBuffer outputBuffer;
 
+        /**
+         * The buffer most recently handed out by {@link #output(ByteBuffer, boolean, boolean, boolean)}. It is reused
+         * once the subsequent filters or the transport consumed its content.
+         */
+        private ByteBuffer reusableOutputBuffer;
+
+        /**
+         * The buffer most recently returned by {@link #input(ByteBuffer)}. The caller consumes the returned buffer
+         * before handing in further input, hence it can always be reused.
+         */
+        private ByteBuffer reusableInputBuffer;
+
+        private byte[] compressorInputScratch;
+
+        ZlibXmppInputOutputFilter(CompressionLevelPolicy compressionLevelPolicy) {
+            compressionLevelController = compressionLevelPolicy.newController();
+            compressor = new Deflater(compressionLevelController.getLevel());
+        }
+
         @Override
         public OutputResult output(ByteBuffer outputData, boolean isFinalDataOfElement, boolean destinationAddressChanged,
                         boolean moreDataAvailable) throws IOException {
-            if (destinationAddressChanged && XMPPInputOutputStream.getFlushMethod() == FlushMethod.FULL_FLUSH) {
-                outputBuffer = ByteBuffer.allocate(256);
+            final boolean fullFlush = destinationAddressChanged
+                            && XMPPInputOutputStream.getFlushMethod() == FlushMethod.FULL_FLUSH;
+            if (outputData == null && !fullFlush) {
+                return OutputResult.NO_OUTPUT;
+            }
 
-                int bytesWritten = deflate(Deflater.FULL_FLUSH);
+            final int bytesRemaining = outputData != null ? outputData.remaining() : 0;
+            // We assume that the compressed data will not take more space as the uncompressed. Even if this is not
+            // always true, the automatic buffer resize mechanism of deflate() will take care.
+            outputBuffer = acquireOutputBuffer(bytesRemaining);
 
-                maxBytesWrittenAfterFullFlush = Math.max(bytesWritten, maxBytesWrittenAfterFullFlush);
-                compressorOutBytes += bytesWritten;
-            }
+            final long startNanos = System.nanoTime();
+            int bytesWritten = 0;
 
-            if (outputData == null && outputBuffer == null) {
-                return OutputResult.NO_OUTPUT;
-            }
+            if (fullFlush) {
+                int fullFlushBytesWritten = deflate(Deflater.FULL_FLUSH);
 
-            int bytesRemaining = outputData.remaining();
-            if (outputBuffer == null) {
-                final int outputBufferSize = bytesRemaining < MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE ? MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE : bytesRemaining;
-                // We assume that the compressed data will not take more space as the uncompressed. Even if this is not
-                // always true, the automatic buffer resize mechanism of deflate() will take care.
-                outputBuffer = ByteBuffer.allocate(outputBufferSize);
+                maxBytesWrittenAfterFullFlush = Math.max(fullFlushBytesWritten, maxBytesWrittenAfterFullFlush);
+                bytesWritten += fullFlushBytesWritten;
             }
 
-            // There is an invariant of Deflater/Inflater that input should only be set if needsInput() return true.
-            assert compressor.needsInput();
+            if (outputData != null) {
+                // There is an invariant of Deflater/Inflater that input should only be set if needsInput() return true.
+                assert compressor.needsInput();
+
+                final byte[] compressorInputBuffer;
+                final int compressorInputBufferOffset;
+                if (outputData.hasArray()) {
+                    compressorInputBuffer = outputData.array();
+                    compressorInputBufferOffset = outputData.arrayOffset() + outputData.position();
+                    // Workaround for Android API not matching Java >=9 API.
+                    // See https://issuetracker.google.com/issues/369219141
+                    ((java.nio.Buffer) outputData).position(outputData.limit());
+                } else {
+                    // Copy since we are dealing with a buffer whose array is not accessible (possibly a direct
+                    // buffer). The copy can be reused, as the compressor consumes all its input below.
+                    if (compressorInputScratch == null || compressorInputScratch.length < bytesRemaining) {
+                        bufferAllocations++;
+                        compressorInputScratch = new byte[Math.max(bytesRemaining, MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE)];
+                    }
+                    compressorInputBuffer = compressorInputScratch;
+                    compressorInputBufferOffset = 0;
+                    outputData.get(compressorInputBuffer, 0, bytesRemaining);
+                }
 
-            final byte[] compressorInputBuffer;
-            final int compressorInputBufferOffset, compressorInputBufferLength;
-            if (outputData.hasArray()) {
-                compressorInputBuffer = outputData.array();
-                compressorInputBufferOffset = outputData.arrayOffset();
-                compressorInputBufferLength = outputData.remaining();
-            } else {
-                compressorInputBuffer = new byte[outputData.remaining()];
-                compressorInputBufferOffset = 0;
-                compressorInputBufferLength = compressorInputBuffer.length;
-                outputData.get(compressorInputBuffer);
-            }
+                compressorInBytes += bytesRemaining;
 
-            compressorInBytes += compressorInputBufferLength;
+                compressor.setInput(compressorInputBuffer, compressorInputBufferOffset, bytesRemaining);
 
-            compressor.setInput(compressorInputBuffer, compressorInputBufferOffset, compressorInputBufferLength);
+                int flushMode;
+                if (moreDataAvailable) {
+                    flushMode = Deflater.NO_FLUSH;
+                } else {
+                    flushMode = Deflater.SYNC_FLUSH;
+                }
 
-            int flushMode;
-            if (moreDataAvailable) {
-                flushMode = Deflater.NO_FLUSH;
-            } else {
-                flushMode = Deflater.SYNC_FLUSH;
+                bytesWritten += deflate(flushMode);
             }
 
-            int bytesWritten = deflate(flushMode);
-
-            maxOutputOutput = Math.max(outputBuffer.position(), maxOutputOutput);
+            // Deflating is CPU-bound, hence the elapsed time approximates the consumed CPU time well enough, while
+            // being much cheaper to obtain and available on all platforms.
+            final long nanos = System.nanoTime() - startNanos;
+            compressorNanos += nanos;
             compressorOutBytes += bytesWritten;
+            maxOutputOutput = Math.max(outputBuffer.position(), maxOutputOutput);
 
-            OutputResult outputResult = new OutputResult(outputBuffer);
+            // The compressor consumed all its input at this point, hence a new level is applied to the next data.
+            if (compressionLevelController.record(bytesRemaining, bytesWritten, nanos)) {
+                compressor.setLevel(compressionLevelController.getLevel());
+            }
+
+            ByteBuffer result = outputBuffer;
             outputBuffer = null;
-            return outputResult;
+            if (result.capacity() <= MAXIMUM_REUSED_BUFFER_SIZE) {
+                reusableOutputBuffer = result;
+            } else {
+                reusableOutputBuffer = null;
+            }
+            return new OutputResult(result);
         }
 
-        private int deflate(int flushMode) {
-//            compressor.finish();
+        private ByteBuffer acquireOutputBuffer(int expectedSize) {
+            ByteBuffer buffer = reusableOutputBuffer;
+            reusableOutputBuffer = null;
+            // The caller flips the buffer we returned, so it is consumed once there is nothing remaining.
+            if (buffer != null && !buffer.hasRemaining()) {
+                // Workaround for Android API not matching Java >=9 API.
+                // See https://issuetracker.google.com/issues/369219141
+                ((java.nio.Buffer) buffer).clear();
+                return buffer;
+            }
+
+            bufferAllocations++;
+            return ByteBuffer.allocate(Math.max(expectedSize, MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE));
+        }
 
+        private int deflate(int flushMode) {
             int totalBytesWritten = 0;
             while (true) {
                 int initialOutputBufferPosition = outputBuffer.position();
                 byte[] buffer = outputBuffer.array();
                 int length = outputBuffer.limit() - initialOutputBufferPosition;
 
-                int bytesWritten = compressor.deflate(buffer, initialOutputBufferPosition, length, flushMode);
+                int bytesWritten = compressor.deflate(buffer, outputBuffer.arrayOffset() + initialOutputBufferPosition,
+                                length, flushMode);
 
                 int newOutputBufferPosition = initialOutputBufferPosition + bytesWritten;
                 // Workaround for Android API not matching Java >=9 API.
@@ -157,17 +229,22 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
                 if (increasedBufferSize < MINIMUM_OUTPUT_BUFFER_INCREASE) {
                     increasedBufferSize = MINIMUM_OUTPUT_BUFFER_INCREASE;
                 }
-                ByteBuffer newCurrentOutputBuffer = ByteBuffer.allocate(increasedBufferSize);
-                // Workaround for Android API not matching Java >=9 API.
-                // See https://issuetracker.google.com/issues/369219141
-                ((java.nio.Buffer) outputBuffer).flip();
-                newCurrentOutputBuffer.put(outputBuffer);
-                outputBuffer = newCurrentOutputBuffer;
+                outputBuffer = grow(outputBuffer, increasedBufferSize);
             }
 
             return totalBytesWritten;
         }
 
+        private ByteBuffer grow(ByteBuffer buffer, int newSize) {
+            bufferAllocations++;
+            ByteBuffer increasedBuffer = ByteBuffer.allocate(newSize);
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) buffer).flip();
+            increasedBuffer.put(buffer);
+            return increasedBuffer;
+        }
+
         @Override
         public ByteBuffer input(ByteBuffer inputData) throws IOException {
             int bytesRemaining = inputData.remaining();
@@ -176,8 +253,11 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
             final int offset, length;
             if (inputData.hasArray()) {
                 inputBytes = inputData.array();
-                offset = inputData.arrayOffset();
-                length = inputData.remaining();
+                offset = inputData.arrayOffset() + inputData.position();
+                length = bytesRemaining;
+                // Workaround for Android API not matching Java >=9 API.
+                // See https://issuetracker.google.com/issues/369219141
+                ((java.nio.Buffer) inputData).position(inputData.limit());
             } else {
                 // Copy since we are dealing with a buffer whose array is not accessible (possibly a direct buffer).
                 inputBytes = new byte[bytesRemaining];
@@ -190,17 +270,28 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
 
             decompressor.setInput(inputBytes, offset, length);
 
-            int bytesInflated;
             // Assume that the inflated/decompressed result will be roughly at most twice the size of the compressed
             // variant. It appears to hold most of the times, if not, then the buffer resize mechanism will take care of
             // it.
-            ByteBuffer outputBuffer = ByteBuffer.allocate(2 * length);
+            ByteBuffer outputBuffer = reusableInputBuffer;
+            if (outputBuffer != null) {
+                // Workaround for Android API not matching Java >=9 API.
+                // See https://issuetracker.google.com/issues/369219141
+                ((java.nio.Buffer) outputBuffer).clear();
+            } else {
+                bufferAllocations++;
+                outputBuffer = ByteBuffer.allocate(Math.max(2 * length, MINIMUM_OUTPUT_BUFFER_INITIAL_SIZE));
+            }
+
+            int bytesInflatedTotal = 0;
             while (true) {
                 byte[] inflateOutputBuffer = outputBuffer.array();
                 int inflateOutputBufferOffset = outputBuffer.position();
                 int inflateOutputBufferLength = outputBuffer.limit() - inflateOutputBufferOffset;
+                int bytesInflated;
                 try {
-                    bytesInflated = decompressor.inflate(inflateOutputBuffer, inflateOutputBufferOffset, inflateOutputBufferLength);
+                    bytesInflated = decompressor.inflate(inflateOutputBuffer,
+                                    outputBuffer.arrayOffset() + inflateOutputBufferOffset, inflateOutputBufferLength);
                 }
                 catch (DataFormatException e) {
                     throw new IOException(e);
@@ -211,21 +302,22 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
                 ((java.nio.Buffer) outputBuffer).position(inflateOutputBufferOffset + bytesInflated);
 
                 decompressorOutBytes += bytesInflated;
+                bytesInflatedTotal += bytesInflated;
 
                 if (decompressor.needsInput()) {
                     break;
                 }
 
-                int increasedBufferSize = outputBuffer.capacity() * 2;
-                ByteBuffer increasedOutputBuffer = ByteBuffer.allocate(increasedBufferSize);
-                // Workaround for Android API not matching Java >=9 API.
-                // See https://issuetracker.google.com/issues/369219141
-                ((java.nio.Buffer) outputBuffer).flip();
-                increasedOutputBuffer.put(outputBuffer);
-                outputBuffer = increasedOutputBuffer;
+                outputBuffer = grow(outputBuffer, outputBuffer.capacity() * 2);
+            }
+
+            if (outputBuffer.capacity() <= MAXIMUM_REUSED_BUFFER_SIZE) {
+                reusableInputBuffer = outputBuffer;
+            } else {
+                reusableInputBuffer = null;
             }
 
-            if (bytesInflated == 0) {
+            if (bytesInflatedTotal == 0) {
                 return null;
             }
 
@@ -235,8 +327,14 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
         }
 
         @Override
-        public Stats getStats() {
-            return new Stats(this);
+        public CompressionStats getStats() {
+            // Note that we read the out bytes before the in bytes to not over approximate the compression ratio.
+            long compressorOutBytes = this.compressorOutBytes;
+            long decompressorOutBytes = this.decompressorOutBytes;
+            return new CompressionStats(METHOD, compressionLevelController.getLevel(),
+                            compressionLevelController.getLevelChanges(), compressorInBytes, compressorOutBytes,
+                            compressorNanos, decompressorInBytes, decompressorOutBytes, maxOutputOutput,
+                            maxInputOutput, maxBytesWrittenAfterFullFlush, bufferAllocations);
         }
 
         @Override
@@ -244,57 +342,4 @@ public final class ZlibXmppCompressionFactory extends XmppCompressionFactory {
             return "Compression (zlib)";
         }
     }
-
-    public static final class Stats {
-        public final long compressorInBytes;
-        public final long compressorOutBytes;
-        public final double compressionRatio;
-
-        public final long decompressorInBytes;
-        public final long decompressorOutBytes;
-        public final double decompressionRatio;
-
-        public final int maxOutputOutput;
-        public final int maxInputOutput;
-
-        public final int maxBytesWrittenAfterFullFlush;
-
-        private Stats(ZlibXmppInputOutputFilter filter) {
-            // Note that we read the out bytes before the in bytes to not over approximate the compression ratio.
-            compressorOutBytes = filter.compressorOutBytes;
-            compressorInBytes = filter.compressorInBytes;
-            compressionRatio = (double) compressorOutBytes / compressorInBytes;
-
-            decompressorOutBytes = filter.decompressorOutBytes;
-            decompressorInBytes = filter.decompressorInBytes;
-            decompressionRatio = (double) decompressorInBytes / decompressorOutBytes;
-
-            maxOutputOutput = filter.maxOutputOutput;
-            maxInputOutput = filter.maxInputOutput;
-            maxBytesWrittenAfterFullFlush = filter.maxBytesWrittenAfterFullFlush;
-        }
-
-        private transient String toStringCache;
-
-        @Override
-        public String toString() {
-            if (toStringCache != null) {
-                return toStringCache;
-            }
-
-            toStringCache =
-                "compressor-in-bytes: "  + compressorInBytes + '\n'
-              + "compressor-out-bytes: " + compressorOutBytes + '\n'
-              + "compression-ratio: " + compressionRatio + '\n'
-              + "decompressor-in-bytes: " + decompressorInBytes + '\n'
-              + "decompressor-out-bytes: " + decompressorOutBytes + '\n'
-              + "decompression-ratio: " + decompressionRatio + '\n'
-              + "max-output-output: " + maxOutputOutput + '\n'
-              + "max-input-output: " + maxInputOutput + '\n'
-              + "max-bytes-written-after-full-flush: " + maxBytesWrittenAfterFullFlush + '\n'
-              ;
-
-            return toStringCache;
-        }
-    }
 }
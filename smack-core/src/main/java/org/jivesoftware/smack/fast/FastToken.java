@@ -0,0 +1,77 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import java.time.Instant;
+
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.StringUtils;
+
+/**
+ * A FAST token, as issued by the service, together with the mechanism it was issued for and the number of times the
+ * client used it.
+ */
+public final class FastToken {
+
+    private final String mechanism;
+
+    private final String token;
+
+    private final Instant expiry;
+
+    private long usageCount;
+
+    public FastToken(String mechanism, String token, Instant expiry) {
+        this.mechanism = Objects.requireNonNull(mechanism);
+        this.token = StringUtils.requireNotNullNorEmpty(token, "The FAST token must not be null nor empty");
+        this.expiry = expiry;
+    }
+
+    public String getMechanism() {
+        return mechanism;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Get the expiry of this token, or <code>null</code> if the service did not announce one.
+     *
+     * @return the expiry or <code>null</code>.
+     */
+    public Instant getExpiry() {
+        return expiry;
+    }
+
+    public boolean isExpired() {
+        if (expiry == null) {
+            return false;
+        }
+        return !Instant.now().isBefore(expiry);
+    }
+
+    /**
+     * Increment and return the usage counter of this token. The counter is sent along with every authentication
+     * using this token, and allows the service to reject replayed authentication attempts.
+     *
+     * @return the incremented usage counter.
+     */
+    public synchronized long nextUsageCount() {
+        return ++usageCount;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import org.jxmpp.jid.EntityBareJid;
+
+/**
+ * A store for FAST tokens. Implementations may persist the tokens, so that they survive a restart of the
+ * application.
+ */
+public interface FastTokenStore {
+
+    /**
+     * Get the token stored for the given account.
+     *
+     * @param account the account.
+     * @return the token or <code>null</code>.
+     */
+    FastToken getToken(EntityBareJid account);
+
+    void putToken(EntityBareJid account, FastToken token);
+
+    void removeToken(EntityBareJid account);
+
+}
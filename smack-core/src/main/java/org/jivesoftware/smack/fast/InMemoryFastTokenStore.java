@@ -0,0 +1,45 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jxmpp.jid.EntityBareJid;
+
+/**
+ * A {@link FastTokenStore} which keeps the tokens in memory.
+ */
+public class InMemoryFastTokenStore implements FastTokenStore {
+
+    private final Map<EntityBareJid, FastToken> tokens = new ConcurrentHashMap<>();
+
+    @Override
+    public FastToken getToken(EntityBareJid account) {
+        return tokens.get(account);
+    }
+
+    @Override
+    public void putToken(EntityBareJid account, FastToken token) {
+        tokens.put(account, token);
+    }
+
+    @Override
+    public void removeToken(EntityBareJid account) {
+        tokens.remove(account);
+    }
+}
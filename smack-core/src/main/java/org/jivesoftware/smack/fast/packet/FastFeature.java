@@ -0,0 +1,70 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.packet;
+
+import java.util.Collections;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * The FAST inline feature, announced within the SASL2 authentication feature. It lists the token mechanisms the
+ * service is able to issue tokens for.
+ *
+ * @see <a href="https://xmpp.org/extensions/xep-0484.html">XEP-0484: Fast Authentication Streamlining Tokens</a>
+ */
+public class FastFeature implements ExtensionElement {
+
+    public static final String ELEMENT = "fast";
+    public static final String NAMESPACE = "urn:xmpp:fast:0";
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final Set<String> mechanisms;
+
+    public FastFeature(Set<String> mechanisms) {
+        this.mechanisms = Collections.unmodifiableSet(mechanisms);
+    }
+
+    public Set<String> getMechanisms() {
+        return mechanisms;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        xml.rightAngleBracket();
+        for (String mechanism : mechanisms) {
+            xml.element("mechanism", mechanism);
+        }
+        xml.closeElement(this);
+        return xml;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.packet;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * Included in the SASL2 authenticate element if the client authenticates using a FAST token. The counter allows the
+ * service to detect replays of the authentication attempt.
+ */
+public class FastUsage implements ExtensionElement {
+
+    public static final String ELEMENT = FastFeature.ELEMENT;
+    public static final String NAMESPACE = FastFeature.NAMESPACE;
+    public static final QName QNAME = FastFeature.QNAME;
+
+    private final long count;
+
+    private final boolean invalidate;
+
+    public FastUsage(long count) {
+        this(count, false);
+    }
+
+    public FastUsage(long count, boolean invalidate) {
+        this.count = count;
+        this.invalidate = invalidate;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isInvalidate() {
+        return invalidate;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        xml.attribute("count", count);
+        if (invalidate) {
+            xml.attribute("invalidate", true);
+        }
+        xml.closeEmptyElement();
+        return xml;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.packet;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * Inline request, included in the SASL2 authenticate element, asking the service to issue a FAST token for the given
+ * mechanism.
+ */
+public class RequestToken implements ExtensionElement {
+
+    public static final String ELEMENT = "request-token";
+    public static final String NAMESPACE = FastFeature.NAMESPACE;
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final String mechanism;
+
+    public RequestToken(String mechanism) {
+        this.mechanism = Objects.requireNonNull(mechanism);
+    }
+
+    public String getMechanism() {
+        return mechanism;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        xml.attribute("mechanism", mechanism);
+        xml.closeEmptyElement();
+        return xml;
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.packet;
+
+import java.util.Date;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+
+/**
+ * A FAST token issued by the service, included in the SASL2 success element.
+ */
+public class Token implements ExtensionElement {
+
+    public static final String ELEMENT = "token";
+    public static final String NAMESPACE = FastFeature.NAMESPACE;
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final String token;
+
+    private final Date expiry;
+
+    public Token(String token, Date expiry) {
+        this.token = StringUtils.requireNotNullNorEmpty(token, "The FAST token must not be null nor empty");
+        this.expiry = expiry;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Date getExpiry() {
+        return expiry;
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        xml.optAttribute("expiry", expiry);
+        xml.attribute("token", token);
+        xml.closeEmptyElement();
+        return xml;
+    }
+}
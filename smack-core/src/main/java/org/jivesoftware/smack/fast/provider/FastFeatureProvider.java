@@ -0,0 +1,60 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.provider;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.jivesoftware.smack.fast.packet.FastFeature;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+public final class FastFeatureProvider extends ExtensionElementProvider<FastFeature> {
+
+    public static final FastFeatureProvider INSTANCE = new FastFeatureProvider();
+
+    private FastFeatureProvider() {
+    }
+
+    @Override
+    public FastFeature parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException {
+        Set<String> mechanisms = new LinkedHashSet<>();
+        outerloop: while (true) {
+            XmlPullParser.TagEvent event = parser.nextTag();
+            switch (event) {
+            case START_ELEMENT:
+                if (parser.getName().equals("mechanism")) {
+                    mechanisms.add(parser.nextText());
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new FastFeature(mechanisms);
+    }
+
+}
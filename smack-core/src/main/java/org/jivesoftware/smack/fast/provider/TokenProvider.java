@@ -0,0 +1,47 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.fast.provider;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Date;
+
+import org.jivesoftware.smack.fast.packet.Token;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.util.ParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.jxmpp.JxmppContext;
+
+public final class TokenProvider extends ExtensionElementProvider<Token> {
+
+    public static final TokenProvider INSTANCE = new TokenProvider();
+
+    private TokenProvider() {
+    }
+
+    @Override
+    public Token parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws IOException, ParseException {
+        String token = ParserUtils.getRequiredAttribute(parser, "token");
+        String expiryString = parser.getAttributeValue("expiry");
+        Date expiry = ParserUtils.getDateFromOptionalXep82String(expiryString);
+        return new Token(token, expiry);
+    }
+
+}
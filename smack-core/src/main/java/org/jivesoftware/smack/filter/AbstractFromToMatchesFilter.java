@@ -18,6 +18,7 @@ package org.jivesoftware.smack.filter;
 
 import org.jivesoftware.smack.packet.Stanza;
 
+import org.jxmpp.jid.BareJid;
 import org.jxmpp.jid.Jid;
 
 public abstract class AbstractFromToMatchesFilter implements StanzaFilter {
@@ -99,6 +100,32 @@ public abstract class AbstractFromToMatchesFilter implements StanzaFilter {
 
     protected abstract Jid getAddressToCompare(Stanza stanza);
 
+    /**
+     * Get the bare JID every address matched by this filter must have, or <code>null</code> if there is no such bare
+     * JID. For example, a child match of a domain JID matches addresses with arbitrary bare JIDs.
+     *
+     * @return the bare JID every matched address has, or <code>null</code>.
+     */
+    final BareJid getRequiredBareJid() {
+        if (address == null) {
+            return null;
+        }
+
+        switch (matchMode) {
+        case exact:
+        case ignoreResourcepart:
+            return address.asBareJid();
+        case child:
+        case strictChild:
+            if (!address.hasLocalpart()) {
+                return null;
+            }
+            return address.asBareJid();
+        default:
+            throw new IllegalStateException("Unknown matchMode: " + matchMode);
+        }
+    }
+
     @Override
     public final String toString() {
         return getClass().getSimpleName() + " (" + matchMode + "): " + address;
@@ -27,7 +27,7 @@ import org.jivesoftware.smack.packet.Stanza;
  *
  * @author Matt Tucker
  */
-public class AndFilter extends AbstractListFilter implements StanzaFilter {
+public class AndFilter extends AbstractListFilter implements KeyedStanzaFilter {
 
     /**
      * Creates an empty AND filter. Filters should be added using the
@@ -65,4 +65,20 @@ public class AndFilter extends AbstractListFilter implements StanzaFilter {
         return true;
     }
 
+    /**
+     * Returns the most selective key of all filters of this AND filter. Note that filters added later on via
+     * {@link #addFilter(StanzaFilter)} only make this filter more restrictive, hence the returned key stays valid.
+     *
+     * @return the most selective key of all filters, or <code>null</code>.
+     */
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        StanzaFilterKey stanzaFilterKey = null;
+        for (StanzaFilter filter : filters) {
+            StanzaFilterKey filterKey = StanzaFilterKey.of(filter);
+            stanzaFilterKey = StanzaFilterKey.mostSelective(stanzaFilterKey, filterKey);
+        }
+        return stanzaFilterKey;
+    }
+
 }
@@ -23,7 +23,7 @@ import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.util.XmppElementUtil;
 
-public class ExtensionElementFilter<E extends ExtensionElement> implements StanzaFilter {
+public class ExtensionElementFilter<E extends ExtensionElement> implements KeyedStanzaFilter {
 
     private final Class<E> extensionElementClass;
     private final QName extensionElementQName;
@@ -51,4 +51,9 @@ public class ExtensionElementFilter<E extends ExtensionElement> implements Stanz
     public boolean accept(E extensionElement) {
         return true;
     }
+
+    @Override
+    public final StanzaFilterKey getStanzaFilterKey() {
+        return StanzaFilterKey.forExtensionElement(extensionElementQName);
+    }
 }
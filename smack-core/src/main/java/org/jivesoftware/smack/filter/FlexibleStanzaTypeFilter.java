@@ -27,7 +27,7 @@ import org.jivesoftware.smack.util.Objects;
  *
  * @author Florian Schmaus
  */
-public abstract class FlexibleStanzaTypeFilter<S extends Stanza> implements StanzaFilter {
+public abstract class FlexibleStanzaTypeFilter<S extends Stanza> implements KeyedStanzaFilter {
 
     protected final Class<S> stanzaType;
 
@@ -51,6 +51,11 @@ public abstract class FlexibleStanzaTypeFilter<S extends Stanza> implements Stan
 
     protected abstract boolean acceptSpecific(S packet);
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        return StanzaFilterKey.forStanzaType(stanzaType);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": " + stanzaType.toString();
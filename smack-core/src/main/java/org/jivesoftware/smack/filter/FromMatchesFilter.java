@@ -29,7 +29,7 @@ import org.jxmpp.jid.Jid;
  *
  * @author Gaston Dombiak
  */
-public final class FromMatchesFilter extends AbstractFromToMatchesFilter {
+public final class FromMatchesFilter extends AbstractFromToMatchesFilter implements KeyedStanzaFilter {
 
     public static final FromMatchesFilter MATCH_NO_FROM_SET = create(null);
 
@@ -96,4 +96,9 @@ public final class FromMatchesFilter extends AbstractFromToMatchesFilter {
         return stanza.getFrom();
     }
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        return StanzaFilterKey.forFrom(getRequiredBareJid());
+    }
+
 }
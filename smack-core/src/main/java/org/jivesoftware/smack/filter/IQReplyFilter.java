@@ -50,7 +50,7 @@ import org.jxmpp.jid.Jid;
  * @author Lars Noschinski
  *
  */
-public class IQReplyFilter implements StanzaFilter {
+public class IQReplyFilter implements KeyedStanzaFilter {
     private static final Logger LOGGER = Logger.getLogger(IQReplyFilter.class.getName());
 
     private final StanzaFilter iqAndIdFilter;
@@ -128,6 +128,11 @@ public class IQReplyFilter implements StanzaFilter {
         }
     }
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        return StanzaFilterKey.forStanzaId(packetId);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,35 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+/**
+ * A stanza filter that is able to describe a {@link StanzaFilterKey} which every stanza it accepts matches. Such
+ * filters can be indexed by a {@link StanzaFilterIndex}, so that they are only invoked for stanzas matching their key.
+ */
+public interface KeyedStanzaFilter extends StanzaFilter {
+
+    /**
+     * Get the key of this filter. Every stanza accepted by this filter must match the returned key. Once returned, the
+     * key must remain a necessary condition of the filter for its whole lifetime, as indexes evaluate this method only
+     * once, when the filter is registered. Returns <code>null</code> if this filter instance is not able to describe
+     * a key.
+     *
+     * @return the key of this filter, or <code>null</code>.
+     */
+    StanzaFilterKey getStanzaFilterKey();
+
+}
@@ -17,6 +17,8 @@
 
 package org.jivesoftware.smack.filter;
 
+import javax.xml.namespace.QName;
+
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.util.StringUtils;
@@ -26,7 +28,7 @@ import org.jivesoftware.smack.util.StringUtils;
  *
  * @author Matt Tucker
  */
-public class StanzaExtensionFilter implements StanzaFilter {
+public class StanzaExtensionFilter implements KeyedStanzaFilter {
 
     private final String elementName;
     private final String namespace;
@@ -70,6 +72,15 @@ public class StanzaExtensionFilter implements StanzaFilter {
         return packet.hasExtension(elementName, namespace);
     }
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        if (elementName == null) {
+            // Filters matching only the namespace can not be keyed by a qualified name.
+            return null;
+        }
+        return StanzaFilterKey.forExtensionElement(new QName(namespace, elementName));
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": element=" + elementName + " namespace=" + namespace;
@@ -0,0 +1,307 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlElement;
+
+import org.jxmpp.jid.Jid;
+
+/**
+ * An index of values associated with stanza filters. Values whose filter is a {@link KeyedStanzaFilter} are stored
+ * under the filter's {@link StanzaFilterKey}, so that looking up the candidates for a stanza only has to consider the
+ * values whose key matches the stanza. Values with an opaque filter, i.e., one that is not able to describe a key, are
+ * always returned as candidates.
+ * <p>
+ * The candidates returned by {@link #addCandidatesFor(Stanza, Collection)} are in the order the values were first put
+ * into this index, just like the iteration order of a {@link LinkedHashMap}. Note that the candidates are not yet
+ * filtered: the caller still has to invoke the associated stanza filter for every candidate.
+ * </p>
+ * <p>
+ * This class is not thread-safe, callers must synchronize on the index.
+ * </p>
+ *
+ * @param <K> the type of the keys identifying the values, e.g., a stanza listener.
+ * @param <V> the type of the values.
+ */
+public final class StanzaFilterIndex<K, V> {
+
+    private static final Comparator<Entry<?, ?>> SEQUENCE_NUMBER_COMPARATOR = (e1, e2) -> Long.compare(
+                    e1.sequenceNumber, e2.sequenceNumber);
+
+    private final Map<K, Entry<K, V>> entries = new LinkedHashMap<>();
+
+    private final Map<String, Set<Entry<K, V>>> byStanzaId = new HashMap<>();
+
+    private final Map<Jid, Set<Entry<K, V>>> byFromBareJid = new HashMap<>();
+
+    private final Map<QName, Set<Entry<K, V>>> byExtensionElement = new HashMap<>();
+
+    private final Map<Class<?>, Set<Entry<K, V>>> byStanzaType = new HashMap<>();
+
+    private final Set<Entry<K, V>> unkeyed = new LinkedHashSet<>();
+
+    private long nextSequenceNumber;
+
+    /**
+     * Put the given value with the given filter into this index. If the index already contains a value for the given
+     * key, then the value is replaced but keeps its position in the candidate order.
+     *
+     * @param key the key identifying the value.
+     * @param filter the filter of the value, may be <code>null</code> which means that the value matches all stanzas.
+     * @param value the value.
+     * @return the previous value associated with the key or <code>null</code>.
+     */
+    public V put(K key, StanzaFilter filter, V value) {
+        Entry<K, V> previousEntry = entries.get(key);
+        long sequenceNumber;
+        if (previousEntry != null) {
+            unindex(previousEntry);
+            sequenceNumber = previousEntry.sequenceNumber;
+        } else {
+            sequenceNumber = nextSequenceNumber++;
+        }
+
+        StanzaFilterKey filterKey = StanzaFilterKey.of(filter);
+        Entry<K, V> entry = new Entry<>(sequenceNumber, key, value, filterKey);
+        entries.put(key, entry);
+        index(entry);
+
+        if (previousEntry == null) {
+            return null;
+        }
+        return previousEntry.value;
+    }
+
+    /**
+     * Remove the value associated with the given key.
+     *
+     * @param key the key.
+     * @return the removed value or <code>null</code>.
+     */
+    public V remove(K key) {
+        Entry<K, V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        unindex(entry);
+        return entry.value;
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Get the number of values whose filter did not provide a key and which are hence considered for every stanza.
+     *
+     * @return the number of unkeyed values.
+     */
+    public int getUnkeyedCount() {
+        return unkeyed.size();
+    }
+
+    /**
+     * Get a copy of all values, in the order they were first put into this index.
+     *
+     * @return a list of all values.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>(entries.size());
+        for (Entry<K, V> entry : entries.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    public void clear() {
+        entries.clear();
+        byStanzaId.clear();
+        byFromBareJid.clear();
+        byExtensionElement.clear();
+        byStanzaType.clear();
+        unkeyed.clear();
+    }
+
+    /**
+     * Add all values that are candidates for the given stanza to the given collection. A value is a candidate if its
+     * filter's key matches the stanza or if its filter did not provide a key.
+     *
+     * @param stanza the stanza.
+     * @param candidates the collection the candidates are added to.
+     */
+    public void addCandidatesFor(Stanza stanza, Collection<? super V> candidates) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        List<Entry<K, V>> matchingEntries = new ArrayList<>();
+        int matchingSources = 0;
+
+        matchingSources += addAll(unkeyed, matchingEntries);
+
+        String stanzaId = stanza.getStanzaId();
+        if (stanzaId != null && !byStanzaId.isEmpty()) {
+            matchingSources += addAll(byStanzaId.get(stanzaId), matchingEntries);
+        }
+
+        Jid from = stanza.getFrom();
+        if (from != null && !byFromBareJid.isEmpty()) {
+            matchingSources += addAll(byFromBareJid.get(from.asBareJid()), matchingEntries);
+        }
+
+        if (!byExtensionElement.isEmpty()) {
+            Set<QName> seenQNames = null;
+            for (XmlElement extensionElement : stanza.getExtensions()) {
+                QName qname = extensionElement.getQName();
+                Set<Entry<K, V>> bucket = byExtensionElement.get(qname);
+                if (bucket == null) {
+                    continue;
+                }
+                // Stanzas may contain multiple extension elements with the same qualified name, make sure that we
+                // consider every bucket only once.
+                if (seenQNames == null) {
+                    seenQNames = new LinkedHashSet<>(4);
+                }
+                if (!seenQNames.add(qname)) {
+                    continue;
+                }
+                matchingSources += addAll(bucket, matchingEntries);
+            }
+        }
+
+        if (!byStanzaType.isEmpty()) {
+            Class<?> stanzaType = StanzaFilterKey.getTopLevelStanzaType(stanza.getClass());
+            if (stanzaType != null) {
+                matchingSources += addAll(byStanzaType.get(stanzaType), matchingEntries);
+            }
+        }
+
+        if (matchingSources > 1) {
+            matchingEntries.sort(SEQUENCE_NUMBER_COMPARATOR);
+        }
+
+        for (Entry<K, V> entry : matchingEntries) {
+            candidates.add(entry.value);
+        }
+    }
+
+    private static <K, V> int addAll(Set<Entry<K, V>> bucket, List<Entry<K, V>> matchingEntries) {
+        if (bucket == null || bucket.isEmpty()) {
+            return 0;
+        }
+        matchingEntries.addAll(bucket);
+        return 1;
+    }
+
+    private Set<Entry<K, V>> getBucket(StanzaFilterKey filterKey) {
+        Map<?, Set<Entry<K, V>>> map = getMap(filterKey);
+        if (map == null) {
+            return unkeyed;
+        }
+        return map.get(filterKey.getValue());
+    }
+
+    private Map<?, Set<Entry<K, V>>> getMap(StanzaFilterKey filterKey) {
+        if (filterKey == null) {
+            return null;
+        }
+        switch (filterKey.getType()) {
+        case stanzaId:
+            return byStanzaId;
+        case fromBareJid:
+            return byFromBareJid;
+        case extensionElement:
+            return byExtensionElement;
+        case stanzaType:
+            return byStanzaType;
+        default:
+            throw new AssertionError();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void index(Entry<K, V> entry) {
+        StanzaFilterKey filterKey = entry.filterKey;
+        Map<Object, Set<Entry<K, V>>> map = (Map<Object, Set<Entry<K, V>>>) getMap(filterKey);
+        if (map == null) {
+            unkeyed.add(entry);
+            return;
+        }
+        Set<Entry<K, V>> bucket = map.computeIfAbsent(filterKey.getValue(), k -> new LinkedHashSet<>(2));
+        bucket.add(entry);
+    }
+
+    private void unindex(Entry<K, V> entry) {
+        StanzaFilterKey filterKey = entry.filterKey;
+        Set<Entry<K, V>> bucket = getBucket(filterKey);
+        if (bucket == null) {
+            return;
+        }
+        bucket.remove(entry);
+        if (bucket.isEmpty() && bucket != unkeyed) {
+            getMap(filterKey).remove(filterKey.getValue());
+        }
+    }
+
+    private static final class Entry<K, V> {
+        private final long sequenceNumber;
+        private final K key;
+        private final V value;
+        private final StanzaFilterKey filterKey;
+
+        private Entry(long sequenceNumber, K key, V value, StanzaFilterKey filterKey) {
+            this.sequenceNumber = sequenceNumber;
+            this.key = key;
+            this.value = value;
+            this.filterKey = filterKey;
+        }
+
+        @Override
+        public String toString() {
+            return key + " (" + filterKey + ')';
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+
+/**
+ * A key describing a necessary condition of a {@link StanzaFilter}. Every stanza accepted by a filter with a given key
+ * also matches this key. This allows a {@link StanzaFilterIndex} to only consider the filters whose key matches an
+ * incoming stanza, instead of invoking every registered filter.
+ *
+ * @see KeyedStanzaFilter
+ * @see StanzaFilterIndex
+ */
+public final class StanzaFilterKey {
+
+    /**
+     * The type of a stanza filter key. The types are declared in the order of their usual selectivity, i.e., a stanza
+     * ID is typically more selective than a 'from' address.
+     */
+    public enum Type {
+        /**
+         * The stanza ID of the stanza.
+         */
+        stanzaId,
+
+        /**
+         * The bare JID of the 'from' address of the stanza.
+         */
+        fromBareJid,
+
+        /**
+         * The qualified name of one of the extension elements of the stanza.
+         */
+        extensionElement,
+
+        /**
+         * The top-level stanza type, i.e., {@link IQ}, {@link Message} or {@link Presence}.
+         */
+        stanzaType,
+    }
+
+    private final Type type;
+
+    private final Object value;
+
+    private StanzaFilterKey(Type type, Object value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public static StanzaFilterKey forStanzaId(String stanzaId) {
+        if (stanzaId == null) {
+            return null;
+        }
+        return new StanzaFilterKey(Type.stanzaId, stanzaId);
+    }
+
+    public static StanzaFilterKey forFrom(Jid from) {
+        if (from == null) {
+            return null;
+        }
+        BareJid bareFrom = from.asBareJid();
+        return new StanzaFilterKey(Type.fromBareJid, bareFrom);
+    }
+
+    public static StanzaFilterKey forExtensionElement(QName qname) {
+        if (qname == null) {
+            return null;
+        }
+        return new StanzaFilterKey(Type.extensionElement, qname);
+    }
+
+    /**
+     * Get a stanza filter key for the given stanza type. Returns <code>null</code> if the given type is not a subtype
+     * of {@link IQ}, {@link Message} or {@link Presence}.
+     *
+     * @param stanzaType the stanza type.
+     * @return the key for the given stanza type or <code>null</code>.
+     */
+    public static StanzaFilterKey forStanzaType(Class<?> stanzaType) {
+        Class<? extends Stanza> topLevelStanzaType = getTopLevelStanzaType(stanzaType);
+        if (topLevelStanzaType == null) {
+            return null;
+        }
+        return new StanzaFilterKey(Type.stanzaType, topLevelStanzaType);
+    }
+
+    /**
+     * Returns the more selective of the two given keys. Either argument may be <code>null</code>.
+     *
+     * @param a the first key.
+     * @param b the second key.
+     * @return the more selective key, or <code>null</code> if both keys are <code>null</code>.
+     */
+    public static StanzaFilterKey mostSelective(StanzaFilterKey a, StanzaFilterKey b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (b.type.compareTo(a.type) < 0) {
+            return b;
+        }
+        return a;
+    }
+
+    /**
+     * Get the stanza filter key of the given filter, or <code>null</code> if the filter is not a
+     * {@link KeyedStanzaFilter} or unable to describe its key.
+     *
+     * @param filter the filter, may be <code>null</code>.
+     * @return the key of the filter or <code>null</code>.
+     */
+    public static StanzaFilterKey of(StanzaFilter filter) {
+        if (!(filter instanceof KeyedStanzaFilter)) {
+            return null;
+        }
+        KeyedStanzaFilter keyedStanzaFilter = (KeyedStanzaFilter) filter;
+        return keyedStanzaFilter.getStanzaFilterKey();
+    }
+
+    static Class<? extends Stanza> getTopLevelStanzaType(Class<?> stanzaType) {
+        if (IQ.class.isAssignableFrom(stanzaType)) {
+            return IQ.class;
+        } else if (Message.class.isAssignableFrom(stanzaType)) {
+            return Message.class;
+        } else if (Presence.class.isAssignableFrom(stanzaType)) {
+            return Presence.class;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StanzaFilterKey)) {
+            return false;
+        }
+        StanzaFilterKey otherKey = (StanzaFilterKey) other;
+        return type == otherKey.type && value.equals(otherKey.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " (" + type + "): " + value;
+    }
+}
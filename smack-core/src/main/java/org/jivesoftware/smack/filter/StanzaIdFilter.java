@@ -26,10 +26,12 @@ import org.jivesoftware.smack.util.StringUtils;
  *
  * @author Matt Tucker
  */
-public class StanzaIdFilter implements StanzaFilter {
+public class StanzaIdFilter implements KeyedStanzaFilter {
 
     private final String stanzaId;
 
+    private final StanzaFilterKey stanzaFilterKey;
+
     /**
      * Creates a new stanza ID filter using the specified stanza's ID.
      *
@@ -46,6 +48,7 @@ public class StanzaIdFilter implements StanzaFilter {
      */
     public StanzaIdFilter(String stanzaId) {
         this.stanzaId = StringUtils.requireNotNullNorEmpty(stanzaId, "Stanza ID must not be null nor empty.");
+        this.stanzaFilterKey = StanzaFilterKey.forStanzaId(stanzaId);
     }
 
     @Override
@@ -53,6 +56,11 @@ public class StanzaIdFilter implements StanzaFilter {
         return stanzaId.equals(stanza.getStanzaId());
     }
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        return stanzaFilterKey;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": id=" + stanzaId;
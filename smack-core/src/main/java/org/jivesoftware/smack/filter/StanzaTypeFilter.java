@@ -33,7 +33,7 @@ import org.jivesoftware.smack.packet.Stanza;
  *
  * @author Matt Tucker
  */
-public final class StanzaTypeFilter implements StanzaFilter {
+public final class StanzaTypeFilter implements KeyedStanzaFilter {
 
     public static final StanzaTypeFilter PRESENCE = new StanzaTypeFilter(Presence.class);
     public static final StanzaTypeFilter MESSAGE = new StanzaTypeFilter(Message.class);
@@ -56,6 +56,11 @@ public final class StanzaTypeFilter implements StanzaFilter {
         return packetType.isInstance(packet);
     }
 
+    @Override
+    public StanzaFilterKey getStanzaFilterKey() {
+        return StanzaFilterKey.forStanzaType(packetType);
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": " + packetType.getSimpleName();
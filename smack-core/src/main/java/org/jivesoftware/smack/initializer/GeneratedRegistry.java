@@ -0,0 +1,173 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.initializer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.provider.ExtensionProviderInfo;
+import org.jivesoftware.smack.provider.IQProviderInfo;
+import org.jivesoftware.smack.provider.IqProvider;
+import org.jivesoftware.smack.provider.ProviderLoader;
+import org.jivesoftware.smack.provider.StreamFeatureProviderInfo;
+
+/**
+ * The content of a Smack provider or configuration file, compiled into Java code at build time. Smack's build
+ * generates a subclass for every such file found in the resources of a module, so that Smack's initialization neither
+ * has to parse the file nor has to instantiate the providers via reflection.
+ * <p>
+ * The classpath file <code>some.package/name.ext</code> is compiled into the class
+ * <code>some.package.NameExtRegistry</code>, see {@link #getRegistryClassName(String)}. If no such class is found, for
+ * example because the file was not part of a Smack build, then the file is parsed as before.
+ * </p>
+ */
+public abstract class GeneratedRegistry implements ProviderLoader {
+
+    private static final Logger LOGGER = Logger.getLogger(GeneratedRegistry.class.getName());
+
+    @Override
+    public List<IQProviderInfo> getIQProviderInfo() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<ExtensionProviderInfo> getExtensionProviderInfo() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<StreamFeatureProviderInfo> getStreamFeatureProviderInfo() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the names of the classes listed in the <code>startupClasses</code> element of the configuration file.
+     *
+     * @return the names of the startup classes.
+     */
+    public List<String> getStartupClasses() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the names of the classes listed in the <code>optionalStartupClasses</code> element of the configuration file.
+     *
+     * @return the names of the optional startup classes.
+     */
+    public List<String> getOptionalStartupClasses() {
+        return Collections.emptyList();
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static IQProviderInfo iqProvider(String elementName, String namespace,
+                    IqProvider<? extends IQ> provider) {
+        return new IQProviderInfo(elementName, namespace, (IqProvider<IQ>) provider);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static ExtensionProviderInfo extensionProvider(String elementName, String namespace,
+                    ExtensionElementProvider<?> provider) {
+        return new ExtensionProviderInfo(elementName, namespace, (ExtensionElementProvider<ExtensionElement>) provider);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static StreamFeatureProviderInfo streamFeatureProvider(String elementName, String namespace,
+                    ExtensionElementProvider<?> provider) {
+        return new StreamFeatureProviderInfo(elementName, namespace,
+                        (ExtensionElementProvider<ExtensionElement>) provider);
+    }
+
+    /**
+     * Get the name of the registry class generated for the given classpath file. The package of the class is the
+     * directory of the file, and the simple name is the camel-cased file name followed by "Registry". For example,
+     * <code>org.jivesoftware.smack.extensions/extensions.providers</code> is compiled into
+     * <code>org.jivesoftware.smack.extensions.ExtensionsProvidersRegistry</code>.
+     *
+     * @param classpathFile the path of the file in the classpath.
+     * @return the name of the registry class, or <code>null</code> if no registry is generated for the file.
+     */
+    public static String getRegistryClassName(String classpathFile) {
+        int slash = classpathFile.indexOf('/');
+        if (slash <= 0 || slash != classpathFile.lastIndexOf('/')) {
+            return null;
+        }
+
+        String packageName = classpathFile.substring(0, slash);
+        String fileName = classpathFile.substring(slash + 1);
+
+        StringBuilder sb = new StringBuilder(classpathFile.length() + 8);
+        sb.append(packageName).append('.');
+        boolean capitalizeNext = true;
+        for (int i = 0; i < fileName.length(); i++) {
+            char c = fileName.charAt(i);
+            if (!isAsciiLetterOrDigit(c)) {
+                capitalizeNext = true;
+                continue;
+            }
+            if (capitalizeNext) {
+                c = Character.toUpperCase(c);
+                capitalizeNext = false;
+            }
+            sb.append(c);
+        }
+        sb.append("Registry");
+        return sb.toString();
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /**
+     * Load the registry generated for the given classpath file.
+     *
+     * @param classpathFile the path of the file in the classpath.
+     * @param classLoader the class loader used to load the registry.
+     * @return the registry, or <code>null</code> if there is no registry for the file.
+     */
+    public static GeneratedRegistry forClasspathFile(String classpathFile, ClassLoader classLoader) {
+        String registryClassName = getRegistryClassName(classpathFile);
+        if (registryClassName == null) {
+            return null;
+        }
+
+        Class<?> registryClass;
+        try {
+            registryClass = Class.forName(registryClassName, true, classLoader);
+        } catch (ClassNotFoundException e) {
+            LOGGER.log(Level.FINE, "No generated registry for " + classpathFile);
+            return null;
+        }
+
+        if (!GeneratedRegistry.class.isAssignableFrom(registryClass)) {
+            LOGGER.warning(registryClassName + " is not a generated registry");
+            return null;
+        }
+
+        try {
+            return (GeneratedRegistry) registryClass.getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.WARNING, "Could not instantiate the generated registry " + registryClassName, e);
+            return null;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2014-2024 Florian Schmaus
+ * Copyright 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -47,12 +47,18 @@ public abstract class UrlInitializer implements SmackInitializer {
         if (providerUriString != null) {
             try {
                 final URI providerUri = URI.create(providerUriString);
-                is = FileUtils.getStreamForUri(providerUri, classLoader);
+                GeneratedRegistry registry = getGeneratedRegistry(providerUri, classLoader);
+                if (registry != null) {
+                    LOGGER.log(Level.FINE, "Loading generated providers for providerUri [" + providerUri + "]");
+                    ProviderManager.addLoader(registry);
+                } else {
+                    is = FileUtils.getStreamForUri(providerUri, classLoader);
 
-                LOGGER.log(Level.FINE, "Loading providers for providerUri [" + providerUri + "]");
-                ProviderFileLoader pfl = new ProviderFileLoader(is, classLoader);
-                ProviderManager.addLoader(pfl);
-                exceptions.addAll(pfl.getLoadingExceptions());
+                    LOGGER.log(Level.FINE, "Loading providers for providerUri [" + providerUri + "]");
+                    ProviderFileLoader pfl = new ProviderFileLoader(is, classLoader);
+                    ProviderManager.addLoader(pfl);
+                    exceptions.addAll(pfl.getLoadingExceptions());
+                }
             }
             catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Error trying to load provider file " + providerUriString, e);
@@ -65,8 +71,13 @@ public abstract class UrlInitializer implements SmackInitializer {
         if (configUriString != null) {
             try {
                 final URI configUri = URI.create(configUriString);
-                is = FileUtils.getStreamForUri(configUri, classLoader);
-                SmackInitialization.processConfigFile(is, exceptions, classLoader);
+                GeneratedRegistry registry = getGeneratedRegistry(configUri, classLoader);
+                if (registry != null) {
+                    SmackInitialization.processConfig(registry, exceptions, classLoader);
+                } else {
+                    is = FileUtils.getStreamForUri(configUri, classLoader);
+                    SmackInitialization.processConfigFile(is, exceptions, classLoader);
+                }
             }
             catch (Exception e) {
                 exceptions.add(e);
@@ -77,6 +88,13 @@ public abstract class UrlInitializer implements SmackInitializer {
         return exceptions;
     }
 
+    private static GeneratedRegistry getGeneratedRegistry(URI uri, ClassLoader classLoader) {
+        if (!"classpath".equals(uri.getScheme())) {
+            return null;
+        }
+        return GeneratedRegistry.forClasspathFile(uri.getSchemeSpecificPart(), classLoader);
+    }
+
     protected String getProvidersUri() {
         return null;
     }
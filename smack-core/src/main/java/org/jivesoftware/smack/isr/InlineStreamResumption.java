@@ -0,0 +1,78 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.isr;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+
+/**
+ * A mechanism to resume a previous stream inline within the SASL2 authentication exchange, like the inline stream
+ * resumption of Stream Management (XEP-0198). Mechanisms are registered with
+ * {@link InstantStreamResumptionModule#addInlineStreamResumption(InlineStreamResumption)}.
+ */
+public interface InlineStreamResumption {
+
+    /**
+     * The qualified name of the inline feature, announced by the service within the SASL2 stream feature, which
+     * signals support for this resumption mechanism.
+     *
+     * @return the qualified name of the inline feature.
+     */
+    QName getInlineFeature();
+
+    /**
+     * Check if there is a previous stream which can be resumed.
+     *
+     * @param connection the connection.
+     * @return <code>true</code> if a resumption is possible.
+     */
+    boolean isResumptionPossible(ModularXmppClientToServerConnection connection);
+
+    /**
+     * Get the resumption request which is included in the SASL2 authenticate element.
+     *
+     * @param connection the connection.
+     * @return the resumption request.
+     */
+    XmlElement getResumptionRequest(ModularXmppClientToServerConnection connection);
+
+    /**
+     * Process the SASL2 success, which contains the result of the resumption request.
+     *
+     * @param connection the connection.
+     * @param success the SASL2 success.
+     * @return <code>true</code> if the stream was resumed.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    boolean processResumptionResult(ModularXmppClientToServerConnection connection, Sasl2Nonza.Success success)
+                    throws NotConnectedException, InterruptedException;
+
+    /**
+     * Invoked when the connection, which was established via this resumption mechanism, was closed. The default
+     * implementation does nothing.
+     *
+     * @param connection the connection.
+     */
+    default void onConnectionReset(ModularXmppClientToServerConnection connection) {
+    }
+
+}
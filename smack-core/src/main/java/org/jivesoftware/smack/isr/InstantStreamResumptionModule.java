@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,18 +16,59 @@
  */
 package org.jivesoftware.smack.isr;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.SmackException.SmackMessageException;
+import org.jivesoftware.smack.XMPPException;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.Bind2Module.Bind2StateDescriptor;
+import org.jivesoftware.smack.bind2.Bind2ModuleDescriptor;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ConnectedButUnauthenticatedStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.SaslAuthenticationStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModule;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.c2s.internal.WalkStateGraphContext;
+import org.jivesoftware.smack.fsm.LoginContext;
 import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+
+import org.jxmpp.jid.EntityFullJid;
 
+/**
+ * Resumes a previous stream inline within the SASL2 (XEP-0388) authentication exchange, so that authentication and
+ * stream resumption complete in a single round trip. If the service supports Bind 2 (XEP-0386), then a Bind 2 request
+ * is included as well, which the service processes in case the stream can not be resumed.
+ */
 public class InstantStreamResumptionModule extends ModularXmppClientToServerConnectionModule<InstantStreamResumptionModuleDescriptor> {
 
+    private static final Set<InlineStreamResumption> INLINE_STREAM_RESUMPTIONS = new CopyOnWriteArraySet<>();
+
+    /**
+     * Add a mechanism to resume a stream inline within the SASL2 authentication exchange.
+     *
+     * @param inlineStreamResumption the inline stream resumption mechanism.
+     * @return <code>true</code> if the mechanism was not already added.
+     */
+    public static boolean addInlineStreamResumption(InlineStreamResumption inlineStreamResumption) {
+        return INLINE_STREAM_RESUMPTIONS.add(inlineStreamResumption);
+    }
+
+    public static boolean removeInlineStreamResumption(InlineStreamResumption inlineStreamResumption) {
+        return INLINE_STREAM_RESUMPTIONS.remove(inlineStreamResumption);
+    }
+
     protected InstantStreamResumptionModule(InstantStreamResumptionModuleDescriptor instantStreamResumptionModuleDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         super(instantStreamResumptionModuleDescriptor, connectionInternal);
@@ -35,11 +76,12 @@ public class InstantStreamResumptionModule extends ModularXmppClientToServerConn
 
     public static final class InstantStreamResumptionStateDescriptor extends StateDescriptor {
         private InstantStreamResumptionStateDescriptor() {
-            super(InstantStreamResumptionState.class, 397, StateDescriptor.Property.notImplemented);
+            super(InstantStreamResumptionState.class, 397);
 
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
             addPredeccessor(ConnectedButUnauthenticatedStateDescriptor.class);
             declarePrecedenceOver(SaslAuthenticationStateDescriptor.class);
+            declarePrecedenceOver(Bind2StateDescriptor.class);
         }
 
         @Override
@@ -52,6 +94,11 @@ public class InstantStreamResumptionModule extends ModularXmppClientToServerConn
 
     private boolean useIsr = true;
 
+    /**
+     * The inline stream resumption mechanism used to establish the current connection.
+     */
+    private InlineStreamResumption usedInlineStreamResumption;
+
     private final class InstantStreamResumptionState extends State {
         private InstantStreamResumptionState(InstantStreamResumptionStateDescriptor instantStreamResumptionStateDescriptor,
                         ModularXmppClientToServerConnectionInternal connectionInternal) {
@@ -61,23 +108,114 @@ public class InstantStreamResumptionModule extends ModularXmppClientToServerConn
         @Override
         public StateTransitionResult.TransitionImpossible isTransitionToPossible(WalkStateGraphContext walkStateGraphContext) {
             if (!useIsr) {
-                return new StateTransitionResult.TransitionImpossibleReason("Instant stream resumption not enabled nor implemented");
+                return new StateTransitionResult.TransitionImpossibleReason("Instant stream resumption not enabled");
+            }
+
+            if (getInlineStreamResumption() == null) {
+                return new StateTransitionResult.TransitionImpossibleReason("No stream which can be resumed via SASL2");
             }
 
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("Instant stream resumption not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws IOException, SmackException, InterruptedException, XMPPException {
+            InlineStreamResumption inlineStreamResumption = getInlineStreamResumption();
+            if (inlineStreamResumption == null) {
+                return new StateTransitionResult.Failure("No stream which can be resumed via SASL2");
+            }
+
+            ModularXmppClientToServerConnection connection = connectionInternal.connection;
+            LoginContext loginContext = walkStateGraphContext.getLoginContext();
+
+            List<XmlElement> inlineElements = new ArrayList<>(2);
+            inlineElements.add(inlineStreamResumption.getResumptionRequest(connection));
+
+            // Include a Bind 2 request, which the service processes if the stream can not be resumed.
+            Bind2Module bind2Module = connection.getConnectionModuleFor(Bind2ModuleDescriptor.class);
+            if (bind2Module != null && bind2Module.getBindFeature() != null) {
+                inlineElements.add(bind2Module.createBindRequest(loginContext.resource));
+            } else {
+                bind2Module = null;
+            }
+
+            usedInlineStreamResumption = inlineStreamResumption;
+            Sasl2Nonza.Success success = connectionInternal.authenticateWithSasl2(loginContext, inlineElements);
+
+            boolean resumed = inlineStreamResumption.processResumptionResult(connection, success);
+            if (resumed) {
+                EntityFullJid user = Bind2Module.getBoundAddress(success);
+                connectionInternal.setUser(user);
+                connectionInternal.setStreamResumed(true);
+                return new InstantStreamResumptionSuccessResult(user, true);
+            }
+
+            Bound bound = success.getInlineResult(Bound.class);
+            if (bind2Module == null || bound == null) {
+                throw new SmackMessageException("Service neither resumed the stream nor bound a resource");
+            }
+
+            EntityFullJid user = bind2Module.processBound(success, bound);
+            return new InstantStreamResumptionSuccessResult(user, false);
+        }
+
+        @Override
+        public void resetState() {
+            InlineStreamResumption inlineStreamResumption = usedInlineStreamResumption;
+            usedInlineStreamResumption = null;
+            if (inlineStreamResumption != null) {
+                inlineStreamResumption.onConnectionReset(connectionInternal.connection);
+            }
+
+            Bind2Module bind2Module = connectionInternal.connection.getConnectionModuleFor(Bind2ModuleDescriptor.class);
+            if (bind2Module != null) {
+                bind2Module.onConnectionReset();
+            }
+        }
+    }
+
+    public static final class InstantStreamResumptionSuccessResult extends StateTransitionResult.Success {
+        private final EntityFullJid user;
+        private final boolean resumed;
+
+        private InstantStreamResumptionSuccessResult(EntityFullJid user, boolean resumed) {
+            super(resumed ? "Stream of '" + user + "' resumed via SASL2"
+                            : "Stream resumption failed, bound '" + user + "' via Bind 2");
+            this.user = user;
+            this.resumed = resumed;
+        }
+
+        public EntityFullJid getUser() {
+            return user;
+        }
+
+        public boolean isResumed() {
+            return resumed;
+        }
+    }
+
+    private InlineStreamResumption getInlineStreamResumption() {
+        Sasl2AuthenticationFeature sasl2Feature = connectionInternal.connection.getFeature(
+                        Sasl2AuthenticationFeature.class);
+        if (sasl2Feature == null) {
+            return null;
+        }
+
+        for (InlineStreamResumption inlineStreamResumption : INLINE_STREAM_RESUMPTIONS) {
+            if (sasl2Feature.hasInlineFeature(inlineStreamResumption.getInlineFeature())
+                            && inlineStreamResumption.isResumptionPossible(connectionInternal.connection)) {
+                return inlineStreamResumption;
+            }
         }
+        return null;
     }
 
     public void setInstantStreamResumptionEnabled(boolean useIsr) {
         this.useIsr = useIsr;
     }
 
-    public InstantStreamResumptionState constructInstantStreamResumptionState(
+    private InstantStreamResumptionState constructInstantStreamResumptionState(
                     InstantStreamResumptionStateDescriptor instantStreamResumptionStateDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         return new InstantStreamResumptionState(instantStreamResumptionStateDescriptor, connectionInternal);
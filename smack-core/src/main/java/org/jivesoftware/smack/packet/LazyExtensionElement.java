@@ -0,0 +1,192 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.parsing.StandardExtensionElementProvider;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+/**
+ * An extension element which was retained as raw XML when the stanza was parsed, and which is only handed to its
+ * provider once it is accessed. Stanzas contain such elements if lazy extension element parsing has been enabled via
+ * {@link org.jivesoftware.smack.SmackConfiguration#setLazyExtensionElementParsing(boolean)}.
+ * <p>
+ * Accessing an extension via {@link StanzaView#getExtension(QName)}, {@link StanzaView#getExtension(Class)} or
+ * {@link StanzaView#getExtensions(QName)} transparently returns the parsed element. Only {@link StanzaView#getExtensions()}
+ * returns the instances of this class, so that the extension elements which are never looked at, are never parsed.
+ * When a stanza is serialized, for example because it is forwarded, the raw XML is re-emitted verbatim, even if the
+ * element has already been parsed.
+ * </p>
+ */
+public final class LazyExtensionElement implements XmlElement {
+
+    private static final Logger LOGGER = Logger.getLogger(LazyExtensionElement.class.getName());
+
+    private final QName qname;
+
+    private final String rawXml;
+
+    private final XmlEnvironment outerXmlEnvironment;
+
+    private final JxmppContext jxmppContext;
+
+    private volatile XmlElement parsedElement;
+
+    public LazyExtensionElement(QName qname, CharSequence rawXml, XmlEnvironment outerXmlEnvironment,
+                    JxmppContext jxmppContext) {
+        this.qname = qname;
+        this.rawXml = rawXml.toString();
+        this.outerXmlEnvironment = outerXmlEnvironment;
+        this.jxmppContext = jxmppContext;
+    }
+
+    @Override
+    public String getElementName() {
+        return qname.getLocalPart();
+    }
+
+    @Override
+    public String getNamespace() {
+        return qname.getNamespaceURI();
+    }
+
+    @Override
+    public QName getQName() {
+        return qname;
+    }
+
+    /**
+     * Get the raw XML of this extension element, as it was received.
+     *
+     * @return the raw XML.
+     */
+    public String getRawXml() {
+        return rawXml;
+    }
+
+    /**
+     * Check if this extension element has already been parsed.
+     *
+     * @return <code>true</code> if this extension element has been parsed.
+     */
+    public boolean isParsed() {
+        return parsedElement != null;
+    }
+
+    /**
+     * Get the parsed extension element, parsing it on the first invocation. If the provider of the element fails, then a
+     * warning is logged and the element is returned as {@link StandardExtensionElement}.
+     *
+     * @return the parsed extension element.
+     */
+    public XmlElement getParsedElement() {
+        XmlElement parsedElement = this.parsedElement;
+        if (parsedElement != null) {
+            return parsedElement;
+        }
+
+        synchronized (this) {
+            parsedElement = this.parsedElement;
+            if (parsedElement == null) {
+                parsedElement = parse();
+                this.parsedElement = parsedElement;
+            }
+        }
+        return parsedElement;
+    }
+
+    private XmlElement parse() {
+        try {
+            XmlPullParser parser = PacketParserUtils.getParserFor(rawXml);
+            return PacketParserUtils.parseExtensionElement(getElementName(), getNamespace(), parser, outerXmlEnvironment,
+                            jxmppContext);
+        } catch (XmlPullParserException | IOException | SmackParsingException e) {
+            LOGGER.log(Level.WARNING, "Failed to parse " + qname + " lazily, falling back to a standard extension element",
+                            e);
+        }
+
+        try {
+            XmlPullParser parser = PacketParserUtils.getParserFor(rawXml);
+            return StandardExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment, jxmppContext);
+        } catch (XmlPullParserException | IOException | SmackParsingException e) {
+            // Should never happen, as the raw XML was retained from a well-formed document.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public CharSequence toXML(XmlEnvironment xmlEnvironment) {
+        // The raw XML declares the namespace of the element, hence it is valid in every enclosing environment.
+        return rawXml;
+    }
+
+    /**
+     * Returns the parsed element if the given element is a {@link LazyExtensionElement}, or the given element otherwise.
+     *
+     * @param element the element, may be <code>null</code>.
+     * @return the parsed element.
+     */
+    public static XmlElement resolve(XmlElement element) {
+        if (element instanceof LazyExtensionElement) {
+            return ((LazyExtensionElement) element).getParsedElement();
+        }
+        return element;
+    }
+
+    /**
+     * Returns a list with the parsed elements of the given list, or the given list itself if it does not contain any
+     * {@link LazyExtensionElement}.
+     *
+     * @param elements the elements.
+     * @return a list of the parsed elements.
+     */
+    public static List<XmlElement> resolveAll(List<XmlElement> elements) {
+        List<XmlElement> res = null;
+        for (int i = 0; i < elements.size(); i++) {
+            XmlElement element = elements.get(i);
+            if (!(element instanceof LazyExtensionElement)) {
+                if (res != null) {
+                    res.add(element);
+                }
+                continue;
+            }
+
+            if (res == null) {
+                res = new ArrayList<>(elements.size());
+                res.addAll(elements.subList(0, i));
+            }
+            res.add(((LazyExtensionElement) element).getParsedElement());
+        }
+
+        if (res == null) {
+            return elements;
+        }
+        return res;
+    }
+}
@@ -20,9 +20,9 @@ package org.jivesoftware.smack.packet;
 import static org.jivesoftware.smack.util.StringUtils.requireNotNullNorEmpty;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.xml.namespace.QName;
 
@@ -64,7 +64,14 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     protected static final String DEFAULT_LANGUAGE =
             java.util.Locale.getDefault().getLanguage().toLowerCase(Locale.US);
 
-    private final MultiMap<QName, XmlElement> extensionElements;
+    private static final AtomicReferenceFieldUpdater<Stanza, StanzaExtensions> EXTENSION_ELEMENTS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    Stanza.class, StanzaExtensions.class, "extensionElements");
+
+    /**
+     * The extension elements of this stanza. The instance is immutable, the deprecated mutating methods of this class
+     * replace it atomically.
+     */
+    private volatile StanzaExtensions extensionElements;
 
     // Assume that all stanzas Smack handles are in the client namespace, since Smack is an XMPP client library. We can
     // change this behavior later if it is required.
@@ -90,7 +97,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     protected String language;
 
     protected Stanza() {
-        extensionElements = new MultiMap<>();
+        extensionElements = StanzaExtensions.EMPTY;
         usedStanzaIdSource = null;
         id = StandardStanzaIdSource.DEFAULT.getNewStanzaId();
     }
@@ -115,7 +122,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
 
         language = stanzaBuilder.language;
 
-        extensionElements = stanzaBuilder.extensionElements.clone();
+        extensionElements = stanzaBuilder.extensionElements.build();
     }
 
     protected Stanza(Stanza p) {
@@ -126,7 +133,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
         from = p.getFrom();
         error = p.error;
 
-        extensionElements = p.extensionElements.clone();
+        extensionElements = p.extensionElements;
     }
 
     @Override
@@ -246,20 +253,20 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
 
     @Override
     public final List<XmlElement> getExtensions() {
-        synchronized (extensionElements) {
-            // No need to create a new list, values() will already create a new one for us
-            return extensionElements.values();
-        }
+        return extensionElements.values();
     }
 
+    /**
+     * Returns a new multi map of the extension elements of this stanza.
+     *
+     * @return a new multi map of the extension elements.
+     */
     public final MultiMap<QName, XmlElement> getExtensionsMap() {
-        return cloneExtensionsMap();
+        return extensionElements.toMultiMap();
     }
 
-    final MultiMap<QName, XmlElement> cloneExtensionsMap() {
-        synchronized (extensionElements) {
-            return extensionElements.clone();
-        }
+    final StanzaExtensions getStanzaExtensions() {
+        return extensionElements;
     }
 
     /**
@@ -282,18 +289,15 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
 
     @Override
     public final List<XmlElement> getExtensions(QName qname) {
-        List<XmlElement> res;
-        synchronized (extensionElements) {
-            res = extensionElements.getAll(qname);
-        }
-        return Collections.unmodifiableList(res);
+        List<XmlElement> res = extensionElements.getAll(qname);
+        return LazyExtensionElement.resolveAll(res);
     }
 
     @Override
     public final <E extends ExtensionElement> List<E> getExtensions(Class<E> extensionElementClass) {
-        synchronized (extensionElements) {
-            return XmppElementUtil.getElementsFrom(extensionElements, extensionElementClass);
-        }
+        QName qname = XmppElementUtil.getQNameFor(extensionElementClass);
+        List<XmlElement> res = extensionElements.getAll(qname);
+        return StanzaExtensions.getAll(res, extensionElementClass);
     }
 
     /**
@@ -307,7 +311,8 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
      */
     // TODO: Mark this method as deprecated in favor of getExtension(QName).
     public final XmlElement getExtension(String namespace) {
-        return PacketUtil.extensionElementFrom(getExtensions(), null, namespace);
+        XmlElement extensionElement = PacketUtil.extensionElementFrom(getExtensions(), null, namespace);
+        return LazyExtensionElement.resolve(extensionElement);
     }
 
     /**
@@ -337,9 +342,8 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
 
     @Override
     public final XmlElement getExtension(QName qname) {
-        synchronized (extensionElements) {
-            return extensionElements.getFirst(qname);
-        }
+        XmlElement extensionElement = extensionElements.getFirst(qname);
+        return LazyExtensionElement.resolve(extensionElement);
     }
 
     /**
@@ -354,10 +358,7 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     // TODO: Mark this as deprecated once StanzaBuilder is ready and all call sites are gone.
     public final void addExtension(XmlElement extension) {
         if (extension == null) return;
-        QName key = extension.getQName();
-        synchronized (extensionElements) {
-            extensionElements.put(key, extension);
-        }
+        EXTENSION_ELEMENTS_UPDATER.updateAndGet(this, e -> e.with(extension));
     }
 
     /**
@@ -375,14 +376,10 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     // TODO: Mark this as deprecated once StanzaBuilder is ready and all call sites are gone.
     public final XmlElement overrideExtension(XmlElement extension) {
         if (extension == null) return null;
-        synchronized (extensionElements) {
-            // Note that we need to use removeExtension(String, String) here. If would use
-            // removeExtension(ExtensionElement) then we would remove based on the equality of ExtensionElement, which
-            // is not what we want in this case.
-            XmlElement removedExtension = removeExtension(extension.getElementName(), extension.getNamespace());
-            addExtension(extension);
-            return removedExtension;
-        }
+        // Note that we remove based on the qualified name here. If would remove based on the equality of
+        // ExtensionElement, then we would not remove the existing extensions with the same name and namespace.
+        StanzaExtensions previous = EXTENSION_ELEMENTS_UPDATER.getAndUpdate(this, e -> e.withOverride(extension));
+        return previous.getFirst(extension.getQName());
     }
 
     /**
@@ -413,22 +410,19 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
             return hasExtension(namespace);
         }
         QName key = new QName(namespace, elementName);
-        synchronized (extensionElements) {
-            return extensionElements.containsKey(key);
-        }
+        return extensionElements.containsKey(key);
+    }
+
+    // Overridden in order to avoid parsing a lazy extension element.
+    @Override
+    public final boolean hasExtension(QName qname) {
+        return extensionElements.containsKey(qname);
     }
 
     // Overridden in order to avoid an extra copy.
     @Override
     public final boolean hasExtension(String namespace) {
-        synchronized (extensionElements) {
-            for (XmlElement packetExtension : extensionElements.values()) {
-                if (packetExtension.getNamespace().equals(namespace)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        return extensionElements.containsNamespace(namespace);
     }
 
     /**
@@ -441,9 +435,8 @@ public abstract class Stanza implements StanzaView, TopLevelStreamElement {
     // TODO: Mark this as deprecated once StanzaBuilder is ready and all call sites are gone.
     public final XmlElement removeExtension(String elementName, String namespace) {
         QName key = new QName(namespace, elementName);
-        synchronized (extensionElements) {
-            return extensionElements.remove(key);
-        }
+        StanzaExtensions previous = EXTENSION_ELEMENTS_UPDATER.getAndUpdate(this, e -> e.without(key));
+        return previous.getFirst(key);
     }
 
     /**
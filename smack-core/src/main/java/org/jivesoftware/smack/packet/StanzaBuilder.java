@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2024 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,7 +23,6 @@ import java.util.function.Function;
 import javax.xml.namespace.QName;
 
 import org.jivesoftware.smack.packet.id.StanzaIdSource;
-import org.jivesoftware.smack.util.MultiMap;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.ToStringUtil;
 import org.jivesoftware.smack.util.XmppElementUtil;
@@ -44,7 +43,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     String language;
 
-    MultiMap<QName, XmlElement> extensionElements = new MultiMap<>();
+    StanzaExtensions.Builder extensionElements;
 
     protected StanzaBuilder(StanzaBuilder<?> other) {
         stanzaIdSource = other.stanzaIdSource;
@@ -54,17 +53,19 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
         from = other.from;
         stanzaError = other.stanzaError;
         language = other.language;
-        extensionElements = other.extensionElements.clone();
+        extensionElements = new StanzaExtensions.Builder(other.extensionElements);
     }
 
     protected StanzaBuilder(StanzaIdSource stanzaIdSource) {
         this.stanzaIdSource = stanzaIdSource;
         this.stanzaId = null;
+        this.extensionElements = new StanzaExtensions.Builder();
     }
 
     protected StanzaBuilder(String stanzaId) {
         this.stanzaIdSource = null;
         this.stanzaId = StringUtils.requireNullOrNotEmpty(stanzaId, "Stanza ID must not be the empty String");
+        this.extensionElements = new StanzaExtensions.Builder();
     }
 
     protected StanzaBuilder(Stanza message, String stanzaId) {
@@ -83,7 +84,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
         stanzaError = stanza.getError();
         language = stanza.getLanguage();
 
-        extensionElements = stanza.cloneExtensionsMap();
+        extensionElements = new StanzaExtensions.Builder(stanza.getStanzaExtensions());
     }
 
     /**
@@ -157,8 +158,7 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
     }
 
     public final B addExtension(XmlElement extensionElement) {
-        QName key = extensionElement.getQName();
-        extensionElements.put(key, extensionElement);
+        extensionElements.add(extensionElement);
         return getThis();
     }
 
@@ -178,22 +178,25 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
     }
 
     public final B overrideExtension(XmlElement extensionElement) {
-        QName key = extensionElement.getQName();
-        extensionElements.remove(key);
-        extensionElements.put(key, extensionElement);
+        extensionElements.override(extensionElement);
         return getThis();
     }
 
     public final B removeExtension(String elementName, String namespace) {
         QName key = new QName(namespace, elementName);
-        extensionElements.remove(key);
+        extensionElements.removeAll(key);
         return getThis();
     }
 
     public final B removeExtension(ExtensionElement extension) {
         QName key = extension.getQName();
-        List<XmlElement> list = extensionElements.getAll(key);
-        list.remove(extension);
+        boolean removed = extensionElements.removeFirst(key, e -> e.equals(extension));
+        if (!removed) {
+            // The extension may be the parsed element of a lazy extension element.
+            extensionElements.removeFirst(key, e -> e instanceof LazyExtensionElement
+                            && ((LazyExtensionElement) e).isParsed()
+                            && ((LazyExtensionElement) e).getParsedElement().equals(extension));
+        }
         return getThis();
     }
 
@@ -228,7 +231,8 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     @Override
     public final XmlElement getExtension(QName qname) {
-        return extensionElements.getFirst(qname);
+        XmlElement extensionElement = extensionElements.getFirst(qname);
+        return LazyExtensionElement.resolve(extensionElement);
     }
 
     @Override
@@ -238,12 +242,15 @@ public abstract class StanzaBuilder<B extends StanzaBuilder<B>> implements Stanz
 
     @Override
     public final List<XmlElement> getExtensions(QName qname) {
-        return extensionElements.getAll(qname);
+        List<XmlElement> res = extensionElements.getAll(qname);
+        return LazyExtensionElement.resolveAll(res);
     }
 
     @Override
     public final <E extends ExtensionElement> List<E> getExtensions(Class<E> extensionElementClass) {
-        return XmppElementUtil.getElementsFrom(extensionElements, extensionElementClass);
+        QName qname = XmppElementUtil.getQNameFor(extensionElementClass);
+        List<XmlElement> res = extensionElements.getAll(qname);
+        return StanzaExtensions.getAll(res, extensionElementClass);
     }
 
     public final boolean willBuildStanzaWithId() {
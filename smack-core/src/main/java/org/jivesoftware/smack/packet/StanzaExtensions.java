@@ -0,0 +1,349 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.util.MultiMap;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * The immutable extension elements of a stanza. The elements are kept in an array, in which elements of the same
+ * qualified name are adjacent, resulting in the same order as the {@link MultiMap} used before. Most stanzas carry only
+ * a few extension elements, which are found by a linear scan. Only if there are more than {@link #HASH_INDEX_THRESHOLD}
+ * elements, an index from the qualified name to the first position is created.
+ * <p>
+ * Instances are shared between a stanza and the builders created from it. A {@link Builder} only copies the arrays
+ * once it is modified.
+ * </p>
+ */
+final class StanzaExtensions {
+
+    static final int HASH_INDEX_THRESHOLD = 8;
+
+    private static final XmlElement[] NO_ELEMENTS = new XmlElement[0];
+
+    private static final QName[] NO_QNAMES = new QName[0];
+
+    static final StanzaExtensions EMPTY = new StanzaExtensions(NO_ELEMENTS, NO_QNAMES);
+
+    private final XmlElement[] elements;
+
+    private final QName[] qnames;
+
+    private final List<XmlElement> elementList;
+
+    private final Map<QName, Integer> index;
+
+    private StanzaExtensions(XmlElement[] elements, QName[] qnames) {
+        assert elements.length == qnames.length;
+        this.elements = elements;
+        this.qnames = qnames;
+        elementList = Collections.unmodifiableList(Arrays.asList(elements));
+
+        if (elements.length > HASH_INDEX_THRESHOLD) {
+            Map<QName, Integer> index = new HashMap<>(elements.length * 2);
+            for (int i = elements.length - 1; i >= 0; i--) {
+                index.put(qnames[i], i);
+            }
+            this.index = index;
+        } else {
+            index = null;
+        }
+    }
+
+    int size() {
+        return elements.length;
+    }
+
+    boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    private int indexOf(QName qname) {
+        if (index != null) {
+            Integer position = index.get(qname);
+            if (position == null) {
+                return -1;
+            }
+            return position;
+        }
+        return indexOf(qnames, elements.length, qname);
+    }
+
+    boolean containsKey(QName qname) {
+        return indexOf(qname) >= 0;
+    }
+
+    XmlElement getFirst(QName qname) {
+        int position = indexOf(qname);
+        if (position < 0) {
+            return null;
+        }
+        return elements[position];
+    }
+
+    List<XmlElement> getAll(QName qname) {
+        int position = indexOf(qname);
+        if (position < 0) {
+            return Collections.emptyList();
+        }
+        return range(elements, qnames, elements.length, position);
+    }
+
+    /**
+     * Returns an unmodifiable list of all extension elements, which is backed by this instance.
+     *
+     * @return a list of all extension elements.
+     */
+    List<XmlElement> values() {
+        return elementList;
+    }
+
+    boolean containsNamespace(String namespace) {
+        for (QName qname : qnames) {
+            if (qname.getNamespaceURI().equals(namespace)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    MultiMap<QName, XmlElement> toMultiMap() {
+        MultiMap<QName, XmlElement> multiMap = new MultiMap<>(elements.length);
+        for (int i = 0; i < elements.length; i++) {
+            multiMap.put(qnames[i], elements[i]);
+        }
+        return multiMap;
+    }
+
+    StanzaExtensions with(XmlElement element) {
+        return new Builder(this).add(element).build();
+    }
+
+    StanzaExtensions withOverride(XmlElement element) {
+        return new Builder(this).override(element).build();
+    }
+
+    StanzaExtensions without(QName qname) {
+        if (!containsKey(qname)) {
+            return this;
+        }
+        return new Builder(this).removeAll(qname).build();
+    }
+
+    private static int indexOf(QName[] qnames, int size, QName qname) {
+        for (int i = 0; i < size; i++) {
+            if (qnames[i].equals(qname)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<XmlElement> range(XmlElement[] elements, QName[] qnames, int size, int from) {
+        QName qname = qnames[from];
+        int to = from + 1;
+        while (to < size && qnames[to].equals(qname)) {
+            to++;
+        }
+
+        if (to - from == 1) {
+            return Collections.singletonList(elements[from]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOfRange(elements, from, to)));
+    }
+
+    /**
+     * A mutable view on extension elements, which copies the shared arrays on the first modification.
+     */
+    static final class Builder {
+
+        private XmlElement[] elements;
+
+        private QName[] qnames;
+
+        private int size;
+
+        /**
+         * Whether the arrays are shared with an {@link StanzaExtensions} instance and hence must not be modified.
+         */
+        private boolean shared;
+
+        Builder() {
+            this(EMPTY);
+        }
+
+        Builder(StanzaExtensions stanzaExtensions) {
+            elements = stanzaExtensions.elements;
+            qnames = stanzaExtensions.qnames;
+            size = elements.length;
+            shared = true;
+        }
+
+        Builder(Builder other) {
+            elements = other.elements;
+            qnames = other.qnames;
+            size = other.size;
+            shared = true;
+            other.shared = true;
+        }
+
+        private void ensureWritable(int minCapacity) {
+            if (!shared && minCapacity <= elements.length) {
+                return;
+            }
+
+            int newCapacity = minCapacity;
+            if (elements.length >= 4) {
+                newCapacity = Math.max(minCapacity, elements.length + (elements.length >> 1));
+            }
+            elements = Arrays.copyOf(elements, newCapacity);
+            qnames = Arrays.copyOf(qnames, newCapacity);
+            shared = false;
+        }
+
+        Builder add(XmlElement element) {
+            QName qname = element.getQName();
+            ensureWritable(size + 1);
+
+            // Keep the elements with the same qualified name adjacent.
+            int position = size;
+            for (int i = size - 1; i >= 0; i--) {
+                if (qnames[i].equals(qname)) {
+                    position = i + 1;
+                    break;
+                }
+            }
+
+            System.arraycopy(elements, position, elements, position + 1, size - position);
+            System.arraycopy(qnames, position, qnames, position + 1, size - position);
+            elements[position] = element;
+            qnames[position] = qname;
+            size++;
+            return this;
+        }
+
+        Builder override(XmlElement element) {
+            removeAll(element.getQName());
+            return add(element);
+        }
+
+        Builder removeAll(QName qname) {
+            return removeIf(qname, e -> true, Integer.MAX_VALUE);
+        }
+
+        /**
+         * Remove the first element with the given qualified name that matches the given predicate.
+         *
+         * @param qname the qualified name of the element.
+         * @param predicate the predicate.
+         * @return <code>true</code> if an element was removed.
+         */
+        boolean removeFirst(QName qname, Predicate<XmlElement> predicate) {
+            int sizeBefore = size;
+            removeIf(qname, predicate, 1);
+            return size != sizeBefore;
+        }
+
+        private Builder removeIf(QName qname, Predicate<XmlElement> predicate, int max) {
+            int from = indexOf(qnames, size, qname);
+            if (from < 0) {
+                return this;
+            }
+
+            int removed = 0;
+            for (int i = from; i < size && qnames[i].equals(qname) && removed < max;) {
+                if (!predicate.test(elements[i])) {
+                    i++;
+                    continue;
+                }
+
+                ensureWritable(size);
+                System.arraycopy(elements, i + 1, elements, i, size - i - 1);
+                System.arraycopy(qnames, i + 1, qnames, i, size - i - 1);
+                size--;
+                elements[size] = null;
+                qnames[size] = null;
+                removed++;
+            }
+            return this;
+        }
+
+        XmlElement getFirst(QName qname) {
+            int position = indexOf(qnames, size, qname);
+            if (position < 0) {
+                return null;
+            }
+            return elements[position];
+        }
+
+        List<XmlElement> getAll(QName qname) {
+            int position = indexOf(qnames, size, qname);
+            if (position < 0) {
+                return Collections.emptyList();
+            }
+            return range(elements, qnames, size, position);
+        }
+
+        List<XmlElement> values() {
+            return new ArrayList<>(Arrays.asList(elements).subList(0, size));
+        }
+
+        /**
+         * Build the immutable extension elements. The arrays are shared with the result if they have exactly the
+         * right size, further modifications of this builder will copy them again.
+         *
+         * @return the immutable extension elements.
+         */
+        StanzaExtensions build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+
+            if (size != elements.length) {
+                elements = Arrays.copyOf(elements, size);
+                qnames = Arrays.copyOf(qnames, size);
+            }
+            shared = true;
+            return new StanzaExtensions(elements, qnames);
+        }
+    }
+
+    @SuppressWarnings("MixedMutabilityReturnType")
+    static <E extends ExtensionElement> List<E> getAll(List<XmlElement> extensionElements,
+                    Class<E> extensionElementClass) {
+        if (extensionElements.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        extensionElements = LazyExtensionElement.resolveAll(extensionElements);
+        List<E> res = new ArrayList<>(extensionElements.size());
+        for (XmlElement extensionElement : extensionElements) {
+            res.add(XmppElementUtil.castOrThrow(extensionElement, extensionElementClass));
+        }
+        return res;
+    }
+}
@@ -17,10 +17,7 @@
 
 package org.jivesoftware.smack.provider;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.namespace.QName;
 
@@ -114,10 +111,10 @@ import org.jivesoftware.smack.util.XmppElementUtil;
  */
 public final class ProviderManager {
 
-    private static final Map<QName, ExtensionElementProvider<ExtensionElement>> extensionProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, IqProvider<IQ>> iqProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, ExtensionElementProvider<ExtensionElement>> streamFeatureProviders = new ConcurrentHashMap<>();
-    private static final Map<QName, NonzaProvider<? extends Nonza>> nonzaProviders = new ConcurrentHashMap<>();
+    private static final ProviderMap<ExtensionElementProvider<ExtensionElement>> extensionProviders = new ProviderMap<>();
+    private static final ProviderMap<IqProvider<IQ>> iqProviders = new ProviderMap<>();
+    private static final ProviderMap<ExtensionElementProvider<ExtensionElement>> streamFeatureProviders = new ProviderMap<>();
+    private static final ProviderMap<NonzaProvider<? extends Nonza>> nonzaProviders = new ProviderMap<>();
 
     static {
         // Ensure that Smack is initialized by calling getVersion, so that user
@@ -170,8 +167,7 @@ public final class ProviderManager {
      * @return the IQ provider.
      */
     public static IqProvider<IQ> getIQProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return iqProviders.get(key);
+        return iqProviders.get(elementName, namespace);
     }
 
     /**
@@ -182,9 +178,7 @@ public final class ProviderManager {
      * @return all IqProvider instances.
      */
     public static List<IqProvider<IQ>> getIQProviders() {
-        List<IqProvider<IQ>> providers = new ArrayList<>(iqProviders.size());
-        providers.addAll(iqProviders.values());
-        return providers;
+        return iqProviders.values();
     }
 
     /**
@@ -201,9 +195,9 @@ public final class ProviderManager {
             Object provider) {
         validate(elementName, namespace);
         // First remove existing providers
-        QName key = removeIQProvider(elementName, namespace);
+        removeIQProvider(elementName, namespace);
         if (provider instanceof IqProvider) {
-            iqProviders.put(key, (IqProvider<IQ>) provider);
+            iqProviders.put(elementName, namespace, (IqProvider<IQ>) provider);
         } else {
             throw new IllegalArgumentException("Provider must be an instance of IqProvider");
         }
@@ -219,9 +213,8 @@ public final class ProviderManager {
      * @return the QName of the removed provider
      */
     public static QName removeIQProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        iqProviders.remove(key);
-        return key;
+        iqProviders.remove(elementName, namespace);
+        return getQName(elementName, namespace);
     }
 
     /**
@@ -244,8 +237,7 @@ public final class ProviderManager {
      * @return the extension provider.
      */
     public static ExtensionElementProvider<ExtensionElement> getExtensionProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return getExtensionProvider(key);
+        return extensionProviders.get(elementName, namespace);
     }
 
     public static ExtensionElementProvider<ExtensionElement> getExtensionProvider(QName qname) {
@@ -266,9 +258,9 @@ public final class ProviderManager {
             Object provider) {
         validate(elementName, namespace);
         // First remove existing providers
-        QName key = removeExtensionProvider(elementName, namespace);
+        removeExtensionProvider(elementName, namespace);
         if (provider instanceof ExtensionElementProvider) {
-            extensionProviders.put(key, (ExtensionElementProvider<ExtensionElement>) provider);
+            extensionProviders.put(elementName, namespace, (ExtensionElementProvider<ExtensionElement>) provider);
         } else {
             throw new IllegalArgumentException("Provider must be a PacketExtensionProvider");
         }
@@ -284,9 +276,8 @@ public final class ProviderManager {
      * @return the QName of the removed stanza extension provider
      */
     public static QName removeExtensionProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        extensionProviders.remove(key);
-        return key;
+        extensionProviders.remove(elementName, namespace);
+        return getQName(elementName, namespace);
     }
 
     /**
@@ -297,30 +288,24 @@ public final class ProviderManager {
      * @return all PacketExtensionProvider instances.
      */
     public static List<ExtensionElementProvider<ExtensionElement>> getExtensionProviders() {
-        List<ExtensionElementProvider<ExtensionElement>> providers = new ArrayList<>(extensionProviders.size());
-        providers.addAll(extensionProviders.values());
-        return providers;
+        return extensionProviders.values();
     }
 
     public static ExtensionElementProvider<ExtensionElement> getStreamFeatureProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return streamFeatureProviders.get(key);
+        return streamFeatureProviders.get(elementName, namespace);
     }
 
     public static void addStreamFeatureProvider(String elementName, String namespace, ExtensionElementProvider<ExtensionElement> provider) {
         validate(elementName, namespace);
-        QName key = getQName(elementName, namespace);
-        streamFeatureProviders.put(key, provider);
+        streamFeatureProviders.put(elementName, namespace, provider);
     }
 
     public static void removeStreamFeatureProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        streamFeatureProviders.remove(key);
+        streamFeatureProviders.remove(elementName, namespace);
     }
 
     public static NonzaProvider<? extends Nonza> getNonzaProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        return getNonzaProvider(key);
+        return nonzaProviders.get(elementName, namespace);
     }
 
     public static NonzaProvider<? extends Nonza> getNonzaProvider(QName key) {
@@ -339,8 +324,7 @@ public final class ProviderManager {
     }
 
     public static void removeNonzaProvider(String elementName, String namespace) {
-        QName key = getQName(elementName, namespace);
-        nonzaProviders.remove(key);
+        nonzaProviders.remove(elementName, namespace);
     }
 
     private static QName getQName(String elementName, String namespace) {
@@ -0,0 +1,93 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+
+/**
+ * A thread-safe map from an element's name and namespace to its provider. The providers are indexed by namespace
+ * first and by element name second, so that a lookup with the strings found by the XML parser does not have to
+ * allocate a {@link QName} key.
+ *
+ * @param <P> the type of the providers.
+ */
+final class ProviderMap<P> {
+
+    private final Map<String, Map<String, P>> providers = new ConcurrentHashMap<>();
+
+    P get(String elementName, String namespace) {
+        Map<String, P> providersOfNamespace = providers.get(normalize(namespace));
+        if (providersOfNamespace == null) {
+            return null;
+        }
+        return providersOfNamespace.get(elementName);
+    }
+
+    P get(QName qname) {
+        return get(qname.getLocalPart(), qname.getNamespaceURI());
+    }
+
+    void put(String elementName, String namespace, P provider) {
+        providers.compute(normalize(namespace), (ns, providersOfNamespace) -> {
+            if (providersOfNamespace == null) {
+                providersOfNamespace = new ConcurrentHashMap<>(4);
+            }
+            providersOfNamespace.put(elementName, provider);
+            return providersOfNamespace;
+        });
+    }
+
+    void put(QName qname, P provider) {
+        put(qname.getLocalPart(), qname.getNamespaceURI(), provider);
+    }
+
+    void remove(String elementName, String namespace) {
+        providers.computeIfPresent(normalize(namespace), (ns, providersOfNamespace) -> {
+            providersOfNamespace.remove(elementName);
+            if (providersOfNamespace.isEmpty()) {
+                return null;
+            }
+            return providersOfNamespace;
+        });
+    }
+
+    void remove(QName qname) {
+        remove(qname.getLocalPart(), qname.getNamespaceURI());
+    }
+
+    List<P> values() {
+        List<P> values = new ArrayList<>();
+        for (Map<String, P> providersOfNamespace : providers.values()) {
+            values.addAll(providersOfNamespace.values());
+        }
+        return values;
+    }
+
+    private static String normalize(String namespace) {
+        // Like QName, treat a null namespace as the empty namespace.
+        if (namespace == null) {
+            return XMLConstants.NULL_NS_URI;
+        }
+        return namespace;
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+public final class Sasl2AuthenticationFeatureProvider extends ExtensionElementProvider<Sasl2AuthenticationFeature> {
+
+    public static final Sasl2AuthenticationFeatureProvider INSTANCE = new Sasl2AuthenticationFeatureProvider();
+
+    private Sasl2AuthenticationFeatureProvider() {
+    }
+
+    @Override
+    public Sasl2AuthenticationFeature parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException, SmackParsingException {
+        List<String> mechanisms = new ArrayList<>();
+        List<XmlElement> inlineFeatures = new ArrayList<>();
+        outerloop: while (true) {
+            XmlPullParser.TagEvent event = parser.nextTag();
+            switch (event) {
+            case START_ELEMENT:
+                String name = parser.getName();
+                if (parser.getDepth() == initialDepth + 1) {
+                    switch (name) {
+                    case "mechanism":
+                        mechanisms.add(parser.nextText());
+                        break;
+                    }
+                } else if (parser.getDepth() == initialDepth + 2) {
+                    // A child of the 'inline' element.
+                    XmlElement inlineFeature = PacketParserUtils.parseNonzaOrExtensionElement(parser, xmlEnvironment,
+                                    jxmppContext);
+                    inlineFeatures.add(inlineFeature);
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new Sasl2AuthenticationFeature(mechanisms, inlineFeatures);
+    }
+
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.sasl.packet.SaslNonza;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.jxmpp.JxmppContext;
+
+public final class Sasl2FailureProvider extends NonzaProvider<Sasl2Nonza.Failure> {
+
+    public static final Sasl2FailureProvider INSTANCE = new Sasl2FailureProvider();
+
+    private Sasl2FailureProvider() {
+    }
+
+    @Override
+    public Sasl2Nonza.Failure parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException {
+        String condition = null;
+        Map<String, String> descriptiveTexts = null;
+        outerloop: while (true) {
+            XmlPullParser.TagEvent eventType = parser.nextTag();
+            switch (eventType) {
+            case START_ELEMENT:
+                if (parser.getDepth() != initialDepth + 1) {
+                    break;
+                }
+                String name = parser.getName();
+                if (name.equals("text")) {
+                    descriptiveTexts = PacketParserUtils.parseDescriptiveTexts(parser, descriptiveTexts);
+                } else if (SaslNonza.NAMESPACE.equals(parser.getNamespace())) {
+                    condition = name;
+                }
+                break;
+            case END_ELEMENT:
+                if (parser.getDepth() == initialDepth) {
+                    break outerloop;
+                }
+                break;
+            }
+        }
+        return new Sasl2Nonza.Failure(condition, descriptiveTexts);
+    }
+
+}
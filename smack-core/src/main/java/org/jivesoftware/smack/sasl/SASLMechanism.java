@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software, 2014-2021 Florian Schmaus
+ * Copyright 2003-2007 Jive Software, 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.jivesoftware.smack.sasl;
 
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.List;
 
 import javax.net.ssl.SSLSession;
 import javax.security.auth.callback.CallbackHandler;
@@ -27,8 +28,12 @@ import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
 import org.jivesoftware.smack.sasl.packet.SaslNonza.AuthMechanism;
 import org.jivesoftware.smack.sasl.packet.SaslNonza.Response;
+import org.jivesoftware.smack.util.Objects;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
 
@@ -105,6 +110,26 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
      */
     protected SSLSession sslSession;
 
+    /**
+     * The elements to include inline in the SASL2 (XEP-0388) authenticate element, or <code>null</code> if the SASL
+     * profile of RFC 6120 is used.
+     */
+    private List<? extends XmlElement> sasl2InlineElements;
+
+    /**
+     * Perform the authentication using Extensible SASL Profile (SASL2, XEP-0388) instead of the SASL profile of RFC 6120.
+     * Must be invoked before the authentication is started.
+     *
+     * @param inlineElements the elements to include inline in the authenticate element.
+     */
+    public void useSasl2(List<? extends XmlElement> inlineElements) {
+        this.sasl2InlineElements = Objects.requireNonNull(inlineElements);
+    }
+
+    public boolean isUsingSasl2() {
+        return sasl2InlineElements != null;
+    }
+
     /**
      * Builds and sends the <code>auth</code> stanza to the server. Note that this method of
      * authentication is not recommended, since it is very inflexible. Use
@@ -213,7 +238,11 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
             authenticationText = "=";
         }
         // Send the authentication to the server
-        connection.sendNonza(new AuthMechanism(getName(), authenticationText));
+        if (sasl2InlineElements != null) {
+            connection.sendNonza(new Sasl2Nonza.Authenticate(getName(), authenticationText, sasl2InlineElements));
+        } else {
+            connection.sendNonza(new AuthMechanism(getName(), authenticationText));
+        }
     }
 
     /**
@@ -243,8 +272,11 @@ public abstract class SASLMechanism implements Comparable<SASLMechanism> {
             return;
         }
 
-        Response responseStanza;
-        if (response == null) {
+        Nonza responseStanza;
+        if (sasl2InlineElements != null) {
+            responseStanza = new Sasl2Nonza.Response(response == null ? null : Base64.encodeToString(response));
+        }
+        else if (response == null) {
             responseStanza = new Response();
         }
         else {
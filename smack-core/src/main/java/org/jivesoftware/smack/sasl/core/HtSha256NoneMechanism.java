@@ -0,0 +1,104 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.core;
+
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+
+import javax.security.auth.callback.CallbackHandler;
+
+import org.jivesoftware.smack.SmackException.SmackSaslException;
+import org.jivesoftware.smack.sasl.SASLMechanism;
+import org.jivesoftware.smack.util.ByteUtils;
+import org.jivesoftware.smack.util.MAC;
+
+/**
+ * The HT-SHA-256-NONE SASL mechanism, used to authenticate with a token previously issued by the service, e.g. via
+ * Fast Authentication Streamlining Tokens (FAST, XEP-0484). The given password is used as token.
+ * <p>
+ * Unlike SCRAM, authenticating with a token only requires a single HMAC computation on each side. The service proves
+ * the knowledge of the token by including its own HMAC as additional data in the success element.
+ * </p>
+ * <p>
+ * This mechanism is not registered by default, as it is only usable with a token obtained from the service. It is used
+ * by {@link org.jivesoftware.smack.SASLAuthentication} if the service supports FAST and a token is available.
+ * </p>
+ *
+ * @see <a href="https://datatracker.ietf.org/doc/draft-schmaus-kitten-sasl-ht/">SASL HT Mechanisms</a>
+ */
+public class HtSha256NoneMechanism extends SASLMechanism {
+
+    public static final String NAME = "HT-SHA-256-NONE";
+
+    private static final byte[] INITIATOR = toBytes("Initiator");
+
+    private static final byte[] RESPONDER = toBytes("Responder");
+
+    private boolean verifiedServer;
+
+    @Override
+    protected void authenticateInternal(CallbackHandler cbh) {
+        throw new UnsupportedOperationException("CallbackHandler not supported");
+    }
+
+    @Override
+    protected byte[] getAuthenticationText() throws SmackSaslException {
+        byte[] initiatorHashedToken = hmac(INITIATOR);
+        return ByteUtils.concat(toBytes(authenticationId + '\u0000'), initiatorHashedToken);
+    }
+
+    @Override
+    protected byte[] evaluateChallenge(byte[] challenge) throws SmackSaslException {
+        byte[] responderHashedToken = hmac(RESPONDER);
+        if (!MessageDigest.isEqual(responderHashedToken, challenge)) {
+            throw new SmackSaslException("Service did not prove the knowledge of the token");
+        }
+        verifiedServer = true;
+        return null;
+    }
+
+    private byte[] hmac(byte[] input) throws SmackSaslException {
+        try {
+            return MAC.hmacsha256(toBytes(password), input);
+        } catch (InvalidKeyException e) {
+            throw new SmackSaslException(NAME + " invalid key", e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getPriority() {
+        return 100;
+    }
+
+    @Override
+    public HtSha256NoneMechanism newInstance() {
+        return new HtSha256NoneMechanism();
+    }
+
+    @Override
+    public void checkIfSuccessfulOrThrow() throws SmackSaslException {
+        if (!verifiedServer) {
+            throw new SmackSaslException(NAME + " is missing the service's hashed token");
+        }
+    }
+
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2014-2021 Florian Schmaus
+ * Copyright 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.jivesoftware.smack.sasl.core;
 
 import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
 import java.util.Collections;
 import java.util.HashMap;
@@ -29,6 +30,8 @@ import javax.security.auth.callback.CallbackHandler;
 import org.jivesoftware.smack.SmackException.SmackSaslException;
 import org.jivesoftware.smack.sasl.SASLMechanism;
 import org.jivesoftware.smack.util.ByteUtils;
+import org.jivesoftware.smack.util.EqualsUtil;
+import org.jivesoftware.smack.util.HashCode;
 import org.jivesoftware.smack.util.SHA1;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.stringencoder.Base64;
@@ -50,7 +53,27 @@ public abstract class ScramMechanism extends SASLMechanism {
         }
     };
 
-    private static final Cache<String, Keys> CACHE = new LruCache<String, Keys>(10);
+    /**
+     * The default size of the {@link #setKeysCacheSize(int) keys cache}.
+     */
+    public static final int DEFAULT_KEYS_CACHE_SIZE = 1000;
+
+    private static final Cache<KeysCacheKey, Keys> CACHE = new LruCache<>(DEFAULT_KEYS_CACHE_SIZE);
+
+    /**
+     * Set the maximum number of cached ClientKey and ServerKey pairs. Every entry saves the expensive key derivation
+     * for one account on re-authentication, hence the size should be at least the number of accounts which log in via
+     * SCRAM within this JVM.
+     *
+     * @param keysCacheSize the maximum number of cached keys.
+     */
+    public static void setKeysCacheSize(int keysCacheSize) {
+        CACHE.setMaxCacheSize(keysCacheSize);
+    }
+
+    public static int getKeysCacheSize() {
+        return CACHE.getMaxCacheSize();
+    }
 
     private final ScramHmac scramHmac;
 
@@ -166,12 +189,14 @@ public abstract class ScramMechanism extends SASLMechanism {
 
             // RFC 5802 § 5.1 "Note that a client implementation MAY cache ClientKey&ServerKey … for later reauthentication …
             // as it is likely that the server is going to advertise the same salt value upon reauthentication."
-            // Note that we also mangle the mechanism's name into the cache key, since the cache is used by multiple
-            // mechanisms.
-            final String cacheKey = password + ',' + salt + ',' + getName();
+            // Note that we also include the mechanism's name into the cache key, since the cache is used by multiple
+            // mechanisms. The password is not part of the key, instead the keys are only used if the password verifier
+            // matches, so that the cache does not retain the plaintext password.
+            final KeysCacheKey cacheKey = new KeysCacheKey(getName(), authenticationId, salt, iterations);
+            final byte[] passwordVerifier = hmac(toBytes(salt), toBytes(password));
             byte[] serverKey, clientKey;
             Keys keys = CACHE.lookup(cacheKey);
-            if (keys == null) {
+            if (keys == null || !MessageDigest.isEqual(keys.passwordVerifier, passwordVerifier)) {
                 // SaltedPassword := Hi(Normalize(password), salt, i)
                 byte[] saltedPassword = hi(saslPrep(password), Base64.decode(salt), iterations);
 
@@ -181,7 +206,7 @@ public abstract class ScramMechanism extends SASLMechanism {
                 // ClientKey := HMAC(SaltedPassword, "Client Key")
                 clientKey = hmac(saltedPassword, CLIENT_KEY_BYTES);
 
-                keys = new Keys(clientKey, serverKey);
+                keys = new Keys(clientKey, serverKey, passwordVerifier);
                 CACHE.put(cacheKey, keys);
             }
             else {
@@ -405,10 +430,45 @@ public abstract class ScramMechanism extends SASLMechanism {
     private static class Keys {
         private final byte[] clientKey;
         private final byte[] serverKey;
+        private final byte[] passwordVerifier;
 
-        Keys(byte[] clientKey, byte[] serverKey) {
+        Keys(byte[] clientKey, byte[] serverKey, byte[] passwordVerifier) {
             this.clientKey = clientKey;
             this.serverKey = serverKey;
+            this.passwordVerifier = passwordVerifier;
+        }
+    }
+
+    private static final class KeysCacheKey {
+        private final String mechanism;
+        private final String authenticationId;
+        private final String salt;
+        private final int iterations;
+
+        private KeysCacheKey(String mechanism, String authenticationId, String salt, int iterations) {
+            this.mechanism = mechanism;
+            this.authenticationId = authenticationId;
+            this.salt = salt;
+            this.iterations = iterations;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return EqualsUtil.equals(this, other, (e, o) -> e
+                            .append(mechanism, o.mechanism)
+                            .append(authenticationId, o.authenticationId)
+                            .append(salt, o.salt)
+                            .append(iterations, o.iterations));
+        }
+
+        @Override
+        public int hashCode() {
+            return HashCode.builder()
+                            .append(mechanism)
+                            .append(authenticationId)
+                            .append(salt)
+                            .append(iterations)
+                            .build();
         }
     }
 }
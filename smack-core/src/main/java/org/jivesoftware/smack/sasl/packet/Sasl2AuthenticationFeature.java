@@ -0,0 +1,104 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.packet;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * The SASL2 stream feature, announcing the mechanisms available via SASL2 and the features which can be requested
+ * inline within the authentication exchange.
+ */
+public class Sasl2AuthenticationFeature implements ExtensionElement {
+
+    public static final String ELEMENT = "authentication";
+    public static final String NAMESPACE = Sasl2Nonza.NAMESPACE;
+    public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+    private final List<String> mechanisms;
+
+    private final List<XmlElement> inlineFeatures;
+
+    public Sasl2AuthenticationFeature(List<String> mechanisms, List<XmlElement> inlineFeatures) {
+        this.mechanisms = Collections.unmodifiableList(mechanisms);
+        this.inlineFeatures = Collections.unmodifiableList(inlineFeatures);
+    }
+
+    public List<String> getMechanisms() {
+        return mechanisms;
+    }
+
+    public List<XmlElement> getInlineFeatures() {
+        return inlineFeatures;
+    }
+
+    public boolean hasInlineFeature(QName qname) {
+        return getInlineFeature(qname) != null;
+    }
+
+    public XmlElement getInlineFeature(QName qname) {
+        for (XmlElement inlineFeature : inlineFeatures) {
+            if (inlineFeature.getQName().equals(qname)) {
+                return inlineFeature;
+            }
+        }
+        return null;
+    }
+
+    public <F extends XmlElement> F getInlineFeature(Class<F> inlineFeatureClass) {
+        QName qname = XmppElementUtil.getQNameFor(inlineFeatureClass);
+        XmlElement inlineFeature = getInlineFeature(qname);
+        if (!inlineFeatureClass.isInstance(inlineFeature)) {
+            return null;
+        }
+        return inlineFeatureClass.cast(inlineFeature);
+    }
+
+    @Override
+    public String getElementName() {
+        return ELEMENT;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NAMESPACE;
+    }
+
+    @Override
+    public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+        XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+        xml.rightAngleBracket();
+        for (String mechanism : mechanisms) {
+            xml.element("mechanism", mechanism);
+        }
+        if (!inlineFeatures.isEmpty()) {
+            xml.openElement("inline");
+            xml.append(inlineFeatures);
+            xml.closeElement("inline");
+        }
+        xml.closeElement(this);
+        return xml;
+    }
+}
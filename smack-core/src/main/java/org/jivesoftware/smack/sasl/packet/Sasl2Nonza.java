@@ -0,0 +1,269 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.packet;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.packet.AbstractError;
+import org.jivesoftware.smack.packet.Nonza;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.sasl.SASLError;
+import org.jivesoftware.smack.util.Objects;
+import org.jivesoftware.smack.util.StringUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmppElementUtil;
+
+/**
+ * The stream elements of Extensible SASL Profile (SASL2, <a href="https://xmpp.org/extensions/xep-0388.html">XEP-0388</a>).
+ * Unlike the SASL profile of RFC 6120, SASL2 does not require a stream restart after the authentication, and allows
+ * the client to include further requests, like resource binding, within the authentication exchange.
+ */
+public interface Sasl2Nonza extends Nonza {
+    String NAMESPACE = "urn:xmpp:sasl:2";
+
+    @Override
+    default String getNamespace() {
+        return NAMESPACE;
+    }
+
+    /**
+     * Initiating SASL2 authentication by selecting a mechanism, optionally together with inline requests.
+     */
+    class Authenticate implements Sasl2Nonza {
+        public static final String ELEMENT = "authenticate";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String mechanism;
+        private final String initialResponse;
+        private final List<XmlElement> inlineElements;
+
+        public Authenticate(String mechanism, String initialResponse, List<? extends XmlElement> inlineElements) {
+            this.mechanism = Objects.requireNonNull(mechanism, "SASL mechanism shouldn't be null.");
+            this.initialResponse = StringUtils.returnIfNotEmptyTrimmed(initialResponse);
+            this.inlineElements = Collections.unmodifiableList(inlineElements);
+        }
+
+        public String getMechanism() {
+            return mechanism;
+        }
+
+        public String getInitialResponse() {
+            return initialResponse;
+        }
+
+        public List<XmlElement> getInlineElements() {
+            return inlineElements;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("mechanism", mechanism).rightAngleBracket();
+            xml.optElement("initial-response", initialResponse);
+            xml.append(inlineElements);
+            xml.closeElement(this);
+            return xml;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+    }
+
+    /**
+     * A SASL2 challenge stream element.
+     */
+    class Challenge implements Sasl2Nonza {
+        public static final String ELEMENT = "challenge";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String data;
+
+        public Challenge(String data) {
+            this.data = StringUtils.returnIfNotEmptyTrimmed(data);
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optTextChild(data, this);
+            return xml;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+    }
+
+    /**
+     * A SASL2 response stream element.
+     */
+    class Response implements Sasl2Nonza {
+        public static final String ELEMENT = "response";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String data;
+
+        public Response(String data) {
+            this.data = StringUtils.returnIfNotEmptyTrimmed(data);
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.optTextChild(data, this);
+            return xml;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+    }
+
+    /**
+     * A SASL2 success stream element. Besides the optional additional data for the SASL layer, it carries the
+     * authorization identifier and the results of the inline requests.
+     */
+    class Success implements Sasl2Nonza {
+        public static final String ELEMENT = "success";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String additionalData;
+        private final String authorizationIdentifier;
+        private final List<XmlElement> inlineResults;
+
+        public Success(String additionalData, String authorizationIdentifier, List<XmlElement> inlineResults) {
+            this.additionalData = StringUtils.returnIfNotEmptyTrimmed(additionalData);
+            this.authorizationIdentifier = StringUtils.requireNotNullNorEmpty(authorizationIdentifier,
+                            "The SASL2 authorization identifier must not be null nor empty");
+            this.inlineResults = Collections.unmodifiableList(inlineResults);
+        }
+
+        /**
+         * Returns additional data for the SASL layer or <code>null</code>.
+         *
+         * @return additional data or <code>null</code>
+         */
+        public String getAdditionalData() {
+            return additionalData;
+        }
+
+        public String getAuthorizationIdentifier() {
+            return authorizationIdentifier;
+        }
+
+        public List<XmlElement> getInlineResults() {
+            return inlineResults;
+        }
+
+        /**
+         * Get the result of an inline request of the given type.
+         *
+         * @param <X> the type of the inline result.
+         * @param inlineResultClass the class of the inline result.
+         * @return the inline result or <code>null</code>.
+         */
+        public <X extends XmlElement> X getInlineResult(Class<X> inlineResultClass) {
+            QName qname = XmppElementUtil.getQNameFor(inlineResultClass);
+            for (XmlElement inlineResult : inlineResults) {
+                if (inlineResult.getQName().equals(qname) && inlineResultClass.isInstance(inlineResult)) {
+                    return inlineResultClass.cast(inlineResult);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            xml.optElement("additional-data", additionalData);
+            xml.element("authorization-identifier", authorizationIdentifier);
+            xml.append(inlineResults);
+            xml.closeElement(this);
+            return xml;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+    }
+
+    /**
+     * A SASL2 failure stream element. The error conditions are the ones of RFC 6120 § 6.5.
+     */
+    class Failure extends AbstractError implements Sasl2Nonza {
+        public static final String ELEMENT = "failure";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String saslErrorString;
+
+        public Failure(String saslError, Map<String, String> descriptiveTexts) {
+            super(descriptiveTexts);
+            this.saslErrorString = saslError;
+        }
+
+        public String getSASLErrorString() {
+            return saslErrorString;
+        }
+
+        /**
+         * Convert this failure to the SASL failure of RFC 6120, which carries the same error condition.
+         *
+         * @return the SASL failure.
+         */
+        public SaslNonza.SASLFailure toSaslFailure() {
+            return new SaslNonza.SASLFailure(saslErrorString, descriptiveTexts);
+        }
+
+        public SASLError getSASLError() {
+            return toSaslFailure().getSASLError();
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.rightAngleBracket();
+            xml.halfOpenElement(saslErrorString).xmlnsAttribute(SaslNonza.NAMESPACE).closeEmptyElement();
+            addDescriptiveTextsAndExtensions(xml);
+            xml.closeElement(this);
+            return xml;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A pool of reusable byte buffers of a fixed size. Allocating direct buffers is expensive, hence reusing them avoids
+ * allocation on hot I/O paths. This class is not thread-safe, it is meant to be used, for example, by a single
+ * connection while holding its I/O lock.
+ * <p>
+ * Only buffers with the pool's buffer size and of the pool's kind (direct or heap) are accepted by
+ * {@link #release(ByteBuffer)}. Buffers which are never released are simply garbage collected.
+ * </p>
+ */
+public final class ByteBufferPool {
+
+    private final int bufferSize;
+
+    private final int maxPooledBuffers;
+
+    private final boolean direct;
+
+    private final Deque<ByteBuffer> pooledBuffers;
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Create a new byte buffer pool.
+     *
+     * @param bufferSize the size of the buffers.
+     * @param maxPooledBuffers the maximum number of idle buffers retained by the pool.
+     * @param direct <code>true</code> if the pool should hand out direct buffers.
+     */
+    public ByteBufferPool(int bufferSize, int maxPooledBuffers, boolean direct) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        if (maxPooledBuffers < 0) {
+            throw new IllegalArgumentException("Maximum number of pooled buffers must not be negative");
+        }
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.direct = direct;
+        this.pooledBuffers = new ArrayDeque<>(maxPooledBuffers);
+    }
+
+    /**
+     * Acquire a cleared buffer from this pool. If the pool is empty, a new buffer is allocated.
+     *
+     * @return a cleared buffer.
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = pooledBuffers.pollFirst();
+        if (buffer != null) {
+            hits++;
+            return buffer;
+        }
+
+        misses++;
+        if (direct) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        return ByteBuffer.allocate(bufferSize);
+    }
+
+    /**
+     * Release the given buffer back into this pool. The caller must not use the buffer afterwards.
+     *
+     * @param buffer the buffer to release.
+     * @return <code>true</code> if the buffer was retained by the pool.
+     */
+    public boolean release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != direct || buffer.isReadOnly()) {
+            return false;
+        }
+        if (pooledBuffers.size() >= maxPooledBuffers) {
+            return false;
+        }
+
+        assert !containsIdentical(buffer) : "Buffer released twice";
+
+        ((java.nio.Buffer) buffer).clear();
+        // Put the buffer at the front, so that the most recently used buffer, which is likely still in the CPU cache,
+        // is handed out next.
+        pooledBuffers.addFirst(buffer);
+        return true;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Get the number of idle buffers in this pool.
+     *
+     * @return the number of idle buffers.
+     */
+    public int getPooledBufferCount() {
+        return pooledBuffers.size();
+    }
+
+    /**
+     * Get the number of acquisitions which were served by a pooled buffer.
+     *
+     * @return the number of pool hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Get the number of acquisitions which required the allocation of a new buffer.
+     *
+     * @return the number of pool misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    @SuppressWarnings("ReferenceEquality")
+    private boolean containsIdentical(ByteBuffer buffer) {
+        for (ByteBuffer pooledBuffer : pooledBuffers) {
+            if (pooledBuffer == buffer) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2005 Jive Software, 2016-2020 Florian Schmaus.
+ * Copyright 2003-2005 Jive Software, 2016-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.util;
 
 import org.jivesoftware.smack.util.dns.DNSResolver;
+import org.jivesoftware.smack.util.dns.DnsResolutionCache;
 import org.jivesoftware.smack.util.dns.SmackDaneProvider;
 
 /**
@@ -29,6 +30,7 @@ public class DNSUtil {
 
     private static DNSResolver dnsResolver = null;
     private static SmackDaneProvider daneProvider;
+    private static volatile DnsResolutionCache resolutionCache;
 
     /**
      * Set the DNS resolver that should be used to perform DNS lookups.
@@ -48,6 +50,26 @@ public class DNSUtil {
         return dnsResolver;
     }
 
+    /**
+     * Set the cache used for the lookups of all DNS resolvers. The cache is shared by all connections, which avoids
+     * repeated lookups of the same name, for example when many connections reconnect at the same time. By default, no
+     * cache is used.
+     *
+     * @param resolutionCache the cache to use, or <code>null</code> to disable caching.
+     */
+    public static void setResolutionCache(DnsResolutionCache resolutionCache) {
+        DNSUtil.resolutionCache = resolutionCache;
+    }
+
+    /**
+     * Returns the cache used for the lookups of all DNS resolvers.
+     *
+     * @return the resolution cache, or <code>null</code> if no cache is used.
+     */
+    public static DnsResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+
     /**
      * Set the DANE provider that should be used when DANE is enabled.
      *
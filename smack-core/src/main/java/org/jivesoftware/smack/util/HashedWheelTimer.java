@@ -0,0 +1,317 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timing wheel for large numbers of timeouts which are usually cancelled before they expire, like the timeouts
+ * of pending IQ requests. Scheduling and cancelling a timeout is O(1) and lock free. A single daemon thread advances
+ * the wheel every tick and runs the expired tasks. Hence the tasks must not block and the precision of the timeouts is
+ * limited by the tick duration.
+ *
+ * @see <a href="http://www.cs.columbia.edu/~nahum/w6998/papers/sosp87-timing-wheels.pdf">Varghese and Lauck: Hashed and
+ *      Hierarchical Timing Wheels</a>
+ */
+public final class HashedWheelTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(HashedWheelTimer.class.getName());
+
+    private final String name;
+
+    private final long tickDurationNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pendingTimeouts = new AtomicInteger();
+
+    private final long startTimeNanos;
+
+    private volatile boolean workerStarted;
+
+    private long tick;
+
+    /**
+     * Create a new hashed wheel timer.
+     *
+     * @param name the name of the timer, used as name of the worker thread.
+     * @param tickDuration the duration of a tick.
+     * @param unit the time unit of the tick duration.
+     * @param ticksPerWheel the number of ticks per wheel, will be rounded up to the next power of two.
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Ticks per wheel must be between 1 and 2^30");
+        }
+        this.name = name;
+        this.tickDurationNanos = unit.toNanos(tickDuration);
+
+        int wheelSize = Integer.highestOneBit(ticksPerWheel);
+        if (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheelSize - 1;
+
+        startTimeNanos = System.nanoTime();
+    }
+
+    /**
+     * Schedule the given task to be run once the given delay has passed.
+     *
+     * @param task the task, must not block.
+     * @param delay the delay.
+     * @param unit the time unit of the delay.
+     * @return a timeout handle which can be used to cancel the task.
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task, "Task must not be null");
+
+        ensureWorkerStarted();
+
+        long deadlineNanos = System.nanoTime() + unit.toNanos(delay) - startTimeNanos;
+        Timeout timeout = new Timeout(this, task, deadlineNanos);
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Get the number of timeouts which are neither expired nor cancelled.
+     *
+     * @return the number of pending timeouts.
+     */
+    public int getPendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+    private void ensureWorkerStarted() {
+        if (workerStarted) {
+            return;
+        }
+        synchronized (this) {
+            if (workerStarted) {
+                return;
+            }
+            Async.go(this::work, "Smack " + name + " Hashed Wheel Timer");
+            workerStarted = true;
+        }
+    }
+
+    private void work() {
+        while (true) {
+            long deadlineNanos = waitForNextTick();
+
+            processCancelledTimeouts();
+            transferNewTimeoutsToBuckets();
+
+            Bucket bucket = wheel[(int) (tick & mask)];
+            bucket.expireTimeouts(deadlineNanos);
+
+            tick++;
+        }
+    }
+
+    private long waitForNextTick() {
+        long deadlineNanos = tickDurationNanos * (tick + 1);
+        while (true) {
+            long currentTimeNanos = System.nanoTime() - startTimeNanos;
+            long sleepTimeNanos = deadlineNanos - currentTimeNanos;
+            if (sleepTimeNanos <= 0) {
+                return currentTimeNanos;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepTimeNanos);
+            } catch (InterruptedException e) {
+                LOGGER.log(Level.FINE, "Hashed wheel timer " + name + " interrupted while waiting for next tick", e);
+            }
+        }
+    }
+
+    private void processCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferNewTimeoutsToBuckets() {
+        // Transfer at most 100000 timeouts per tick, to prevent a thread adding timeouts in a loop from starving the
+        // worker thread.
+        for (int i = 0; i < 100000; i++) {
+            Timeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+            if (timeout.state.get() == Timeout.STATE_CANCELLED) {
+                continue;
+            }
+
+            long calculatedTick = timeout.deadlineNanos / tickDurationNanos;
+            timeout.remainingRounds = (calculatedTick - tick) / wheel.length;
+
+            // Ensure that timeouts whose deadline already passed are expired in the current tick.
+            long ticks = Math.max(calculatedTick, tick);
+            Bucket bucket = wheel[(int) (ticks & mask)];
+            bucket.add(timeout);
+        }
+    }
+
+    /**
+     * A handle for a task scheduled with {@link HashedWheelTimer#newTimeout(Runnable, long, TimeUnit)}.
+     */
+    public static final class Timeout {
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+
+        // The following fields are only accessed by the worker thread.
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNanos) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Cancel this timeout.
+         *
+         * @return <code>true</code> if the timeout was still pending and got cancelled, <code>false</code> otherwise.
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                return false;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                return;
+            }
+            timer.pendingTimeouts.decrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                LOGGER.log(Level.WARNING, "Exception while running task " + task + " of " + timer.name, t);
+            }
+        }
+    }
+
+    /**
+     * A bucket of the wheel, implemented as a doubly linked list of timeouts. Only accessed by the worker thread.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private Timeout remove(Timeout timeout) {
+            Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                tail = timeout.prev;
+            }
+
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            return next;
+        }
+
+        private void expireTimeouts(long deadlineNanos) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    assert timeout.deadlineNanos <= deadlineNanos;
+                    timeout.expire();
+                } else if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                    next = timeout.next;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import org.jivesoftware.smack.xml.SmackXmlParser;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+import org.jivesoftware.smack.xml.XmlPullParserFactory;
+
+/**
+ * A long-lived XML pull parser for the incoming side of an XMPP stream, which is fed with the complete top-level
+ * elements of the stream as they arrive. The parser is created once per stream open and stays positioned within the
+ * stream element. Hence, the namespace context of the stream open is retained and there is no need to wrap every
+ * top-level element into the stream open and close tags, nor to create a new parser for every element.
+ * <p>
+ * The elements fed to this parser must be complete, as determined for example by an XMPP XML splitter, since the parser
+ * must never try to read beyond the data which has been fed. After {@link #feed(CharSequence)} returned the parser
+ * positioned at the start of the element, the caller must consume the element up to, but not beyond, its end tag. This
+ * class is not thread-safe.
+ * </p>
+ */
+public final class IncrementalXmppStreamParser {
+
+    private final XmlPullParserFactory xmlPullParserFactory;
+
+    private final FeedReader reader = new FeedReader();
+
+    private XmlPullParser parser;
+
+    private int streamDepth;
+
+    public IncrementalXmppStreamParser() {
+        this(null);
+    }
+
+    /**
+     * Create a new incremental XMPP stream parser using the given parser factory.
+     *
+     * @param xmlPullParserFactory the parser factory, or <code>null</code> to use the factory of
+     *        {@link SmackXmlParser}.
+     */
+    public IncrementalXmppStreamParser(XmlPullParserFactory xmlPullParserFactory) {
+        this.xmlPullParserFactory = xmlPullParserFactory;
+    }
+
+    /**
+     * Start a new stream with the given stream open tag. This creates a new parser, which is returned positioned at the
+     * start tag of the stream open. Any previous stream state is discarded.
+     *
+     * @param streamOpen the stream open tag, including all namespace declarations.
+     * @return the parser positioned at the start of the stream element.
+     * @throws XmlPullParserException if the stream open could not be parsed.
+     * @throws IOException if an I/O error occurred.
+     */
+    public XmlPullParser streamOpened(CharSequence streamOpen) throws XmlPullParserException, IOException {
+        reader.clear();
+        reader.feed(streamOpen);
+
+        if (xmlPullParserFactory != null) {
+            parser = xmlPullParserFactory.newXmlPullParser(reader);
+        } else {
+            parser = SmackXmlParser.newXmlParser(reader);
+        }
+        ParserUtils.forwardToStartElement(parser);
+        streamDepth = parser.getDepth();
+        return parser;
+    }
+
+    /**
+     * Feed the given complete top-level element of the stream into the parser.
+     *
+     * @param completeElement the complete top-level element.
+     * @return the parser positioned at the start tag of the element.
+     * @throws XmlPullParserException if the element could not be parsed.
+     * @throws IOException if the element was not complete or the previous element was not fully consumed.
+     */
+    public XmlPullParser feed(CharSequence completeElement) throws XmlPullParserException, IOException {
+        if (parser == null) {
+            throw new IllegalStateException("Stream was not opened");
+        }
+
+        skipRemainderOfPreviousElement();
+        reader.feed(completeElement);
+
+        XmlPullParser.Event event = parser.next();
+        while (event != XmlPullParser.Event.START_ELEMENT) {
+            switch (event) {
+            case END_ELEMENT:
+            case END_DOCUMENT:
+                throw new IOException("Unexpected end of stream while expecting a top-level element");
+            default:
+                // Ignore whitespace and other events between the top-level elements.
+                event = parser.next();
+                break;
+            }
+        }
+        assert parser.getDepth() == streamDepth + 1;
+        return parser;
+    }
+
+    /**
+     * Get the current parser, may be <code>null</code> if no stream was opened yet.
+     *
+     * @return the current parser or <code>null</code>.
+     */
+    public XmlPullParser getParser() {
+        return parser;
+    }
+
+    /**
+     * Get the number of characters which have been fed but not yet been read by the parser.
+     *
+     * @return the number of pending characters.
+     */
+    public int getPendingCharacters() {
+        return reader.pendingCharacters;
+    }
+
+    private void skipRemainderOfPreviousElement() throws XmlPullParserException, IOException {
+        int depth = parser.getDepth();
+        XmlPullParser.Event event = parser.getEventType();
+        // Check if the caller did not consume the previous element up to its end tag. We are able to skip the remaining
+        // events of it, since it was fed completely.
+        if (depth > streamDepth + 1 || (depth == streamDepth + 1 && event != XmlPullParser.Event.END_ELEMENT)) {
+            ParserUtils.forwardToEndTagOfDepth(parser, streamDepth + 1);
+        }
+    }
+
+    /**
+     * A non-blocking reader over the fed character sequences. The character sequences are not copied, but read
+     * directly into the buffer of the XML parser.
+     */
+    private static final class FeedReader extends Reader {
+
+        private final Queue<CharSequence> pending = new ArrayDeque<>();
+
+        private CharSequence current;
+
+        private int currentPosition;
+
+        private int pendingCharacters;
+
+        private void feed(CharSequence charSequence) {
+            if (charSequence.length() == 0) {
+                return;
+            }
+            pending.add(charSequence);
+            pendingCharacters += charSequence.length();
+        }
+
+        private void clear() {
+            pending.clear();
+            current = null;
+            currentPosition = 0;
+            pendingCharacters = 0;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            if (current == null || currentPosition == current.length()) {
+                current = pending.poll();
+                currentPosition = 0;
+                if (current == null) {
+                    // Signalling the end of the stream would terminate the parser, and blocking is not an option on the
+                    // reactor thread. Hence the parser must not read beyond the fed elements.
+                    throw new IOException("Parser tried to read beyond the fed elements");
+                }
+            }
+
+            int count = Math.min(len, current.length() - currentPosition);
+            int end = currentPosition + count;
+            if (current instanceof String) {
+                ((String) current).getChars(currentPosition, end, cbuf, off);
+            } else {
+                for (int i = currentPosition; i < end; i++) {
+                    cbuf[off++] = current.charAt(i);
+                }
+            }
+            currentPosition = end;
+            pendingCharacters -= count;
+            return count;
+        }
+
+        @Override
+        public boolean ready() {
+            return pendingCharacters > 0;
+        }
+
+        @Override
+        public void close() {
+            clear();
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright © 2014 Florian Schmaus
+ * Copyright © 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -26,11 +26,23 @@ public class MAC {
 
     public static final String HMACSHA1 = "HmacSHA1";
 
-    private static Mac HMAC_SHA1;
+    public static final String HMACSHA256 = "HmacSHA256";
+
+    // Mac instances are not thread-safe. Use one instance per thread, so that concurrent logins, which perform many
+    // HMAC operations, do not contend on a single instance.
+    private static final ThreadLocal<Mac> HMAC_SHA1 = ThreadLocal.withInitial(() -> getMac(HMACSHA1));
+
+    private static final ThreadLocal<Mac> HMAC_SHA256 = ThreadLocal.withInitial(() -> getMac(HMACSHA256));
 
     static {
+        // Ensure that the algorithms are available when the class is loaded.
+        HMAC_SHA1.get();
+        HMAC_SHA256.get();
+    }
+
+    private static Mac getMac(String algorithm) {
         try {
-            HMAC_SHA1 = Mac.getInstance(HMACSHA1);
+            return Mac.getInstance(algorithm);
         }
         catch (NoSuchAlgorithmException e) {
             // Smack won't be able to function normally if this exception is thrown, wrap it into
@@ -39,10 +51,10 @@ public class MAC {
         }
     }
 
-
-    public static synchronized byte[] hmacsha1(SecretKeySpec key, byte[] input) throws InvalidKeyException {
-        HMAC_SHA1.init(key);
-        return HMAC_SHA1.doFinal(input);
+    public static byte[] hmacsha1(SecretKeySpec key, byte[] input) throws InvalidKeyException {
+        Mac mac = HMAC_SHA1.get();
+        mac.init(key);
+        return mac.doFinal(input);
     }
 
     public static byte[] hmacsha1(byte[] keyBytes, byte[] input) throws InvalidKeyException {
@@ -50,5 +62,15 @@ public class MAC {
         return hmacsha1(key, input);
     }
 
+    public static byte[] hmacsha256(SecretKeySpec key, byte[] input) throws InvalidKeyException {
+        Mac mac = HMAC_SHA256.get();
+        mac.init(key);
+        return mac.doFinal(input);
+    }
+
+    public static byte[] hmacsha256(byte[] keyBytes, byte[] input) throws InvalidKeyException {
+        SecretKeySpec key = new SecretKeySpec(keyBytes, HMACSHA256);
+        return hmacsha256(key, input);
+    }
 
 }
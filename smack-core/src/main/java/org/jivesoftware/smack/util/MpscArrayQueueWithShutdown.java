@@ -0,0 +1,376 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded, lock-free multi-producer single-consumer queue with the shutdown semantics of
+ * {@link ArrayBlockingQueueWithShutdown}.
+ * <p>
+ * Producers claim a slot of the ring buffer with a single compare-and-set and publish the element via the slot's
+ * sequence number, as described by Dmitry Vyukov's bounded MPMC queue. Hence producers never contend on a lock, and
+ * the consumer can drain many elements per wakeup via {@link #drainTo(Collection, int)}. The consumer parks while the
+ * queue is empty and is unparked by the next producer. Producers only block if the queue is full.
+ * </p>
+ * <p>
+ * The consumer methods, i.e., {@link #poll()}, {@link #take()}, {@link #drainTo(Collection)},
+ * {@link #drainTo(Collection, int)} and {@link #clear()}, must not be invoked concurrently. All other methods are
+ * thread-safe.
+ * </p>
+ *
+ * @param <E> the type of elements held in this queue.
+ * @see <a href="https://www.1024cores.net/home/lock-free-algorithms/queues/bounded-mpmc-queue">Bounded MPMC queue</a>
+ */
+public final class MpscArrayQueueWithShutdown<E> {
+
+    private final Object[] items;
+
+    /**
+     * The sequence number of every slot. A slot is free for the producer claiming index i if its sequence is i, and
+     * contains the element for the consumer at index i if its sequence is i + 1.
+     */
+    private final AtomicLongArray sequences;
+
+    private final int capacity;
+
+    private final AtomicLong producerIndex = new AtomicLong();
+
+    /**
+     * Only written by the consumer. Volatile, so that {@link #size()} can be invoked by any thread.
+     */
+    private volatile long consumerIndex;
+
+    private volatile Thread waitingConsumer;
+
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    private final Object notFull = new Object();
+
+    private volatile boolean isShutdown;
+
+    /**
+     * Create a new queue.
+     *
+     * @param capacity the capacity of the queue, which must be at least 2, as the sequence numbers of a single slot
+     *        could not distinguish a full from an empty queue.
+     */
+    public MpscArrayQueueWithShutdown(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Capacity must be at least 2");
+        }
+        this.capacity = capacity;
+        items = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    private static void checkNotNull(Object o) {
+        if (o == null) {
+            throw new NullPointerException();
+        }
+    }
+
+    private void checkNotShutdown() throws InterruptedException {
+        if (isShutdown) {
+            throw new InterruptedException("Queue was already shut down");
+        }
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+
+    /**
+     * Shutdown the queue. A consumer waiting for an element, and producers waiting for a free slot, will unblock and
+     * throw an {@link InterruptedException}.
+     */
+    public void shutdown() {
+        isShutdown = true;
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        synchronized (notFull) {
+            notFull.notifyAll();
+        }
+    }
+
+    /**
+     * Start the queue. Newly created instances will be started automatically, thus this only needs to be called after
+     * {@link #shutdown()}.
+     *
+     * @return <code>true</code> if the queues was shutdown before, <code>false</code> if not.
+     */
+    public boolean start() {
+        boolean previousIsShutdown = isShutdown;
+        isShutdown = false;
+        return previousIsShutdown;
+    }
+
+    /**
+     * Returns true if the queue is currently shut down.
+     *
+     * @return true if the queue is shut down.
+     */
+    public boolean isShutdown() {
+        return isShutdown;
+    }
+
+    private boolean tryInsert(E e) {
+        long index = producerIndex.get();
+        while (true) {
+            int slot = slot(index);
+            long difference = sequences.get(slot) - index;
+            if (difference == 0) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    items[slot] = e;
+                    // Publishes the element to the consumer. This must be a volatile write, which is ordered before
+                    // the read of waitingConsumer below, so that either the consumer sees the element or we see the
+                    // consumer.
+                    sequences.set(slot, index + 1);
+                    break;
+                }
+                index = producerIndex.get();
+            } else if (difference < 0) {
+                // The slot still contains the element from the previous round, i.e., the queue is full.
+                return false;
+            } else {
+                // Another producer claimed the slot.
+                index = producerIndex.get();
+            }
+        }
+
+        Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Inserts the specified element into this queue if there is a free slot and the queue is not shut down.
+     *
+     * @param e the element to add.
+     * @return <code>true</code> if the element was added, <code>false</code> if the queue is full or shut down.
+     */
+    public boolean offer(E e) {
+        checkNotNull(e);
+        if (isShutdown) {
+            return false;
+        }
+        return tryInsert(e);
+    }
+
+    /**
+     * Inserts the specified element into this queue, waiting if necessary for space to become available. Like
+     * {@link ArrayBlockingQueueWithShutdown#put(Object)}, an element is added to a shut down queue if there is a free
+     * slot. But unlike it, this method does not wait for a free slot of a shut down queue.
+     * <p>
+     * This may throw an {@link InterruptedException} in two cases
+     * <ol>
+     *  <li>If the queue was shut down.</li>
+     *  <li>If the thread was was interrupted.</li>
+     * </ol>
+     * So you have to check which is the case, e.g. by calling {@link #isShutdown()}.
+     *
+     * @param e the element to add.
+     * @throws InterruptedException if interrupted while waiting or if the queue was shut down.
+     */
+    public void put(E e) throws InterruptedException {
+        checkNotNull(e);
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (tryInsert(e)) {
+            return;
+        }
+
+        waitingProducers.incrementAndGet();
+        try {
+            synchronized (notFull) {
+                // Re-check after we announced that we are waiting, as the consumer only notifies waiting producers.
+                while (!tryInsert(e)) {
+                    // A shut down queue is no longer drained, so waiting for a free slot would block forever.
+                    checkNotShutdown();
+                    notFull.wait();
+                }
+            }
+        } finally {
+            waitingProducers.decrementAndGet();
+        }
+    }
+
+    /**
+     * Put if the queue has not been shutdown yet.
+     *
+     * @param e the element to put into the queue.
+     * @return <code>true</code> if the element has been put into the queue, <code>false</code> if the queue was shutdown.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public boolean putIfNotShutdown(E e) throws InterruptedException {
+        if (isShutdown) {
+            return false;
+        }
+        put(e);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E extract() {
+        long index = consumerIndex;
+        int slot = slot(index);
+        if (sequences.get(slot) != index + 1) {
+            // Either empty, or the producer which claimed the slot did not yet publish its element.
+            return null;
+        }
+        E e = (E) items[slot];
+        items[slot] = null;
+        consumerIndex = index + 1;
+        sequences.set(slot, index + capacity);
+        return e;
+    }
+
+    private void signalNotFull() {
+        if (waitingProducers.get() > 0) {
+            synchronized (notFull) {
+                notFull.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, or returns null if this queue is empty.
+     *
+     * @return the head of this queue, or null.
+     */
+    public E poll() {
+        E e = extract();
+        if (e != null) {
+            signalNotFull();
+        }
+        return e;
+    }
+
+    /**
+     * Retrieves and removes the head of this queue, waiting if necessary until an element becomes available.
+     *
+     * @return the head of this queue.
+     * @throws InterruptedException if interrupted while waiting or if the queue was shut down.
+     */
+    public E take() throws InterruptedException {
+        waitingConsumer = Thread.currentThread();
+        try {
+            while (true) {
+                checkNotShutdown();
+                E e = poll();
+                if (e != null) {
+                    return e;
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                LockSupport.park(this);
+            }
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    /**
+     * Removes all available elements from this queue and adds them to the given collection.
+     *
+     * @param c the collection to transfer elements into.
+     * @return the number of elements transferred.
+     */
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Removes at most the given number of available elements from this queue and adds them to the given collection.
+     * This allows the consumer to take a whole batch of elements per wakeup.
+     *
+     * @param c the collection to transfer elements into.
+     * @param maxElements the maximum number of elements to transfer.
+     * @return the number of elements transferred.
+     */
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        checkNotNull(c);
+        int n = 0;
+        while (n < maxElements) {
+            E e = extract();
+            if (e == null) {
+                break;
+            }
+            c.add(e);
+            n++;
+        }
+        if (n > 0) {
+            signalNotFull();
+        }
+        return n;
+    }
+
+    /**
+     * Removes all available elements from this queue.
+     */
+    public void clear() {
+        boolean removed = false;
+        while (extract() != null) {
+            removed = true;
+        }
+        if (removed) {
+            signalNotFull();
+        }
+    }
+
+    /**
+     * Returns the number of elements in this queue. This includes elements of producers which claimed a slot but did
+     * not yet publish their element.
+     *
+     * @return the number of elements in this queue.
+     */
+    public int size() {
+        // Read the consumer index first, so that the result can not become negative.
+        long consumer = consumerIndex;
+        long producer = producerIndex.get();
+        long size = producer - consumer;
+        if (size < 0) {
+            return 0;
+        }
+        return (int) Math.min(size, capacity);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int remainingCapacity() {
+        return capacity - size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software, 2019-2025 Florian Schmaus.
+ * Copyright 2003-2007 Jive Software, 2019-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,14 +30,19 @@ import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.SmackConfiguration;
 import org.jivesoftware.smack.compress.packet.Compress;
 import org.jivesoftware.smack.packet.EmptyResultIQ;
 import org.jivesoftware.smack.packet.ErrorIQ;
 import org.jivesoftware.smack.packet.ExtensionElement;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.IqData;
+import org.jivesoftware.smack.packet.LazyExtensionElement;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.packet.Nonza;
 import org.jivesoftware.smack.packet.Presence;
 import org.jivesoftware.smack.packet.PresenceBuilder;
 import org.jivesoftware.smack.packet.Session;
@@ -53,6 +58,7 @@ import org.jivesoftware.smack.parsing.SmackParsingException;
 import org.jivesoftware.smack.parsing.StandardExtensionElementProvider;
 import org.jivesoftware.smack.provider.ExtensionElementProvider;
 import org.jivesoftware.smack.provider.IqProvider;
+import org.jivesoftware.smack.provider.NonzaProvider;
 import org.jivesoftware.smack.provider.ProviderManager;
 import org.jivesoftware.smack.xml.SmackXmlParser;
 import org.jivesoftware.smack.xml.XmlPullParser;
@@ -192,7 +198,7 @@ public class PacketParserUtils {
                     message.setError(error);
                     break;
                  default:
-                     XmlElement extensionElement = parseExtensionElement(elementName, namespace, parser, messageXmlEnvironment, jxmppContext);
+                     XmlElement extensionElement = parseOrDeferExtensionElement(elementName, namespace, parser, messageXmlEnvironment, jxmppContext);
                     message.addExtension(extensionElement);
                     break;
                 }
@@ -487,7 +493,7 @@ public class PacketParserUtils {
                     // Be extra robust: Skip PacketExtensions that cause Exceptions, instead of
                     // failing completely here. See SMACK-390 for more information.
                     try {
-                        XmlElement extensionElement = parseExtensionElement(elementName, namespace, parser, presenceXmlEnvironment, jxmppContext);
+                        XmlElement extensionElement = parseOrDeferExtensionElement(elementName, namespace, parser, presenceXmlEnvironment, jxmppContext);
                         presence.addExtension(extensionElement);
                     } catch (Exception e) {
                         LOGGER.log(Level.WARNING, "Failed to parse extension element in Presence stanza: " + presence, e);
@@ -865,6 +871,62 @@ public class PacketParserUtils {
         return StandardExtensionElementProvider.INSTANCE.parse(parser, outerXmlEnvironment, jxmppContext);
     }
 
+    /**
+     * Parses an element nested within another stream element, like the inline results of a SASL2 success. Those may
+     * be elements which are otherwise sent as top-level stream elements, hence a registered {@link NonzaProvider} is
+     * preferred over an extension element provider.
+     *
+     * @param parser the XML parser, positioned at the starting element.
+     * @param outerXmlEnvironment the outer XML environment (optional).
+     * @param jxmppContext the JXMPP context used when creating JIDs.
+     * @return the parsed element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @throws SmackParsingException if the Smack parser (provider) encountered invalid input.
+     */
+    public static XmlElement parseNonzaOrExtensionElement(XmlPullParser parser, XmlEnvironment outerXmlEnvironment,
+                    JxmppContext jxmppContext) throws XmlPullParserException, IOException, SmackParsingException {
+        String elementName = parser.getName();
+        String namespace = parser.getNamespace();
+        NonzaProvider<? extends Nonza> nonzaProvider = ProviderManager.getNonzaProvider(elementName, namespace);
+        if (nonzaProvider != null) {
+            return nonzaProvider.parse(parser, outerXmlEnvironment, jxmppContext);
+        }
+        return parseExtensionElement(elementName, namespace, parser, outerXmlEnvironment, jxmppContext);
+    }
+
+    /**
+     * Parses an extension element of a stanza, or retains it as {@link LazyExtensionElement} if lazy extension element
+     * parsing is enabled. Only elements which declare their own default namespace are retained, as only their raw XML
+     * can be parsed and re-emitted on its own. Other elements, like the body of a message, are parsed right away.
+     *
+     * @param elementName the XML element name of the extension element.
+     * @param namespace the XML namespace of the stanza extension.
+     * @param parser the XML parser, positioned at the starting element of the extension.
+     * @param stanzaXmlEnvironment the XML environment of the enclosing stanza.
+     * @param jxmppContext the JXMPP context used when creating JIDs.
+     * @return an extension element.
+     * @throws XmlPullParserException if an error in the XML parser occurred.
+     * @throws IOException if an I/O error occurred.
+     * @throws SmackParsingException if the Smack parser (provider) encountered invalid input.
+     * @see SmackConfiguration#setLazyExtensionElementParsing(boolean)
+     */
+    private static XmlElement parseOrDeferExtensionElement(String elementName, String namespace, XmlPullParser parser,
+                    XmlEnvironment stanzaXmlEnvironment, JxmppContext jxmppContext)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        if (!SmackConfiguration.isLazyExtensionElementParsing()
+                        || StringUtils.isNullOrEmpty(namespace)
+                        || namespace.equals(stanzaXmlEnvironment.getEffectiveNamespace())
+                        || StringUtils.isNotEmpty(parser.getPrefix())) {
+            return parseExtensionElement(elementName, namespace, parser, stanzaXmlEnvironment, jxmppContext);
+        }
+
+        QName qname = new QName(namespace, elementName);
+        // Declare the namespaces of nested elements, as we may not be able to retain the raw XML verbatim.
+        CharSequence rawXml = parseElement(parser, true);
+        return new LazyExtensionElement(qname, rawXml, stanzaXmlEnvironment, jxmppContext);
+    }
+
     public static StartTls parseStartTlsFeature(XmlPullParser parser)
                     throws XmlPullParserException, IOException {
         ParserUtils.assertAtStartTag(parser);
@@ -0,0 +1,90 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to the virtual threads of Java 21 or higher, while Smack itself is compiled for an older Java release. The
+ * API is looked up via reflection once, hence there is no overhead when creating a virtual thread.
+ */
+public final class VirtualThreads {
+
+    private static final Logger LOGGER = Logger.getLogger(VirtualThreads.class.getName());
+
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_UNCAUGHT_EXCEPTION_HANDLER;
+    private static final Method BUILDER_FACTORY;
+    private static final Method THREAD_OF_VIRTUAL;
+
+    static {
+        Method builderName = null, builderUncaughtExceptionHandler = null, builderFactory = null, threadOfVirtual = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderUncaughtExceptionHandler = builderClass.getMethod("uncaughtExceptionHandler",
+                            Thread.UncaughtExceptionHandler.class);
+            builderFactory = builderClass.getMethod("factory");
+            threadOfVirtual = Thread.class.getMethod("ofVirtual");
+        } catch (ClassNotFoundException | NoSuchMethodException e) {
+            LOGGER.log(Level.FINEST, "Virtual threads are not available", e);
+        }
+        BUILDER_NAME = builderName;
+        BUILDER_UNCAUGHT_EXCEPTION_HANDLER = builderUncaughtExceptionHandler;
+        BUILDER_FACTORY = builderFactory;
+        THREAD_OF_VIRTUAL = threadOfVirtual;
+    }
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Check if the runtime supports virtual threads, i.e., if it is Java 21 or higher.
+     *
+     * @return true if virtual threads are supported.
+     */
+    public static boolean areSupported() {
+        return THREAD_OF_VIRTUAL != null;
+    }
+
+    /**
+     * Create a factory for virtual threads.
+     *
+     * @param namePrefix the prefix of the thread names, which are suffixed by a counter.
+     * @param uncaughtExceptionHandler the handler for uncaught exceptions of the threads.
+     * @return a factory for virtual threads, or <code>null</code> if virtual threads are not supported.
+     */
+    public static ThreadFactory newThreadFactory(String namePrefix,
+                    Thread.UncaughtExceptionHandler uncaughtExceptionHandler) {
+        if (!areSupported()) {
+            return null;
+        }
+
+        try {
+            Object builder = THREAD_OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, namePrefix, 0L);
+            builder = BUILDER_UNCAUGHT_EXCEPTION_HANDLER.invoke(builder, uncaughtExceptionHandler);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.log(Level.WARNING, "Could not create virtual thread factory", e);
+            return null;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2014-2025 Florian Schmaus
+ * Copyright 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -441,9 +441,9 @@ public class XmlStringBuilder implements Appendable, CharSequence, Element {
         return this;
     }
 
-    private static final class XmlNsAttribute implements CharSequence {
-        private final String value;
-        private final String xmlFragment;
+    static final class XmlNsAttribute implements CharSequence {
+        final String value;
+        final String xmlFragment;
 
         private XmlNsAttribute(String value) {
             this.value = StringUtils.requireNotNullNorEmpty(value, "Value must not be null");
@@ -738,6 +738,17 @@ public class XmlStringBuilder implements Appendable, CharSequence, Element {
         }
     }
 
+    /**
+     * Get the fragments of this builder, which may include nested builders and namespace attributes that are only
+     * written if they differ from the effective namespace.
+     *
+     * @return the fragments of this builder.
+     * @see XmlUtf8Serializer
+     */
+    List<CharSequence> getFragments() {
+        return sb.getAsList();
+    }
+
     public List<CharSequence> toList(XmlEnvironment enclosingXmlEnvironment) {
         List<CharSequence> res = new ArrayList<>(sb.getAsList().size());
 
@@ -0,0 +1,219 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+/**
+ * Serializes the tree of fragments of an {@link XmlStringBuilder} as UTF-8 directly into {@link ByteBuffer}s. Compared
+ * to {@link XmlStringBuilder#toList(XmlEnvironment)} followed by encoding every fragment with a
+ * {@link java.nio.charset.CharsetEncoder}, this avoids the intermediate list and the per-fragment encoder setup.
+ * Namespace attributes are elided, just like {@link XmlStringBuilder#toList(XmlEnvironment)} does, if they match the
+ * effective namespace of the given enclosing {@link XmlEnvironment}.
+ * <p>
+ * Writing is resumable: if the buffer fills up, {@link #writeTo(ByteBuffer)} returns <code>false</code> and the next
+ * invocation continues where the previous one stopped. A character is never split across buffers, hence the buffers
+ * must have at least four bytes remaining. Instances are not thread-safe, but may be re-used for multiple elements
+ * via {@link #reset(CharSequence, XmlEnvironment)} without allocating.
+ * </p>
+ * <p>
+ * Unpaired surrogates are replaced by '?', like the UTF-8 {@link java.nio.charset.CharsetEncoder} with
+ * {@link java.nio.charset.CodingErrorAction#REPLACE} does.
+ * </p>
+ */
+public final class XmlUtf8Serializer {
+
+    private static final byte REPLACEMENT = '?';
+
+    private static final int SCRATCH_SIZE = 1024;
+
+    private final List<Frame> frames = new ArrayList<>();
+
+    private final byte[] scratch = new byte[SCRATCH_SIZE];
+
+    private int depth;
+
+    private CharSequence currentFragment;
+
+    private int currentFragmentIndex;
+
+    /**
+     * Reset this serializer, so that it serializes the given XML next.
+     *
+     * @param xml the XML to serialize, typically a {@link XmlStringBuilder}.
+     * @param enclosingXmlEnvironment the enclosing XML environment, may be <code>null</code>.
+     * @return a reference to this serializer.
+     */
+    public XmlUtf8Serializer reset(CharSequence xml, XmlEnvironment enclosingXmlEnvironment) {
+        depth = 0;
+        currentFragment = null;
+        currentFragmentIndex = 0;
+
+        List<CharSequence> fragments;
+        if (xml instanceof XmlStringBuilder) {
+            fragments = ((XmlStringBuilder) xml).getFragments();
+        } else {
+            fragments = Collections.singletonList(xml);
+        }
+        String effectiveNamespace = enclosingXmlEnvironment != null ? enclosingXmlEnvironment.getEffectiveNamespace() : null;
+        push(fragments, effectiveNamespace);
+        return this;
+    }
+
+    /**
+     * Check if there is data remaining to be written.
+     *
+     * @return <code>true</code> if there is data remaining.
+     */
+    public boolean hasRemaining() {
+        return currentFragment != null || depth > 0;
+    }
+
+    /**
+     * Write as much of the remaining data as fits into the given buffer.
+     *
+     * @param buffer the buffer to write to.
+     * @return <code>true</code> if all data was written, <code>false</code> if the buffer is full.
+     */
+    public boolean writeTo(ByteBuffer buffer) {
+        while (true) {
+            if (currentFragment == null && !nextFragment()) {
+                return true;
+            }
+            if (!encodeCurrentFragment(buffer)) {
+                return false;
+            }
+            currentFragment = null;
+        }
+    }
+
+    private void push(List<CharSequence> fragments, String effectiveNamespace) {
+        Frame frame;
+        if (depth < frames.size()) {
+            frame = frames.get(depth);
+        } else {
+            frame = new Frame();
+            frames.add(frame);
+        }
+        frame.fragments = fragments;
+        frame.index = 0;
+        frame.effectiveNamespace = effectiveNamespace;
+        depth++;
+    }
+
+    private boolean nextFragment() {
+        while (depth > 0) {
+            Frame frame = frames.get(depth - 1);
+            if (frame.index == frame.fragments.size()) {
+                frame.fragments = null;
+                depth--;
+                continue;
+            }
+
+            CharSequence fragment = frame.fragments.get(frame.index++);
+            if (fragment instanceof XmlStringBuilder) {
+                push(((XmlStringBuilder) fragment).getFragments(), frame.effectiveNamespace);
+                continue;
+            }
+            if (fragment instanceof XmlStringBuilder.XmlNsAttribute) {
+                XmlStringBuilder.XmlNsAttribute xmlNsAttribute = (XmlStringBuilder.XmlNsAttribute) fragment;
+                if (xmlNsAttribute.value.equals(frame.effectiveNamespace)) {
+                    continue;
+                }
+                frame.effectiveNamespace = xmlNsAttribute.value;
+                fragment = xmlNsAttribute.xmlFragment;
+            } else if (fragment instanceof LazyStringBuilder) {
+                // LazyStringBuilder.charAt() is linear in the number of its parts, toString() is cached.
+                fragment = fragment.toString();
+            }
+
+            currentFragment = fragment;
+            currentFragmentIndex = 0;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean encodeCurrentFragment(ByteBuffer buffer) {
+        final CharSequence fragment = currentFragment;
+        final int length = fragment.length();
+        final byte[] scratch = this.scratch;
+        int i = currentFragmentIndex;
+
+        // Encode into the scratch array first, since bulk copying it into the, typically direct, buffer is faster than
+        // putting every byte individually.
+        while (i < length) {
+            final int bufferRemaining = buffer.remaining();
+            final int limit = Math.min(bufferRemaining, scratch.length);
+            int pos = 0;
+            while (i < length) {
+                char c = fragment.charAt(i);
+                if (c < 0x80) {
+                    if (pos + 1 > limit) break;
+                    scratch[pos++] = (byte) c;
+                    i++;
+                } else if (c < 0x800) {
+                    if (pos + 2 > limit) break;
+                    scratch[pos++] = (byte) (0xc0 | (c >> 6));
+                    scratch[pos++] = (byte) (0x80 | (c & 0x3f));
+                    i++;
+                } else if (Character.isSurrogate(c)) {
+                    if (Character.isHighSurrogate(c) && i + 1 < length
+                                    && Character.isLowSurrogate(fragment.charAt(i + 1))) {
+                        if (pos + 4 > limit) break;
+                        int codePoint = Character.toCodePoint(c, fragment.charAt(i + 1));
+                        scratch[pos++] = (byte) (0xf0 | (codePoint >> 18));
+                        scratch[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                        scratch[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                        scratch[pos++] = (byte) (0x80 | (codePoint & 0x3f));
+                        i += 2;
+                    } else {
+                        if (pos + 1 > limit) break;
+                        scratch[pos++] = REPLACEMENT;
+                        i++;
+                    }
+                } else {
+                    if (pos + 3 > limit) break;
+                    scratch[pos++] = (byte) (0xe0 | (c >> 12));
+                    scratch[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    scratch[pos++] = (byte) (0x80 | (c & 0x3f));
+                    i++;
+                }
+            }
+
+            buffer.put(scratch, 0, pos);
+            if (limit == bufferRemaining) {
+                // The buffer is full, or the next character does not fit into its remaining bytes.
+                break;
+            }
+        }
+
+        currentFragmentIndex = i;
+        return i == length;
+    }
+
+    private static final class Frame {
+        private List<CharSequence> fragments;
+        private int index;
+        private String effectiveNamespace;
+    }
+}
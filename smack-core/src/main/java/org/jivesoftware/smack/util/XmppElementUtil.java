@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2018-2021 Florian Schmaus
+ * Copyright 2018-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,6 +24,7 @@ import java.util.logging.Logger;
 import javax.xml.namespace.QName;
 
 import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.LazyExtensionElement;
 import org.jivesoftware.smack.packet.StandardExtensionElement;
 import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.provider.ProviderManager;
@@ -82,6 +83,8 @@ public class XmppElementUtil {
             return Collections.emptyList();
         }
 
+        extensionElements = LazyExtensionElement.resolveAll(extensionElements);
+
         List<E> res = new ArrayList<>(extensionElements.size());
         for (XmlElement extensionElement : extensionElements) {
             E e = castOrThrow(extensionElement, extensionElementClass);
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2013-2020 Florian Schmaus
+ * Copyright 2013-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,11 +20,13 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.DNSUtil;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
 
 import org.minidns.dnsname.DnsName;
@@ -55,7 +57,18 @@ public abstract class DNSResolver {
     public final Collection<SRV> lookupSrvRecords(DnsName name,
                     List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         checkIfDnssecRequestedAndSupported(dnssecMode);
-        return lookupSrvRecords0(name, lookupFailures, dnssecMode);
+        DnsResolutionCache resolutionCache = DNSUtil.getResolutionCache();
+        if (resolutionCache == null) {
+            return lookupSrvRecords0(name, lookupFailures, dnssecMode);
+        }
+        return resolutionCache.lookup(this, DnsResolutionCache.LookupType.srv, name, dnssecMode, lookupFailures,
+                        failures -> {
+                            Collection<SRV> srvRecords = lookupSrvRecords0(name, failures, dnssecMode);
+                            if (srvRecords == null) {
+                                return null;
+                            }
+                            return Collections.unmodifiableCollection(srvRecords);
+                        });
     }
 
     protected abstract Collection<SRV> lookupSrvRecords0(DnsName name,
@@ -64,7 +77,31 @@ public abstract class DNSResolver {
     public final List<InetAddress> lookupHostAddress(DnsName name,
                     List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
         checkIfDnssecRequestedAndSupported(dnssecMode);
-        return lookupHostAddress0(name, lookupFailures, dnssecMode);
+        DnsResolutionCache resolutionCache = DNSUtil.getResolutionCache();
+        if (resolutionCache == null) {
+            return lookupHostAddress0(name, lookupFailures, dnssecMode);
+        }
+        return resolutionCache.lookup(this, DnsResolutionCache.LookupType.hostAddress, name, dnssecMode,
+                        lookupFailures, failures -> {
+                            List<InetAddress> hostAddresses = lookupHostAddress0(name, failures, dnssecMode);
+                            if (hostAddresses == null) {
+                                return null;
+                            }
+                            return Collections.unmodifiableList(hostAddresses);
+                        });
+    }
+
+    /**
+     * Report the time-to-live (TTL) of the resource records returned by the lookup currently performed. Resolvers
+     * should invoke this from {@link #lookupSrvRecords0(DnsName, List, DnssecMode)} and
+     * {@link #lookupHostAddress0(DnsName, List, DnssecMode)} if the TTL is known, so that the
+     * {@link DnsResolutionCache} caches the result for the right amount of time. If this is invoked multiple times
+     * during a lookup, then the smallest TTL is used.
+     *
+     * @param ttl the TTL in seconds.
+     */
+    protected static void reportTtl(long ttl) {
+        DnsResolutionCache.reportTtl(ttl);
     }
 
     /**
@@ -0,0 +1,395 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util.dns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+
+import org.minidns.dnsname.DnsName;
+
+/**
+ * A cache for the results of a {@link DNSResolver}, which is shared by all connections. Once set via
+ * {@link org.jivesoftware.smack.util.DNSUtil#setResolutionCache(DnsResolutionCache)}, the SRV and host address lookups
+ * of every resolver are served from this cache.
+ * <p>
+ * Results are cached for the time-to-live (TTL) of their resource records, if the resolver reports it via
+ * {@link DNSResolver#reportTtl(long)}, otherwise for the default TTL. Failed lookups are cached for the negative TTL,
+ * so that an unresolvable name does not cause a query for every connection attempt. If a lookup of an expired result
+ * fails, the expired result is served for up to the maximum staleness (RFC 8767). Concurrent lookups of the same name
+ * are coalesced into a single query.
+ * </p>
+ */
+public final class DnsResolutionCache {
+
+    private static final Logger LOGGER = Logger.getLogger(DnsResolutionCache.class.getName());
+
+    /**
+     * The minimum TTL reported by the resolver for the lookup currently performed by the thread, or -1 if no TTL was
+     * reported.
+     */
+    private static final ThreadLocal<long[]> REPORTED_TTL = new ThreadLocal<>();
+
+    enum LookupType {
+        srv,
+        hostAddress,
+    }
+
+    private final long defaultTtlNanos;
+    private final long minTtlNanos;
+    private final long maxTtlNanos;
+    private final long negativeTtlNanos;
+    private final long maxStaleNanos;
+    private final LongSupplier nanoTime;
+
+    private final Map<Key, CachedResult> cachedResults;
+
+    private final Map<Key, CompletableFuture<CachedResult>> inFlight = new ConcurrentHashMap<>();
+
+    private DnsResolutionCache(Builder builder) {
+        defaultTtlNanos = TimeUnit.SECONDS.toNanos(builder.defaultTtl);
+        minTtlNanos = TimeUnit.SECONDS.toNanos(builder.minTtl);
+        maxTtlNanos = TimeUnit.SECONDS.toNanos(builder.maxTtl);
+        negativeTtlNanos = TimeUnit.SECONDS.toNanos(builder.negativeTtl);
+        maxStaleNanos = TimeUnit.SECONDS.toNanos(builder.maxStale);
+        nanoTime = builder.nanoTime;
+
+        final int maxEntries = builder.maxEntries;
+        cachedResults = new LinkedHashMap<Key, CachedResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResult> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // The cached value was returned by the resolve function of a lookup with the same key, hence it is of type T.
+    @SuppressWarnings("unchecked")
+    <T> T lookup(DNSResolver resolver, LookupType lookupType, DnsName name, DnssecMode dnssecMode,
+                    List<RemoteConnectionEndpointLookupFailure> lookupFailures,
+                    Function<List<RemoteConnectionEndpointLookupFailure>, T> resolve) {
+        final Key key = new Key(resolver, lookupType, name, dnssecMode);
+
+        CachedResult cached = getCachedResult(key);
+        if (cached != null && cached.isFresh(nanoTime.getAsLong())) {
+            return (T) cached.result(lookupFailures);
+        }
+
+        CompletableFuture<CachedResult> future = new CompletableFuture<>();
+        CompletableFuture<CachedResult> existingFuture = inFlight.putIfAbsent(key, future);
+        if (existingFuture != null) {
+            // Another thread is already querying the same name, wait for its result.
+            CachedResult cachedResult;
+            try {
+                cachedResult = existingFuture.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw e;
+            }
+            return (T) cachedResult.result(lookupFailures);
+        }
+
+        try {
+            // The cachedResult may have been refreshed by a query which finished in the meantime.
+            cached = getCachedResult(key);
+            CachedResult cachedResult;
+            if (cached != null && cached.isFresh(nanoTime.getAsLong())) {
+                cachedResult = cached;
+            } else {
+                cachedResult = resolve(key, cached, resolve);
+            }
+            future.complete(cachedResult);
+            return (T) cachedResult.result(lookupFailures);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> CachedResult resolve(Key key, CachedResult stale,
+                    Function<List<RemoteConnectionEndpointLookupFailure>, T> resolve) {
+        List<RemoteConnectionEndpointLookupFailure> failures = new ArrayList<>(2);
+
+        long[] previousReportedTtl = REPORTED_TTL.get();
+        long[] reportedTtl = new long[] { -1 };
+        REPORTED_TTL.set(reportedTtl);
+        T value;
+        try {
+            value = resolve.apply(failures);
+        } finally {
+            if (previousReportedTtl == null) {
+                REPORTED_TTL.remove();
+            } else {
+                REPORTED_TTL.set(previousReportedTtl);
+            }
+        }
+
+        final long now = nanoTime.getAsLong();
+        CachedResult cachedResult;
+        if (value != null) {
+            long ttl = defaultTtlNanos;
+            if (reportedTtl[0] >= 0) {
+                ttl = Math.min(Math.max(TimeUnit.SECONDS.toNanos(reportedTtl[0]), minTtlNanos), maxTtlNanos);
+            }
+            cachedResult = new CachedResult(value, null, now + ttl, now + ttl + maxStaleNanos);
+        } else if (stale != null && stale.value != null && stale.isUsableWhenStale(now)) {
+            LOGGER.log(Level.FINE, "Lookup of " + key.name + " failed, serving stale result " + stale.value + ": "
+                            + failures);
+            // Like RFC 8767 suggests, do not retry the lookup for the negative TTL.
+            long expiresAt = Math.min(now + negativeTtlNanos, stale.staleUntil);
+            cachedResult = new CachedResult(stale.value, null, expiresAt, stale.staleUntil);
+        } else {
+            long expiresAt = now + negativeTtlNanos;
+            cachedResult = new CachedResult(null, Collections.unmodifiableList(failures), expiresAt, expiresAt);
+        }
+
+        synchronized (cachedResults) {
+            cachedResults.put(key, cachedResult);
+        }
+        return cachedResult;
+    }
+
+    private CachedResult getCachedResult(Key key) {
+        synchronized (cachedResults) {
+            return cachedResults.get(key);
+        }
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void clear() {
+        synchronized (cachedResults) {
+            cachedResults.clear();
+        }
+    }
+
+    /**
+     * Get the number of cached results, including the expired ones which have not been evicted yet.
+     *
+     * @return the number of cached results.
+     */
+    public int size() {
+        synchronized (cachedResults) {
+            return cachedResults.size();
+        }
+    }
+
+    static void reportTtl(long ttl) {
+        long[] reportedTtl = REPORTED_TTL.get();
+        if (reportedTtl == null || ttl < 0) {
+            return;
+        }
+        if (reportedTtl[0] < 0 || ttl < reportedTtl[0]) {
+            reportedTtl[0] = ttl;
+        }
+    }
+
+    private static final class Key {
+        private final DNSResolver resolver;
+        private final LookupType lookupType;
+        private final DnsName name;
+        private final DnssecMode dnssecMode;
+        private final int hashCode;
+
+        private Key(DNSResolver resolver, LookupType lookupType, DnsName name, DnssecMode dnssecMode) {
+            this.resolver = resolver;
+            this.lookupType = lookupType;
+            this.name = name;
+            this.dnssecMode = dnssecMode;
+
+            int hashCode = System.identityHashCode(resolver);
+            hashCode = 31 * hashCode + lookupType.hashCode();
+            hashCode = 31 * hashCode + name.hashCode();
+            hashCode = 31 * hashCode + dnssecMode.hashCode();
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key otherKey = (Key) other;
+            return resolver == otherKey.resolver && lookupType == otherKey.lookupType
+                            && dnssecMode == otherKey.dnssecMode && name.equals(otherKey.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class CachedResult {
+        /**
+         * The result of the lookup, or <code>null</code> if the lookup failed.
+         */
+        private final Object value;
+
+        private final List<RemoteConnectionEndpointLookupFailure> failures;
+
+        private final long expiresAt;
+
+        private final long staleUntil;
+
+        private CachedResult(Object value, List<RemoteConnectionEndpointLookupFailure> failures, long expiresAt,
+                        long staleUntil) {
+            this.value = value;
+            this.failures = failures;
+            this.expiresAt = expiresAt;
+            this.staleUntil = staleUntil;
+        }
+
+        private boolean isFresh(long now) {
+            return now - expiresAt < 0;
+        }
+
+        private boolean isUsableWhenStale(long now) {
+            return now - staleUntil < 0;
+        }
+
+        private Object result(List<RemoteConnectionEndpointLookupFailure> lookupFailures) {
+            if (value == null) {
+                lookupFailures.addAll(failures);
+            }
+            return value;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private long defaultTtl = 300;
+        private long minTtl = 0;
+        private long maxTtl = TimeUnit.DAYS.toSeconds(1);
+        private long negativeTtl = 30;
+        private long maxStale = TimeUnit.HOURS.toSeconds(1);
+        private int maxEntries = 1024;
+        private LongSupplier nanoTime = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the TTL used for results of resolvers which do not report the TTL of the resource records. Defaults to
+         * 300 seconds.
+         *
+         * @param seconds the default TTL in seconds.
+         * @return a reference to this builder.
+         */
+        public Builder setDefaultTtl(long seconds) {
+            defaultTtl = requireNonNegative(seconds);
+            return this;
+        }
+
+        /**
+         * Set the lower and upper bound for the TTL reported by the resolver. Defaults to 0 seconds and one day.
+         *
+         * @param minSeconds the minimum TTL in seconds.
+         * @param maxSeconds the maximum TTL in seconds.
+         * @return a reference to this builder.
+         */
+        public Builder setTtlBounds(long minSeconds, long maxSeconds) {
+            if (requireNonNegative(minSeconds) > requireNonNegative(maxSeconds)) {
+                throw new IllegalArgumentException("The minimum TTL must not be greater than the maximum TTL");
+            }
+            minTtl = minSeconds;
+            maxTtl = maxSeconds;
+            return this;
+        }
+
+        /**
+         * Set the time for which failed lookups are cached. Defaults to 30 seconds.
+         *
+         * @param seconds the negative TTL in seconds.
+         * @return a reference to this builder.
+         */
+        public Builder setNegativeTtl(long seconds) {
+            negativeTtl = requireNonNegative(seconds);
+            return this;
+        }
+
+        /**
+         * Set for how long after their expiry results are served if their lookup fails. Defaults to one hour. Set to
+         * 0 to never serve stale results.
+         *
+         * @param seconds the maximum staleness in seconds.
+         * @return a reference to this builder.
+         */
+        public Builder setMaxStale(long seconds) {
+            maxStale = requireNonNegative(seconds);
+            return this;
+        }
+
+        /**
+         * Set the maximum number of cached results. Defaults to 1024.
+         *
+         * @param maxEntries the maximum number of cached results.
+         * @return a reference to this builder.
+         */
+        public Builder setMaxEntries(int maxEntries) {
+            if (maxEntries < 1) {
+                throw new IllegalArgumentException("maxEntries must be positive");
+            }
+            this.maxEntries = maxEntries;
+            return this;
+        }
+
+        // For testing purposes.
+        Builder setNanoTime(LongSupplier nanoTime) {
+            this.nanoTime = nanoTime;
+            return this;
+        }
+
+        public DnsResolutionCache build() {
+            return new DnsResolutionCache(this);
+        }
+
+        private static long requireNonNegative(long seconds) {
+            if (seconds < 0) {
+                throw new IllegalArgumentException("The time must not be negative");
+            }
+            return seconds;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jivesoftware.smack.SmackConfiguration.ExecutionMode;
+import org.jivesoftware.smack.util.VirtualThreads;
+
+import org.junit.jupiter.api.Test;
+
+public class AsyncButOrderedTest {
+
+    @Test
+    public void runnablesOfTheSameKeyAreRunInOrder() throws InterruptedException {
+        final int keyCount = 100;
+        final int runnablesPerKey = 200;
+        final int producerCount = 4;
+
+        AsyncButOrdered<Integer> asyncButOrdered = new AsyncButOrdered<>();
+        List<List<Integer>> results = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            results.add(new ArrayList<>(runnablesPerKey));
+        }
+        AtomicInteger concurrentRunnablesOfSameKey = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(keyCount * runnablesPerKey);
+
+        // Every producer submits the runnables for its own set of keys, as the order is only defined per submitting
+        // thread.
+        ExecutorService producers = Executors.newFixedThreadPool(producerCount);
+        for (int p = 0; p < producerCount; p++) {
+            final int producer = p;
+            producers.execute(() -> {
+                for (int i = 0; i < runnablesPerKey; i++) {
+                    for (int key = producer; key < keyCount; key += producerCount) {
+                        final List<Integer> result = results.get(key);
+                        final int value = i;
+                        asyncButOrdered.performAsyncButOrdered(key, () -> {
+                            // The handler of a key must not run concurrently to another one of the same key.
+                            synchronized (result) {
+                                if (result.size() != value) {
+                                    concurrentRunnablesOfSameKey.incrementAndGet();
+                                }
+                                result.add(value);
+                            }
+                            done.countDown();
+                        });
+                    }
+                }
+            });
+        }
+        producers.shutdown();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(0, concurrentRunnablesOfSameKey.get());
+        for (List<Integer> result : results) {
+            for (int i = 0; i < runnablesPerKey; i++) {
+                assertEquals(i, result.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void throwingRunnableDoesNotStallKey() throws InterruptedException {
+        AsyncButOrdered<String> asyncButOrdered = new AsyncButOrdered<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        assertTrue(asyncButOrdered.performAsyncButOrdered("key", () -> {
+            throw new IllegalStateException("Expected by test");
+        }));
+        asyncButOrdered.performAsyncButOrdered("key", done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void virtualThreadsExecutionMode() throws InterruptedException {
+        assertEquals(VirtualThreads.areSupported(), SmackConfiguration.setExecutionMode(ExecutionMode.virtualThreads));
+        try {
+            AsyncButOrdered<String> asyncButOrdered = new AsyncButOrdered<>();
+            CountDownLatch done = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>(1);
+            asyncButOrdered.performAsyncButOrdered("key", () -> {
+                threads.add(Thread.currentThread());
+                done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            // Platform threads of the cached executor are named "Smack Cached Executor".
+            boolean runOnPlatformThread = threads.get(0).getName().equals("Smack Cached Executor");
+            assertEquals(VirtualThreads.areSupported(), !runOnPlatformThread);
+        } finally {
+            SmackConfiguration.setExecutionMode(ExecutionMode.platformThreads);
+        }
+        assertFalse(SmackConfiguration.getExecutionMode() == ExecutionMode.virtualThreads);
+    }
+}
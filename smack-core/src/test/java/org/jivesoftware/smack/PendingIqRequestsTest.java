@@ -0,0 +1,107 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.packet.TestIQ;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.JidTestUtil;
+
+public class PendingIqRequestsTest {
+
+    @Test
+    public void asyncRequestIsCompletedByResponse() throws Exception {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        TestIQ request = new TestIQ();
+
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request);
+        assertEquals(1, connection.getPendingIqRequestCount());
+
+        IQ response = IQ.createResultIQ(request);
+        connection.processStanza(response);
+
+        assertSame(response, future.getOrThrow());
+        assertEquals(0, connection.getPendingIqRequestCount());
+    }
+
+    @Test
+    public void asyncRequestIsCompletedByErrorResponse() throws Exception {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        TestIQ request = new TestIQ();
+
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request);
+        connection.processStanza(IQ.createErrorResponse(request, StanzaError.Condition.item_not_found));
+
+        assertThrows(XMPPErrorException.class, future::getOrThrow);
+    }
+
+    @Test
+    public void spoofedResponseIsIgnored() throws Exception {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        TestIQ request = new TestIQ();
+
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request);
+
+        IQ spoofedResponse = IQ.createResultIQ(request);
+        spoofedResponse.setFrom(JidTestUtil.FULL_JID_2_RESOURCE_1);
+        connection.processStanza(spoofedResponse);
+
+        assertFalse(future.isDone());
+        assertEquals(1, connection.getPendingIqRequestCount());
+    }
+
+    @Test
+    public void asyncRequestTimesOut() throws Exception {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        TestIQ request = new TestIQ();
+
+        SmackFuture<IQ, Exception> future = connection.sendIqRequestAsync(request, 200);
+
+        assertThrows(NoResponseException.class, future::getOrThrow);
+        assertEquals(0, connection.getPendingIqRequestCount());
+    }
+
+    @Test
+    public void collectorReceivesResponseAndIsRemovedOnCancel() throws Exception {
+        DummyConnection connection = DummyConnection.newConnectedDummyConnection();
+        TestIQ request = new TestIQ();
+
+        StanzaCollector collector = connection.createStanzaCollectorAndSend(request);
+        assertEquals(1, connection.getPendingIqRequestCount());
+
+        IQ response = IQ.createResultIQ(request);
+        connection.processStanza(response);
+        assertSame(response, collector.pollResult());
+        assertEquals(0, connection.getPendingIqRequestCount());
+
+        TestIQ otherRequest = new TestIQ();
+        otherRequest.setStanzaId("43");
+        StanzaCollector otherCollector = connection.createStanzaCollectorAndSend(otherRequest);
+        assertEquals(1, connection.getPendingIqRequestCount());
+        otherCollector.cancel();
+        assertEquals(0, connection.getPendingIqRequestCount());
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.nio.channels.SelectionKey;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class SmackReactorShardingTest {
+
+    private final SmackReactor reactor = new SmackReactor("ShardingTest");
+
+    @Test
+    public void channelIsPinnedToShard() throws IOException, InterruptedException {
+        reactor.setShardCount(2);
+        assertEquals(2, reactor.getShardCount());
+        assertThrows(IllegalArgumentException.class, () -> reactor.setShardCount(1));
+
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        BlockingQueue<Thread> callbackThreads = new LinkedBlockingQueue<>();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        SelectionKey selectionKey = reactor.registerWithSelector(pipe.source(), SelectionKey.OP_READ, (channel, key) -> {
+            callbackThreads.add(Thread.currentThread());
+            try {
+                buffer.clear();
+                pipe.source().read(buffer);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            // Invoked by the shard's thread, hence the interest ops are set directly.
+            reactor.setInterestOps(key, SelectionKey.OP_READ);
+        });
+
+        pipe.sink().write(ByteBuffer.wrap(new byte[] { 1 }));
+        Thread firstCallbackThread = callbackThreads.poll(5, TimeUnit.SECONDS);
+        assertNotNull(firstCallbackThread);
+        assertTrue(firstCallbackThread.getName().contains("Shard"), firstCallbackThread.getName());
+
+        pipe.sink().write(ByteBuffer.wrap(new byte[] { 2 }));
+        assertEquals(firstCallbackThread, callbackThreads.poll(5, TimeUnit.SECONDS));
+
+        // Interest ops changes of other threads are handed over to the shard.
+        reactor.setInterestOps(selectionKey, 0);
+        // Wait until the shard applied the change.
+        Thread.sleep(100);
+        pipe.sink().write(ByteBuffer.wrap(new byte[] { 3 }));
+        assertNull(callbackThreads.poll(200, TimeUnit.MILLISECONDS));
+
+        reactor.setInterestOps(selectionKey, SelectionKey.OP_READ);
+        assertEquals(firstCallbackThread, callbackThreads.poll(5, TimeUnit.SECONDS));
+
+        selectionKey.cancel();
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    @Test
+    public void scheduledActionsRunInOrderOnShard() throws InterruptedException {
+        reactor.setShardCount(1);
+
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        reactor.schedule(() -> {
+            order.add(3);
+            done.countDown();
+        }, 90, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+        reactor.schedule(() -> {
+            order.add(1);
+            done.countDown();
+        }, 30, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+        reactor.schedule(() -> {
+            order.add(2);
+            done.countDown();
+        }, 60, TimeUnit.MILLISECONDS, ScheduledAction.Kind.NonBlocking);
+        ScheduledAction cancelled = reactor.schedule(() -> order.add(-1), 10, TimeUnit.MILLISECONDS,
+                        ScheduledAction.Kind.NonBlocking);
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), order);
+
+        CountDownLatch run = new CountDownLatch(1);
+        ScheduledAction scheduledAction = reactor.schedule(run::countDown, 0, TimeUnit.MILLISECONDS,
+                        ScheduledAction.Kind.NonBlocking);
+        assertTrue(run.await(5, TimeUnit.SECONDS));
+        // An action which already ran can not be cancelled.
+        assertFalse(scheduledAction.cancel());
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressionLevelPolicyTest {
+
+    private static final int WINDOW = 1000;
+
+    private static CompressionLevelPolicy.Builder adaptive() {
+        return CompressionLevelPolicy.builder()
+                        .setLevels(1, 9)
+                        .setInitialLevel(5)
+                        .setMaxNanosPerByte(10)
+                        .setMinRatioImprovement(0.01)
+                        .setWindowBytes(WINDOW);
+    }
+
+    @Test
+    public void fixedPolicyNeverChangesLevel() {
+        CompressionLevelPolicy.Controller controller = CompressionLevelPolicy.fixed(3).newController();
+        for (int i = 0; i < 100; i++) {
+            assertFalse(controller.record(WINDOW, 10, Long.MAX_VALUE / 1000));
+        }
+        assertEquals(3, controller.getLevel());
+        assertEquals(0, controller.getLevelChanges());
+    }
+
+    @Test
+    public void levelIsOnlyReevaluatedAfterWindow() {
+        CompressionLevelPolicy.Controller controller = adaptive().build().newController();
+        assertFalse(controller.record(WINDOW - 1, 100, 0));
+        assertTrue(controller.record(1, 0, 0));
+        assertEquals(6, controller.getLevel());
+    }
+
+    @Test
+    public void levelIsLoweredIfCpuBudgetIsExceeded() {
+        CompressionLevelPolicy.Controller controller = adaptive().build().newController();
+        assertTrue(controller.record(WINDOW, 100, 11 * WINDOW));
+        assertEquals(4, controller.getLevel());
+
+        // The too expensive level is not probed again right away.
+        assertFalse(controller.record(WINDOW, 100, 0));
+        assertEquals(4, controller.getLevel());
+    }
+
+    @Test
+    public void increaseWithoutRatioImprovementIsReverted() {
+        CompressionLevelPolicy.Controller controller = adaptive().build().newController();
+        // Level 5 achieves a ratio of 0.5, hence level 6 is probed next.
+        assertTrue(controller.record(WINDOW, 500, 0));
+        assertEquals(6, controller.getLevel());
+
+        // Level 6 does not improve the ratio enough.
+        assertTrue(controller.record(WINDOW, 495, 0));
+        assertEquals(5, controller.getLevel());
+
+        for (int i = 0; i < CompressionLevelPolicy.REPROBE_WINDOWS - 1; i++) {
+            assertFalse(controller.record(WINDOW, 495, 0));
+        }
+        // Eventually, the higher level is probed again.
+        assertTrue(controller.record(WINDOW, 495, 0));
+        assertEquals(6, controller.getLevel());
+    }
+
+    @Test
+    public void levelIsIncreasedWhileRatioImproves() {
+        CompressionLevelPolicy.Controller controller = adaptive().build().newController();
+        int out = 500;
+        while (controller.getLevel() < 9) {
+            assertTrue(controller.record(WINDOW, out, 0));
+            out -= 50;
+        }
+        assertFalse(controller.record(WINDOW, out - 50, 0));
+        assertEquals(9, controller.getLevel());
+        assertEquals(4, controller.getLevelChanges());
+    }
+
+    @Test
+    public void initialLevelMustBeWithinRange() {
+        assertThrows(IllegalArgumentException.class, () -> adaptive().setLevels(6, 9).setInitialLevel(5).build());
+        assertThrows(IllegalArgumentException.class, () -> CompressionLevelPolicy.fixed(10));
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.compression.zlib;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.jivesoftware.smack.XmppInputOutputFilter;
+import org.jivesoftware.smack.compression.CompressionLevelPolicy;
+import org.jivesoftware.smack.compression.CompressionStats;
+
+import org.junit.jupiter.api.Test;
+
+public class ZlibXmppCompressionFactoryTest {
+
+    private static final String STANZA = "<message to='juliet@example.org' from='romeo@example.net/orchard'>"
+                    + "<body>Neither, fair saint, if either thee dislike.</body></message>";
+
+    private static String roundTrip(XmppInputOutputFilter compressor, XmppInputOutputFilter decompressor,
+                    ByteBuffer data) throws IOException {
+        ByteBuffer compressed = compressor.output(data, true, false, false).filteredOutputData;
+        ((java.nio.Buffer) compressed).flip();
+
+        ByteBuffer decompressed = decompressor.input(compressed);
+        ((java.nio.Buffer) decompressed).flip();
+        // Consume the buffers, like the transport would.
+        ((java.nio.Buffer) compressed).position(compressed.limit());
+        return StandardCharsets.UTF_8.decode(decompressed).toString();
+    }
+
+    @Test
+    public void roundTripReusesBuffers() throws IOException {
+        XmppInputOutputFilter compressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null);
+        XmppInputOutputFilter decompressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null);
+
+        assertEquals(STANZA, roundTrip(compressor, decompressor, ByteBuffer.wrap(STANZA.getBytes(StandardCharsets.UTF_8))));
+        long compressorAllocations = ((CompressionStats) compressor.getStats()).bufferAllocations;
+        long decompressorAllocations = ((CompressionStats) decompressor.getStats()).bufferAllocations;
+
+        for (int i = 0; i < 100; i++) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(STANZA.length());
+            direct.put(STANZA.getBytes(StandardCharsets.UTF_8));
+            ((java.nio.Buffer) direct).flip();
+            assertEquals(STANZA, roundTrip(compressor, decompressor, direct));
+        }
+
+        // Only the scratch array for the direct input buffers should have been allocated.
+        CompressionStats stats = (CompressionStats) compressor.getStats();
+        assertEquals(compressorAllocations + 1, stats.bufferAllocations);
+        assertEquals(decompressorAllocations, ((CompressionStats) decompressor.getStats()).bufferAllocations);
+        assertEquals(101L * STANZA.length(), stats.compressorInBytes);
+        assertTrue(stats.compressionRatio < 1);
+    }
+
+    @Test
+    public void inputBufferWithOffsetIsHandled() throws IOException {
+        XmppInputOutputFilter compressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null);
+        XmppInputOutputFilter decompressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null);
+
+        byte[] bytes = ("garbage" + STANZA).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.wrap(bytes, 7, bytes.length - 7).slice();
+        assertEquals(STANZA, roundTrip(compressor, decompressor, data));
+    }
+
+    @Test
+    public void adaptiveLevelIsApplied() throws IOException {
+        CompressionLevelPolicy policy = CompressionLevelPolicy.builder()
+                        .setLevels(1, 9)
+                        .setInitialLevel(1)
+                        .setMaxNanosPerByte(Long.MAX_VALUE)
+                        .setMinRatioImprovement(0)
+                        .setWindowBytes(STANZA.length())
+                        .build();
+        XmppInputOutputFilter compressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null, policy);
+        XmppInputOutputFilter decompressor = ZlibXmppCompressionFactory.INSTANCE.fabricate(null);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(STANZA, roundTrip(compressor, decompressor, ByteBuffer.wrap(STANZA.getBytes(StandardCharsets.UTF_8))));
+        }
+
+        CompressionStats stats = (CompressionStats) compressor.getStats();
+        assertTrue(stats.compressionLevelChanges > 0);
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.JidTestUtil;
+
+public class StanzaFilterIndexTest {
+
+    private static final StandardExtensionElement EXTENSION_ELEMENT = StandardExtensionElement.builder("test",
+                    "urn:example:test").build();
+
+    private static List<String> candidatesFor(StanzaFilterIndex<String, String> index, Stanza stanza) {
+        List<String> candidates = new ArrayList<>();
+        index.addCandidatesFor(stanza, candidates);
+        return candidates;
+    }
+
+    @Test
+    public void keyedFiltersAreOnlyCandidatesForMatchingStanzas() {
+        StanzaFilterIndex<String, String> index = new StanzaFilterIndex<>();
+        index.put("id", new StanzaIdFilter("id-1"), "id");
+        index.put("from", FromMatchesFilter.create(JidTestUtil.FULL_JID_1_RESOURCE_1), "from");
+        index.put("extension", new StanzaExtensionFilter("test", "urn:example:test"), "extension");
+        index.put("type", StanzaTypeFilter.PRESENCE, "type");
+
+        Stanza unrelatedMessage = StanzaBuilder.buildMessage("id-2").from(JidTestUtil.FULL_JID_2_RESOURCE_1).build();
+        assertEquals(Collections.emptyList(), candidatesFor(index, unrelatedMessage));
+
+        Stanza matchingMessage = StanzaBuilder.buildMessage("id-1")
+                        .from(JidTestUtil.FULL_JID_1_RESOURCE_2)
+                        .addExtension(EXTENSION_ELEMENT)
+                        .build();
+        assertEquals(Arrays.asList("id", "from", "extension"), candidatesFor(index, matchingMessage));
+
+        Stanza presence = StanzaBuilder.buildPresence("id-3").build();
+        assertEquals(Collections.singletonList("type"), candidatesFor(index, presence));
+    }
+
+    @Test
+    public void unkeyedFiltersAreAlwaysCandidates() {
+        StanzaFilterIndex<String, String> index = new StanzaFilterIndex<>();
+        index.put("null", null, "null");
+        index.put("or", new OrFilter(new StanzaIdFilter("id-1"), new StanzaIdFilter("id-2")), "or");
+        index.put("child-of-domain", FromMatchesFilter.createStrictChildOf(JidTestUtil.EXAMPLE_ORG), "child-of-domain");
+        assertEquals(3, index.getUnkeyedCount());
+
+        Stanza message = StanzaBuilder.buildMessage("id-3").build();
+        assertEquals(Arrays.asList("null", "or", "child-of-domain"), candidatesFor(index, message));
+    }
+
+    @Test
+    public void candidatesAreInInsertionOrder() {
+        StanzaFilterIndex<String, String> index = new StanzaFilterIndex<>();
+        index.put("a", StanzaTypeFilter.MESSAGE, "a");
+        index.put("b", null, "b");
+        index.put("c", new StanzaIdFilter("id-1"), "c");
+        index.put("d", StanzaTypeFilter.MESSAGE, "d");
+        // Replacing a value keeps its position.
+        index.put("a", new StanzaIdFilter("id-1"), "a2");
+
+        Stanza message = StanzaBuilder.buildMessage("id-1").build();
+        assertEquals(Arrays.asList("a2", "b", "c", "d"), candidatesFor(index, message));
+    }
+
+    @Test
+    public void removedValuesAreNoCandidates() {
+        StanzaFilterIndex<String, String> index = new StanzaFilterIndex<>();
+        index.put("a", new StanzaIdFilter("id-1"), "a");
+        index.put("b", new StanzaIdFilter("id-1"), "b");
+
+        assertEquals("a", index.remove("a"));
+        assertNull(index.remove("a"));
+
+        Stanza message = StanzaBuilder.buildMessage("id-1").build();
+        assertEquals(Collections.singletonList("b"), candidatesFor(index, message));
+
+        index.remove("b");
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void andFilterUsesMostSelectiveKey() {
+        AndFilter andFilter = new AndFilter(MessageTypeFilter.CHAT, StanzaTypeFilter.MESSAGE,
+                        new StanzaIdFilter("id-1"));
+        assertEquals(StanzaFilterKey.forStanzaId("id-1"), andFilter.getStanzaFilterKey());
+
+        AndFilter andFilterWithoutKey = new AndFilter(new NotFilter(StanzaTypeFilter.MESSAGE));
+        assertNull(andFilterWithoutKey.getStanzaFilterKey());
+    }
+
+    @Test
+    public void typeFiltersAreKeyedByTopLevelStanzaType() {
+        assertEquals(StanzaFilterKey.forStanzaType(Message.class), StanzaFilterKey.of(MessageTypeFilter.CHAT));
+        assertNull(new StanzaTypeFilter(Stanza.class).getStanzaFilterKey());
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.initializer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jivesoftware.smack.util.FileUtils;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.junit.jupiter.api.Test;
+
+public class GeneratedRegistryTest {
+
+    @Test
+    public void registryClassNameTest() {
+        assertEquals("org.jivesoftware.smack.extensions.ExtensionsProvidersRegistry",
+                        GeneratedRegistry.getRegistryClassName("org.jivesoftware.smack.extensions/extensions.providers"));
+        assertEquals("org.jivesoftware.smack.SmackConfigXmlRegistry",
+                        GeneratedRegistry.getRegistryClassName("org.jivesoftware.smack/smack-config.xml"));
+        assertNull(GeneratedRegistry.getRegistryClassName("test.providers"));
+        assertNull(GeneratedRegistry.getRegistryClassName("org/jivesoftware/test.providers"));
+    }
+
+    @Test
+    public void generatedConfigMatchesConfigFile() throws Exception {
+        final String configFile = "org.jivesoftware.smack/smack-config.xml";
+        GeneratedRegistry registry = GeneratedRegistry.forClasspathFile(configFile,
+                        GeneratedRegistryTest.class.getClassLoader());
+        assertNotNull(registry);
+        assertTrue(registry.getIQProviderInfo().isEmpty());
+
+        List<String> startupClasses = new ArrayList<>();
+        List<String> optionalStartupClasses = new ArrayList<>();
+        try (InputStream is = FileUtils.getStreamForClasspathFile(configFile, null)) {
+            XmlPullParser parser = PacketParserUtils.getParserFor(is);
+            List<String> current = null;
+            while (parser.next() != XmlPullParser.Event.END_DOCUMENT) {
+                if (parser.getEventType() != XmlPullParser.Event.START_ELEMENT) {
+                    continue;
+                }
+                switch (parser.getName()) {
+                case "startupClasses":
+                    current = startupClasses;
+                    break;
+                case "optionalStartupClasses":
+                    current = optionalStartupClasses;
+                    break;
+                case "className":
+                    current.add(parser.nextText());
+                    break;
+                }
+            }
+        }
+
+        assertEquals(startupClasses, registry.getStartupClasses());
+        assertEquals(optionalStartupClasses, registry.getOptionalStartupClasses());
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.SmackConfiguration;
+import org.jivesoftware.smack.provider.ExtensionElementProvider;
+import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.JxmppContext;
+
+public class LazyExtensionElementTest {
+
+    private static final String TEST_EXTENSION = "<test xmlns='urn:example:test' value='foo'/>";
+
+    private static final String UNKNOWN_EXTENSION = "<unknown xmlns='urn:example:unknown'><child>text</child></unknown>";
+
+    private static final String MESSAGE = "<message xmlns='jabber:client' from='juliet@example.org/balcony' id='1'>"
+                    + "<body>Hello</body>"
+                    + TEST_EXTENSION
+                    + UNKNOWN_EXTENSION
+                    + "</message>";
+
+    private final AtomicInteger parseCount = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        ProviderManager.addExtensionProvider(TestExtension.ELEMENT, TestExtension.NAMESPACE, new TestExtensionProvider());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ProviderManager.removeExtensionProvider(TestExtension.ELEMENT, TestExtension.NAMESPACE);
+        SmackConfiguration.setLazyExtensionElementParsing(false);
+    }
+
+    @Test
+    public void extensionIsParsedOnFirstAccess() throws Exception {
+        SmackConfiguration.setLazyExtensionElementParsing(true);
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        // Elements of the stanza's namespace are parsed right away.
+        assertEquals("Hello", message.getBody());
+        assertEquals(0, parseCount.get());
+
+        List<XmlElement> extensions = message.getExtensions();
+        assertEquals(3, extensions.size());
+        LazyExtensionElement lazyTestExtension = (LazyExtensionElement) extensions.get(1);
+        assertEquals(TestExtension.QNAME, lazyTestExtension.getQName());
+        assertFalse(lazyTestExtension.isParsed());
+        assertTrue(message.hasExtension(TestExtension.QNAME));
+        assertEquals(0, parseCount.get());
+
+        TestExtension testExtension = message.getExtension(TestExtension.class);
+        assertNotNull(testExtension);
+        assertEquals("foo", testExtension.value);
+        assertEquals(1, parseCount.get());
+        assertTrue(lazyTestExtension.isParsed());
+
+        assertSame(testExtension, message.getExtension(TestExtension.QNAME));
+        assertSame(testExtension, message.getExtensions(TestExtension.class).get(0));
+        assertEquals(1, parseCount.get());
+
+        XmlElement unknownExtension = message.getExtension(new QName("urn:example:unknown", "unknown"));
+        assertInstanceOf(StandardExtensionElement.class, unknownExtension);
+        assertEquals("text", ((StandardExtensionElement) unknownExtension).getFirstElement("child").getText());
+    }
+
+    @Test
+    public void rawXmlIsReEmittedVerbatim() throws Exception {
+        SmackConfiguration.setLazyExtensionElementParsing(true);
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+
+        Message forwarded = message.asBuilder().to("romeo@example.org").build();
+        String xml = forwarded.toXML().toString();
+        for (XmlElement extension : message.getExtensions()) {
+            if (extension instanceof LazyExtensionElement) {
+                String rawXml = ((LazyExtensionElement) extension).getRawXml();
+                assertTrue(xml.contains(rawXml), xml);
+            }
+        }
+        assertEquals(0, parseCount.get());
+
+        Message reparsed = PacketParserUtils.parseStanza(xml);
+        assertEquals("foo", reparsed.getExtension(TestExtension.class).value);
+    }
+
+    @Test
+    public void extensionsAreParsedEagerlyByDefault() throws Exception {
+        Message message = PacketParserUtils.parseStanza(MESSAGE);
+        assertEquals(1, parseCount.get());
+        for (XmlElement extension : message.getExtensions()) {
+            assertFalse(extension instanceof LazyExtensionElement);
+        }
+    }
+
+    public static final class TestExtension implements ExtensionElement {
+        public static final String ELEMENT = "test";
+        public static final String NAMESPACE = "urn:example:test";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
+
+        private final String value;
+
+        private TestExtension(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getElementName() {
+            return ELEMENT;
+        }
+
+        @Override
+        public String getNamespace() {
+            return NAMESPACE;
+        }
+
+        @Override
+        public XmlStringBuilder toXML(XmlEnvironment xmlEnvironment) {
+            XmlStringBuilder xml = new XmlStringBuilder(this, xmlEnvironment);
+            xml.attribute("value", value);
+            return xml.closeEmptyElement();
+        }
+    }
+
+    private final class TestExtensionProvider extends ExtensionElementProvider<TestExtension> {
+        @Override
+        public TestExtension parse(XmlPullParser parser, int initialDepth, XmlEnvironment xmlEnvironment,
+                        JxmppContext jxmppContext) throws XmlPullParserException, IOException {
+            parseCount.incrementAndGet();
+            return new TestExtension(parser.getAttributeValue("value"));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.packet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class StanzaExtensionsTest {
+
+    private static XmlElement element(String name) {
+        return StandardExtensionElement.builder(name, "urn:example:" + name).build();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, StanzaExtensions.HASH_INDEX_THRESHOLD, 3 * StanzaExtensions.HASH_INDEX_THRESHOLD })
+    public void elementsOfTheSameNameAreAdjacent(int elementCount) {
+        StanzaExtensions.Builder builder = new StanzaExtensions.Builder();
+        List<XmlElement> as = new ArrayList<>();
+        for (int i = 0; i < elementCount; i++) {
+            XmlElement a = element("a");
+            as.add(a);
+            builder.add(a);
+            builder.add(element("b" + i));
+        }
+        StanzaExtensions stanzaExtensions = builder.build();
+
+        QName a = new QName("urn:example:a", "a");
+        assertEquals(2 * elementCount, stanzaExtensions.size());
+        assertEquals(as, stanzaExtensions.values().subList(0, elementCount));
+        assertEquals(as, stanzaExtensions.getAll(a));
+        assertSame(as.get(0), stanzaExtensions.getFirst(a));
+
+        QName lastB = new QName("urn:example:b" + (elementCount - 1), "b" + (elementCount - 1));
+        assertTrue(stanzaExtensions.containsKey(lastB));
+        assertEquals(1, stanzaExtensions.getAll(lastB).size());
+        assertFalse(stanzaExtensions.containsKey(new QName("urn:example:c", "c")));
+        assertTrue(stanzaExtensions.getAll(new QName("urn:example:c", "c")).isEmpty());
+
+        StanzaExtensions withoutA = stanzaExtensions.without(a);
+        assertEquals(elementCount, withoutA.size());
+        assertNull(withoutA.getFirst(a));
+        assertEquals(2 * elementCount, stanzaExtensions.size());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 2 * StanzaExtensions.HASH_INDEX_THRESHOLD })
+    public void builderCopiesOnWrite(int elementCount) {
+        StanzaExtensions.Builder builder = new StanzaExtensions.Builder();
+        for (int i = 0; i < elementCount; i++) {
+            builder.add(element("e" + i));
+        }
+        StanzaExtensions first = builder.build();
+
+        XmlElement added = element("added");
+        builder.add(added);
+        StanzaExtensions second = builder.build();
+        assertEquals(elementCount, first.size());
+        assertFalse(first.containsKey(added.getQName()));
+        assertEquals(elementCount + 1, second.size());
+
+        StanzaExtensions.Builder derived = new StanzaExtensions.Builder(second);
+        derived.removeAll(added.getQName());
+        derived.override(element("e0"));
+        StanzaExtensions third = derived.build();
+        assertTrue(second.containsKey(added.getQName()));
+        assertFalse(third.containsKey(added.getQName()));
+        assertEquals(elementCount, third.size());
+        assertEquals(new QName("urn:example:e0", "e0"), third.values().get(elementCount - 1).getQName());
+    }
+}
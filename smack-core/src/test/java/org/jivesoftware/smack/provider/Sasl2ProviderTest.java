@@ -0,0 +1,160 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.provider;
+
+import static org.jivesoftware.smack.test.util.XmlAssertUtil.assertXmlSimilar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jivesoftware.smack.bind2.packet.BindFeature;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.bind2.provider.BindFeatureProvider;
+import org.jivesoftware.smack.bind2.provider.BoundProvider;
+import org.jivesoftware.smack.fast.packet.FastFeature;
+import org.jivesoftware.smack.fast.packet.Token;
+import org.jivesoftware.smack.fast.provider.FastFeatureProvider;
+import org.jivesoftware.smack.fast.provider.TokenProvider;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.sasl.SASLError;
+import org.jivesoftware.smack.sasl.packet.Sasl2AuthenticationFeature;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.test.util.SmackTestUtil;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+public class Sasl2ProviderTest {
+
+    @BeforeAll
+    public static void registerBind2Providers() {
+        ProviderManager.addExtensionProvider(BindFeature.ELEMENT, BindFeature.NAMESPACE, BindFeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Bound.ELEMENT, Bound.NAMESPACE, BoundProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(FastFeature.ELEMENT, FastFeature.NAMESPACE, FastFeatureProvider.INSTANCE);
+        ProviderManager.addExtensionProvider(Token.ELEMENT, Token.NAMESPACE, TokenProvider.INSTANCE);
+    }
+
+    @AfterAll
+    public static void removeBind2Providers() {
+        ProviderManager.removeExtensionProvider(BindFeature.ELEMENT, BindFeature.NAMESPACE);
+        ProviderManager.removeExtensionProvider(Bound.ELEMENT, Bound.NAMESPACE);
+        ProviderManager.removeExtensionProvider(FastFeature.ELEMENT, FastFeature.NAMESPACE);
+        ProviderManager.removeExtensionProvider(Token.ELEMENT, Token.NAMESPACE);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseAuthenticationFeature(SmackTestUtil.XmlPullParserKind parserKind) throws Exception {
+        final String featureString = "<authentication xmlns='urn:xmpp:sasl:2'>"
+                        + "<mechanism>SCRAM-SHA-1</mechanism>"
+                        + "<mechanism>PLAIN</mechanism>"
+                        + "<inline>"
+                        + "<sm xmlns='urn:xmpp:sm:3'/>"
+                        + "<bind xmlns='urn:xmpp:bind:0'><inline>"
+                        + "<feature var='urn:xmpp:carbons:2'/><feature var='urn:xmpp:csi:0'/>"
+                        + "</inline></bind>"
+                        + "</inline>"
+                        + "</authentication>";
+        Sasl2AuthenticationFeature feature = SmackTestUtil.parse(featureString,
+                        Sasl2AuthenticationFeatureProvider.INSTANCE, parserKind);
+
+        assertEquals(Arrays.asList("SCRAM-SHA-1", "PLAIN"), feature.getMechanisms());
+        assertEquals(2, feature.getInlineFeatures().size());
+
+        BindFeature bindFeature = feature.getInlineFeature(BindFeature.class);
+        assertNotNull(bindFeature);
+        assertTrue(bindFeature.supportsInlineFeature("urn:xmpp:carbons:2"));
+        assertTrue(bindFeature.supportsInlineFeature("urn:xmpp:csi:0"));
+
+        assertXmlSimilar(featureString, feature.toXML(StreamOpen.CLIENT_NAMESPACE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseSuccessWithBound(SmackTestUtil.XmlPullParserKind parserKind) throws Exception {
+        final String successString = "<success xmlns='urn:xmpp:sasl:2'>"
+                        + "<additional-data>ba9c</additional-data>"
+                        + "<authorization-identifier>user@example.org/mobile-1234</authorization-identifier>"
+                        + "<bound xmlns='urn:xmpp:bind:0'><enabled xmlns='urn:example:inline'/></bound>"
+                        + "</success>";
+        Sasl2Nonza.Success success = SmackTestUtil.parse(successString, Sasl2SuccessProvider.INSTANCE, parserKind);
+
+        assertEquals("ba9c", success.getAdditionalData());
+        assertEquals("user@example.org/mobile-1234", success.getAuthorizationIdentifier());
+        Bound bound = success.getInlineResult(Bound.class);
+        assertNotNull(bound);
+        assertEquals(1, bound.getInlineResults().size());
+
+        assertXmlSimilar(successString, success.toXML(StreamOpen.CLIENT_NAMESPACE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseAuthenticationFeatureWithFast(SmackTestUtil.XmlPullParserKind parserKind) throws Exception {
+        final String featureString = "<authentication xmlns='urn:xmpp:sasl:2'>"
+                        + "<mechanism>SCRAM-SHA-1</mechanism>"
+                        + "<mechanism>HT-SHA-256-NONE</mechanism>"
+                        + "<inline>"
+                        + "<fast xmlns='urn:xmpp:fast:0'><mechanism>HT-SHA-256-NONE</mechanism></fast>"
+                        + "</inline>"
+                        + "</authentication>";
+        Sasl2AuthenticationFeature feature = SmackTestUtil.parse(featureString,
+                        Sasl2AuthenticationFeatureProvider.INSTANCE, parserKind);
+
+        FastFeature fastFeature = feature.getInlineFeature(FastFeature.class);
+        assertNotNull(fastFeature);
+        assertEquals(Collections.singleton("HT-SHA-256-NONE"), fastFeature.getMechanisms());
+
+        assertXmlSimilar(featureString, feature.toXML(StreamOpen.CLIENT_NAMESPACE));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseSuccessWithToken(SmackTestUtil.XmlPullParserKind parserKind) throws Exception {
+        final String successString = "<success xmlns='urn:xmpp:sasl:2'>"
+                        + "<authorization-identifier>user@example.org/mobile-1234</authorization-identifier>"
+                        + "<token xmlns='urn:xmpp:fast:0' expiry='2026-03-12T14:36:15Z' token='WxPRdDRhT6Fh2ln3ykUWVUvSbF8'/>"
+                        + "</success>";
+        Sasl2Nonza.Success success = SmackTestUtil.parse(successString, Sasl2SuccessProvider.INSTANCE, parserKind);
+
+        Token token = success.getInlineResult(Token.class);
+        assertNotNull(token);
+        assertEquals("WxPRdDRhT6Fh2ln3ykUWVUvSbF8", token.getToken());
+        assertNotNull(token.getExpiry());
+        assertNull(success.getInlineResult(Bound.class));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parseFailure(SmackTestUtil.XmlPullParserKind parserKind) throws Exception {
+        final String failureString = "<failure xmlns='urn:xmpp:sasl:2'>"
+                        + "<not-authorized xmlns='urn:ietf:params:xml:ns:xmpp-sasl'/>"
+                        + "<text xml:lang='en'>Wrong password</text>"
+                        + "</failure>";
+        Sasl2Nonza.Failure failure = SmackTestUtil.parse(failureString, Sasl2FailureProvider.INSTANCE, parserKind);
+
+        assertEquals(SASLError.not_authorized, failure.getSASLError());
+        assertEquals("Wrong password", failure.getDescriptiveText("en"));
+    }
+
+}
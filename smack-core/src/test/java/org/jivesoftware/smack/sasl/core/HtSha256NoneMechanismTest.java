@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sasl.core;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.SmackException.SmackSaslException;
+import org.jivesoftware.smack.sasl.packet.SaslNonza.AuthMechanism;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+import org.jivesoftware.smack.util.ByteUtils;
+import org.jivesoftware.smack.util.MAC;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.JidTestUtil;
+
+public class HtSha256NoneMechanismTest extends SmackTestSuite {
+
+    private static final String USERNAME = "user";
+
+    private static final String TOKEN = "WxPRdDRhT6Fh2ln3ykUWVUvSbF8";
+
+    private static byte[] hmac(String input) throws Exception {
+        return MAC.hmacsha256(TOKEN.getBytes(StandardCharsets.UTF_8), input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static HtSha256NoneMechanism authenticate(DummyConnection con) throws Exception {
+        HtSha256NoneMechanism mech = (HtSha256NoneMechanism) new HtSha256NoneMechanism()
+                        .instanceForAuthentication(con, con.getConfiguration());
+        mech.authenticate(USERNAME, "unusedFoo", JidTestUtil.DOMAIN_BARE_JID_1, TOKEN, null, null);
+        return mech;
+    }
+
+    @Test
+    public void initialResponseContainsInitiatorHashedToken() throws Exception {
+        DummyConnection con = new DummyConnection();
+        authenticate(con);
+
+        AuthMechanism authMechanism = con.getSentPacket();
+        assertEquals(HtSha256NoneMechanism.NAME, authMechanism.getMechanism());
+        byte[] expected = ByteUtils.concat((USERNAME + '\u0000').getBytes(StandardCharsets.UTF_8), hmac("Initiator"));
+        assertArrayEquals(expected, Base64.decode(authMechanism.getAuthenticationText()));
+    }
+
+    @Test
+    public void successRequiresResponderHashedToken() throws Exception {
+        DummyConnection con = new DummyConnection();
+        HtSha256NoneMechanism mech = authenticate(con);
+        assertThrows(SmackSaslException.class, () -> mech.checkIfSuccessfulOrThrow());
+
+        mech.challengeReceived(Base64.encodeToString(hmac("Responder")), true);
+        mech.checkIfSuccessfulOrThrow();
+    }
+
+    @Test
+    public void wrongResponderHashedTokenIsRejected() throws Exception {
+        DummyConnection con = new DummyConnection();
+        HtSha256NoneMechanism mech = authenticate(con);
+
+        assertThrows(SmackSaslException.class,
+                        () -> mech.challengeReceived(Base64.encodeToString(hmac("Initiator")), true));
+    }
+}
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.sasl.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
 import org.jivesoftware.smack.DummyConnection;
 import org.jivesoftware.smack.SmackException;
@@ -62,6 +63,31 @@ public class SCRAMSHA1MechanismTest extends SmackTestSuite {
         mech.checkIfSuccessfulOrThrow();
     }
 
+    @Test
+    public void cachedKeysAreNotUsedForDifferentPassword() throws NotConnectedException, SmackException, InterruptedException {
+        assertEquals(CLIENT_FINAL_MESSAGE, clientFinalMessage(PASSWORD));
+        // Same user, salt and iteration count, hence the same keys cache entry, but a different password.
+        assertNotEquals(CLIENT_FINAL_MESSAGE, clientFinalMessage("wrong-pencil"));
+        assertEquals(CLIENT_FINAL_MESSAGE, clientFinalMessage(PASSWORD));
+    }
+
+    private static String clientFinalMessage(String password) throws NotConnectedException, SmackException, InterruptedException {
+        final DummyConnection con = new DummyConnection();
+        SCRAMSHA1Mechanism mech = new SCRAMSHA1Mechanism() {
+            @Override
+            public String getRandomAscii() {
+                this.connection = con;
+                return "fyko+d2lbbFgONRv9qkxdawL";
+            }
+        };
+
+        mech.authenticate(USERNAME, "unusedFoo", JidTestUtil.DOMAIN_BARE_JID_1, password, null, null);
+        con.getSentPacket();
+        mech.challengeReceived(Base64.encode(SERVER_FIRST_MESSAGE), false);
+        Response response = con.getSentPacket();
+        return saslLayerString(response.getAuthenticationText());
+    }
+
     private static String saslLayerString(String string) {
         return Base64.decodeToString(string);
     }
@@ -0,0 +1,74 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void releasedBuffersAreReused() {
+        ByteBufferPool pool = new ByteBufferPool(1024, 2, true);
+
+        ByteBuffer buffer = pool.acquire();
+        assertTrue(buffer.isDirect());
+        assertEquals(1024, buffer.capacity());
+        assertEquals(0, pool.getHits());
+        assertEquals(1, pool.getMisses());
+
+        buffer.put((byte) 42);
+        assertTrue(pool.release(buffer));
+        assertEquals(1, pool.getPooledBufferCount());
+
+        ByteBuffer reusedBuffer = pool.acquire();
+        assertSame(buffer, reusedBuffer);
+        assertEquals(0, reusedBuffer.position());
+        assertEquals(1024, reusedBuffer.limit());
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getPooledBufferCount());
+    }
+
+    @Test
+    public void foreignBuffersAreNotRetained() {
+        ByteBufferPool pool = new ByteBufferPool(1024, 2, true);
+
+        assertFalse(pool.release(ByteBuffer.allocate(1024)));
+        assertFalse(pool.release(ByteBuffer.allocateDirect(512)));
+        assertEquals(0, pool.getPooledBufferCount());
+    }
+
+    @Test
+    public void poolIsBounded() {
+        ByteBufferPool pool = new ByteBufferPool(16, 2, false);
+
+        ByteBuffer a = pool.acquire();
+        ByteBuffer b = pool.acquire();
+        ByteBuffer c = pool.acquire();
+
+        assertTrue(pool.release(a));
+        assertTrue(pool.release(b));
+        assertFalse(pool.release(c));
+        assertEquals(2, pool.getPooledBufferCount());
+    }
+}
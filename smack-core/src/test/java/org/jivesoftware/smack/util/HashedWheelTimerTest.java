@@ -0,0 +1,69 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+public class HashedWheelTimerTest {
+
+    @Test
+    public void timeoutsExpire() throws InterruptedException {
+        // Use a small wheel, so that the timeouts need multiple rounds.
+        HashedWheelTimer timer = new HashedWheelTimer("Test", 10, TimeUnit.MILLISECONDS, 4);
+
+        final int timeoutCount = 20;
+        CountDownLatch latch = new CountDownLatch(timeoutCount);
+        long start = System.nanoTime();
+        for (int i = 0; i < timeoutCount; i++) {
+            timer.newTimeout(latch::countDown, i * 10, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= (timeoutCount - 1) * 10, "Timeouts expired too early: " + elapsedMillis + "ms");
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test
+    public void cancelledTimeoutsDoNotExpire() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("Test", 10, TimeUnit.MILLISECONDS, 8);
+
+        AtomicBoolean cancelledTaskRun = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout = timer.newTimeout(() -> cancelledTaskRun.set(true), 50,
+                        TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.getPendingTimeouts());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.getPendingTimeouts());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        assertFalse(cancelledTaskRun.get());
+        assertTrue(timeout.isCancelled());
+    }
+}
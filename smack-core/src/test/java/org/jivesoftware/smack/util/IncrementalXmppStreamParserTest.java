@@ -0,0 +1,114 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.parsing.SmackParsingException;
+import org.jivesoftware.smack.test.util.SmackTestUtil;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.jxmpp.JxmppContext;
+
+public class IncrementalXmppStreamParserTest {
+
+    private static final String STREAM_OPEN = "<stream:stream xmlns='jabber:client'"
+                    + " xmlns:stream='http://etherx.jabber.org/streams' xml:lang='en'>";
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void parsesConsecutiveElementsWithinStream(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException, SmackParsingException {
+        IncrementalXmppStreamParser streamParser = new IncrementalXmppStreamParser(parserKind.factory);
+
+        XmlPullParser parser = streamParser.streamOpened(STREAM_OPEN);
+        assertEquals(StreamOpen.ETHERX_JABBER_STREAMS_NAMESPACE, parser.getNamespace());
+        assertEquals("stream", parser.getName());
+
+        for (int i = 0; i < 3; i++) {
+            parser = streamParser.feed("<message id='id-" + i + "'><body>Hello " + i + "</body></message>");
+            Stanza stanza = PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY,
+                            JxmppContext.getDefaultContext());
+            Message message = (Message) stanza;
+            assertEquals("id-" + i, message.getStanzaId());
+            assertEquals("Hello " + i, message.getBody());
+            // The stream-level namespace context is retained.
+            assertEquals(StreamOpen.CLIENT_NAMESPACE, parser.getNamespace());
+            assertEquals(0, streamParser.getPendingCharacters());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void streamPrefixIsResolved(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException {
+        IncrementalXmppStreamParser streamParser = new IncrementalXmppStreamParser(parserKind.factory);
+        streamParser.streamOpened(STREAM_OPEN);
+
+        XmlPullParser parser = streamParser.feed("<stream:features><bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'/>"
+                        + "</stream:features>");
+        assertEquals(StreamOpen.ETHERX_JABBER_STREAMS_NAMESPACE, parser.getNamespace());
+        assertEquals("features", parser.getName());
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void partiallyConsumedElementIsSkipped(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException {
+        IncrementalXmppStreamParser streamParser = new IncrementalXmppStreamParser(parserKind.factory);
+        streamParser.streamOpened(STREAM_OPEN);
+
+        streamParser.feed("<message id='first'><body>Hello</body></message>");
+        XmlPullParser parser = streamParser.feed("<presence id='second'/>");
+        assertEquals("presence", parser.getName());
+        assertEquals("second", parser.getAttributeValue("id"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void streamRestartDiscardsPreviousStream(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException {
+        IncrementalXmppStreamParser streamParser = new IncrementalXmppStreamParser(parserKind.factory);
+        streamParser.streamOpened(STREAM_OPEN);
+        streamParser.feed("<proceed xmlns='urn:ietf:params:xml:ns:xmpp-tls'/>");
+
+        streamParser.streamOpened(STREAM_OPEN);
+        XmlPullParser parser = streamParser.feed("<message id='after-restart'/>");
+        assertEquals("after-restart", parser.getAttributeValue("id"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SmackTestUtil.XmlPullParserKind.class)
+    public void incompleteElementIsRejected(SmackTestUtil.XmlPullParserKind parserKind)
+                    throws XmlPullParserException, IOException {
+        IncrementalXmppStreamParser streamParser = new IncrementalXmppStreamParser(parserKind.factory);
+        streamParser.streamOpened(STREAM_OPEN);
+
+        XmlPullParser parser = streamParser.feed("<message id='incomplete'>");
+        assertThrows(Exception.class, () -> ParserUtils.forwardToEndTagOfDepth(parser, parser.getDepth()));
+    }
+}
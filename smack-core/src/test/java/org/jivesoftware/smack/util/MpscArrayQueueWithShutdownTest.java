@@ -0,0 +1,177 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class MpscArrayQueueWithShutdownTest {
+
+    @Test
+    public void elementsAreRetrievedInOrder() throws InterruptedException {
+        MpscArrayQueueWithShutdown<Integer> queue = new MpscArrayQueueWithShutdown<>(3);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        // Wrap around the ring buffer a few times.
+        for (int i = 0; i < 10; i++) {
+            assertTrue(queue.offer(i));
+            queue.put(i + 100);
+            assertEquals(2, queue.size());
+            assertEquals(i, queue.poll());
+            assertEquals(i + 100, queue.take());
+        }
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void offerFailsIfFull() {
+        MpscArrayQueueWithShutdown<Integer> queue = new MpscArrayQueueWithShutdown<>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(0, queue.remainingCapacity());
+
+        assertEquals(1, queue.poll());
+        assertTrue(queue.offer(3));
+    }
+
+    @Test
+    public void drainToRespectsMaxElements() {
+        MpscArrayQueueWithShutdown<Integer> queue = new MpscArrayQueueWithShutdown<>(10);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+
+        List<Integer> batch = new ArrayList<>();
+        assertEquals(4, queue.drainTo(batch, 4));
+        assertEquals(List.of(0, 1, 2, 3), batch);
+
+        batch.clear();
+        assertEquals(6, queue.drainTo(batch));
+        assertEquals(List.of(4, 5, 6, 7, 8, 9), batch);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void shutdownUnblocksConsumer() throws InterruptedException {
+        MpscArrayQueueWithShutdown<Integer> queue = new MpscArrayQueueWithShutdown<>(2);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                queue.take();
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        consumer.start();
+
+        queue.shutdown();
+        consumer.join(5000);
+        assertFalse(consumer.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+
+        // A shut down queue does not accept offered elements, but still accepts put ones if there is a free slot.
+        assertFalse(queue.offer(1));
+        assertFalse(queue.putIfNotShutdown(1));
+        queue.put(1);
+        assertThrows(InterruptedException.class, () -> queue.take());
+
+        assertTrue(queue.start());
+        assertEquals(1, queue.take());
+    }
+
+    @Test
+    public void shutdownUnblocksProducer() throws InterruptedException {
+        MpscArrayQueueWithShutdown<Integer> queue = new MpscArrayQueueWithShutdown<>(2);
+        queue.put(1);
+        queue.put(2);
+        assertFalse(queue.offer(3));
+
+        CountDownLatch producerStarted = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            producerStarted.countDown();
+            try {
+                queue.put(3);
+            } catch (Throwable t) {
+                thrown.set(t);
+            }
+        });
+        producer.start();
+        assertTrue(producerStarted.await(5, TimeUnit.SECONDS));
+
+        queue.shutdown();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertTrue(thrown.get() instanceof InterruptedException);
+    }
+
+    @Test
+    public void concurrentProducersDoNotLoseElements() throws InterruptedException {
+        final int producerCount = 8;
+        final int elementsPerProducer = 20000;
+        // A small capacity, so that the producers frequently block.
+        MpscArrayQueueWithShutdown<int[]> queue = new MpscArrayQueueWithShutdown<>(16);
+
+        List<Thread> producers = new ArrayList<>(producerCount);
+        for (int p = 0; p < producerCount; p++) {
+            final int producerId = p;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; i++) {
+                    try {
+                        queue.put(new int[] { producerId, i });
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+
+        int[] nextExpected = new int[producerCount];
+        List<int[]> batch = new ArrayList<>();
+        int received = 0;
+        while (received < producerCount * elementsPerProducer) {
+            batch.add(queue.take());
+            queue.drainTo(batch, 31);
+            for (int[] element : batch) {
+                // The elements of every single producer must be retrieved in order.
+                assertEquals(nextExpected[element[0]]++, element[1]);
+            }
+            received += batch.size();
+            batch.clear();
+        }
+
+        for (Thread producer : producers) {
+            producer.join(5000);
+        }
+        assertTrue(queue.isEmpty());
+    }
+}
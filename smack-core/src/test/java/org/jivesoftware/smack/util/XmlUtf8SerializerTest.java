@@ -0,0 +1,130 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.jxmpp.stringprep.XmppStringprepException;
+
+public class XmlUtf8SerializerTest {
+
+    private static final XmlEnvironment CLIENT_ENVIRONMENT = new XmlEnvironment(StreamOpen.CLIENT_NAMESPACE);
+
+    private static XmlStringBuilder createMessage() throws XmppStringprepException {
+        StandardExtensionElement innerOne = StandardExtensionElement.builder("inner", "inner-namespace").build();
+        StandardExtensionElement innerTwo = StandardExtensionElement.builder("inner", "inner-namespace")
+                        .setText("Grüße, € and 🎉 & <friends>")
+                        .build();
+        StandardExtensionElement outer = StandardExtensionElement.builder("outer", "outer-namespace")
+                        .addElement(innerOne)
+                        .addElement(innerTwo)
+                        .build();
+
+        Message message = StanzaBuilder.buildMessage("id-1")
+                        .to("juliet@example.org/balcony")
+                        .setBody("Wherefore art thou, Roméo? ☃")
+                        .addExtension(outer)
+                        .build();
+        return message.toXML(XmlEnvironment.EMPTY);
+    }
+
+    private static byte[] serialize(CharSequence xml, XmlEnvironment xmlEnvironment, int bufferSize) {
+        XmlUtf8Serializer serializer = new XmlUtf8Serializer().reset(xml, xmlEnvironment);
+        ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean complete;
+        do {
+            complete = serializer.writeTo(buffer);
+            buffer.flip();
+            out.write(buffer.array(), 0, buffer.limit());
+            buffer.clear();
+        } while (!complete);
+        assertFalse(serializer.hasRemaining());
+        return out.toByteArray();
+    }
+
+    private static byte[] expected(XmlStringBuilder xml, XmlEnvironment xmlEnvironment) {
+        return xml.toXML(xmlEnvironment).toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {4, 5, 7, 64, 8192})
+    public void serializationMatchesToList(int bufferSize) throws XmppStringprepException {
+        XmlStringBuilder xml = createMessage();
+
+        assertArrayEquals(expected(xml, CLIENT_ENVIRONMENT), serialize(xml, CLIENT_ENVIRONMENT, bufferSize));
+        assertArrayEquals(expected(xml, XmlEnvironment.EMPTY), serialize(xml, XmlEnvironment.EMPTY, bufferSize));
+    }
+
+    @Test
+    public void namespaceIsElidedIfEqualToEnclosingNamespace() throws XmppStringprepException {
+        XmlStringBuilder xml = createMessage();
+
+        String withClientEnvironment = new String(serialize(xml, CLIENT_ENVIRONMENT, 8192), StandardCharsets.UTF_8);
+        assertTrue(withClientEnvironment.startsWith("<message to="));
+
+        String withEmptyEnvironment = new String(serialize(xml, XmlEnvironment.EMPTY, 8192), StandardCharsets.UTF_8);
+        assertTrue(withEmptyEnvironment.startsWith("<message xmlns='jabber:client'"));
+    }
+
+    @Test
+    public void missingEnclosingEnvironmentIsTreatedAsEmpty() throws XmppStringprepException {
+        XmlStringBuilder xml = createMessage();
+        assertArrayEquals(serialize(xml, XmlEnvironment.EMPTY, 8192), serialize(xml, null, 8192));
+    }
+
+    @Test
+    public void plainCharSequenceIsSerialized() {
+        String string = "<r xmlns='urn:xmpp:sm:3'/>";
+        assertArrayEquals(string.getBytes(StandardCharsets.UTF_8), serialize(string, CLIENT_ENVIRONMENT, 4));
+    }
+
+    @Test
+    public void unpairedSurrogateIsReplaced() {
+        String string = "a\ud83cb\udf89c";
+        assertEquals("a?b?c", new String(serialize(string, XmlEnvironment.EMPTY, 16), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void serializerIsReusable() throws XmppStringprepException {
+        XmlUtf8Serializer serializer = new XmlUtf8Serializer();
+        XmlStringBuilder xml = createMessage();
+        byte[] expected = expected(xml, CLIENT_ENVIRONMENT);
+
+        for (int i = 0; i < 2; i++) {
+            ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+            assertTrue(serializer.reset(xml, CLIENT_ENVIRONMENT).writeTo(buffer));
+            assertArrayEquals(expected, buffer.array());
+        }
+    }
+}
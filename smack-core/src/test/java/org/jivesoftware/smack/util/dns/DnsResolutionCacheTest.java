@@ -0,0 +1,253 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.util.dns;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jivesoftware.smack.ConnectionConfiguration.DnssecMode;
+import org.jivesoftware.smack.util.DNSUtil;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.minidns.dnsname.DnsName;
+import org.minidns.record.SRV;
+
+public class DnsResolutionCacheTest {
+
+    private static final DnsName NAME = DnsName.from("example.org");
+
+    private static final InetAddress ADDRESS = InetAddress.getLoopbackAddress();
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final TestResolver resolver = new TestResolver();
+
+    private DnsResolutionCache setUpCache() {
+        DnsResolutionCache cache = DnsResolutionCache.builder()
+                        .setDefaultTtl(60)
+                        .setNegativeTtl(10)
+                        .setMaxStale(100)
+                        .setNanoTime(now::get)
+                        .build();
+        DNSUtil.setResolutionCache(cache);
+        return cache;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        DNSUtil.setResolutionCache(null);
+    }
+
+    private List<InetAddress> lookup(List<RemoteConnectionEndpointLookupFailure> lookupFailures) {
+        return resolver.lookupHostAddress(NAME, lookupFailures, DnssecMode.disabled);
+    }
+
+    private List<InetAddress> lookup() {
+        return lookup(new ArrayList<>());
+    }
+
+    private void advanceSeconds(long seconds) {
+        now.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void resultIsCachedForTheReportedTtl() {
+        setUpCache();
+        resolver.ttl = 20;
+
+        assertEquals(Collections.singletonList(ADDRESS), lookup());
+        assertEquals(Collections.singletonList(ADDRESS), lookup());
+        assertEquals(1, resolver.lookups.get());
+
+        advanceSeconds(19);
+        lookup();
+        assertEquals(1, resolver.lookups.get());
+
+        advanceSeconds(1);
+        lookup();
+        assertEquals(2, resolver.lookups.get());
+    }
+
+    @Test
+    public void defaultTtlIsUsedIfResolverDoesNotReportTtl() {
+        setUpCache();
+
+        lookup();
+        advanceSeconds(59);
+        lookup();
+        assertEquals(1, resolver.lookups.get());
+
+        advanceSeconds(1);
+        lookup();
+        assertEquals(2, resolver.lookups.get());
+    }
+
+    @Test
+    public void failuresAreCachedForTheNegativeTtl() {
+        setUpCache();
+        resolver.fail = true;
+
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        assertNull(lookup(lookupFailures));
+        assertEquals(1, lookupFailures.size());
+
+        lookupFailures.clear();
+        assertNull(lookup(lookupFailures));
+        assertEquals(1, lookupFailures.size());
+        assertEquals(1, resolver.lookups.get());
+
+        advanceSeconds(10);
+        resolver.fail = false;
+        assertEquals(Collections.singletonList(ADDRESS), lookup());
+        assertEquals(2, resolver.lookups.get());
+    }
+
+    @Test
+    public void staleResultIsServedIfLookupFails() {
+        setUpCache();
+
+        lookup();
+        resolver.fail = true;
+        advanceSeconds(60);
+
+        List<RemoteConnectionEndpointLookupFailure> lookupFailures = new ArrayList<>();
+        assertEquals(Collections.singletonList(ADDRESS), lookup(lookupFailures));
+        assertTrue(lookupFailures.isEmpty());
+        assertEquals(2, resolver.lookups.get());
+
+        // The stale result is not refreshed again until the negative TTL passed.
+        lookup();
+        assertEquals(2, resolver.lookups.get());
+
+        // Once the maximum staleness has passed, the failure is reported.
+        advanceSeconds(100);
+        assertNull(lookup(lookupFailures));
+        assertEquals(1, lookupFailures.size());
+    }
+
+    @Test
+    public void srvAndHostAddressLookupsAreCachedSeparately() {
+        setUpCache();
+
+        Collection<SRV> srvRecords = resolver.lookupSrvRecords(NAME, new ArrayList<>(), DnssecMode.disabled);
+        assertEquals(1, srvRecords.size());
+        lookup();
+        assertEquals(2, resolver.lookups.get());
+
+        resolver.lookupSrvRecords(NAME, new ArrayList<>(), DnssecMode.disabled);
+        lookup();
+        assertEquals(2, resolver.lookups.get());
+    }
+
+    @Test
+    public void concurrentLookupsAreCoalesced() throws Exception {
+        setUpCache();
+        resolver.block = new CountDownLatch(1);
+
+        final int threadCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<List<InetAddress>>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> lookup()));
+            }
+
+            // Give the other threads the chance to wait for the in-flight lookup.
+            Thread.sleep(100);
+            resolver.block.countDown();
+
+            for (Future<List<InetAddress>> future : futures) {
+                assertEquals(Collections.singletonList(ADDRESS), future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, resolver.lookups.get());
+    }
+
+    private static final class TestResolver extends DNSResolver {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        private volatile boolean fail;
+
+        private volatile long ttl = -1;
+
+        private volatile CountDownLatch block;
+
+        private TestResolver() {
+            super(false);
+        }
+
+        private boolean lookup(List<RemoteConnectionEndpointLookupFailure> lookupFailures) {
+            lookups.incrementAndGet();
+            CountDownLatch block = this.block;
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+
+            if (fail) {
+                lookupFailures.add(new RemoteConnectionEndpointLookupFailure.DnsLookupFailure(NAME,
+                                new IOException("Test failure")));
+                return false;
+            }
+            if (ttl >= 0) {
+                reportTtl(ttl);
+            }
+            return true;
+        }
+
+        @Override
+        protected Collection<SRV> lookupSrvRecords0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            if (!lookup(lookupFailures)) {
+                return null;
+            }
+            return Collections.singletonList(new SRV(0, 0, 5222, DnsName.from("xmpp.example.org")));
+        }
+
+        @Override
+        protected List<InetAddress> lookupHostAddress0(DnsName name,
+                        List<RemoteConnectionEndpointLookupFailure> lookupFailures, DnssecMode dnssecMode) {
+            if (!lookup(lookupFailures)) {
+                return null;
+            }
+            return Collections.singletonList(ADDRESS);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2013-2014 Georg Lukas, 2017-2020 Florian Schmaus, 2020 Paul Schaub
+ * Copyright 2013-2014 Georg Lukas, 2017-2026 Florian Schmaus, 2020 Paul Schaub
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -36,6 +36,10 @@ import org.jivesoftware.smack.XMPPConnection;
 import org.jivesoftware.smack.XMPPConnectionRegistry;
 import org.jivesoftware.smack.XMPPException;
 import org.jivesoftware.smack.XMPPException.XMPPErrorException;
+import org.jivesoftware.smack.bind2.Bind2InlineFeature;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
 import org.jivesoftware.smack.filter.AndFilter;
 import org.jivesoftware.smack.filter.FromMatchesFilter;
 import org.jivesoftware.smack.filter.OrFilter;
@@ -44,7 +48,9 @@ import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.filter.StanzaTypeFilter;
 import org.jivesoftware.smack.packet.IQ;
 import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StandardExtensionElement;
 import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlElement;
 import org.jivesoftware.smack.util.ExceptionCallback;
 import org.jivesoftware.smack.util.SuccessCallback;
 
@@ -89,8 +95,32 @@ public final class CarbonManager extends Manager {
                 getInstanceFor(connection);
             }
         });
+
+        Bind2Module.addInlineFeature(new Bind2InlineFeature() {
+            @Override
+            public String getNamespace() {
+                return Carbon.NAMESPACE;
+            }
+
+            @Override
+            public XmlElement getInlineRequest(ModularXmppClientToServerConnection connection) {
+                if (!getInstanceFor(connection).shouldCarbonsBeEnabled()) {
+                    return null;
+                }
+                return INLINE_ENABLE;
+            }
+
+            @Override
+            public void onBound(ModularXmppClientToServerConnection connection, Bound bound) {
+                // XEP-0280 § 5: Carbons are enabled if the resource was bound.
+                getInstanceFor(connection).enabledViaBind2 = true;
+            }
+        });
     }
 
+    private static final StandardExtensionElement INLINE_ENABLE = StandardExtensionElement.builder(
+                    Carbon.Enable.ELEMENT, Carbon.NAMESPACE).build();
+
     private static final StanzaFilter CARBON_EXTENSION_FILTER =
                     // @formatter:off
                     new AndFilter(
@@ -107,6 +137,11 @@ public final class CarbonManager extends Manager {
     private volatile boolean enabled_state = false;
     private volatile boolean enabledByDefault = ENABLED_BY_DEFAULT;
 
+    /**
+     * Set if carbons got enabled inline within the Bind 2 request of the current login.
+     */
+    private volatile boolean enabledViaBind2;
+
     private final StanzaListener carbonsListener;
 
     private final AsyncButOrdered<BareJid> carbonsListenerAsyncButOrdered = new AsyncButOrdered<>();
@@ -159,10 +194,11 @@ public final class CarbonManager extends Manager {
             @Override
             public void authenticated(XMPPConnection connection, boolean resumed) {
                 if (!resumed) {
-                    // Non-resumed XMPP sessions always start with disabled carbons
-                    enabled_state = false;
+                    // Non-resumed XMPP sessions always start with disabled carbons, unless they got enabled via Bind 2.
+                    enabled_state = enabledViaBind2;
+                    enabledViaBind2 = false;
                     try {
-                        if (shouldCarbonsBeEnabled() && isSupportedByServer()) {
+                        if (!enabled_state && shouldCarbonsBeEnabled() && isSupportedByServer()) {
                             setCarbonsEnabled(true);
                         }
                     } catch (InterruptedException | XMPPErrorException | NotConnectedException | NoResponseException e) {
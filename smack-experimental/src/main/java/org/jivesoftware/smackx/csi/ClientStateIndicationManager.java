@@ -1,6 +1,6 @@
 /**
  *
- * Copyright © 2014 Florian Schmaus
+ * Copyright © 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,17 @@
  */
 package org.jivesoftware.smackx.csi;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.bind2.Bind2InlineFeature;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.packet.XmlElement;
 
 import org.jivesoftware.smackx.csi.packet.ClientStateIndication;
 
@@ -29,6 +38,46 @@ import org.jivesoftware.smackx.csi.packet.ClientStateIndication;
  */
 public class ClientStateIndicationManager {
 
+    private static final Set<XMPPConnection> INACTIVE_ON_LOGIN = Collections.newSetFromMap(
+                    Collections.synchronizedMap(new WeakHashMap<XMPPConnection, Boolean>()));
+
+    static {
+        Bind2Module.addInlineFeature(new Bind2InlineFeature() {
+            @Override
+            public String getNamespace() {
+                return ClientStateIndication.NAMESPACE;
+            }
+
+            @Override
+            public XmlElement getInlineRequest(ModularXmppClientToServerConnection connection) {
+                if (!INACTIVE_ON_LOGIN.contains(connection)) {
+                    return null;
+                }
+                return ClientStateIndication.Inactive.INSTANCE;
+            }
+
+            @Override
+            public void onBound(ModularXmppClientToServerConnection connection, Bound bound) {
+            }
+        });
+    }
+
+    /**
+     * Signal the client state 'inactive' within the Bind 2 request of the next logins of the given connection, if the
+     * service supports it. This saves the round trip for {@link #inactive(XMPPConnection)} right after the login, for
+     * example when a mobile client reconnects in the background.
+     *
+     * @param connection the connection.
+     * @param inactiveOnLogin <code>true</code> if the client should be signalled as inactive on login.
+     */
+    public static void setInactiveOnLogin(XMPPConnection connection, boolean inactiveOnLogin) {
+        if (inactiveOnLogin) {
+            INACTIVE_ON_LOGIN.add(connection);
+        } else {
+            INACTIVE_ON_LOGIN.remove(connection);
+        }
+    }
+
     public static void active(XMPPConnection connection) throws NotConnectedException, InterruptedException {
         throwIaeIfNotSupported(connection);
         connection.sendNonza(ClientStateIndication.Active.INSTANCE);
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright © 2016-2020 Florian Schmaus and Fernando Ramirez
+ * Copyright © 2016-2026 Florian Schmaus and Fernando Ramirez
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 
 import org.jivesoftware.smack.packet.Element;
 import org.jivesoftware.smack.packet.ExtensionElement;
+import org.jivesoftware.smack.packet.LazyExtensionElement;
 import org.jivesoftware.smack.packet.Message;
 import org.jivesoftware.smack.packet.MessageView;
 import org.jivesoftware.smack.packet.XmlElement;
@@ -148,6 +149,10 @@ public class MamElements {
 
         public static MamResultExtension from(MessageView message) {
             for (XmlElement extension : message.getExtensions()) {
+                if (!ELEMENT.equals(extension.getElementName())) {
+                    continue;
+                }
+                extension = LazyExtensionElement.resolve(extension);
                 if (extension instanceof MamResultExtension) {
                     return (MamResultExtension) extension;
                 }
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2016 Florian Schmaus
+ * Copyright 2016-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,10 @@ package org.jivesoftware.smackx.muc;
 public interface AutoJoinFailedCallback {
 
     /**
-     * Invoked if the automatic rejoin rooms on reconnect failed.
+     * Invoked if the automatic rejoin of a room on reconnect failed. Invoked once for every room which could not be
+     * rejoined.
      *
-     * @param muc the MultiUserChat which failed first.
+     * @param muc the MultiUserChat which could not be rejoined.
      * @param e the exception causing the failure.
      */
     void autoJoinFailed(MultiUserChat muc, Exception e);
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2015-2025 Florian Schmaus
+ * Copyright 2015-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -78,6 +78,10 @@ public final class MucEnterConfiguration {
         return timeout;
     }
 
+    String getPassword() {
+        return password;
+    }
+
     public static final class Builder {
         private final Resourcepart nickname;
 
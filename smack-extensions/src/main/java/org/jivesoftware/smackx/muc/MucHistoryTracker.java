@@ -0,0 +1,150 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.packet.Message;
+
+import org.jivesoftware.smackx.delay.packet.DelayInformation;
+
+/**
+ * Tracks the position in the history of a room, in order to request the history missed while offline when rejoining
+ * the room.
+ * <p>
+ * The position is preferably expressed in the clock of the MUC service, i.e. the delay stamp of the most recent
+ * history message. Live messages carry no timestamp, hence if a live message was received after the last history
+ * message, the local clock has to be used instead. To cope with the local clock being ahead of the service's clock,
+ * the local time is reduced by {@link #CLOCK_SKEW_MARGIN_MILLIS}. After a rejoin, the history messages which were
+ * already received before, because of that margin or because the service includes the message with the requested
+ * timestamp, are reported as duplicates by {@link #messageReceived(Message, long)}.
+ * </p>
+ */
+final class MucHistoryTracker {
+
+    static final long CLOCK_SKEW_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int MAX_RECENT_MESSAGES = 1000;
+
+    /**
+     * The delay stamp of the most recent history message in milliseconds since the epoch, as given by the service's
+     * clock.
+     */
+    private long lastDelayStamp = -1;
+
+    /**
+     * The local time the room was entered or the last live message was received.
+     */
+    private long lastLocalMillis = -1;
+
+    /**
+     * Whether {@link #lastLocalMillis} is more recent than {@link #lastDelayStamp}. The two can not be compared
+     * directly, as they are based on different clocks.
+     */
+    private boolean localMoreRecent;
+
+    /**
+     * Whether the room was rejoined and no live message was received since, i.e. whether received history messages
+     * may be duplicates.
+     */
+    private boolean deduplicateHistory;
+
+    /**
+     * The keys of the recently received messages, mapped to the local time they were received.
+     */
+    private final Map<String, Long> recentMessages = new LinkedHashMap<>();
+
+    /**
+     * Record that the room is entered.
+     *
+     * @param nowMillis the current local time.
+     * @param rejoin <code>true</code> if the room is rejoined with the history since {@link #getHistorySince()}.
+     */
+    synchronized void entered(long nowMillis, boolean rejoin) {
+        lastLocalMillis = nowMillis;
+        localMoreRecent = true;
+        deduplicateHistory = rejoin;
+    }
+
+    /**
+     * Record a received groupchat message.
+     *
+     * @param message the groupchat message.
+     * @param nowMillis the current local time.
+     * @return <code>false</code> if the message is a history message which was already received before.
+     */
+    @SuppressWarnings("JavaUtilDate")
+    synchronized boolean messageReceived(Message message, long nowMillis) {
+        String key = keyOf(message);
+        DelayInformation delayInformation = DelayInformation.from(message);
+        if (delayInformation != null) {
+            if (deduplicateHistory && key != null && recentMessages.containsKey(key)) {
+                return false;
+            }
+            lastDelayStamp = Math.max(lastDelayStamp, delayInformation.getStamp().getTime());
+            localMoreRecent = false;
+        } else {
+            lastLocalMillis = nowMillis;
+            localMoreRecent = true;
+            // The history is always sent before any live message.
+            deduplicateHistory = false;
+        }
+
+        if (key != null) {
+            recentMessages.remove(key);
+            recentMessages.put(key, nowMillis);
+            // Only the messages which may be requested again because of the margin need to be remembered.
+            Iterator<Long> it = recentMessages.values().iterator();
+            while (it.hasNext()) {
+                long receivedMillis = it.next();
+                if (recentMessages.size() <= MAX_RECENT_MESSAGES && receivedMillis >= nowMillis - CLOCK_SKEW_MARGIN_MILLIS) {
+                    break;
+                }
+                it.remove();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the date since which the history should be requested when rejoining the room.
+     *
+     * @return the date or <code>null</code> if the room was never entered.
+     */
+    @SuppressWarnings("JavaUtilDate")
+    synchronized Date getHistorySince() {
+        if (localMoreRecent) {
+            return new Date(lastLocalMillis - CLOCK_SKEW_MARGIN_MILLIS);
+        }
+        if (lastDelayStamp >= 0) {
+            return new Date(lastDelayStamp);
+        }
+        return null;
+    }
+
+    private static String keyOf(Message message) {
+        String body = message.getBody();
+        if (body == null) {
+            return null;
+        }
+        return message.getFrom() + "\u0000" + message.getStanzaId() + "\u0000" + body;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import java.util.ArrayDeque;
+
+import org.jivesoftware.smack.packet.Message;
+
+import org.jivesoftware.smackx.muc.MultiUserChatManager.MessageBufferOverflowPolicy;
+
+/**
+ * A bounded buffer of the groupchat messages of a joined room, used by {@link MultiUserChat#nextMessage()} and
+ * friends. Unlike a stanza collector, the buffer only allocates memory for the messages it currently holds.
+ */
+final class MucMessageBuffer {
+
+    private final ArrayDeque<Message> messages = new ArrayDeque<>();
+
+    private final int capacity;
+
+    private final MessageBufferOverflowPolicy overflowPolicy;
+
+    private boolean cancelled;
+
+    MucMessageBuffer(int capacity, MessageBufferOverflowPolicy overflowPolicy) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    synchronized void add(Message message) {
+        if (cancelled) {
+            return;
+        }
+
+        if (messages.size() >= capacity) {
+            switch (overflowPolicy) {
+            case dropOldest:
+                messages.pollFirst();
+                break;
+            case dropNewest:
+                return;
+            }
+        }
+        messages.addLast(message);
+        notifyAll();
+    }
+
+    synchronized Message poll() {
+        return messages.pollFirst();
+    }
+
+    /**
+     * Returns the next message, waiting until one is available, or <code>null</code> if the buffer got cancelled.
+     *
+     * @return the next message or <code>null</code>.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    synchronized Message nextBlockForever() throws InterruptedException {
+        while (messages.isEmpty() && !cancelled) {
+            wait();
+        }
+        return messages.pollFirst();
+    }
+
+    /**
+     * Returns the next message, waiting up to the given timeout for one to become available.
+     *
+     * @param timeout the timeout in milliseconds.
+     * @return the next message or <code>null</code> if the timeout elapsed or the buffer got cancelled.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    synchronized Message next(long timeout) throws InterruptedException {
+        final long deadline = System.nanoTime() + timeout * 1000 * 1000;
+        long remainingMillis = timeout;
+        while (messages.isEmpty() && !cancelled && remainingMillis > 0) {
+            wait(remainingMillis);
+            remainingMillis = (deadline - System.nanoTime()) / 1000 / 1000;
+        }
+        return messages.pollFirst();
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        messages.clear();
+        notifyAll();
+    }
+}
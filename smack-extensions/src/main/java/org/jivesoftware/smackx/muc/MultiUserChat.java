@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software. 2020-2024 Florian Schmaus
+ * Copyright 2003-2007 Jive Software. 2020-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.jivesoftware.smackx.muc;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -160,9 +161,27 @@ public class MultiUserChat {
                     new StanzaExtensionFilter(MUCUser.ELEMENT, MUCUser.NAMESPACE));
     private final StanzaListener declinesListener;
 
+    // The following filters are applied to the stanzas routed to this room by the MultiUserChatManager, hence they do
+    // not need to match the room's address.
+    private static final StanzaFilter PRESENCE_FILTER = new AndFilter(StanzaTypeFilter.PRESENCE,
+                    PossibleFromTypeFilter.ENTITY_FULL_JID);
+
+    // @formatter:off
+    private static final StanzaFilter SUBJECT_FILTER = new AndFilter(MessageWithSubjectFilter.INSTANCE,
+                    new NotFilter(MessageTypeFilter.ERROR),
+                    // According to XEP-0045 § 8.1 "A message with a <subject/> and a <body/> or a <subject/> and a <thread/> is a
+                    // legitimate message, but it SHALL NOT be interpreted as a subject change."
+                    new NotFilter(MessageWithBodiesFilter.INSTANCE),
+                    new NotFilter(MessageWithThreadFilter.INSTANCE));
+    // @formatter:on
+
     private String subject;
     private EntityFullJid myRoomJid;
-    private StanzaCollector messageCollector;
+
+    /**
+     * The buffer of groupchat messages for {@link #nextMessage()} and friends, or <code>null</code> if not joined.
+     */
+    private volatile MucMessageBuffer messageBuffer;
 
     private DiscoverInfo mucServiceDiscoInfo;
 
@@ -173,6 +192,16 @@ public class MultiUserChat {
 
     private CopyOnWriteArrayList<MucMessageInterceptor> messageInterceptors;
 
+    /**
+     * The configuration used to enter the room the last time, or <code>null</code>.
+     */
+    private MucEnterConfiguration enterConfiguration;
+
+    /**
+     * Tracks the position in the room's history, used to request the missed history when rejoining.
+     */
+    private final MucHistoryTracker historyTracker = new MucHistoryTracker();
+
     MultiUserChat(XMPPConnection connection, EntityBareJid room, MultiUserChatManager multiUserChatManager) {
         this.connection = connection;
         this.room = room;
@@ -186,7 +215,6 @@ public class MultiUserChat {
             @Override
             public void processStanza(Stanza packet) throws NotConnectedException {
                 final Message message = (Message) packet;
-
                 for (MessageListener listener : messageListeners) {
                             listener.processMessage(message);
                 }
@@ -350,6 +378,7 @@ public class MultiUserChat {
      * Enter a room, as described in XEP-45 7.2.
      *
      * @param conf the configuration used to enter the room.
+     * @param rejoin <code>true</code> if the room is rejoined after the connection was re-established.
      * @return the returned presence by the service after the client send the initial presence in order to enter the room.
      * @throws NotConnectedException if the XMPP connection is not connected.
      * @throws NoResponseException if there was no response from the remote entity.
@@ -358,7 +387,7 @@ public class MultiUserChat {
      * @throws NotAMucServiceException if the entity is not a MUC service.
      * @see <a href="http://xmpp.org/extensions/xep-0045.html#enter">XEP-45 7.2 Entering a Room</a>
      */
-    private Presence enter(MucEnterConfiguration conf) throws NotConnectedException, NoResponseException,
+    private Presence enter(MucEnterConfiguration conf, boolean rejoin) throws NotConnectedException, NoResponseException,
                     XMPPErrorException, InterruptedException, NotAMucServiceException {
         final DomainBareJid mucService = room.asDomainBareJid();
         mucServiceDiscoInfo = multiUserChatManager.getMucServiceDiscoInfo(mucService);
@@ -369,25 +398,12 @@ public class MultiUserChat {
         // field is in the form "roomName@service/nickname"
         Presence joinPresence = conf.getJoinPresence(this);
 
-        // Set up the messageListeners and presenceListeners *before* the join presence is sent.
-        connection.addStanzaListener(messageListener, fromRoomGroupchatFilter);
-        StanzaFilter presenceFromRoomFilter = new AndFilter(fromRoomFilter,
-                        StanzaTypeFilter.PRESENCE,
-                        PossibleFromTypeFilter.ENTITY_FULL_JID);
-        connection.addStanzaListener(presenceListener, presenceFromRoomFilter);
-        // @formatter:off
-        connection.addStanzaListener(subjectListener,
-                        new AndFilter(fromRoomFilter,
-                                      MessageWithSubjectFilter.INSTANCE,
-                                      new NotFilter(MessageTypeFilter.ERROR),
-                                      // According to XEP-0045 § 8.1 "A message with a <subject/> and a <body/> or a <subject/> and a <thread/> is a
-                                      // legitimate message, but it SHALL NOT be interpreted as a subject change."
-                                      new NotFilter(MessageWithBodiesFilter.INSTANCE),
-                                      new NotFilter(MessageWithThreadFilter.INSTANCE))
-                        );
-        // @formatter:on
-        connection.addStanzaListener(declinesListener, new AndFilter(fromRoomFilter, DECLINE_FILTER));
-        messageCollector = connection.createStanzaCollector(fromRoomGroupchatFilter);
+        // Let the manager route the stanzas of the room to us *before* the join presence is sent.
+        messageBuffer = multiUserChatManager.createMessageBuffer();
+        // The history sent after the join presence is more recent than the time we entered the room.
+        historyTracker.entered(System.currentTimeMillis(), rejoin);
+        multiUserChatManager.addRoutedRoom(this);
+        StanzaFilter presenceFromRoomFilter = new AndFilter(fromRoomFilter, PRESENCE_FILTER);
 
         // Wait for a presence packet back from the server.
         // @formatter:off
@@ -439,11 +455,85 @@ public class MultiUserChat {
         Resourcepart receivedNickname = reflectedSelfPresence.getFrom().getResourceOrThrow();
         setNickname(receivedNickname);
 
+        enterConfiguration = conf;
+
         // Update the list of joined rooms
         multiUserChatManager.addJoinedRoom(room);
         return reflectedSelfPresence;
     }
 
+    /**
+     * Process a stanza from this room, routed to us by the {@link MultiUserChatManager}.
+     *
+     * @param stanza the stanza from the room.
+     */
+    void processRoutedStanza(Stanza stanza) {
+        if (MessageTypeFilter.GROUPCHAT.accept(stanza)
+                        && historyTracker.messageReceived((Message) stanza, System.currentTimeMillis())) {
+            MucMessageBuffer messageBuffer = this.messageBuffer;
+            if (messageBuffer != null) {
+                messageBuffer.add((Message) stanza);
+            }
+            invokeListener(messageListener, stanza);
+        }
+        if (PRESENCE_FILTER.accept(stanza)) {
+            invokeListener(presenceListener, stanza);
+        }
+        if (SUBJECT_FILTER.accept(stanza)) {
+            invokeListener(subjectListener, stanza);
+        }
+        if (DECLINE_FILTER.accept(stanza)) {
+            invokeListener(declinesListener, stanza);
+        }
+    }
+
+    private static void invokeListener(StanzaListener listener, Stanza stanza) {
+        try {
+            listener.processStanza(stanza);
+        } catch (NotConnectedException e) {
+            LOGGER.log(Level.WARNING, "Got not connected exception", e);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Exception in MUC stanza listener", e);
+        }
+    }
+
+    /**
+     * Rejoin the room after the connection was re-established without resuming the previous session. The service
+     * already removed us from the room when the previous session ended, hence the room is not left first. The history
+     * since the last seen message is requested, see {@link MucHistoryTracker}, using the nickname and password of the
+     * previous join.
+     *
+     * @return the join self-presence as reflected by the MUC.
+     * @throws NoResponseException if there was no response from the remote entity.
+     * @throws XMPPErrorException if there was an XMPP error returned.
+     * @throws NotConnectedException if the XMPP connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     * @throws NotAMucServiceException if the entity is not a MUC service.
+     * @throws MucNotJoinedException if the room was not joined.
+     */
+    @SuppressWarnings("JavaUtilDate")
+    synchronized Presence rejoin() throws NoResponseException, XMPPErrorException, NotConnectedException,
+                    InterruptedException, NotAMucServiceException, MucNotJoinedException {
+        final EntityFullJid myRoomJid = getMyRoomJid();
+        if (myRoomJid == null) {
+            throw new MucNotJoinedException(this);
+        }
+
+        MucEnterConfiguration.Builder builder = getEnterConfigurationBuilder(myRoomJid.getResourcepart());
+        if (enterConfiguration != null) {
+            builder.withPassword(enterConfiguration.getPassword())
+                   .timeoutAfter(enterConfiguration.getTimeout());
+        }
+        Date since = historyTracker.getHistorySince();
+        if (since != null) {
+            builder.requestHistorySince(since);
+        }
+
+        // Reset the local state of the previous occupation.
+        userHasLeft();
+        return enter(builder.build(), true);
+    }
+
     private void setNickname(Resourcepart nickname) {
         this.myRoomJid = JidCreate.entityFullFrom(room, nickname);
     }
@@ -549,7 +639,7 @@ public class MultiUserChat {
             throw new MucAlreadyJoinedException();
         }
 
-        Presence presence = enter(mucEnterConfiguration);
+        Presence presence = enter(mucEnterConfiguration, false);
 
         // Look for confirmation of room creation from the server
         MUCUser mucUser = MUCUser.from(presence);
@@ -727,7 +817,7 @@ public class MultiUserChat {
                 LOGGER.log(Level.WARNING, "Could not leave MUC prior joining, assuming we are not joined", e);
             }
         }
-        Presence reflectedJoinPresence = enter(mucEnterConfiguration);
+        Presence reflectedJoinPresence = enter(mucEnterConfiguration, false);
         return reflectedJoinPresence;
     }
 
@@ -2135,10 +2225,11 @@ public class MultiUserChat {
      * @throws MucNotJoinedException if not joined to the Multi-User Chat.
     */
     public Message pollMessage() throws MucNotJoinedException {
-        if (messageCollector == null) {
+        MucMessageBuffer messageBuffer = this.messageBuffer;
+        if (messageBuffer == null) {
             throw new MucNotJoinedException(this);
         }
-        return messageCollector.pollResult();
+        return messageBuffer.poll();
     }
 
     /**
@@ -2150,10 +2241,11 @@ public class MultiUserChat {
      * @throws InterruptedException if the calling thread was interrupted.
      */
     public Message nextMessage() throws MucNotJoinedException, InterruptedException {
-        if (messageCollector == null) {
+        MucMessageBuffer messageBuffer = this.messageBuffer;
+        if (messageBuffer == null) {
             throw new MucNotJoinedException(this);
         }
-        return  messageCollector.nextResultBlockForever();
+        return messageBuffer.nextBlockForever();
     }
 
     /**
@@ -2168,10 +2260,11 @@ public class MultiUserChat {
      * @throws InterruptedException if the calling thread was interrupted.
      */
     public Message nextMessage(long timeout) throws MucNotJoinedException, InterruptedException {
-        if (messageCollector == null) {
+        MucMessageBuffer messageBuffer = this.messageBuffer;
+        if (messageBuffer == null) {
             throw new MucNotJoinedException(this);
         }
-        return messageCollector.nextResult(timeout);
+        return messageBuffer.next(timeout);
     }
 
     /**
@@ -2241,18 +2334,15 @@ public class MultiUserChat {
     }
 
     /**
-     * Remove the connection callbacks (PacketListener, PacketInterceptor, StanzaCollector) used by this MUC from the
-     * connection.
+     * Remove the callbacks (stanza routing, presence interceptor, message buffer) used by this MUC.
      */
     private void removeConnectionCallbacks() {
-        connection.removeStanzaListener(messageListener);
-        connection.removeStanzaListener(presenceListener);
-        connection.removeStanzaListener(subjectListener);
-        connection.removeStanzaListener(declinesListener);
+        multiUserChatManager.removeRoutedRoom(this);
         connection.removePresenceInterceptor(presenceInterceptor);
-        if (messageCollector != null) {
-            messageCollector.cancel();
-            messageCollector = null;
+        MucMessageBuffer messageBuffer = this.messageBuffer;
+        if (messageBuffer != null) {
+            messageBuffer.cancel();
+            this.messageBuffer = null;
         }
     }
 
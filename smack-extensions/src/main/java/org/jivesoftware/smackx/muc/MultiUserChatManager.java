@@ -1,6 +1,6 @@
 /**
  *
- * Copyright © 2014-2024 Florian Schmaus
+ * Copyright © 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,14 +25,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Semaphore;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.ConnectionListener;
 import org.jivesoftware.smack.Manager;
+import org.jivesoftware.smack.SmackConfiguration;
 import org.jivesoftware.smack.SmackException.NoResponseException;
 import org.jivesoftware.smack.SmackException.NotConnectedException;
 import org.jivesoftware.smack.StanzaListener;
@@ -51,6 +54,7 @@ import org.jivesoftware.smack.packet.MessageBuilder;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.CleaningWeakReferenceMap;
+import org.jivesoftware.smack.util.Objects;
 
 import org.jivesoftware.smackx.disco.AbstractNodeInformationProvider;
 import org.jivesoftware.smackx.disco.ServiceDiscoveryManager;
@@ -67,7 +71,6 @@ import org.jxmpp.jid.EntityBareJid;
 import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.EntityJid;
 import org.jxmpp.jid.Jid;
-import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.util.cache.ExpirationCache;
 
 /**
@@ -79,8 +82,19 @@ import org.jxmpp.util.cache.ExpirationCache;
  * <b>Automatic rejoin:</b> The manager supports automatic rejoin of MultiUserChat rooms once the connection got
  * re-established. This mechanism is disabled by default. To enable it, use {@link #setAutoJoinOnReconnect(boolean)}.
  * You can set a {@link AutoJoinFailedCallback} via {@link #setAutoJoinFailedCallback(AutoJoinFailedCallback)} to get
- * notified if this mechanism failed for some reason. Note that as soon as rejoining for a single room failed, no
- * further attempts will be made for the other rooms.
+ * notified if this mechanism failed for some reason. The rooms are rejoined concurrently, up to the number of rooms set
+ * with {@link #setAutoJoinOnReconnectWindow(int)} at a time, and without leaving them first, since the service already
+ * removed the user from the rooms when the previous session ended. For every room the history since the last received
+ * message is requested. The success or failure of every room is reported individually to the
+ * {@link AutoJoinSuccessCallback} and {@link AutoJoinFailedCallback}, which may be invoked concurrently.
+ * </p>
+ * <p>
+ * <b>Stanza routing:</b> Instead of every joined room registering its own stanza listeners with the connection, the
+ * manager registers a single listener which routes the stanzas from joined rooms to the according
+ * {@link MultiUserChat} with one lookup by the room's bare JID. The groupchat messages of every room, which can be
+ * retrieved via {@link MultiUserChat#nextMessage()}, are kept in a bounded buffer. Its size and the behavior once it is
+ * full can be configured with {@link #setMessageBufferSize(int)} and
+ * {@link #setMessageBufferOverflowPolicy(MessageBufferOverflowPolicy)}.
  * </p>
  *
  * Note:
@@ -167,12 +181,32 @@ public final class MultiUserChatManager extends Manager {
     /**
      * A Map of MUC JIDs to {@link MultiUserChat} instances. We use weak references for the values in order to allow
      * those instances to get garbage collected. Note that MultiUserChat instances can not get garbage collected while
-     * the user is joined, because then the MUC will have PacketListeners added to the XMPPConnection.
+     * the user is joined, because then the MUC is referenced by {@link #routedRooms}.
      */
     private final Map<EntityBareJid, WeakReference<MultiUserChat>> multiUserChats = new CleaningWeakReferenceMap<>();
 
+    /**
+     * The rooms which stanzas are routed to, i.e. the rooms which are joined or currently being entered.
+     */
+    private final Map<EntityBareJid, MultiUserChat> routedRooms = new ConcurrentHashMap<>();
+
+    private final StanzaFilter routedRoomFilter = stanza -> {
+        Jid from = stanza.getFrom();
+        if (from == null) {
+            return false;
+        }
+        EntityBareJid room = from.asEntityBareJidIfPossible();
+        return room != null && routedRooms.containsKey(room);
+    };
+
+    private int messageBufferSize = SmackConfiguration.getStanzaCollectorSize();
+
+    private MessageBufferOverflowPolicy messageBufferOverflowPolicy = MessageBufferOverflowPolicy.dropOldest;
+
     private boolean autoJoinOnReconnect;
 
+    private int autoJoinOnReconnectWindow = 16;
+
     private AutoJoinFailedCallback autoJoinFailedCallback;
 
     private AutoJoinSuccessCallback autoJoinSuccessCallback;
@@ -239,6 +273,18 @@ public final class MultiUserChatManager extends Manager {
         };
         connection.addAsyncStanzaListener(directInvitationStanzaListener, DIRECT_INVITATION_FILTER);
 
+        // Routes the stanzas from joined rooms to the according MultiUserChat. This is a synchronous listener, as the
+        // room's listeners rely on the stanzas being processed in order.
+        connection.addStanzaListener(stanza -> {
+            EntityBareJid room = stanza.getFrom().asEntityBareJidIfPossible();
+            MultiUserChat muc = routedRooms.get(room);
+            if (muc == null) {
+                // The room was left in the meantime.
+                return;
+            }
+            muc.processRoutedStanza(stanza);
+        }, routedRoomFilter);
+
         connection.addConnectionListener(new ConnectionListener() {
             @Override
             public void authenticated(XMPPConnection connection, boolean resumed) {
@@ -248,52 +294,46 @@ public final class MultiUserChatManager extends Manager {
                 final Set<EntityBareJid> mucs = getJoinedRooms();
                 if (mucs.isEmpty()) return;
 
-                Async.go(new Runnable() {
-                    @Override
-                    public void run() {
-                        final AutoJoinFailedCallback failedCallback = autoJoinFailedCallback;
-                        final AutoJoinSuccessCallback successCallback = autoJoinSuccessCallback;
-                        for (EntityBareJid mucJid : mucs) {
-                            MultiUserChat muc = getMultiUserChat(mucJid);
-
-                            if (!muc.isJoined()) return;
-
-                            Resourcepart nickname = muc.getNickname();
-                            if (nickname == null) return;
-
-                            try {
-                                muc.leave();
-                            } catch (NotConnectedException | InterruptedException | MucNotJoinedException
-                                            | NoResponseException | XMPPErrorException e) {
-                                if (failedCallback != null) {
-                                    failedCallback.autoJoinFailed(muc, e);
-                                } else {
-                                    LOGGER.log(Level.WARNING, "Could not leave room", e);
-                                }
-                                return;
-                            }
-                            try {
-                                muc.join(nickname);
-                                if (successCallback != null) {
-                                    successCallback.autoJoinSuccess(muc, nickname);
-                                }
-                            } catch (NotAMucServiceException | NoResponseException | XMPPErrorException
-                                    | NotConnectedException | InterruptedException e) {
-                                if (failedCallback != null) {
-                                    failedCallback.autoJoinFailed(muc, e);
-                                } else {
-                                    LOGGER.log(Level.WARNING, "Could not leave room", e);
-                                }
-                                return;
-                            }
-                        }
-                    }
-
-                });
+                Async.go(() -> autoRejoin(mucs), "MUC auto-rejoin (" + connection + ')');
             }
         });
     }
 
+    private void autoRejoin(Set<EntityBareJid> mucs) {
+        final AutoJoinFailedCallback failedCallback = autoJoinFailedCallback;
+        final AutoJoinSuccessCallback successCallback = autoJoinSuccessCallback;
+        // Limits the number of rooms which are joined concurrently.
+        final Semaphore window = new Semaphore(autoJoinOnReconnectWindow);
+        for (EntityBareJid mucJid : mucs) {
+            final MultiUserChat muc = getMultiUserChat(mucJid);
+            if (!muc.isJoined()) continue;
+
+            try {
+                window.acquire();
+            } catch (InterruptedException e) {
+                LOGGER.log(Level.FINE, "Interrupted while rejoining rooms", e);
+                return;
+            }
+            Async.go(() -> {
+                try {
+                    muc.rejoin();
+                    if (successCallback != null) {
+                        successCallback.autoJoinSuccess(muc, muc.getNickname());
+                    }
+                } catch (NotAMucServiceException | NoResponseException | XMPPErrorException
+                                | NotConnectedException | InterruptedException | MucNotJoinedException e) {
+                    if (failedCallback != null) {
+                        failedCallback.autoJoinFailed(muc, e);
+                    } else {
+                        LOGGER.log(Level.WARNING, "Could not rejoin room " + mucJid, e);
+                    }
+                } finally {
+                    window.release();
+                }
+            }, "MUC auto-rejoin of " + mucJid);
+        }
+    }
+
     /**
      * Creates a multi user chat. Note: no information is sent to or received from the server until you attempt to
      * {@link MultiUserChat#join(org.jxmpp.jid.parts.Resourcepart) join} the chat room. On some server implementations, the room will not be
@@ -540,6 +580,43 @@ public final class MultiUserChatManager extends Manager {
         autoJoinOnReconnect = autoJoin;
     }
 
+    /**
+     * Set the maximum number of rooms which are joined concurrently by the automatic join on reconnect. The default is
+     * 16.
+     *
+     * @param window the maximum number of concurrently joined rooms.
+     */
+    public void setAutoJoinOnReconnectWindow(int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("The auto join window must be positive");
+        }
+        autoJoinOnReconnectWindow = window;
+    }
+
+    /**
+     * Set the maximum number of groupchat messages buffered per joined room for {@link MultiUserChat#nextMessage()}
+     * and friends. The default is {@link SmackConfiguration#getStanzaCollectorSize()}. The new size applies to rooms
+     * entered afterwards.
+     *
+     * @param messageBufferSize the maximum number of buffered messages per room.
+     */
+    public void setMessageBufferSize(int messageBufferSize) {
+        if (messageBufferSize <= 0) {
+            throw new IllegalArgumentException("The message buffer size must be positive");
+        }
+        this.messageBufferSize = messageBufferSize;
+    }
+
+    /**
+     * Set what happens if a groupchat message is received while the message buffer of the room is full. The default
+     * is {@link MessageBufferOverflowPolicy#dropOldest}. The new policy applies to rooms entered afterwards.
+     *
+     * @param messageBufferOverflowPolicy the overflow policy.
+     */
+    public void setMessageBufferOverflowPolicy(MessageBufferOverflowPolicy messageBufferOverflowPolicy) {
+        this.messageBufferOverflowPolicy = Objects.requireNonNull(messageBufferOverflowPolicy);
+    }
+
     /**
      * Set a callback invoked by this manager when automatic join on reconnect failed. If failedCallback is not
      * <code>null</code>, then automatic rejoin get also enabled.
@@ -568,6 +645,18 @@ public final class MultiUserChatManager extends Manager {
     }
 
 
+    MucMessageBuffer createMessageBuffer() {
+        return new MucMessageBuffer(messageBufferSize, messageBufferOverflowPolicy);
+    }
+
+    void addRoutedRoom(MultiUserChat muc) {
+        routedRooms.put(muc.getRoom(), muc);
+    }
+
+    void removeRoutedRoom(MultiUserChat muc) {
+        routedRooms.remove(muc.getRoom(), muc);
+    }
+
     void addJoinedRoom(EntityBareJid room) {
         joinedRooms.add(room);
     }
@@ -581,4 +670,19 @@ public final class MultiUserChatManager extends Manager {
             return new CopyOnWriteArrayList<>(DEFAULT_MESSAGE_INTERCEPTORS);
         }
     }
+
+    /**
+     * What to do with a groupchat message received while the message buffer of the room is full.
+     */
+    public enum MessageBufferOverflowPolicy {
+        /**
+         * Drop the oldest buffered message to make room for the received one.
+         */
+        dropOldest,
+
+        /**
+         * Drop the received message.
+         */
+        dropNewest
+    }
 }
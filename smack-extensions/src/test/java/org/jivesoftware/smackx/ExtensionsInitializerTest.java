@@ -16,11 +16,19 @@
  */
 package org.jivesoftware.smackx;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Function;
 
 import org.jivesoftware.smack.extensions.ExtensionsInitializer;
+import org.jivesoftware.smack.initializer.GeneratedRegistry;
+import org.jivesoftware.smack.provider.ProviderFileLoader;
+import org.jivesoftware.smack.util.FileUtils;
 
 import org.junit.jupiter.api.Test;
 
@@ -33,4 +41,31 @@ public class ExtensionsInitializerTest {
         assertTrue(exceptions.size() == 0);
     }
 
+    @Test
+    public void generatedRegistryMatchesProvidersFile() throws Exception {
+        final String providersFile = "org.jivesoftware.smack.extensions/extensions.providers";
+        GeneratedRegistry registry = GeneratedRegistry.forClasspathFile(providersFile,
+                        ExtensionsInitializer.class.getClassLoader());
+        assertNotNull(registry);
+
+        ProviderFileLoader providerFileLoader = new ProviderFileLoader(
+                        FileUtils.getStreamForClasspathFile(providersFile, null));
+        assertTrue(providerFileLoader.getLoadingExceptions().isEmpty());
+
+        assertEquals(describe(providerFileLoader.getIQProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()),
+                        describe(registry.getIQProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()));
+        assertEquals(describe(providerFileLoader.getExtensionProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()),
+                        describe(registry.getExtensionProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()));
+        assertEquals(describe(providerFileLoader.getStreamFeatureProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()),
+                        describe(registry.getStreamFeatureProviderInfo(), i -> i.getElementName() + ' ' + i.getNamespace()));
+    }
+
+    private static <I> List<String> describe(Collection<I> providerInfos, Function<I, String> describer) {
+        List<String> res = new ArrayList<>(providerInfos.size());
+        for (I providerInfo : providerInfos) {
+            res.add(describer.apply(providerInfo));
+        }
+        return res;
+    }
+
 }
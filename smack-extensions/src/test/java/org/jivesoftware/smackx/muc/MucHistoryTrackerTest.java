@@ -0,0 +1,105 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.jivesoftware.smackx.delay.packet.DelayInformation;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class MucHistoryTrackerTest {
+
+    private static Message message(String id, String body, Date delayStamp) {
+        MessageBuilder messageBuilder = StanzaBuilder.buildMessage(id)
+                        .ofType(Message.Type.groupchat)
+                        .from(JidCreate.fromOrThrowUnchecked("room@conference.example.org/other"))
+                        .setBody(body);
+        if (delayStamp != null) {
+            messageBuilder.addExtension(new DelayInformation(delayStamp));
+        }
+        return messageBuilder.build();
+    }
+
+    @Test
+    public void historyIsNotRequestedIfNeverEntered() {
+        assertNull(new MucHistoryTracker().getHistorySince());
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    @Test
+    public void delayStampOfTheServiceIsPreferred() {
+        MucHistoryTracker tracker = new MucHistoryTracker();
+        tracker.entered(1_000_000, false);
+
+        // The delay stamp is based on the service's clock, which may be behind the local one.
+        Date stamp = new Date(5_000);
+        tracker.messageReceived(message("1", "Hello", stamp), 1_000_100);
+        assertEquals(stamp, tracker.getHistorySince());
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    @Test
+    public void localTimeOfLiveMessagesIsReducedByTheMargin() {
+        MucHistoryTracker tracker = new MucHistoryTracker();
+        tracker.entered(1_000_000, false);
+        assertEquals(new Date(1_000_000 - MucHistoryTracker.CLOCK_SKEW_MARGIN_MILLIS), tracker.getHistorySince());
+
+        tracker.messageReceived(message("1", "Hello", new Date(5_000)), 1_000_100);
+        tracker.messageReceived(message("2", "Live", null), 2_000_000);
+        assertEquals(new Date(2_000_000 - MucHistoryTracker.CLOCK_SKEW_MARGIN_MILLIS), tracker.getHistorySince());
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    @Test
+    public void historyReceivedAgainAfterRejoinIsDuplicate() {
+        MucHistoryTracker tracker = new MucHistoryTracker();
+        tracker.entered(1_000_000, false);
+        assertTrue(tracker.messageReceived(message("1", "First", null), 1_000_100));
+        assertTrue(tracker.messageReceived(message("2", "Second", null), 1_000_200));
+
+        tracker.entered(2_000_000, true);
+        assertFalse(tracker.messageReceived(message("1", "First", new Date(900_100)), 2_000_100));
+        assertFalse(tracker.messageReceived(message("2", "Second", new Date(900_200)), 2_000_100));
+        assertTrue(tracker.messageReceived(message("3", "Missed", new Date(1_900_000)), 2_000_100));
+
+        // Once a live message was received, the history is complete.
+        assertTrue(tracker.messageReceived(message("4", "Live", null), 2_000_200));
+        assertTrue(tracker.messageReceived(message("1", "First", new Date(900_100)), 2_000_300));
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    @Test
+    public void historyIsNotDeduplicatedOnRegularJoin() {
+        MucHistoryTracker tracker = new MucHistoryTracker();
+        tracker.entered(1_000_000, false);
+        assertTrue(tracker.messageReceived(message("1", "First", null), 1_000_100));
+
+        tracker.entered(2_000_000, false);
+        assertTrue(tracker.messageReceived(message("1", "First", new Date(900_100)), 2_000_100));
+    }
+}
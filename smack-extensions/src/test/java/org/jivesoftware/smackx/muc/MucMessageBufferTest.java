@@ -0,0 +1,88 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+
+import org.jivesoftware.smackx.muc.MultiUserChatManager.MessageBufferOverflowPolicy;
+
+import org.junit.jupiter.api.Test;
+
+public class MucMessageBufferTest {
+
+    private static Message message(String body) {
+        return StanzaBuilder.buildMessage().setBody(body).build();
+    }
+
+    @Test
+    public void dropOldestKeepsTheMostRecentMessages() {
+        MucMessageBuffer buffer = new MucMessageBuffer(2, MessageBufferOverflowPolicy.dropOldest);
+        buffer.add(message("1"));
+        buffer.add(message("2"));
+        buffer.add(message("3"));
+
+        assertEquals("2", buffer.poll().getBody());
+        assertEquals("3", buffer.poll().getBody());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void dropNewestKeepsTheFirstMessages() {
+        MucMessageBuffer buffer = new MucMessageBuffer(2, MessageBufferOverflowPolicy.dropNewest);
+        buffer.add(message("1"));
+        buffer.add(message("2"));
+        buffer.add(message("3"));
+
+        assertEquals("1", buffer.poll().getBody());
+        assertEquals("2", buffer.poll().getBody());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void nextReturnsNullOnceTheTimeoutElapsed() throws InterruptedException {
+        MucMessageBuffer buffer = new MucMessageBuffer(2, MessageBufferOverflowPolicy.dropOldest);
+        assertNull(buffer.next(10));
+
+        buffer.add(message("1"));
+        assertEquals("1", buffer.next(10).getBody());
+    }
+
+    @Test
+    public void cancelWakesUpWaitingThreads() throws InterruptedException {
+        MucMessageBuffer buffer = new MucMessageBuffer(2, MessageBufferOverflowPolicy.dropOldest);
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.cancel();
+        });
+        canceller.start();
+
+        assertNull(buffer.nextBlockForever());
+        canceller.join();
+
+        // Messages added after the buffer got cancelled are discarded.
+        buffer.add(message("1"));
+        assertNull(buffer.poll());
+    }
+}
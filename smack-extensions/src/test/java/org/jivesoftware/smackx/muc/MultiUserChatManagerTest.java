@@ -0,0 +1,256 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smackx.muc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.SmackException;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.StanzaBuilder;
+import org.jivesoftware.smack.packet.StanzaError;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.jivesoftware.smackx.delay.packet.DelayInformation;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfo;
+import org.jivesoftware.smackx.disco.packet.DiscoverInfoBuilder;
+import org.jivesoftware.smackx.muc.packet.MUCInitialPresence;
+import org.jivesoftware.smackx.muc.packet.MUCItem;
+import org.jivesoftware.smackx.muc.packet.MUCUser;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.EntityBareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.jxmpp.jid.parts.Resourcepart;
+
+public class MultiUserChatManagerTest extends SmackTestSuite {
+
+    private static final Resourcepart NICKNAME = Resourcepart.fromOrThrowUnchecked("nick");
+
+    private ReloginDummyConnection connection;
+
+    private MultiUserChatManager multiUserChatManager;
+
+    private MucServiceSimulator mucService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = new ReloginDummyConnection();
+        connection.connect();
+        connection.login();
+        multiUserChatManager = MultiUserChatManager.getInstanceFor(connection);
+
+        mucService = new MucServiceSimulator();
+        mucService.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        mucService.interrupt();
+        mucService.join();
+        connection.disconnect();
+    }
+
+    @SuppressWarnings("JavaUtilDate")
+    @Test
+    public void autoRejoinRejoinsEveryRoomWithoutLeaving() throws Exception {
+        final int roomCount = 5;
+        for (int i = 0; i < roomCount; i++) {
+            EntityBareJid room = JidCreate.entityBareFrom("room" + i + "@conference.example.org");
+            multiUserChatManager.getMultiUserChat(room).join(NICKNAME);
+        }
+        assertEquals(roomCount, multiUserChatManager.getJoinedRooms().size());
+
+        // A message of room0 with a timestamp after all joins, which must be the timestamp the history is requested
+        // since.
+        EntityBareJid room0 = JidCreate.entityBareFrom("room0@conference.example.org");
+        Date messageTimestamp = new Date(System.currentTimeMillis() + TimeUnit.HOURS.toMillis(1));
+        Message message = connection.getStanzaFactory().buildMessageStanza()
+                        .ofType(Message.Type.groupchat)
+                        .from(JidCreate.entityFullFrom(room0, Resourcepart.from("other")))
+                        .to(connection.getUser())
+                        .setBody("Hello")
+                        .addExtension(new DelayInformation(messageTimestamp))
+                        .build();
+        connection.processStanza(message);
+
+        // The service refuses to let us rejoin room1, which must not affect the other rooms.
+        EntityBareJid room1 = JidCreate.entityBareFrom("room1@conference.example.org");
+        mucService.refusedRooms.add(room1);
+
+        CountDownLatch callbacks = new CountDownLatch(roomCount);
+        List<EntityBareJid> rejoinedRooms = new CopyOnWriteArrayList<>();
+        List<EntityBareJid> failedRooms = new CopyOnWriteArrayList<>();
+        multiUserChatManager.setAutoJoinOnReconnectWindow(2);
+        multiUserChatManager.setAutoJoinSuccessCallback((muc, nickname) -> {
+            rejoinedRooms.add(muc.getRoom());
+            callbacks.countDown();
+        });
+        multiUserChatManager.setAutoJoinFailedCallback((muc, e) -> {
+            failedRooms.add(muc.getRoom());
+            callbacks.countDown();
+        });
+
+        mucService.joinPresences.clear();
+        connection.simulateReconnect();
+
+        assertTrue(callbacks.await(10, TimeUnit.SECONDS));
+        assertEquals(roomCount - 1, rejoinedRooms.size());
+        assertEquals(1, failedRooms.size());
+        assertEquals(room1, failedRooms.get(0));
+        assertEquals(roomCount - 1, multiUserChatManager.getJoinedRooms().size());
+
+        assertEquals(0, mucService.leavePresences.get());
+        assertEquals(roomCount, mucService.joinPresences.size());
+        for (Map.Entry<EntityBareJid, Presence> entry : mucService.joinPresences.entrySet()) {
+            MUCInitialPresence.History history = MUCInitialPresence.from(entry.getValue()).getHistory();
+            assertNotNull(history);
+            assertNotNull(history.getSince());
+            if (entry.getKey().equals(room0)) {
+                assertEquals(messageTimestamp, history.getSince());
+            }
+        }
+    }
+
+    @Test
+    public void stanzasAreRoutedToTheirRoomAndBuffered() throws Exception {
+        multiUserChatManager.setMessageBufferSize(2);
+        multiUserChatManager.setMessageBufferOverflowPolicy(MultiUserChatManager.MessageBufferOverflowPolicy.dropNewest);
+
+        EntityBareJid room0 = JidCreate.entityBareFrom("room0@conference.example.org");
+        EntityBareJid room1 = JidCreate.entityBareFrom("room1@conference.example.org");
+        MultiUserChat muc0 = multiUserChatManager.getMultiUserChat(room0);
+        MultiUserChat muc1 = multiUserChatManager.getMultiUserChat(room1);
+        muc0.join(NICKNAME);
+        muc1.join(NICKNAME);
+
+        CountDownLatch messagesReceived = new CountDownLatch(4);
+        List<String> room0Bodies = new CopyOnWriteArrayList<>();
+        muc0.addMessageListener(message -> {
+            room0Bodies.add(message.getBody());
+            messagesReceived.countDown();
+        });
+        muc1.addMessageListener(message -> messagesReceived.countDown());
+
+        connection.processStanza(buildGroupchatMessage(room0, "1"));
+        connection.processStanza(buildGroupchatMessage(room0, "2"));
+        connection.processStanza(buildGroupchatMessage(room1, "other room"));
+        connection.processStanza(buildGroupchatMessage(room0, "3"));
+        assertTrue(messagesReceived.await(10, TimeUnit.SECONDS));
+
+        // The listeners see every message, while the buffer dropped the message exceeding its size.
+        assertEquals(3, room0Bodies.size());
+        assertEquals("1", muc0.pollMessage().getBody());
+        assertEquals("2", muc0.pollMessage().getBody());
+        assertNull(muc0.pollMessage());
+
+        assertEquals("other room", muc1.nextMessage(1000).getBody());
+        assertNull(muc1.pollMessage());
+    }
+
+    private Message buildGroupchatMessage(EntityBareJid room, String body) {
+        return connection.getStanzaFactory().buildMessageStanza()
+                        .ofType(Message.Type.groupchat)
+                        .from(JidCreate.entityFullFrom(room, Resourcepart.fromOrThrowUnchecked("other")))
+                        .to(connection.getUser())
+                        .setBody(body)
+                        .build();
+    }
+
+    private static final class ReloginDummyConnection extends DummyConnection {
+        /**
+         * Simulate that the connection was re-established without resuming the previous session.
+         */
+        private void simulateReconnect() throws SmackException.NotConnectedException, InterruptedException {
+            afterSuccessfulLogin(false);
+        }
+    }
+
+    /**
+     * Answers the service discovery requests and join presences of the client, like a MUC service would.
+     */
+    private final class MucServiceSimulator extends Thread {
+        private final Map<EntityBareJid, Presence> joinPresences = new ConcurrentHashMap<>();
+        private final List<EntityBareJid> refusedRooms = new CopyOnWriteArrayList<>();
+        private final AtomicInteger leavePresences = new AtomicInteger();
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                TopLevelStreamElement element = connection.getSentPacket(1);
+                if (element instanceof DiscoverInfo && ((DiscoverInfo) element).getType() == IQ.Type.get) {
+                    DiscoverInfo request = (DiscoverInfo) element;
+                    DiscoverInfo response = DiscoverInfoBuilder.buildResponseFor(request, IQ.ResponseType.result)
+                                    .addIdentity(new DiscoverInfo.Identity("conference", "Chat service", "text"))
+                                    .addFeature(MUCInitialPresence.NAMESPACE)
+                                    .build();
+                    connection.processStanza(response);
+                } else if (element instanceof Presence && ((Presence) element).getTo() != null) {
+                    processPresence((Presence) element);
+                }
+            }
+        }
+
+        private void processPresence(Presence presence) {
+            if (presence.getType() == Presence.Type.unavailable) {
+                leavePresences.incrementAndGet();
+                return;
+            }
+
+            EntityBareJid room = presence.getTo().asEntityBareJidIfPossible();
+            joinPresences.put(room, presence);
+            if (refusedRooms.contains(room)) {
+                Presence error = StanzaBuilder.buildPresence(presence.getStanzaId())
+                                .ofType(Presence.Type.error)
+                                .from(presence.getTo())
+                                .to(connection.getUser())
+                                .setError(StanzaError.getBuilder(StanzaError.Condition.forbidden).build())
+                                .build();
+                connection.processStanza(error);
+                return;
+            }
+
+            MUCUser mucUser = new MUCUser();
+            mucUser.setItem(new MUCItem(MUCAffiliation.member, MUCRole.participant, null, null, null, null, null));
+            mucUser.addStatusCode(MUCUser.Status.PRESENCE_TO_SELF_110);
+            Presence selfPresence = connection.getStanzaFactory().buildPresenceStanza()
+                            .ofType(Presence.Type.available)
+                            .from(presence.getTo())
+                            .to(connection.getUser())
+                            .addExtension(mucUser)
+                            .build();
+            connection.processStanza(selfPresence);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.DummyConnection;
+import org.jivesoftware.smack.packet.IQ;
+import org.jivesoftware.smack.packet.Presence;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.roster.packet.RosterPacket;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.impl.JidCreate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the presence lookups of a {@link Roster} with many contacts, each with a number of resources. The lookup of
+ * the best presence should take constant time regardless of the number of resources, and should not allocate. Run with
+ * <code>-prof gc</code> to verify the latter.
+ */
+@Fork(value = 1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RosterPresenceJmh {
+
+    private static final Presence.Mode[] MODES = Presence.Mode.values();
+
+    @Param({"1", "10", "100"})
+    private int resourceCount;
+
+    @Param({"1000"})
+    private int contactCount;
+
+    private DummyConnection connection;
+
+    private Roster roster;
+
+    private BareJid[] contacts;
+
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        connection = new DummyConnection();
+        connection.connect();
+        connection.login();
+        roster = Roster.getInstanceFor(connection);
+
+        contacts = new BareJid[contactCount];
+        for (int i = 0; i < contactCount; i++) {
+            contacts[i] = JidCreate.entityBareFrom("contact" + i + "@example.org");
+        }
+
+        loadRoster();
+
+        for (BareJid contact : contacts) {
+            for (int i = 0; i < resourceCount; i++) {
+                Presence presence = connection.getStanzaFactory().buildPresenceStanza()
+                                .from(JidCreate.fullFrom(contact + "/resource" + i))
+                                .to(connection.getUser())
+                                .ofType(Presence.Type.available)
+                                .setMode(MODES[i % MODES.length])
+                                .setPriority(i % 5)
+                                .build();
+                connection.processStanza(presence);
+            }
+        }
+
+        // Presences are processed asynchronously.
+        for (BareJid contact : contacts) {
+            while (roster.getAvailablePresences(contact).size() < resourceCount) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private void loadRoster() throws Exception {
+        roster.reload();
+        while (true) {
+            Stanza sentStanza = connection.getSentPacket();
+            if (!(sentStanza instanceof RosterPacket) || ((IQ) sentStanza).getType() != IQ.Type.get) {
+                continue;
+            }
+
+            RosterPacket rosterResult = new RosterPacket();
+            rosterResult.setTo(connection.getUser());
+            rosterResult.setType(IQ.Type.result);
+            rosterResult.setStanzaId(sentStanza.getStanzaId());
+            for (BareJid contact : contacts) {
+                RosterPacket.Item item = new RosterPacket.Item(contact, null);
+                item.setItemType(ItemType.both);
+                rosterResult.addRosterItem(item);
+            }
+            connection.processStanza(rosterResult);
+            break;
+        }
+        roster.waitUntilLoaded();
+    }
+
+    @TearDown
+    public void tearDown() {
+        connection.disconnect();
+    }
+
+    private BareJid nextContact() {
+        BareJid contact = contacts[next];
+        next = (next + 1) % contacts.length;
+        return contact;
+    }
+
+    @Benchmark
+    public Presence getPresence() {
+        return roster.getPresence(nextContact());
+    }
+
+    @Benchmark
+    public List<Presence> getAvailablePresences() {
+        return roster.getAvailablePresences(nextContact());
+    }
+}
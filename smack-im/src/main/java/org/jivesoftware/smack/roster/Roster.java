@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2003-2007 Jive Software, 2016-2024 Florian Schmaus.
+ * Copyright 2003-2007 Jive Software, 2016-2026 Florian Schmaus.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,7 +21,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,6 +39,7 @@ import org.jivesoftware.smack.AsyncButOrdered;
 import org.jivesoftware.smack.ConnectionCreationListener;
 import org.jivesoftware.smack.ConnectionListener;
 import org.jivesoftware.smack.Manager;
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException;
 import org.jivesoftware.smack.SmackException.FeatureNotSupportedException;
 import org.jivesoftware.smack.SmackException.NoResponseException;
@@ -262,7 +266,7 @@ public final class Roster extends Manager {
      * <p>
      * Note that we use {@link ConcurrentHashMap} also as static type of this field, since we use the fact that the same
      * thread can modify this collection, e.g. remove items, while iterating over it. This is done, for example in
-     * {@link #deleteEntry(Collection, RosterEntry)}. If we do not denote the static type to ConcurrentHashMap, but
+     * {@link #deleteEntries(Collection, Collection)}. If we do not denote the static type to ConcurrentHashMap, but
      * {@link Map} instead, then error prone would report a ModifyCollectionInEnhancedForLoop but.
      * </p>
      */
@@ -293,6 +297,13 @@ public final class Roster extends Manager {
     private final LruCache<BareJid, Map<Resourcepart, Presence>> nonRosterPresenceMap = new LruCache<>(
                     defaultNonRosterPresenceMapMaxSize);
 
+    /**
+     * The best presence, as returned by {@link #getPresence(BareJid)}, of the entities in {@link #presenceMap}. Updated
+     * whenever the presences of an entity change, so that looking up the best presence does not require to iterate
+     * over all presences of the entity.
+     */
+    private final Map<BareJid, Presence> bestPresenceMap = new ConcurrentHashMap<>();
+
     /**
      * Listeners called when the Roster was loaded.
      */
@@ -304,6 +315,25 @@ public final class Roster extends Manager {
      */
     private final Object rosterListenersAndEntriesLock = new Object();
 
+    /**
+     * The coalesced presences not yet delivered to the roster listeners, keyed by the full JID of the sender. Also
+     * used to guard the other presence coalescing state.
+     */
+    private final Map<Jid, Presence> coalescedPresences = new LinkedHashMap<>();
+
+    /**
+     * Ensures that batches of coalesced presences are delivered in order.
+     */
+    private final Object coalescedPresencesDeliveryLock = new Object();
+
+    private long presenceCoalescingWindowMillis;
+
+    private int presenceCoalescingMaxBatchSize;
+
+    private int coalescedPresenceUpdates;
+
+    private ScheduledAction coalescedPresencesFlushAction;
+
     private enum RosterState {
         uninitialized,
         loading,
@@ -733,6 +763,65 @@ public final class Roster extends Manager {
         return presenceEventListeners.remove(presenceEventListener);
     }
 
+    /**
+     * Enable the coalescing of presence events. Instead of invoking {@link RosterListener#presenceChanged(Presence)}
+     * for every received presence, the roster listeners are invoked with batches of presences via
+     * {@link RosterListener#presencesChanged(Collection)}. A batch is delivered once the given time window, starting
+     * with the first presence of the batch, elapsed, or once the batch received the given number of updates,
+     * whatever happens first. If a resource sent multiple presences within a batch, then only the latest one is
+     * delivered. This is useful for large rosters, where a burst of presences, e.g. after login, would otherwise
+     * cause a listener invocation, and potentially a UI update, per presence.
+     * <p>
+     * Changes of the own presence are not coalesced.
+     * </p>
+     *
+     * @param window the maximum time a presence is delayed.
+     * @param unit the unit of the time window.
+     * @param maxBatchSize the number of presence updates after which a batch is delivered immediately.
+     * @see #disablePresenceEventCoalescing()
+     * @since 4.5
+     */
+    public void setPresenceEventCoalescing(long window, TimeUnit unit, int maxBatchSize) {
+        long windowMillis = unit.toMillis(window);
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("The presence coalescing window must be at least one millisecond");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The maximum presence batch size must be positive");
+        }
+        synchronized (coalescedPresences) {
+            presenceCoalescingWindowMillis = windowMillis;
+            presenceCoalescingMaxBatchSize = maxBatchSize;
+        }
+    }
+
+    /**
+     * Disable the coalescing of presence events. Presences which have not yet been delivered to the roster listeners
+     * are delivered before this method returns.
+     *
+     * @see #setPresenceEventCoalescing(long, TimeUnit, int)
+     * @since 4.5
+     */
+    public void disablePresenceEventCoalescing() {
+        synchronized (coalescedPresences) {
+            presenceCoalescingWindowMillis = 0;
+        }
+        flushCoalescedPresences();
+    }
+
+    /**
+     * Check if presence events are coalesced.
+     *
+     * @return <code>true</code> if presence events are coalesced.
+     * @see #setPresenceEventCoalescing(long, TimeUnit, int)
+     * @since 4.5
+     */
+    public boolean isPresenceEventCoalescingEnabled() {
+        synchronized (coalescedPresences) {
+            return presenceCoalescingWindowMillis > 0;
+        }
+    }
+
     /**
      * Creates a new group.
      * <p>
@@ -1104,57 +1193,84 @@ public final class Roster extends Manager {
      *         or if no presence information is available.
      */
     public Presence getPresence(BareJid jid) {
-        Map<Resourcepart, Presence> userPresences = getPresencesInternal(jid);
-        if (userPresences == null) {
-            Presence presence = synthesizeUnvailablePresence(jid);
+        Presence presence = bestPresenceMap.get(jid);
+        if (presence != null) {
             return presence;
         }
-        else {
-            // Find the resource with the highest priority
-            // Might be changed to use the resource with the highest availability instead.
-            Presence presence = null;
-            // This is used in case no available presence is found
-            Presence unavailable = null;
 
-            for (Presence p : userPresences.values()) {
-                if (!p.isAvailable()) {
-                    unavailable = p;
-                    continue;
-                }
-                // Chose presence with highest priority first.
-                if (presence == null || p.getPriority() > presence.getPriority()) {
-                    presence = p;
-                }
-                // If equal priority, choose "most available" by the mode value.
-                else if (p.getPriority() == presence.getPriority()) {
-                    Presence.Mode pMode = p.getMode();
-                    // Default to presence mode of available.
-                    if (pMode == null) {
-                        pMode = Presence.Mode.available;
-                    }
-                    Presence.Mode presenceMode = presence.getMode();
-                    // Default to presence mode of available.
-                    if (presenceMode == null) {
-                        presenceMode = Presence.Mode.available;
-                    }
-                    if (pMode.compareTo(presenceMode) < 0) {
-                        presence = p;
-                    }
-                }
+        // Not a roster contact, or no presence information is available.
+        Map<Resourcepart, Presence> userPresences = getPresencesInternal(jid);
+        if (userPresences != null) {
+            presence = determineBestPresence(userPresences.values());
+        }
+        if (presence == null) {
+            presence = synthesizeUnvailablePresence(jid);
+        }
+        return presence;
+    }
+
+    /**
+     * Determine the best presence of the given presences of an entity. See {@link #getPresence(BareJid)} for how the
+     * best presence is chosen.
+     *
+     * @param presences the presences of the entity.
+     * @return the best presence, or <code>null</code> if there are no presences.
+     */
+    private static Presence determineBestPresence(Collection<Presence> presences) {
+        // Find the resource with the highest priority
+        // Might be changed to use the resource with the highest availability instead.
+        Presence presence = null;
+        // This is used in case no available presence is found
+        Presence unavailable = null;
+
+        for (Presence p : presences) {
+            if (!p.isAvailable()) {
+                unavailable = p;
+                continue;
             }
-            if (presence == null) {
-                if (unavailable != null) {
-                    return unavailable;
+            // Chose presence with highest priority first.
+            if (presence == null || p.getPriority() > presence.getPriority()) {
+                presence = p;
+            }
+            // If equal priority, choose "most available" by the mode value.
+            else if (p.getPriority() == presence.getPriority()) {
+                Presence.Mode pMode = p.getMode();
+                // Default to presence mode of available.
+                if (pMode == null) {
+                    pMode = Presence.Mode.available;
                 }
-                else {
-                    presence = synthesizeUnvailablePresence(jid);
-                    return presence;
+                Presence.Mode presenceMode = presence.getMode();
+                // Default to presence mode of available.
+                if (presenceMode == null) {
+                    presenceMode = Presence.Mode.available;
+                }
+                if (pMode.compareTo(presenceMode) < 0) {
+                    presence = p;
                 }
             }
-            else {
-                return presence;
-            }
         }
+        if (presence == null) {
+            return unavailable;
+        }
+        return presence;
+    }
+
+    /**
+     * Update the best presence of the given entity. Must be invoked after the presences of the entity changed, or after
+     * the presences of the entity were moved from or to {@link #presenceMap}.
+     *
+     * @param entity the entity.
+     */
+    private void updateBestPresence(BareJid entity) {
+        // Determining the best presence within compute() ensures that concurrent updates always result in the best
+        // presence of the most recent presences.
+        bestPresenceMap.compute(entity, (e, oldBestPresence) -> {
+            Map<Resourcepart, Presence> presences = presenceMap.get(e);
+            if (presences == null) {
+                return null;
+            }
+            return determineBestPresence(presences.values());
+        });
     }
 
     /**
@@ -1218,11 +1334,14 @@ public final class Roster extends Manager {
      * @return available presences for the bare JID.
      */
     public List<Presence> getAvailablePresences(BareJid bareJid) {
-        List<Presence> allPresences = getAllPresences(bareJid);
-        List<Presence> res = new ArrayList<>(allPresences.size());
-        for (Presence presence : allPresences) {
+        Map<Resourcepart, Presence> userPresences = getPresencesInternal(bareJid);
+        if (userPresences == null) {
+            return new ArrayList<>(0);
+        }
+
+        List<Presence> res = new ArrayList<>(userPresences.size());
+        for (Presence presence : userPresences.values()) {
             if (presence.isAvailable()) {
-                // No need to clone presence here, getAllPresences already returns clones
                 res.add(presence);
             }
         }
@@ -1441,6 +1560,35 @@ public final class Roster extends Manager {
             return;
         }
 
+        if (!ownPresence) {
+            boolean coalesced;
+            boolean flushNow;
+            synchronized (coalescedPresences) {
+                coalesced = presenceCoalescingWindowMillis > 0;
+                if (coalesced) {
+                    // Only the latest presence of every resource is delivered, ordered by the time it was received.
+                    Jid from = presence.getFrom();
+                    coalescedPresences.remove(from);
+                    coalescedPresences.put(from, presence);
+                    coalescedPresenceUpdates++;
+                    flushNow = coalescedPresenceUpdates >= presenceCoalescingMaxBatchSize;
+                    if (!flushNow && coalescedPresencesFlushAction == null) {
+                        coalescedPresencesFlushAction = scheduleBlocking(this::flushCoalescedPresences,
+                                        presenceCoalescingWindowMillis, TimeUnit.MILLISECONDS);
+                    }
+                } else {
+                    // Coalescing got disabled concurrently, deliver the remaining presences first.
+                    flushNow = !coalescedPresences.isEmpty();
+                }
+            }
+            if (flushNow) {
+                flushCoalescedPresences();
+            }
+            if (coalesced) {
+                return;
+            }
+        }
+
         synchronized (rosterListenersAndEntriesLock) {
             for (RosterListener listener : rosterListeners) {
                 if (ownPresence) {
@@ -1452,80 +1600,168 @@ public final class Roster extends Manager {
         }
     }
 
-    private void addUpdateEntry(Collection<Jid> addedEntries, Collection<Jid> updatedEntries,
-                    Collection<Jid> unchangedEntries, RosterPacket.Item item, RosterEntry entry) {
-        RosterEntry oldEntry;
-        synchronized (rosterListenersAndEntriesLock) {
-            oldEntry = entries.put(item.getJid(), entry);
-        }
-        if (oldEntry == null) {
-            BareJid jid = item.getJid();
-            addedEntries.add(jid);
-            // Move the eventually existing presences from nonRosterPresenceMap to presenceMap.
-            move(jid, nonRosterPresenceMap, presenceMap);
-        }
-        else {
-            RosterPacket.Item oldItem = RosterEntry.toRosterItem(oldEntry);
-            if (!oldEntry.equalsDeep(entry) || !item.getGroupNames().equals(oldItem.getGroupNames())) {
-                updatedEntries.add(item.getJid());
-                oldEntry.updateItem(item);
-            } else {
-                // Record the entry as unchanged, so that it doesn't end up as deleted entry
-                unchangedEntries.add(item.getJid());
+    private void flushCoalescedPresences() {
+        synchronized (coalescedPresencesDeliveryLock) {
+            List<Presence> presences;
+            synchronized (coalescedPresences) {
+                if (coalescedPresencesFlushAction != null) {
+                    coalescedPresencesFlushAction.cancel();
+                    coalescedPresencesFlushAction = null;
+                }
+                if (coalescedPresences.isEmpty()) {
+                    return;
+                }
+                presences = Collections.unmodifiableList(new ArrayList<>(coalescedPresences.values()));
+                coalescedPresences.clear();
+                coalescedPresenceUpdates = 0;
             }
-        }
 
-        // Mark the entry as unfiled if it does not belong to any groups.
-        if (item.getGroupNames().isEmpty()) {
-            unfiledEntries.add(entry);
-        }
-        else {
-            unfiledEntries.remove(entry);
+            synchronized (rosterListenersAndEntriesLock) {
+                for (RosterListener listener : rosterListeners) {
+                    listener.presencesChanged(presences);
+                }
+            }
         }
+    }
+
+    /**
+     * Add or update the entries for the given roster items. All items are applied while holding the entries lock once,
+     * and the group memberships are updated per group, instead of per item.
+     *
+     * @param addedEntries the collection the addresses of the added entries are added to.
+     * @param updatedEntries the collection the addresses of the updated entries are added to.
+     * @param unchangedEntries the collection the addresses of the unchanged entries are added to.
+     * @param items the roster items.
+     */
+    private void addUpdateEntries(Collection<Jid> addedEntries, Collection<Jid> updatedEntries,
+                    Collection<Jid> unchangedEntries, Collection<RosterPacket.Item> items) {
+        final XMPPConnection connection = connection();
+        synchronized (rosterListenersAndEntriesLock) {
+            Map<BareJid, Set<String>> currentGroupNames = getGroupNamesByEntry(items);
+            Map<String, List<RosterEntry>> groupAdditions = new HashMap<>();
+
+            for (RosterPacket.Item item : items) {
+                BareJid jid = item.getJid();
+                RosterEntry entry = new RosterEntry(item, this, connection);
+                RosterEntry oldEntry = entries.put(jid, entry);
+
+                Set<String> oldGroupNames = currentGroupNames.get(jid);
+                if (oldGroupNames == null) {
+                    oldGroupNames = Collections.emptySet();
+                }
 
-        // Add the entry/user to the groups
-        List<String> newGroupNames = new ArrayList<>();
-        for (String groupName : item.getGroupNames()) {
-            // Add the group name to the list.
-            newGroupNames.add(groupName);
-
-            // Add the entry to the group.
-            RosterGroup group = getGroup(groupName);
-            if (group == null) {
-                group = createGroup(groupName);
-                groups.put(groupName, group);
+                if (oldEntry == null) {
+                    addedEntries.add(jid);
+                    // Move the eventually existing presences from nonRosterPresenceMap to presenceMap.
+                    move(jid, nonRosterPresenceMap, presenceMap);
+                    updateBestPresence(jid);
+                } else if (!oldEntry.equalsDeep(entry) || !item.getGroupNames().equals(oldGroupNames)) {
+                    updatedEntries.add(jid);
+                    oldEntry.updateItem(item);
+                } else {
+                    // Record the entry as unchanged, so that it doesn't end up as deleted entry
+                    unchangedEntries.add(jid);
+                }
+
+                // Mark the entry as unfiled if it does not belong to any groups.
+                if (item.getGroupNames().isEmpty()) {
+                    unfiledEntries.add(entry);
+                }
+                else {
+                    unfiledEntries.remove(entry);
+                }
+
+                for (String groupName : item.getGroupNames()) {
+                    List<RosterEntry> groupEntries = groupAdditions.get(groupName);
+                    if (groupEntries == null) {
+                        groupEntries = new ArrayList<>();
+                        groupAdditions.put(groupName, groupEntries);
+                    }
+                    groupEntries.add(entry);
+                }
+
+                // Remove the entry from the groups it no longer belongs to.
+                for (String oldGroupName : oldGroupNames) {
+                    if (item.getGroupNames().contains(oldGroupName)) {
+                        continue;
+                    }
+                    RosterGroup group = getGroup(oldGroupName);
+                    if (group != null) {
+                        group.removeEntryLocal(entry);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, List<RosterEntry>> groupAddition : groupAdditions.entrySet()) {
+                RosterGroup group = createGroup(groupAddition.getKey());
+                group.addEntriesLocal(groupAddition.getValue());
             }
-            // Add the entry.
-            group.addEntryLocal(entry);
         }
 
-        // Remove user from the remaining groups.
-        List<String> oldGroupNames = new ArrayList<>();
-        for (RosterGroup group : getGroups()) {
-            oldGroupNames.add(group.getName());
+        removeEmptyGroups();
+    }
+
+    /**
+     * Get the names of the groups the entries of the given items currently belong to. For a single item, only the
+     * groups are queried, otherwise the memberships of all groups are indexed once.
+     *
+     * @param items the roster items.
+     * @return a map from the address of the entries to the names of their current groups.
+     */
+    private Map<BareJid, Set<String>> getGroupNamesByEntry(Collection<RosterPacket.Item> items) {
+        Map<BareJid, Set<String>> groupNamesByEntry = new HashMap<>();
+        if (items.size() == 1) {
+            RosterEntry entry = entries.get(items.iterator().next().getJid());
+            if (entry == null) {
+                return groupNamesByEntry;
+            }
+            Set<String> groupNames = new HashSet<>();
+            for (RosterGroup group : getGroups()) {
+                if (group.contains(entry)) {
+                    groupNames.add(group.getName());
+                }
+            }
+            groupNamesByEntry.put(entry.getJid(), groupNames);
+            return groupNamesByEntry;
         }
-        oldGroupNames.removeAll(newGroupNames);
 
-        for (String groupName : oldGroupNames) {
-            RosterGroup group = getGroup(groupName);
-            group.removeEntryLocal(entry);
-            if (group.getEntryCount() == 0) {
-                groups.remove(groupName);
+        for (RosterGroup group : getGroups()) {
+            for (RosterEntry entry : group.getEntries()) {
+                Set<String> groupNames = groupNamesByEntry.get(entry.getJid());
+                if (groupNames == null) {
+                    groupNames = new HashSet<>();
+                    groupNamesByEntry.put(entry.getJid(), groupNames);
+                }
+                groupNames.add(group.getName());
             }
         }
+        return groupNamesByEntry;
     }
 
-    private void deleteEntry(Collection<Jid> deletedEntries, RosterEntry entry) {
-        BareJid user = entry.getJid();
-        entries.remove(user);
-        unfiledEntries.remove(entry);
-        // Move the presences from the presenceMap to the nonRosterPresenceMap.
-        move(user, presenceMap, nonRosterPresenceMap);
-        deletedEntries.add(user);
+    /**
+     * Delete the given entries. The entries are removed from each group at once.
+     *
+     * @param deletedEntries the collection the addresses of the deleted entries are added to.
+     * @param entriesToDelete the entries to delete, ideally a {@link Set} if there are many.
+     */
+    private void deleteEntries(Collection<Jid> deletedEntries, Collection<RosterEntry> entriesToDelete) {
+        if (entriesToDelete.isEmpty()) {
+            return;
+        }
+
+        for (RosterEntry entry : entriesToDelete) {
+            BareJid user = entry.getJid();
+            entries.remove(user);
+            unfiledEntries.remove(entry);
+            // Move the presences from the presenceMap to the nonRosterPresenceMap.
+            move(user, presenceMap, nonRosterPresenceMap);
+            updateBestPresence(user);
+            deletedEntries.add(user);
+        }
 
         for (Map.Entry<String, RosterGroup> e : groups.entrySet()) {
             RosterGroup group = e.getValue();
-            group.removeEntryLocal(entry);
+            group.removeEntriesLocal(entriesToDelete);
             if (group.getEntryCount() == 0) {
                 groups.remove(e.getKey());
             }
@@ -1717,6 +1953,7 @@ public final class Roster extends Manager {
                         userPresences.remove(Resourcepart.EMPTY);
                         // Add the new presence, using the resources as a key.
                         userPresences.put(fromResource, presence);
+                        updateBestPresence(key);
 
                         // If the user is in the roster or if its our own presence, fire an event.
                         fireRosterPresenceEvent(key, ownPresence, presence);
@@ -1740,6 +1977,7 @@ public final class Roster extends Manager {
                             // such as the user being on vacation.
                             userPresences.put(fromResource, presence);
                         }
+                        updateBestPresence(key);
 
                         // If the user is in the roster or if its our own presence, fire an event.
                         fireRosterPresenceEvent(key, ownPresence, presence);
@@ -1776,6 +2014,7 @@ public final class Roster extends Manager {
 
                         // Set the new presence using the empty resource as a key.
                         userPresences.put(Resourcepart.EMPTY, presence);
+                        updateBestPresence(key);
 
                         // If the user is in the roster or if its our own presence, fire an event.
                         fireRosterPresenceEvent(key, ownPresence, presence);
@@ -1809,7 +2048,6 @@ public final class Roster extends Manager {
 
         @Override
         public void onSuccess(IQ packet) {
-            final XMPPConnection connection = connection();
             LOGGER.log(Level.FINE, "RosterResultListener received {0}", packet);
             Collection<Jid> addedEntries = new ArrayList<>();
             Collection<Jid> updatedEntries = new ArrayList<>();
@@ -1828,10 +2066,7 @@ public final class Roster extends Manager {
                     }
                 }
 
-                for (RosterPacket.Item item : validItems) {
-                    RosterEntry entry = new RosterEntry(item, Roster.this, connection);
-                    addUpdateEntry(addedEntries, updatedEntries, unchangedEntries, item, entry);
-                }
+                addUpdateEntries(addedEntries, updatedEntries, unchangedEntries, validItems);
 
                 // Delete all entries which where not added or updated
                 Set<Jid> toDelete = new HashSet<>();
@@ -1841,16 +2076,16 @@ public final class Roster extends Manager {
                 toDelete.removeAll(addedEntries);
                 toDelete.removeAll(updatedEntries);
                 toDelete.removeAll(unchangedEntries);
+                Set<RosterEntry> entriesToDelete = new HashSet<>(toDelete.size());
                 for (Jid user : toDelete) {
-                    deleteEntry(deletedEntries, entries.get(user));
+                    entriesToDelete.add(entries.get(user));
                 }
+                deleteEntries(deletedEntries, entriesToDelete);
 
                 if (rosterStore != null) {
                     String version = rosterPacket.getVersion();
                     rosterStore.resetEntries(validItems, version);
                 }
-
-                removeEmptyGroups();
             }
             else {
                 // Empty roster result as defined in RFC6121 2.6.3. An empty roster result basically
@@ -1871,10 +2106,7 @@ public final class Roster extends Manager {
                     }
                     return;
                 }
-                for (RosterPacket.Item item : storedItems) {
-                    RosterEntry entry = new RosterEntry(item, Roster.this, connection);
-                    addUpdateEntry(addedEntries, updatedEntries, unchangedEntries, item, entry);
-                }
+                addUpdateEntries(addedEntries, updatedEntries, unchangedEntries, storedItems);
             }
 
             rosterState = RosterState.loaded;
@@ -1963,20 +2195,18 @@ public final class Roster extends Manager {
             String version = rosterPacket.getVersion();
 
             if (item.getItemType().equals(RosterPacket.ItemType.remove)) {
-                deleteEntry(deletedEntries, entry);
+                deleteEntries(deletedEntries, Collections.singletonList(entry));
                 if (rosterStore != null) {
                     rosterStore.removeEntry(entry.getJid(), version);
                 }
             }
             else if (hasValidSubscriptionType(item)) {
-                addUpdateEntry(addedEntries, updatedEntries, unchangedEntries, item, entry);
+                addUpdateEntries(addedEntries, updatedEntries, unchangedEntries, Collections.singletonList(item));
                 if (rosterStore != null) {
                     rosterStore.addEntry(item, version);
                 }
             }
 
-            removeEmptyGroups();
-
             // Fire event for roster listeners.
             fireRosterChangedEvent(addedEntries, updatedEntries, deletedEntries);
 
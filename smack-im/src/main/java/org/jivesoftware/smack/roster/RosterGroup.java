@@ -18,6 +18,8 @@
 package org.jivesoftware.smack.roster;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -224,6 +226,21 @@ public class RosterGroup extends Manager {
         }
     }
 
+    void addEntriesLocal(Collection<RosterEntry> entriesToAdd) {
+        synchronized (entries) {
+            // Update the entries which are already in the list. Note that removeAll() may invoke contains() on its
+            // argument for every element of this set.
+            entries.removeAll(entriesToAdd instanceof Set ? entriesToAdd : new HashSet<>(entriesToAdd));
+            entries.addAll(entriesToAdd);
+        }
+    }
+
+    void removeEntriesLocal(Collection<RosterEntry> entriesToRemove) {
+        synchronized (entries) {
+            entries.removeAll(entriesToRemove instanceof Set ? entriesToRemove : new HashSet<>(entriesToRemove));
+        }
+    }
+
     void removeEntryLocal(RosterEntry entry) {
          // Only remove the entry if it's in the entry list.
         synchronized (entries) {
@@ -80,6 +80,21 @@ public interface RosterListener {
      */
     void presenceChanged(Presence presence);
 
+    /**
+     * Called with a batch of changed presences if presence event coalescing is enabled. The presences are ordered by
+     * the time they were received, and only the latest presence of every resource is contained. The default
+     * implementation invokes {@link #presenceChanged(Presence)} for every presence.
+     *
+     * @param presences the presences that changed.
+     * @see Roster#setPresenceEventCoalescing(long, java.util.concurrent.TimeUnit, int)
+     * @since 4.5
+     */
+    default void presencesChanged(Collection<Presence> presences) {
+        for (Presence presence : presences) {
+            presenceChanged(presence);
+        }
+    }
+
     /**
      * Called when the presence of one of the own available resources is changed.
      *
@@ -0,0 +1,676 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster.rosterstore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.jxmpp.jid.BareJid;
+import org.jxmpp.jid.Jid;
+import org.jxmpp.jid.impl.JidCreate;
+
+/**
+ * Stores roster entries as specified by RFC 6121 for roster versioning in a single append-only journal file.
+ * <p>
+ * All entries are kept in memory, hence {@link #getEntries()} and {@link #getEntry(Jid)} do not touch the disk and
+ * do not involve any XML parsing. Modifications are appended as checksummed binary records to the journal. Every
+ * record carries the roster version it results in, so the stored version never refers to entries that were not
+ * persisted. When the store is opened, the journal is replayed and a partially written record at its end, e.g. caused
+ * by a crash, is discarded.
+ * </p>
+ * <p>
+ * Once the journal contains mostly obsolete records, it is compacted: a snapshot of the current entries is written to
+ * a temporary file, which then atomically replaces the journal. The same happens if the whole roster is replaced via
+ * {@link #resetEntries(Collection, String)}. Afterwards, the directory containing the journal is synced, so that the
+ * replacement is durable. On platforms which do not allow to sync a directory, e.g. Windows, a crash shortly after the
+ * compaction may leave the previous journal in place, which is still consistent but may lack the latest
+ * modifications.
+ * </p>
+ * <p>
+ * Appended records are not forced to the storage device right away. Instead, the journal is synced after
+ * {@link #setMaxUnsyncedRecords(int) a number of records} or once {@link #setMaxUnsyncedMillis(long) the oldest
+ * unsynced record} reaches a certain age, whatever happens first. Losing unsynced records only means that the store
+ * falls back to an older roster version, for which the server will send the missing changes.
+ * </p>
+ */
+public final class JournaledRosterStore implements RosterStore, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(JournaledRosterStore.class.getName());
+
+    private static final int MAGIC = 0x534d524a;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_LENGTH = 8;
+
+    private static final int MAX_RECORD_LENGTH = 1024 * 1024;
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final byte RECORD_VERSION = 3;
+
+    public static final int DEFAULT_MAX_UNSYNCED_RECORDS = 64;
+
+    public static final long DEFAULT_MAX_UNSYNCED_MILLIS = 1000;
+
+    /**
+     * The journal is only compacted if it contains at least that many records.
+     */
+    public static final int DEFAULT_COMPACTION_MIN_RECORDS = 1024;
+
+    private final File journalFile;
+
+    private final Map<BareJid, Item> entries = new LinkedHashMap<>();
+
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(256);
+
+    private final DataOutputStream recordOut = new DataOutputStream(recordBuffer);
+
+    private final CRC32 crc = new CRC32();
+
+    private String version;
+
+    private FileChannel channel;
+
+    private int journalRecords;
+
+    private int unsyncedRecords;
+
+    private long oldestUnsyncedRecordNanos;
+
+    /**
+     * Set if the journal may contain bytes of a failed append, or records which could not be synced. The journal is
+     * then replaced by a snapshot before the next record is appended.
+     */
+    private boolean snapshotRequired;
+
+    private int maxUnsyncedRecords = DEFAULT_MAX_UNSYNCED_RECORDS;
+
+    private long maxUnsyncedNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_UNSYNCED_MILLIS);
+
+    private int compactionMinRecords = DEFAULT_COMPACTION_MIN_RECORDS;
+
+    private JournaledRosterStore(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Creates a new, empty roster store on disk. An existing journal file is replaced.
+     *
+     * @param journalFile the journal file of the store.
+     * @return A {@link JournaledRosterStore} instance if successful, <code>null</code> else.
+     */
+    public static JournaledRosterStore init(File journalFile) {
+        JournaledRosterStore store = new JournaledRosterStore(journalFile);
+        try {
+            store.writeSnapshot("");
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not initialize roster journal " + journalFile, e);
+            return null;
+        }
+        return store;
+    }
+
+    /**
+     * Opens a roster store by replaying its journal.
+     *
+     * @param journalFile the journal file of the store.
+     * @return A {@link JournaledRosterStore} instance if successful, <code>null</code> else.
+     */
+    public static JournaledRosterStore open(File journalFile) {
+        if (!journalFile.isFile()) {
+            return null;
+        }
+
+        JournaledRosterStore store = new JournaledRosterStore(journalFile);
+        try {
+            if (!store.replay()) {
+                return null;
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not open roster journal " + journalFile, e);
+            return null;
+        }
+        return store;
+    }
+
+    /**
+     * Set the number of records after which the journal is synced to the storage device. Use 1 to sync after every
+     * modification.
+     *
+     * @param maxUnsyncedRecords the maximum number of unsynced records.
+     */
+    public synchronized void setMaxUnsyncedRecords(int maxUnsyncedRecords) {
+        if (maxUnsyncedRecords < 1) {
+            throw new IllegalArgumentException("The maximum number of unsynced records must be positive");
+        }
+        this.maxUnsyncedRecords = maxUnsyncedRecords;
+    }
+
+    /**
+     * Set the age of the oldest unsynced record after which the journal is synced to the storage device. The age is
+     * only checked when a further record is appended.
+     *
+     * @param maxUnsyncedMillis the maximum age of unsynced records in milliseconds.
+     */
+    public synchronized void setMaxUnsyncedMillis(long maxUnsyncedMillis) {
+        if (maxUnsyncedMillis < 0) {
+            throw new IllegalArgumentException("The maximum age of unsynced records must not be negative");
+        }
+        this.maxUnsyncedNanos = TimeUnit.MILLISECONDS.toNanos(maxUnsyncedMillis);
+    }
+
+    /**
+     * Set the minimum number of records the journal must contain before it is compacted. Compaction happens once the
+     * journal contains more than twice as many records as there are entries.
+     *
+     * @param compactionMinRecords the minimum number of records.
+     */
+    public synchronized void setCompactionMinRecords(int compactionMinRecords) {
+        if (compactionMinRecords < 0) {
+            throw new IllegalArgumentException("The minimum number of records must not be negative");
+        }
+        this.compactionMinRecords = compactionMinRecords;
+    }
+
+    @Override
+    public synchronized List<Item> getEntries() {
+        List<Item> res = new ArrayList<>(entries.size());
+        for (Item item : entries.values()) {
+            res.add(copyOf(item));
+        }
+        return res;
+    }
+
+    @Override
+    public synchronized Item getEntry(Jid bareJid) {
+        Item item = entries.get(bareJid.asBareJid());
+        if (item == null) {
+            return null;
+        }
+        return copyOf(item);
+    }
+
+    @Override
+    public synchronized String getRosterVersion() {
+        return version;
+    }
+
+    @Override
+    public synchronized boolean addEntry(Item item, String version) {
+        try {
+            recordBuffer.reset();
+            recordOut.writeByte(RECORD_PUT);
+            writeVersion(recordOut, version);
+            writeItem(recordOut, item);
+            append();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not append roster entry to " + journalFile, e);
+            return false;
+        }
+
+        entries.put(item.getJid(), copyOf(item));
+        this.version = version;
+        maybeCompact();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean removeEntry(Jid bareJid, String version) {
+        BareJid jid = bareJid.asBareJid();
+        try {
+            recordBuffer.reset();
+            recordOut.writeByte(RECORD_REMOVE);
+            writeVersion(recordOut, version);
+            recordOut.writeUTF(jid.toString());
+            append();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not append roster entry removal to " + journalFile, e);
+            return false;
+        }
+
+        entries.remove(jid);
+        this.version = version;
+        maybeCompact();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean resetEntries(Collection<Item> items, String version) {
+        Map<BareJid, Item> previousEntries = new LinkedHashMap<>(entries);
+        entries.clear();
+        for (Item item : items) {
+            entries.put(item.getJid(), copyOf(item));
+        }
+
+        try {
+            writeSnapshot(version);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not write roster snapshot to " + journalFile, e);
+            entries.clear();
+            entries.putAll(previousEntries);
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void resetStore() {
+        resetEntries(new ArrayList<Item>(), "");
+    }
+
+    /**
+     * Sync all appended records to the storage device.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized void sync() throws IOException {
+        if (unsyncedRecords == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            // It is unknown which of the unsynced records made it to the storage device.
+            snapshotRequired = true;
+            throw e;
+        }
+        unsyncedRecords = 0;
+    }
+
+    /**
+     * Compact the journal, so that it only contains the current entries.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized void compact() throws IOException {
+        writeSnapshot(version);
+    }
+
+    /**
+     * Get the number of records in the journal.
+     *
+     * @return the number of records in the journal.
+     */
+    public synchronized int getJournalRecordCount() {
+        return journalRecords;
+    }
+
+    /**
+     * Sync and close the journal. The store must not be used afterwards.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            sync();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Append the record in {@link #recordBuffer} to the journal. If this fails, then the record is removed from the
+     * journal again, so that the journal does not contain a modification which the store reported as failed.
+     */
+    private void append() throws IOException {
+        if (snapshotRequired) {
+            writeSnapshot(version);
+        }
+
+        final long position = channel.position();
+        try {
+            writeRecord(channel);
+        } catch (IOException e) {
+            discardFrom(position);
+            throw e;
+        }
+        journalRecords++;
+
+        long now = System.nanoTime();
+        if (unsyncedRecords++ == 0) {
+            oldestUnsyncedRecordNanos = now;
+        }
+        if (unsyncedRecords >= maxUnsyncedRecords || now - oldestUnsyncedRecordNanos >= maxUnsyncedNanos) {
+            try {
+                sync();
+            } catch (IOException e) {
+                discardFrom(position);
+                journalRecords--;
+                unsyncedRecords--;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Discard everything appended to the journal after the given position. If that is not possible, then the journal
+     * is replaced by a snapshot before the next record is appended, as torn bytes would cause all later records to be
+     * discarded when the journal is replayed.
+     */
+    private void discardFrom(long position) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not discard failed record of roster journal " + journalFile, e);
+            snapshotRequired = true;
+        }
+    }
+
+    /**
+     * Write the record in {@link #recordBuffer} to the given channel.
+     */
+    private void writeRecord(FileChannel channel) throws IOException {
+        byte[] payload = recordBuffer.toByteArray();
+        if (payload.length > MAX_RECORD_LENGTH) {
+            throw new IOException("Roster journal record too large: " + payload.length + " bytes");
+        }
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        // Workaround for Android API not matching Java >=9 API.
+        // See https://issuetracker.google.com/issues/369219141
+        ((java.nio.Buffer) record).flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private void maybeCompact() {
+        if (journalRecords < compactionMinRecords || journalRecords <= 2 * entries.size()) {
+            return;
+        }
+        try {
+            writeSnapshot(version);
+        } catch (IOException e) {
+            // The journal is still intact, compaction will be retried with the next modification.
+            LOGGER.log(Level.WARNING, "Could not compact roster journal " + journalFile, e);
+        }
+    }
+
+    /**
+     * Write the current entries together with the given version to a temporary file, which then atomically replaces
+     * the journal.
+     */
+    private void writeSnapshot(String version) throws IOException {
+        File parent = journalFile.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create directory " + parent);
+        }
+        File tmpFile = new File(parent, journalFile.getName() + ".tmp");
+
+        FileChannel snapshotChannel = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC);
+            header.putInt(FORMAT_VERSION);
+            // Workaround for Android API not matching Java >=9 API.
+            // See https://issuetracker.google.com/issues/369219141
+            ((java.nio.Buffer) header).flip();
+            while (header.hasRemaining()) {
+                snapshotChannel.write(header);
+            }
+
+            for (Item item : entries.values()) {
+                recordBuffer.reset();
+                recordOut.writeByte(RECORD_PUT);
+                writeVersion(recordOut, version);
+                writeItem(recordOut, item);
+                writeRecord(snapshotChannel);
+            }
+            // Also record the version explicitly, as there may be no entries.
+            recordBuffer.reset();
+            recordOut.writeByte(RECORD_VERSION);
+            writeVersion(recordOut, version);
+            writeRecord(snapshotChannel);
+
+            snapshotChannel.force(true);
+        } finally {
+            snapshotChannel.close();
+        }
+
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        try {
+            try {
+                Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                                StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmpFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(parent);
+        } finally {
+            // Continue appending to either the new or, if the move failed, the previous journal.
+            if (journalFile.isFile()) {
+                openForAppend();
+            }
+        }
+
+        journalRecords = entries.size() + 1;
+        unsyncedRecords = 0;
+        snapshotRequired = false;
+        this.version = version;
+    }
+
+    /**
+     * Sync the given directory to the storage device, so that a file moved into it survives a crash. Not every
+     * platform allows to open a directory, in which case this does nothing.
+     */
+    private static void syncDirectory(File directory) {
+        try (FileChannel directoryChannel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not sync directory " + directory, e);
+        }
+    }
+
+    private void openForAppend() throws IOException {
+        channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE);
+        channel.position(channel.size());
+    }
+
+    /**
+     * Replay the journal.
+     *
+     * @return <code>false</code> if the file is not a roster journal.
+     */
+    private boolean replay() throws IOException {
+        long validLength = HEADER_LENGTH;
+        int records = 0;
+        String version = null;
+        boolean versionRead = false;
+        entries.clear();
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(journalFile.toPath()), 64 * 1024)) {
+            DataInputStream din = new DataInputStream(in);
+            try {
+                if (din.readInt() != MAGIC || din.readInt() != FORMAT_VERSION) {
+                    return false;
+                }
+            } catch (EOFException e) {
+                return false;
+            }
+
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                int checksum;
+                try {
+                    length = din.readInt();
+                    checksum = din.readInt();
+                    if (length <= 0 || length > MAX_RECORD_LENGTH) {
+                        LOGGER.warning("Invalid record length " + length + " in roster journal " + journalFile);
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, 2 * payload.length)];
+                    }
+                    din.readFully(payload, 0, length);
+                } catch (EOFException e) {
+                    // Either the end of the journal or a partially written record.
+                    break;
+                }
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    LOGGER.warning("Checksum mismatch in roster journal " + journalFile);
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+                byte type = record.readByte();
+                String recordVersion = readVersion(record);
+                switch (type) {
+                case RECORD_PUT:
+                    Item item = readItem(record);
+                    entries.put(item.getJid(), item);
+                    break;
+                case RECORD_REMOVE:
+                    entries.remove(JidCreate.bareFrom(record.readUTF()));
+                    break;
+                case RECORD_VERSION:
+                    break;
+                default:
+                    throw new IOException("Unknown record type " + type + " in roster journal " + journalFile);
+                }
+                version = recordVersion;
+                versionRead = true;
+                validLength += 8 + length;
+                records++;
+            }
+        }
+
+        if (!versionRead) {
+            // Not even the version record of the initial snapshot was written completely.
+            return false;
+        }
+
+        openForAppend();
+        if (channel.size() > validLength) {
+            LOGGER.warning("Discarding " + (channel.size() - validLength) + " trailing bytes of roster journal "
+                            + journalFile);
+            channel.truncate(validLength);
+            channel.position(validLength);
+        }
+
+        this.version = version;
+        journalRecords = records;
+        return true;
+    }
+
+    /**
+     * Write the given roster version, which is <code>null</code> if the server did not announce one.
+     */
+    private static void writeVersion(DataOutputStream out, String version) throws IOException {
+        out.writeBoolean(version != null);
+        if (version != null) {
+            out.writeUTF(version);
+        }
+    }
+
+    private static String readVersion(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeItem(DataOutputStream out, Item item) throws IOException {
+        out.writeUTF(item.getJid().toString());
+        String name = item.getName();
+        out.writeBoolean(name != null);
+        if (name != null) {
+            out.writeUTF(name);
+        }
+        out.writeUTF(item.getItemType().name());
+        out.writeBoolean(item.isSubscriptionPending());
+        out.writeBoolean(item.isApproved());
+        out.writeInt(item.getGroupNames().size());
+        for (String groupName : item.getGroupNames()) {
+            out.writeUTF(groupName);
+        }
+    }
+
+    private static Item readItem(DataInputStream in) throws IOException {
+        BareJid jid = JidCreate.bareFrom(in.readUTF());
+        String name = in.readBoolean() ? in.readUTF() : null;
+        ItemType itemType;
+        try {
+            itemType = ItemType.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e);
+        }
+        boolean subscriptionPending = in.readBoolean();
+        boolean approved = in.readBoolean();
+
+        Item item = new Item(jid, name, subscriptionPending);
+        item.setItemType(itemType);
+        item.setApproved(approved);
+        int groupCount = in.readInt();
+        for (int i = 0; i < groupCount; i++) {
+            item.addGroupName(in.readUTF());
+        }
+        return item;
+    }
+
+    private static Item copyOf(Item item) {
+        Item copy = new Item(item.getJid(), item.getName(), item.isSubscriptionPending());
+        copy.setItemType(item.getItemType());
+        copy.setApproved(item.isApproved());
+        for (String groupName : item.getGroupNames()) {
+            copy.addGroupName(groupName);
+        }
+        return copy;
+    }
+}
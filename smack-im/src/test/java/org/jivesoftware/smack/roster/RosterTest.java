@@ -25,10 +25,14 @@ import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.jivesoftware.smack.DummyConnection;
 import org.jivesoftware.smack.SmackException;
@@ -518,6 +522,142 @@ public class RosterTest extends InitSmackIm {
         assertSame("Wrong number of roster entries.", 4, roster.getEntries().size());
     }
 
+    /**
+     * Test that a roster push moving an entry to another group updates the group memberships and removes the then
+     * empty group.
+     *
+     * @throws Throwable in case a throwable is thrown.
+     */
+    @Test
+    public void testRosterPushMovesEntryToAnotherGroup() throws Throwable {
+        final BareJid romeoJid = JidCreate.entityBareFrom("romeo@example.net");
+        initRoster();
+        rosterListener.reset();
+
+        final RosterPacket rosterPush = new RosterPacket();
+        rosterPush.setType(IQ.Type.set);
+        rosterPush.setTo(connection.getUser());
+        final Item romeo = new Item(romeoJid, "Romeo");
+        romeo.addGroupName("Family");
+        romeo.setItemType(ItemType.both);
+        rosterPush.addRosterItem(romeo);
+        connection.processStanza(rosterPush);
+        rosterListener.waitUntilInvocationOrTimeout();
+
+        assertTrue("The roster listener wasn't invoked for Romeo.",
+                rosterListener.updatedAddressesContains("romeo@example.net"));
+        assertNull("The empty group wasn't removed.", roster.getGroup("Friends"));
+        final RosterGroup family = roster.getGroup("Family");
+        assertNotNull("The new group wasn't created.", family);
+        assertTrue("Romeo isn't a member of the new group.", family.contains(romeoJid));
+        assertEquals(1, roster.getEntry(romeoJid).getGroups().size());
+    }
+
+    /**
+     * Test that presence events are delivered in batches if presence event coalescing is enabled.
+     *
+     * @throws Throwable in case a throwable is thrown.
+     */
+    @Test
+    public void testPresenceEventCoalescing() throws Throwable {
+        initRoster();
+
+        final BlockingQueue<List<Presence>> batches = new LinkedBlockingQueue<>();
+        roster.addRosterListener(new AbstractRosterListener() {
+            @Override
+            public void presencesChanged(Collection<Presence> presences) {
+                batches.add(new ArrayList<>(presences));
+            }
+        });
+        // Use a large window, so that batches are only delivered because of the batch size.
+        roster.setPresenceEventCoalescing(1, TimeUnit.HOURS, 3);
+        assertTrue(roster.isPresenceEventCoalescingEnabled());
+
+        final Presence romeoAvailable = buildPresence("romeo@example.net/orchard", Presence.Mode.available);
+        final Presence romeoAway = buildPresence("romeo@example.net/orchard", Presence.Mode.away);
+        final Presence benvolioAvailable = buildPresence("benvolio@example.net/square", Presence.Mode.available);
+        connection.processStanza(romeoAvailable);
+        connection.processStanza(romeoAway);
+        connection.processStanza(benvolioAvailable);
+
+        List<Presence> batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull("No batch of presences was delivered.", batch);
+        // Only the latest presence of Romeo's resource is delivered. Presences of different contacts may be
+        // processed in any order.
+        assertEquals(2, batch.size());
+        assertTrue(batch.contains(romeoAway));
+        assertTrue(batch.contains(benvolioAvailable));
+
+        // Batches are also delivered once the time window elapsed.
+        roster.setPresenceEventCoalescing(100, TimeUnit.MILLISECONDS, 100);
+        final Presence mercutioAvailable = buildPresence("mercutio@example.com/street", Presence.Mode.available);
+        connection.processStanza(mercutioAvailable);
+        batch = batches.poll(5, TimeUnit.SECONDS);
+        assertNotNull("The batch of presences was not delivered after the time window.", batch);
+        assertEquals(Collections.singletonList(mercutioAvailable), batch);
+
+        roster.disablePresenceEventCoalescing();
+        assertFalse(roster.isPresenceEventCoalescingEnabled());
+    }
+
+    /**
+     * Test that the best presence of a contact follows the changes of the presences of its resources.
+     *
+     * @throws Throwable in case a throwable is thrown.
+     */
+    @Test
+    public void testBestPresence() throws Throwable {
+        final BareJid romeoJid = JidCreate.entityBareFrom("romeo@example.net");
+        initRoster();
+
+        final Presence away = buildPresence("romeo@example.net/orchard", Presence.Mode.away, 1);
+        final Presence chat = buildPresence("romeo@example.net/balcony", Presence.Mode.chat, 1);
+        final Presence lowPriority = buildPresence("romeo@example.net/church", Presence.Mode.chat, 0);
+        connection.processStanza(away);
+        connection.processStanza(chat);
+        connection.processStanza(lowPriority);
+        // The presence with the highest priority and the "most available" mode is the best presence.
+        waitForBestPresence(romeoJid, chat);
+        assertEquals(3, roster.getAvailablePresences(romeoJid).size());
+
+        final Presence chatUnavailable = connection.getStanzaFactory().buildPresenceStanza()
+                .from(JidCreate.from("romeo@example.net/balcony"))
+                .ofType(Presence.Type.unavailable)
+                .build();
+        connection.processStanza(chatUnavailable);
+        waitForBestPresence(romeoJid, away);
+        assertEquals(2, roster.getAvailablePresences(romeoJid).size());
+
+        // The presences of contacts removed from the roster are still considered.
+        removeAllRosterEntries(connection, roster);
+        for (int i = 0; i < 500 && roster.getEntry(romeoJid) != null; i++) {
+            Thread.sleep(10);
+        }
+        assertNull(roster.getEntry(romeoJid));
+        assertSame(away, roster.getPresence(romeoJid));
+    }
+
+    private void waitForBestPresence(BareJid jid, Presence expected) throws InterruptedException {
+        for (int i = 0; i < 500 && roster.getPresence(jid) != expected; i++) {
+            Thread.sleep(10);
+        }
+        assertSame(expected, roster.getPresence(jid));
+    }
+
+    private Presence buildPresence(String from, Presence.Mode mode) throws XmppStringprepException {
+        return buildPresence(from, mode, 0);
+    }
+
+    private Presence buildPresence(String from, Presence.Mode mode, int priority) throws XmppStringprepException {
+        return connection.getStanzaFactory().buildPresenceStanza()
+                .from(JidCreate.from(from))
+                .to(connection.getUser())
+                .ofType(Presence.Type.available)
+                .setMode(mode)
+                .setPriority(priority)
+                .build();
+    }
+
     /**
      * Remove all roster entries by iterating trough {@link Roster#getEntries()}
      * and simulating receiving roster pushes from the server.
@@ -0,0 +1,205 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.roster.rosterstore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.jivesoftware.smack.roster.packet.RosterPacket.Item;
+import org.jivesoftware.smack.roster.packet.RosterPacket.ItemType;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class JournaledRosterStoreTest {
+
+    @TempDir
+    File tempDir;
+
+    private File journalFile() {
+        return new File(tempDir, "roster.journal");
+    }
+
+    private static Item item(String jid, String name, ItemType itemType, String... groups) throws IOException {
+        Item item = new Item(JidCreate.bareFrom(jid), name);
+        item.setItemType(itemType);
+        for (String group : groups) {
+            item.addGroupName(group);
+        }
+        return item;
+    }
+
+    @Test
+    public void openingMissingJournalFails() {
+        assertNull(JournaledRosterStore.open(journalFile()));
+    }
+
+    @Test
+    public void initializedStoreIsEmpty() throws IOException {
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            assertNotNull(store);
+            assertEquals("", store.getRosterVersion());
+            assertTrue(store.getEntries().isEmpty());
+        }
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertNotNull(store);
+            assertEquals("", store.getRosterVersion());
+        }
+    }
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        Item juliet = item("juliet@example.org", "Juliet", ItemType.both, "Capulet", "Friends");
+        Item romeo = item("romeo@example.net", null, ItemType.to);
+        romeo.setSubscriptionPending(true);
+        romeo.setApproved(true);
+        Item nurse = item("nurse@example.org", "Nurse", ItemType.from);
+
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            assertTrue(store.addEntry(juliet, "v1"));
+            assertTrue(store.addEntry(romeo, "v2"));
+            assertTrue(store.addEntry(nurse, "v3"));
+            assertTrue(store.removeEntry(nurse.getJid(), "v4"));
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertEquals("v4", store.getRosterVersion());
+            assertEquals(new HashSet<>(Arrays.asList(juliet, romeo)), new HashSet<>(store.getEntries()));
+            assertEquals(romeo, store.getEntry(romeo.getJid()));
+            assertNull(store.getEntry(nurse.getJid()));
+        }
+    }
+
+    @Test
+    public void pushWithoutVersionIsStored() throws IOException {
+        Item juliet = item("juliet@example.org", "Juliet", ItemType.both);
+        Item romeo = item("romeo@example.net", "Romeo", ItemType.both);
+
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            // A roster push or result without a 'ver' attribute.
+            assertTrue(store.addEntry(juliet, null));
+            assertNull(store.getRosterVersion());
+            assertTrue(store.resetEntries(Arrays.asList(juliet, romeo), null));
+            assertTrue(store.removeEntry(juliet.getJid(), null));
+            store.compact();
+            assertNull(store.getRosterVersion());
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertNotNull(store);
+            assertNull(store.getRosterVersion());
+            assertEquals(Arrays.asList(romeo), store.getEntries());
+
+            assertTrue(store.addEntry(juliet, "v1"));
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertEquals("v1", store.getRosterVersion());
+        }
+    }
+
+    @Test
+    public void returnedEntriesAreCopies() throws IOException {
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            Item juliet = item("juliet@example.org", "Juliet", ItemType.both);
+            store.addEntry(juliet, "v1");
+            juliet.setName("Changed");
+            store.getEntry(juliet.getJid()).setName("Changed");
+            assertEquals("Juliet", store.getEntry(juliet.getJid()).getName());
+        }
+    }
+
+    @Test
+    public void tornRecordIsDiscarded() throws IOException {
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            store.addEntry(item("juliet@example.org", "Juliet", ItemType.both), "v1");
+            store.addEntry(item("romeo@example.net", "Romeo", ItemType.both), "v2");
+        }
+
+        // Simulate a crash while the last record was written.
+        try (RandomAccessFile file = new RandomAccessFile(journalFile(), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertNotNull(store);
+            assertEquals("v1", store.getRosterVersion());
+            assertEquals(1, store.getEntries().size());
+
+            // The journal can be appended to after the torn record was discarded.
+            store.addEntry(item("romeo@example.net", "Romeo", ItemType.both), "v2");
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertEquals("v2", store.getRosterVersion());
+            assertEquals(2, store.getEntries().size());
+        }
+    }
+
+    @Test
+    public void journalIsCompacted() throws IOException {
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            store.setCompactionMinRecords(16);
+            store.addEntry(item("romeo@example.net", "Romeo", ItemType.both), "v0");
+            for (int i = 1; i <= 100; i++) {
+                store.addEntry(item("juliet@example.org", "Juliet " + i, ItemType.both), "v" + i);
+            }
+            assertTrue(store.getJournalRecordCount() < 16);
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertEquals("v100", store.getRosterVersion());
+            assertEquals("Juliet 100", store.getEntry(JidCreate.bareFrom("juliet@example.org")).getName());
+            assertEquals(2, store.getEntries().size());
+        }
+    }
+
+    @Test
+    public void resetEntriesReplacesAllEntries() throws IOException {
+        try (JournaledRosterStore store = JournaledRosterStore.init(journalFile())) {
+            store.addEntry(item("romeo@example.net", "Romeo", ItemType.both), "v1");
+
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                items.add(item("contact" + i + "@example.org", "Contact " + i, ItemType.both, "Group " + (i % 10)));
+            }
+            assertTrue(store.resetEntries(items, "v2"));
+            assertEquals(1001, store.getJournalRecordCount());
+        }
+
+        try (JournaledRosterStore store = JournaledRosterStore.open(journalFile())) {
+            assertEquals("v2", store.getRosterVersion());
+            assertEquals(1000, store.getEntries().size());
+            assertNull(store.getEntry(JidCreate.bareFrom("romeo@example.net")));
+
+            store.resetStore();
+            assertEquals("", store.getRosterVersion());
+            assertTrue(store.getEntries().isEmpty());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2013-2020 Florian Schmaus
+ * Copyright 2013-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -79,6 +79,7 @@ public class DNSJavaResolver extends DNSResolver implements SmackInitializer {
 
                 SRV r = new SRV(priority, weight, port, host);
                 res.add(r);
+                reportTtl(srvRecord.getTTL());
             }
         }
 
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2014-2020 Florian Schmaus
+ * Copyright 2014-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,6 +30,7 @@ import org.jivesoftware.smack.util.DNSUtil;
 import org.jivesoftware.smack.util.dns.DNSResolver;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
 
+import org.minidns.dnsmessage.DnsMessage;
 import org.minidns.dnsmessage.DnsMessage.RESPONSE_CODE;
 import org.minidns.dnsmessage.Question;
 import org.minidns.dnsname.DnsName;
@@ -91,6 +92,7 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             return null;
         }
 
+        reportTtl(result);
         return result.getAnswers();
     }
 
@@ -128,6 +130,9 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
             return null;
         }
 
+        reportTtl(aResult);
+        reportTtl(aaaaResult);
+
         // TODO: Use ResolverResult.getAnswersOrEmptySet() once we updated MiniDNS.
         Set<A> aResults;
         if (aResult.wasSuccessful()) {
@@ -192,6 +197,17 @@ public class MiniDnsResolver extends DNSResolver implements SmackInitializer {
         }
     }
 
+    private static void reportTtl(ResolverResult<?> result) {
+        if (!result.wasSuccessful()) {
+            return;
+        }
+        DnsMessage answer = result.getRawAnswer();
+        if (answer == null || answer.answerSection.isEmpty()) {
+            return;
+        }
+        reportTtl(answer.getAnswersMinTtl());
+    }
+
     private static boolean shouldAbortIfNotAuthentic(DnsName name, DnssecMode dnssecMode,
                     ResolverResult<?> result, List<RemoteConnectionEndpointLookupFailure> lookupFailures) {
         switch (dnssecMode) {
@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm;
+
+/**
+ * Decides when to request a Stream Management acknowledgement based on the observed ack round-trip time (RTT), the
+ * bytes in flight and the depth of the unacknowledged stanzas queue, as recorded by {@link SmAckMetrics}.
+ * <p>
+ * Unlike the static predicates found in {@link org.jivesoftware.smack.sm.predicates}, this policy does not request an
+ * ack for every matching stanza. Instead, at most one ack request is outstanding during one RTT, and the request is
+ * meant to be piggybacked onto the current write batch, i.e., it is written right before the batch is flushed, so
+ * that it covers all stanzas of the batch. Only if the stanzas or bytes in flight exceed their limits, then an ack is
+ * requested immediately.
+ * </p>
+ */
+public final class AdaptiveAckRequestPolicy {
+
+    public enum Decision {
+        /**
+         * Do not request an ack.
+         */
+        none,
+
+        /**
+         * Request an ack once the current write batch is complete.
+         */
+        piggyback,
+
+        /**
+         * Request an ack immediately.
+         */
+        immediate,
+    }
+
+    private final SmAckMetrics metrics;
+
+    private final int maxUnacknowledgedStanzas;
+
+    private final long maxBytesInFlight;
+
+    /**
+     * Create a new adaptive ack request policy.
+     *
+     * @param metrics the metrics of the connection.
+     * @param maxUnacknowledgedStanzas the number of unacknowledged stanzas that causes an immediate ack request.
+     * @param maxBytesInFlight the number of unacknowledged bytes that causes an immediate ack request.
+     */
+    public AdaptiveAckRequestPolicy(SmAckMetrics metrics, int maxUnacknowledgedStanzas, long maxBytesInFlight) {
+        if (maxUnacknowledgedStanzas < 1 || maxBytesInFlight < 1) {
+            throw new IllegalArgumentException("The limits must be positive");
+        }
+        this.metrics = metrics;
+        this.maxUnacknowledgedStanzas = maxUnacknowledgedStanzas;
+        this.maxBytesInFlight = maxBytesInFlight;
+    }
+
+    /**
+     * Decide if an ack should be requested. Invoked after a stanza was sent, and after an ack answer was received.
+     *
+     * @param nowNanos the current value of {@link System#nanoTime()}.
+     * @return the decision.
+     */
+    public Decision decide(long nowNanos) {
+        synchronized (metrics) {
+            final long stanzasSinceLastAckRequest = metrics.getStanzasSentSinceLastAckRequest();
+            if (stanzasSinceLastAckRequest == 0) {
+                // Every sent stanza is already covered by an ack request.
+                return Decision.none;
+            }
+
+            // If the in-flight limits are exceeded, then do not wait for the end of the batch, as a long batch could
+            // otherwise cause the unacknowledged stanzas queue to overflow. But also do not request an ack for every
+            // further stanza while the server has not answered yet.
+            if ((metrics.getUnacknowledgedStanzasCount() >= maxUnacknowledgedStanzas
+                            && stanzasSinceLastAckRequest >= Math.max(1, maxUnacknowledgedStanzas / 4))
+                || (metrics.getBytesInFlight() >= maxBytesInFlight
+                            && metrics.getBytesSentSinceLastAckRequest() >= Math.max(1, maxBytesInFlight / 4))) {
+                return Decision.immediate;
+            }
+
+            if (!metrics.hasOutstandingAckRequest()) {
+                return Decision.piggyback;
+            }
+
+            // There is an outstanding ack request. Request another one if the answer is overdue with respect to the
+            // observed RTT, so that there is about one ack request per RTT while stanzas are continuously sent.
+            if (nowNanos - metrics.getLastAckRequestNanos() >= metrics.getSmoothedAckRttNanos()) {
+                return Decision.piggyback;
+            }
+
+            return Decision.none;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics about Stream Management acknowledgements of a connection. Records the round-trip time (RTT) of ack
+ * requests, the stanzas and bytes in flight, i.e., sent but not yet acknowledged, and the high-water marks of the
+ * involved queues.
+ * <p>
+ * The connection reports the events in the order they happen on the wire. All methods are thread-safe.
+ * </p>
+ */
+public final class SmAckMetrics {
+
+    /**
+     * The upper bounds, in milliseconds, of the buckets of the ack RTT histogram. The last bucket has no upper bound.
+     */
+    private static final long[] ACK_RTT_BUCKET_UPPER_BOUNDS_MILLIS = {
+        1, 2, 4, 8, 16, 32, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768,
+    };
+
+    private static final long INITIAL_SMOOTHED_ACK_RTT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final long[] ackRttHistogram = new long[ACK_RTT_BUCKET_UPPER_BOUNDS_MILLIS.length + 1];
+
+    private long ackRequestsSent;
+
+    private long ackAnswersReceived;
+
+    private long smoothedAckRttNanos = INITIAL_SMOOTHED_ACK_RTT_NANOS;
+
+    private boolean ackRttSampled;
+
+    private long minAckRttNanos = Long.MAX_VALUE;
+
+    private long maxAckRttNanos;
+
+    /**
+     * The number of stanzas sent, respectively acknowledged, in the current Stream Management session.
+     */
+    private long stanzasSent, stanzasAcknowledged;
+
+    private long bytesSent, bytesAcknowledged;
+
+    /**
+     * The value of {@link #bytesSent} after each unacknowledged stanza was sent, used to determine the bytes in
+     * flight. Implemented as ring buffer, as every sent stanza is recorded.
+     */
+    private long[] unacknowledgedBytesSent = new long[64];
+    private int unacknowledgedHead, unacknowledgedCount;
+
+    /**
+     * The outstanding ack requests, as pairs of the send timestamp and the value of {@link #stanzasSent} at the time
+     * the request was sent.
+     */
+    private final Deque<long[]> outstandingAckRequests = new ArrayDeque<>();
+
+    private long lastAckRequestNanos;
+    private long stanzasSentAtLastAckRequest;
+    private long bytesSentAtLastAckRequest;
+
+    private int unacknowledgedStanzasHighWaterMark;
+
+    private int outgoingQueueHighWaterMark;
+
+    /**
+     * Invoked when a new Stream Management session starts, or a previous one is resumed. Stanzas and ack requests of
+     * the previous stream are no longer considered to be in flight.
+     */
+    public synchronized void streamManagementSessionStarted() {
+        stanzasSent = stanzasAcknowledged = 0;
+        bytesSent = bytesAcknowledged = 0;
+        unacknowledgedHead = unacknowledgedCount = 0;
+        outstandingAckRequests.clear();
+        stanzasSentAtLastAckRequest = 0;
+        bytesSentAtLastAckRequest = 0;
+    }
+
+    /**
+     * Invoked when a stanza, which requires acknowledgement, was sent.
+     *
+     * @param bytes the size of the stanza.
+     */
+    public synchronized void stanzaSent(int bytes) {
+        stanzasSent++;
+        bytesSent += bytes;
+
+        if (unacknowledgedCount == unacknowledgedBytesSent.length) {
+            long[] newUnacknowledgedBytesSent = new long[unacknowledgedBytesSent.length * 2];
+            for (int i = 0; i < unacknowledgedCount; i++) {
+                newUnacknowledgedBytesSent[i] = unacknowledgedBytesSent[(unacknowledgedHead + i) % unacknowledgedBytesSent.length];
+            }
+            unacknowledgedBytesSent = newUnacknowledgedBytesSent;
+            unacknowledgedHead = 0;
+        }
+        unacknowledgedBytesSent[(unacknowledgedHead + unacknowledgedCount) % unacknowledgedBytesSent.length] = bytesSent;
+        unacknowledgedCount++;
+
+        if (unacknowledgedCount > unacknowledgedStanzasHighWaterMark) {
+            unacknowledgedStanzasHighWaterMark = unacknowledgedCount;
+        }
+    }
+
+    /**
+     * Invoked when an ack request was sent.
+     *
+     * @param nowNanos the current value of {@link System#nanoTime()}.
+     */
+    public synchronized void ackRequestSent(long nowNanos) {
+        ackRequestsSent++;
+        outstandingAckRequests.add(new long[] { nowNanos, stanzasSent });
+        lastAckRequestNanos = nowNanos;
+        stanzasSentAtLastAckRequest = stanzasSent;
+        bytesSentAtLastAckRequest = bytesSent;
+    }
+
+    /**
+     * Invoked when an ack answer was received.
+     *
+     * @param acknowledgedStanzasCount the number of stanzas acknowledged by the answer.
+     * @param nowNanos the current value of {@link System#nanoTime()}.
+     */
+    public synchronized void ackAnswerReceived(long acknowledgedStanzasCount, long nowNanos) {
+        ackAnswersReceived++;
+
+        int acknowledged = (int) Math.min(acknowledgedStanzasCount, unacknowledgedCount);
+        if (acknowledged > 0) {
+            int lastAcknowledged = (unacknowledgedHead + acknowledged - 1) % unacknowledgedBytesSent.length;
+            bytesAcknowledged = unacknowledgedBytesSent[lastAcknowledged];
+            unacknowledgedHead = (unacknowledgedHead + acknowledged) % unacknowledgedBytesSent.length;
+            unacknowledgedCount -= acknowledged;
+        }
+        stanzasAcknowledged += acknowledged;
+
+        // The server answers ack requests in order, hence every outstanding request that covers no more than the
+        // acknowledged stanzas is answered now.
+        long[] outstandingAckRequest;
+        while ((outstandingAckRequest = outstandingAckRequests.peek()) != null
+                        && outstandingAckRequest[1] <= stanzasAcknowledged) {
+            outstandingAckRequests.poll();
+            recordAckRtt(nowNanos - outstandingAckRequest[0]);
+        }
+    }
+
+    private void recordAckRtt(long ackRttNanos) {
+        if (ackRttSampled) {
+            // Exponentially weighted moving average, like the smoothed RTT of TCP (RFC 6298).
+            smoothedAckRttNanos += (ackRttNanos - smoothedAckRttNanos) / 8;
+        } else {
+            smoothedAckRttNanos = ackRttNanos;
+            ackRttSampled = true;
+        }
+        minAckRttNanos = Math.min(minAckRttNanos, ackRttNanos);
+        maxAckRttNanos = Math.max(maxAckRttNanos, ackRttNanos);
+
+        long ackRttMillis = TimeUnit.NANOSECONDS.toMillis(ackRttNanos);
+        int bucket = 0;
+        while (bucket < ACK_RTT_BUCKET_UPPER_BOUNDS_MILLIS.length && ackRttMillis >= ACK_RTT_BUCKET_UPPER_BOUNDS_MILLIS[bucket]) {
+            bucket++;
+        }
+        ackRttHistogram[bucket]++;
+    }
+
+    /**
+     * Record the current size of the outgoing queue.
+     *
+     * @param size the size of the outgoing queue.
+     */
+    public synchronized void outgoingQueueSize(int size) {
+        if (size > outgoingQueueHighWaterMark) {
+            outgoingQueueHighWaterMark = size;
+        }
+    }
+
+    public synchronized long getSmoothedAckRttNanos() {
+        return smoothedAckRttNanos;
+    }
+
+    public synchronized boolean hasOutstandingAckRequest() {
+        return !outstandingAckRequests.isEmpty();
+    }
+
+    public synchronized long getLastAckRequestNanos() {
+        return lastAckRequestNanos;
+    }
+
+    public synchronized long getStanzasSentSinceLastAckRequest() {
+        return stanzasSent - stanzasSentAtLastAckRequest;
+    }
+
+    public synchronized long getBytesSentSinceLastAckRequest() {
+        return bytesSent - bytesSentAtLastAckRequest;
+    }
+
+    public synchronized int getUnacknowledgedStanzasCount() {
+        return unacknowledgedCount;
+    }
+
+    public synchronized long getBytesInFlight() {
+        return bytesSent - bytesAcknowledged;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(this);
+    }
+
+    public static final class Stats {
+        public final long ackRequestsSent;
+        public final long ackAnswersReceived;
+
+        /**
+         * The histogram of ack RTTs, bucket i counts the RTTs less than {@link #ackRttBucketUpperBoundsMillis}[i] and
+         * not in a previous bucket. The last bucket counts the RTTs exceeding all upper bounds.
+         */
+        public final long[] ackRttHistogram;
+        public final long[] ackRttBucketUpperBoundsMillis;
+        public final double smoothedAckRttMillis;
+        public final double minAckRttMillis;
+        public final double maxAckRttMillis;
+
+        public final int unacknowledgedStanzas;
+        public final long bytesInFlight;
+        public final int unacknowledgedStanzasHighWaterMark;
+        public final int outgoingQueueHighWaterMark;
+
+        private Stats(SmAckMetrics metrics) {
+            ackRequestsSent = metrics.ackRequestsSent;
+            ackAnswersReceived = metrics.ackAnswersReceived;
+
+            ackRttHistogram = metrics.ackRttHistogram.clone();
+            ackRttBucketUpperBoundsMillis = ACK_RTT_BUCKET_UPPER_BOUNDS_MILLIS.clone();
+            smoothedAckRttMillis = toMillis(metrics.smoothedAckRttNanos);
+            if (metrics.ackRttSampled) {
+                minAckRttMillis = toMillis(metrics.minAckRttNanos);
+                maxAckRttMillis = toMillis(metrics.maxAckRttNanos);
+            } else {
+                minAckRttMillis = maxAckRttMillis = Double.NaN;
+            }
+
+            unacknowledgedStanzas = metrics.unacknowledgedCount;
+            bytesInFlight = metrics.getBytesInFlight();
+            unacknowledgedStanzasHighWaterMark = metrics.unacknowledgedStanzasHighWaterMark;
+            outgoingQueueHighWaterMark = metrics.outgoingQueueHighWaterMark;
+        }
+
+        private static double toMillis(long nanos) {
+            return nanos / 1000000d;
+        }
+
+        private transient String toStringCache;
+
+        @Override
+        public String toString() {
+            if (toStringCache != null) {
+                return toStringCache;
+            }
+
+            toStringCache =
+              "Acks\n"
+            + "requests-sent: " + ackRequestsSent + '\n'
+            + "answers-received: " + ackAnswersReceived + '\n'
+            + "smoothed-rtt-ms: " + smoothedAckRttMillis + '\n'
+            + "min-rtt-ms: " + minAckRttMillis + '\n'
+            + "max-rtt-ms: " + maxAckRttMillis + '\n'
+            + "rtt-histogram-upper-bounds-ms: " + Arrays.toString(ackRttBucketUpperBoundsMillis) + '\n'
+            + "rtt-histogram: " + Arrays.toString(ackRttHistogram) + '\n'
+            + "In flight\n"
+            + "unacknowledged-stanzas: " + unacknowledgedStanzas + '\n'
+            + "bytes: " + bytesInFlight + '\n'
+            + "High-water marks\n"
+            + "unacknowledged-stanzas: " + unacknowledgedStanzasHighWaterMark + '\n'
+            + "outgoing-queue: " + outgoingQueueHighWaterMark + '\n'
+            ;
+
+            return toStringCache;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,28 @@
  */
 package org.jivesoftware.smack.sm;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+
+import org.jivesoftware.smack.AsyncButOrdered;
+import org.jivesoftware.smack.SmackException.NoResponseException;
+import org.jivesoftware.smack.SmackException.NotConnectedException;
+import org.jivesoftware.smack.SmackException.NotLoggedInException;
+import org.jivesoftware.smack.SmackException.OutgoingQueueFullException;
+import org.jivesoftware.smack.StanzaListener;
+import org.jivesoftware.smack.XMPPException.FailedNonzaException;
+import org.jivesoftware.smack.bind2.Bind2InlineFeature;
+import org.jivesoftware.smack.bind2.Bind2Module;
+import org.jivesoftware.smack.bind2.packet.Bound;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedAndResourceBoundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.AuthenticatedButUnboundStateDescriptor;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection.ResourceBindingStateDescriptor;
@@ -23,25 +45,211 @@ import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModule;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.c2s.internal.WalkStateGraphContext;
 import org.jivesoftware.smack.compression.CompressionModule.CompressionStateDescriptor;
+import org.jivesoftware.smack.filter.StanzaFilter;
 import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
+import org.jivesoftware.smack.isr.InlineStreamResumption;
+import org.jivesoftware.smack.isr.InstantStreamResumptionModule;
+import org.jivesoftware.smack.packet.AbstractStreamClose;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.TopLevelStreamElement;
+import org.jivesoftware.smack.packet.XmlElement;
+import org.jivesoftware.smack.provider.ProviderManager;
+import org.jivesoftware.smack.sasl.packet.Sasl2Nonza;
+import org.jivesoftware.smack.sm.StreamManagementException.StreamManagementCounterError;
+import org.jivesoftware.smack.sm.StreamManagementException.StreamManagementNotEnabledException;
+import org.jivesoftware.smack.sm.packet.StreamManagement;
+import org.jivesoftware.smack.sm.packet.StreamManagement.AckAnswer;
+import org.jivesoftware.smack.sm.packet.StreamManagement.AckRequest;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Enable;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Enabled;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Failed;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Resume;
+import org.jivesoftware.smack.sm.packet.StreamManagement.Resumed;
+import org.jivesoftware.smack.sm.packet.StreamManagement.StreamManagementFeature;
+import org.jivesoftware.smack.sm.predicates.Predicate;
+import org.jivesoftware.smack.sm.provider.AckAnswerProvider;
+import org.jivesoftware.smack.sm.provider.AckRequestProvider;
+import org.jivesoftware.smack.sm.provider.EnabledProvider;
+import org.jivesoftware.smack.sm.provider.FailedProvider;
+import org.jivesoftware.smack.sm.provider.ResumedProvider;
+import org.jivesoftware.smack.util.StringUtils;
 
+/**
+ * Stream Management (<a href="https://xmpp.org/extensions/xep-0198.html">XEP-0198</a>) for the modular connection.
+ * <p>
+ * The module enables Stream Management after resource binding, keeps track of the stanzas not yet acknowledged by the
+ * server, and answers the server's acknowledgement requests. If the stream is resumable and the connection is lost,
+ * then the next login will resume the previous stream instead of binding a new resource. The resumption does not cause
+ * the initial presence to be sent and the roster to be reloaded, and the stanzas which have not been acknowledged by
+ * the server are resent.
+ * </p>
+ * <p>
+ * If the service supports Extensible SASL Profile (SASL2, XEP-0388), then Stream Management is enabled inline within
+ * the Bind 2 request, and a previous stream is resumed inline within the SASL2 authentication exchange.
+ * </p>
+ */
 public class StreamManagementModule extends ModularXmppClientToServerConnectionModule<StreamManagementModuleDescriptor> {
 
+    private static final Logger LOGGER = Logger.getLogger(StreamManagementModule.class.getName());
+
+    /**
+     * The maximum number of stanzas kept in the unacknowledged stanzas queue.
+     */
+    public static final int UNACKNOWLEDGED_STANZAS_QUEUE_SIZE = 1024;
+
+    /**
+     * The number of unacknowledged stanzas at which an acknowledgement is requested, regardless of the request ack
+     * predicate.
+     */
+    public static final int UNACKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK = (int) (0.3 * UNACKNOWLEDGED_STANZAS_QUEUE_SIZE);
+
+    static {
+        ProviderManager.addNonzaProvider(EnabledProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(FailedProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(ResumedProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(AckAnswerProvider.INSTANCE);
+        ProviderManager.addNonzaProvider(AckRequestProvider.INSTANCE);
+
+        Bind2Module.addInlineFeature(new Bind2InlineFeature() {
+            @Override
+            public String getNamespace() {
+                return StreamManagement.NAMESPACE;
+            }
+
+            @Override
+            public XmlElement getInlineRequest(ModularXmppClientToServerConnection connection) {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                if (smModule == null || !smModule.useSm) {
+                    return null;
+                }
+                return new Enable(smModule.useSmResumption);
+            }
+
+            @Override
+            public void onBound(ModularXmppClientToServerConnection connection, Bound bound)
+                            throws NotConnectedException, InterruptedException {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                smModule.onInlineEnableResult(bound.getInlineResult(Enabled.class));
+            }
+
+            @Override
+            public void onConnectionReset(ModularXmppClientToServerConnection connection) {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                smModule.onConnectionReset();
+            }
+        });
+
+        InstantStreamResumptionModule.addInlineStreamResumption(new InlineStreamResumption() {
+            @Override
+            public QName getInlineFeature() {
+                return StreamManagementFeature.QNAME;
+            }
+
+            @Override
+            public boolean isResumptionPossible(ModularXmppClientToServerConnection connection) {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                return smModule != null && smModule.useSmResumption && smModule.isSmResumptionPossible();
+            }
+
+            @Override
+            public XmlElement getResumptionRequest(ModularXmppClientToServerConnection connection) {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                return smModule.createResume();
+            }
+
+            @Override
+            public boolean processResumptionResult(ModularXmppClientToServerConnection connection,
+                            Sasl2Nonza.Success success) throws NotConnectedException, InterruptedException {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                return smModule.onInlineResumeResult(success.getInlineResult(Resumed.class));
+            }
+
+            @Override
+            public void onConnectionReset(ModularXmppClientToServerConnection connection) {
+                StreamManagementModule smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+                smModule.onConnectionReset();
+            }
+        });
+    }
+
+    @SuppressWarnings("this-escape")
     protected StreamManagementModule(StreamManagementModuleDescriptor moduleDescriptor,
                     ModularXmppClientToServerConnectionInternal connectionInternal) {
         super(moduleDescriptor, connectionInternal);
+
+        connectionInternal.buildNonzaCallback()
+            .listenFor(Enabled.class, this::onEnabled)
+            .listenFor(Resumed.class, this::onResumed)
+            .listenFor(AckAnswer.class, this::onAckAnswer)
+            .listenFor(AckRequest.class, this::onAckRequest)
+            .install();
     }
 
     private boolean useSm = true;
 
     private boolean useSmResumption = true;
 
+    private StanzaFilter requestAckPredicate = Predicate.forMessagesOrAfter5Stanzas();
+
+    private final Collection<StanzaListener> stanzaAcknowledgedListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Used to notify the stanza acknowledged listeners in the order the stanzas got acknowledged.
+     */
+    private static final AsyncButOrdered<StreamManagementModule> ACK_NOTIFICATION_ORDER = new AsyncButOrdered<>();
+
+    /**
+     * The Stream Management session id if the stream is resumable, <code>null</code> otherwise. Guarded by this.
+     */
+    private String smSessionId;
+
+    /**
+     * Set once the server enabled Stream Management, or resumed the stream, on the current connection. While set,
+     * incoming stanzas are counted in {@link #clientHandledStanzasCount}.
+     */
+    private volatile boolean smEnabled;
+
+    /**
+     * Set once the 'enable' or 'resume' nonza was put on the wire. While set, outgoing stanzas are added to the
+     * {@link #unacknowledgedStanzas}. Guarded by this.
+     */
+    private boolean trackOutgoingStanzas;
+
+    /**
+     * The number of stanzas received by the client and handled. Guarded by this.
+     */
+    private long clientHandledStanzasCount;
+
+    /**
+     * The last known number of stanzas handled by the server. Guarded by this.
+     */
+    private long serverHandledStanzasCount;
+
+    /**
+     * The stanzas sent to the server which have not been acknowledged yet. Is <code>null</code> if Stream Management
+     * was never enabled or the Stream Management state was dropped. Bounded by
+     * {@link #UNACKNOWLEDGED_STANZAS_QUEUE_SIZE}, see {@link #onOutgoingElementDequeued(TopLevelStreamElement)} for
+     * what happens if the server does not acknowledge the stanzas in time. Guarded by this.
+     */
+    private Queue<Stanza> unacknowledgedStanzas;
+
+    /**
+     * The stanzas to resend after the stream was resumed, set when the 'resumed' nonza is received. Guarded by this.
+     */
+    private List<Stanza> stanzasToResendAfterResumption;
+
+    /**
+     * The unacknowledged stanzas of a previous Stream Management session which could not be resumed. Those are resent
+     * once Stream Management was enabled on the new stream. Guarded by this.
+     */
+    private final List<Stanza> previouslyUnacknowledgedStanzas = new ArrayList<>();
+
     public static final class EnableStreamManagementStateDescriptor extends StateDescriptor {
 
         private EnableStreamManagementStateDescriptor() {
-            super(StreamManagementModule.EnableStreamManagementState.class, 198, StateDescriptor.Property.notImplemented);
+            super(StreamManagementModule.EnableStreamManagementState.class, 198);
 
             addPredeccessor(ResourceBindingStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -75,18 +283,61 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
                 return new StateTransitionResult.TransitionImpossibleReason("Stream management not enabled");
             }
 
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            if (!connectionInternal.connection.hasFeature(StreamManagementFeature.QNAME)) {
+                return new StateTransitionResult.TransitionImpossibleReason("Stream management not supported by service");
+            }
+
+            return null;
+        }
+
+        @Override
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws InterruptedException, NotConnectedException, NoResponseException {
+            Enabled enabled;
+            try {
+                enabled = connectionInternal.sendAndWaitForResponse(new Enable(useSmResumption), Enabled.class,
+                                Failed.class);
+            } catch (FailedNonzaException e) {
+                synchronized (StreamManagementModule.this) {
+                    trackOutgoingStanzas = false;
+                    // Stanzas may have been tracked since the 'enable' nonza was sent. They were sent over a stream
+                    // without Stream Management, hence resend them just like the ones of the previous session.
+                    if (unacknowledgedStanzas != null) {
+                        previouslyUnacknowledgedStanzas.addAll(unacknowledgedStanzas);
+                        unacknowledgedStanzas = null;
+                    }
+                }
+                resendPreviouslyUnacknowledgedStanzas();
+                return new StateTransitionResult.FailureCausedByException<>(e);
+            }
+
+            resendPreviouslyUnacknowledgedStanzas();
+
+            return new EnableStreamManagementSuccessResult(enabled);
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("SM not implemented");
+        public void resetState() {
+            onConnectionReset();
+        }
+    }
+
+    public static final class EnableStreamManagementSuccessResult extends StateTransitionResult.Success {
+        private final boolean resumable;
+
+        private EnableStreamManagementSuccessResult(Enabled enabled) {
+            super("Stream Management enabled" + (enabled.isResumeSet() ? " (resumable)" : ""));
+            this.resumable = enabled.isResumeSet();
+        }
+
+        public boolean isResumable() {
+            return resumable;
         }
     }
 
     public static final class ResumeStreamStateDescriptor extends StateDescriptor {
         private ResumeStreamStateDescriptor() {
-            super(StreamManagementModule.ResumeStreamState.class, 198, StateDescriptor.Property.notImplemented);
+            super(StreamManagementModule.ResumeStreamState.class, 198);
 
             addPredeccessor(AuthenticatedButUnboundStateDescriptor.class);
             addSuccessor(AuthenticatedAndResourceBoundStateDescriptor.class);
@@ -121,15 +372,366 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
                 return new StateTransitionResult.TransitionImpossibleReason("Stream resumption not enabled");
             }
 
-            return new StateTransitionResult.TransitionImpossibleBecauseNotImplemented(stateDescriptor);
+            if (!isSmResumptionPossible()) {
+                return new StateTransitionResult.TransitionImpossibleReason("No resumable stream");
+            }
+
+            if (!connectionInternal.connection.hasFeature(StreamManagementFeature.QNAME)) {
+                return new StateTransitionResult.TransitionImpossibleReason("Stream management not supported by service");
+            }
+
+            return null;
         }
 
         @Override
-        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext) {
-            throw new IllegalStateException("Stream resumption not implemented");
+        public StateTransitionResult.AttemptResult transitionInto(WalkStateGraphContext walkStateGraphContext)
+                        throws InterruptedException, NotConnectedException, NoResponseException {
+            final Resume resume = createResume();
+
+            try {
+                connectionInternal.sendAndWaitForResponse(resume, Resumed.class, Failed.class);
+            } catch (FailedNonzaException e) {
+                // Failing to resume the stream is not fatal, we can continue with resource binding in this case.
+                resumptionFailed();
+                return new StateTransitionResult.FailureCausedByException<>(e);
+            }
+
+            final List<Stanza> stanzasToResend = takeStanzasToResendAfterResumption();
+            if (stanzasToResend == null) {
+                // The 'resumed' nonza was rejected by onResumed().
+                resumptionFailed();
+                return new StateTransitionResult.Failure("Stream resumption failed");
+            }
+
+            connectionInternal.setStreamResumed(true);
+
+            resendAfterResumption(stanzasToResend);
+
+            return new StreamResumedSuccessResult(stanzasToResend.size());
+        }
+
+        @Override
+        public void resetState() {
+            onConnectionReset();
         }
     }
 
+    public static final class StreamResumedSuccessResult extends StateTransitionResult.Success {
+        private final int resendStanzasCount;
+
+        private StreamResumedSuccessResult(int resendStanzasCount) {
+            super("Stream resumed, resending " + resendStanzasCount + " unacknowledged stanzas");
+            this.resendStanzasCount = resendStanzasCount;
+        }
+
+        public int getResendStanzasCount() {
+            return resendStanzasCount;
+        }
+    }
+
+    @Override
+    protected void onIncomingStanzaHandled() {
+        if (!smEnabled) {
+            return;
+        }
+
+        synchronized (this) {
+            clientHandledStanzasCount = SMUtils.incrementHeight(clientHandledStanzasCount);
+        }
+    }
+
+    /**
+     * Track the outgoing stanzas. An acknowledgement is requested if the request ack predicate matches, or if the
+     * number of unacknowledged stanzas reaches {@link #UNACKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK}. If the server
+     * still does not acknowledge the stanzas and the queue overflows, then the Stream Management state can no longer be
+     * kept consistent: the tracking of outgoing stanzas stops, the unacknowledged stanzas are dropped (and the stanza
+     * acknowledged listeners will not be invoked for them) and the stream is no longer resumable. Incoming stanzas are
+     * still counted and acknowledged.
+     *
+     * @param element the outgoing element.
+     */
+    @Override
+    protected void onOutgoingElementDequeued(TopLevelStreamElement element) {
+        if (element instanceof Stanza) {
+            Stanza stanza = (Stanza) element;
+            boolean requestAck;
+            synchronized (this) {
+                if (!trackOutgoingStanzas) {
+                    return;
+                }
+                if (!unacknowledgedStanzas.offer(stanza)) {
+                    LOGGER.warning("The server did not acknowledge the last " + unacknowledgedStanzas.size()
+                                    + " stanzas, dropping them and disabling stream resumption of " + connectionInternal.connection);
+                    smSessionId = null;
+                    unacknowledgedStanzas = null;
+                    trackOutgoingStanzas = false;
+                    return;
+                }
+                requestAck = smEnabled && (requestAckPredicate.accept(stanza)
+                                || unacknowledgedStanzas.size() == UNACKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK);
+            }
+            if (requestAck) {
+                try {
+                    connectionInternal.connection.sendNonzaNonBlocking(AckRequest.INSTANCE);
+                } catch (NotConnectedException | OutgoingQueueFullException e) {
+                    // The acknowledgement will be requested again after one of the next stanzas.
+                    LOGGER.log(Level.FINE, "Could not request Stream Management acknowledgement", e);
+                }
+            }
+        } else if (element instanceof Enable) {
+            startTrackingOutgoingStanzas();
+        } else if (element instanceof Resume) {
+            synchronized (this) {
+                trackOutgoingStanzas = true;
+            }
+        } else if (element instanceof AbstractStreamClose) {
+            // Closing the stream terminates the Stream Management session.
+            synchronized (this) {
+                smSessionId = null;
+                unacknowledgedStanzas = null;
+                previouslyUnacknowledgedStanzas.clear();
+                trackOutgoingStanzas = false;
+            }
+            smEnabled = false;
+        }
+    }
+
+    private synchronized void startTrackingOutgoingStanzas() {
+        if (unacknowledgedStanzas != null) {
+            // There was a previous Stream Management session, which was not resumed.
+            previouslyUnacknowledgedStanzas.addAll(unacknowledgedStanzas);
+        }
+        unacknowledgedStanzas = new ArrayBlockingQueue<>(UNACKNOWLEDGED_STANZAS_QUEUE_SIZE);
+        serverHandledStanzasCount = 0;
+        trackOutgoingStanzas = true;
+    }
+
+    private void onEnabled(Enabled enabled) {
+        synchronized (this) {
+            String id = enabled.getId();
+            if (enabled.isResumeSet() && StringUtils.isNullOrEmpty(id)) {
+                LOGGER.warning("Stream Management 'enabled' element with resume attribute but without session id received");
+            }
+            if (enabled.isResumeSet()) {
+                smSessionId = StringUtils.isNullOrEmpty(id) ? null : id;
+            } else {
+                // Mark this a non-resumable stream by setting smSessionId to null.
+                smSessionId = null;
+            }
+            clientHandledStanzasCount = 0;
+        }
+        smEnabled = true;
+    }
+
+    private void onResumed(Resumed resumed) {
+        List<Stanza> ackedStanzas;
+        synchronized (this) {
+            if (smSessionId == null || !smSessionId.equals(resumed.getPrevId())) {
+                LOGGER.warning("Stream Management session '" + smSessionId + "' expected to be resumed, but server resumed '"
+                                + resumed.getPrevId() + "'");
+                return;
+            }
+
+            try {
+                // First, drop the stanzas already handled by the server.
+                ackedStanzas = processHandledCount(resumed.getHandledCount());
+            } catch (StreamManagementCounterError e) {
+                connectionInternal.notifyConnectionError(e);
+                return;
+            }
+
+            // Then hand what is left in the unacknowledged queue over to the resume stream state, which resends it.
+            stanzasToResendAfterResumption = new ArrayList<>(unacknowledgedStanzas);
+            unacknowledgedStanzas.clear();
+        }
+        smEnabled = true;
+
+        notifyStanzaAcknowledgedListeners(ackedStanzas);
+    }
+
+    private void onAckAnswer(AckAnswer ackAnswer) {
+        List<Stanza> ackedStanzas;
+        synchronized (this) {
+            if (unacknowledgedStanzas == null) {
+                if (smEnabled) {
+                    LOGGER.fine("SM Ack Answer received after the unacknowledged stanzas queue overflowed");
+                } else {
+                    LOGGER.warning("SM Ack Answer received while SM is not enabled");
+                }
+                return;
+            }
+
+            try {
+                ackedStanzas = processHandledCount(ackAnswer.getHandledCount());
+            } catch (StreamManagementCounterError e) {
+                connectionInternal.notifyConnectionError(e);
+                return;
+            }
+        }
+
+        notifyStanzaAcknowledgedListeners(ackedStanzas);
+    }
+
+    private void onAckRequest(AckRequest ackRequest) {
+        if (!smEnabled) {
+            LOGGER.warning("SM Ack Request received while SM is not enabled");
+            return;
+        }
+
+        final AckAnswer ackAnswer;
+        synchronized (this) {
+            ackAnswer = new AckAnswer(clientHandledStanzasCount);
+        }
+        try {
+            connectionInternal.connection.sendNonzaNonBlocking(ackAnswer);
+        } catch (NotConnectedException | OutgoingQueueFullException e) {
+            LOGGER.log(Level.WARNING, "Could not answer Stream Management acknowledgement request", e);
+        }
+    }
+
+    private List<Stanza> processHandledCount(long handledCount) throws StreamManagementCounterError {
+        assert Thread.holdsLock(this);
+
+        long ackedStanzasCount = SMUtils.calculateDelta(handledCount, serverHandledStanzasCount);
+        final List<Stanza> ackedStanzas = new ArrayList<>(
+                        ackedStanzasCount <= Integer.MAX_VALUE ? (int) ackedStanzasCount : Integer.MAX_VALUE);
+        for (long i = 0; i < ackedStanzasCount; i++) {
+            Stanza ackedStanza = unacknowledgedStanzas.poll();
+            // If the server ack'ed a stanza, then it must be in the unacknowledged stanza queue. There can be no
+            // exception.
+            if (ackedStanza == null) {
+                throw new StreamManagementCounterError(handledCount, serverHandledStanzasCount, ackedStanzasCount,
+                                ackedStanzas);
+            }
+            ackedStanzas.add(ackedStanza);
+        }
+
+        serverHandledStanzasCount = handledCount;
+        return ackedStanzas;
+    }
+
+    private void notifyStanzaAcknowledgedListeners(List<Stanza> ackedStanzas) {
+        if (ackedStanzas.isEmpty() || stanzaAcknowledgedListeners.isEmpty()) {
+            return;
+        }
+
+        ACK_NOTIFICATION_ORDER.performAsyncButOrdered(this, () -> {
+            for (Stanza ackedStanza : ackedStanzas) {
+                for (StanzaListener listener : stanzaAcknowledgedListeners) {
+                    try {
+                        listener.processStanza(ackedStanza);
+                    } catch (InterruptedException | NotConnectedException | NotLoggedInException e) {
+                        LOGGER.log(Level.FINER, "Received exception", e);
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized void resumptionFailed() {
+        smSessionId = null;
+        trackOutgoingStanzas = false;
+        if (unacknowledgedStanzas != null) {
+            previouslyUnacknowledgedStanzas.addAll(unacknowledgedStanzas);
+            unacknowledgedStanzas = null;
+        }
+    }
+
+    private synchronized Resume createResume() {
+        stanzasToResendAfterResumption = null;
+        return new Resume(clientHandledStanzasCount, smSessionId);
+    }
+
+    private synchronized List<Stanza> takeStanzasToResendAfterResumption() {
+        List<Stanza> stanzasToResend = stanzasToResendAfterResumption;
+        stanzasToResendAfterResumption = null;
+        return stanzasToResend;
+    }
+
+    private void resendAfterResumption(List<Stanza> stanzasToResend) throws NotConnectedException, InterruptedException {
+        for (Stanza stanza : stanzasToResend) {
+            connectionInternal.sendInternal(stanza);
+        }
+        // Request an acknowledgement for the resent stanzas, as they may not match the request ack predicate.
+        if (!stanzasToResend.isEmpty()) {
+            connectionInternal.connection.sendNonza(AckRequest.INSTANCE);
+        }
+    }
+
+    /**
+     * Process the result of the 'enable' request included in a Bind 2 request. Unlike the 'enable' nonza, the inline
+     * request is not seen by {@link #onOutgoingElementDequeued(TopLevelStreamElement)}, hence the tracking of outgoing
+     * stanzas starts here, which is fine as no stanza can be sent before the resource is bound.
+     *
+     * @param enabled the 'enabled' element, or <code>null</code> if the service did not enable Stream Management.
+     */
+    private void onInlineEnableResult(Enabled enabled) throws NotConnectedException, InterruptedException {
+        if (enabled == null) {
+            synchronized (this) {
+                trackOutgoingStanzas = false;
+                // The stanzas of a previous session, which was not resumed, still need to be resent.
+                if (unacknowledgedStanzas != null) {
+                    previouslyUnacknowledgedStanzas.addAll(unacknowledgedStanzas);
+                    unacknowledgedStanzas = null;
+                }
+            }
+        } else {
+            startTrackingOutgoingStanzas();
+            onEnabled(enabled);
+        }
+        resendPreviouslyUnacknowledgedStanzas();
+    }
+
+    /**
+     * Process the result of the 'resume' request included in a SASL2 authenticate element.
+     *
+     * @param resumed the 'resumed' element, or <code>null</code> if the service did not resume the stream.
+     * @return <code>true</code> if the stream was resumed.
+     */
+    private boolean onInlineResumeResult(Resumed resumed) throws NotConnectedException, InterruptedException {
+        if (resumed != null) {
+            synchronized (this) {
+                trackOutgoingStanzas = true;
+            }
+            onResumed(resumed);
+        }
+
+        List<Stanza> stanzasToResend = takeStanzasToResendAfterResumption();
+        if (stanzasToResend == null) {
+            resumptionFailed();
+            return false;
+        }
+
+        resendAfterResumption(stanzasToResend);
+        return true;
+    }
+
+    private void resendPreviouslyUnacknowledgedStanzas() throws NotConnectedException, InterruptedException {
+        final List<Stanza> stanzasToResend;
+        synchronized (this) {
+            if (previouslyUnacknowledgedStanzas.isEmpty()) {
+                return;
+            }
+            stanzasToResend = new ArrayList<>(previouslyUnacknowledgedStanzas);
+            previouslyUnacknowledgedStanzas.clear();
+        }
+
+        for (Stanza stanza : stanzasToResend) {
+            connectionInternal.sendInternal(stanza);
+        }
+    }
+
+    /**
+     * Invoked when the connection was closed. Note that this does not drop the Stream Management state, which is
+     * required to resume the stream later on.
+     */
+    private void onConnectionReset() {
+        synchronized (this) {
+            trackOutgoingStanzas = false;
+        }
+        smEnabled = false;
+    }
+
     public void setStreamManagementEnabled(boolean useSm) {
         this.useSm = useSm;
     }
@@ -138,4 +740,70 @@ public class StreamManagementModule extends ModularXmppClientToServerConnectionM
         this.useSmResumption = useSmResumption;
     }
 
+    /**
+     * Set the predicate which decides after which outgoing stanza an acknowledgement is requested from the server.
+     *
+     * @param requestAckPredicate the predicate.
+     */
+    public synchronized void setRequestAckPredicate(StanzaFilter requestAckPredicate) {
+        this.requestAckPredicate = requestAckPredicate;
+    }
+
+    /**
+     * Add a listener which is invoked, once for every stanza, after the server acknowledged the stanza.
+     *
+     * @param listener the listener.
+     */
+    public void addStanzaAcknowledgedListener(StanzaListener listener) {
+        stanzaAcknowledgedListeners.add(listener);
+    }
+
+    public boolean removeStanzaAcknowledgedListener(StanzaListener listener) {
+        return stanzaAcknowledgedListeners.remove(listener);
+    }
+
+    /**
+     * Check if Stream Management is enabled on the current connection.
+     *
+     * @return <code>true</code> if Stream Management is enabled.
+     */
+    public boolean isSmEnabled() {
+        return smEnabled;
+    }
+
+    /**
+     * Check if there is a Stream Management session which can be resumed.
+     *
+     * @return <code>true</code> if a stream resumption is possible.
+     */
+    public synchronized boolean isSmResumptionPossible() {
+        return smSessionId != null;
+    }
+
+    /**
+     * Get the number of stanzas which have not been acknowledged by the server yet.
+     *
+     * @return the number of unacknowledged stanzas.
+     */
+    public synchronized int getUnacknowledgedStanzasCount() {
+        if (unacknowledgedStanzas == null) {
+            return 0;
+        }
+        return unacknowledgedStanzas.size();
+    }
+
+    /**
+     * Request an acknowledgement from the server.
+     *
+     * @throws StreamManagementNotEnabledException if Stream Management is not enabled.
+     * @throws NotConnectedException if the connection is not connected.
+     * @throws InterruptedException if the calling thread was interrupted.
+     */
+    public void requestSmAcknowledgement()
+                    throws StreamManagementNotEnabledException, NotConnectedException, InterruptedException {
+        if (!smEnabled) {
+            throw new StreamManagementNotEnabledException();
+        }
+        connectionInternal.connection.sendNonza(AckRequest.INSTANCE);
+    }
 }
@@ -100,6 +100,7 @@ public class StreamManagement {
 
     public static class Enable extends AbstractEnable {
         public static final String ELEMENT = "enable";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         public static final Enable INSTANCE = new Enable();
 
@@ -140,6 +141,7 @@ public class StreamManagement {
      */
     public static class Enabled extends AbstractEnable {
         public static final String ELEMENT = "enabled";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         /*
          * The stream id ("SM-ID")
@@ -189,6 +191,7 @@ public class StreamManagement {
 
     public static class Failed implements Nonza {
         public static final String ELEMENT = "failed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         private final StanzaError.Condition condition;
 
@@ -281,6 +284,7 @@ public class StreamManagement {
 
     public static class Resume extends AbstractResume {
         public static final String ELEMENT = "resume";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         public Resume(long handledCount, String previd) {
             super(handledCount, previd);
@@ -294,6 +298,7 @@ public class StreamManagement {
 
     public static class Resumed extends AbstractResume {
         public static final String ELEMENT = "resumed";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         public Resumed(long handledCount, String previd) {
             super(handledCount, previd);
@@ -307,6 +312,7 @@ public class StreamManagement {
 
     public static class AckAnswer implements Nonza {
         public static final String ELEMENT = "a";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
 
         private final long handledCount;
 
@@ -339,6 +345,7 @@ public class StreamManagement {
 
     public static final class AckRequest implements Nonza {
         public static final String ELEMENT = "r";
+        public static final QName QNAME = new QName(NAMESPACE, ELEMENT);
         public static final AckRequest INSTANCE = new AckRequest();
 
         private AckRequest() {
@@ -0,0 +1,406 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm.store;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jivesoftware.smack.packet.AbstractStreamOpen;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.XmlEnvironment;
+import org.jivesoftware.smack.sm.SMUtils;
+import org.jivesoftware.smack.util.PacketParserUtils;
+import org.jivesoftware.smack.util.stringencoder.Base64;
+import org.jivesoftware.smack.xml.XmlPullParser;
+
+import org.jxmpp.JxmppContext;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.impl.JidCreate;
+
+/**
+ * Stores the Stream Management state in a single file, which is used as append-only journal.
+ * <p>
+ * Every state change is appended as a single line record to the journal, hence sending a stanza only costs a single
+ * write of the stanza's XML. Once the journal grows considerably larger than the state it describes, it is compacted
+ * by replacing it with a snapshot of the current state, atomically if the file system supports it. A torn record at the end of the journal, caused by
+ * the process dying in the middle of a write, is ignored when the journal is opened.
+ * </p>
+ * <p>
+ * Records are written to the operating system, but not synced to the storage device, i.e., the state survives a
+ * process crash, but not necessarily a crash of the operating system. The records of sent stanzas are buffered until
+ * the connection flushes a batch of stanzas to the server, see {@link #flush()}, all other records are written
+ * immediately. Also note that the count of stanzas handled by
+ * the client is only persisted when it is reported to the server and when the connection is shut down instantly.
+ * After a crash, the server will therefore resend the stanzas the client handled after the count was persisted the
+ * last time.
+ * </p>
+ */
+public final class FileSmStateStore implements SmStateStore, Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(FileSmStateStore.class.getName());
+
+    private static final String STORE_ID = "SMACK_SM_STATE_STORE_1";
+
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 1024;
+
+    private static final char NEW_SESSION = 'N';
+    private static final char ENABLED = 'E';
+    private static final char STANZA_SENT = 'S';
+    private static final char SERVER_HANDLED_COUNT = 'A';
+    private static final char SERVER_HANDLED_COUNT_BASE = 'O';
+    private static final char CLIENT_HANDLED_COUNT = 'H';
+    private static final char RESUMED = 'R';
+
+    /**
+     * Sent stanzas are recorded as they are put on the wire, i.e., without the namespace declared by the stream. Hence
+     * they are parsed within an element declaring the namespace.
+     */
+    private static final String STANZA_WRAPPER_START = "<stream xmlns='" + AbstractStreamOpen.CLIENT_NAMESPACE + "'>";
+    private static final String STANZA_WRAPPER_END = "</stream>";
+
+    private final File journalFile;
+
+    // The following fields mirror the state described by the journal and are guarded by 'this'.
+
+    private boolean active;
+
+    private String smSessionId;
+
+    private EntityFullJid user;
+
+    private int maxResumptionTime;
+
+    private long clientHandledStanzasCount;
+
+    private long serverHandledStanzasCount;
+
+    /**
+     * The unacknowledged stanzas, in the encoding used by the journal.
+     */
+    private final Deque<String> unacknowledgedStanzas = new ArrayDeque<>();
+
+    private long timestamp;
+
+    private int journalRecords;
+
+    private Writer writer;
+
+    private boolean closed;
+
+    private FileSmStateStore(File journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * Open the store backed by the given journal file. The file is created if it does not exist.
+     *
+     * @param journalFile the journal file.
+     * @return the store.
+     * @throws IOException if an I/O error occurs.
+     */
+    public static FileSmStateStore open(File journalFile) throws IOException {
+        FileSmStateStore store = new FileSmStateStore(journalFile);
+        synchronized (store) {
+            store.replay();
+            // Start with a clean journal, which also drops a torn record at the end.
+            store.compact();
+        }
+        return store;
+    }
+
+    private void replay() throws IOException {
+        if (!journalFile.exists()) {
+            return;
+        }
+        timestamp = journalFile.lastModified();
+
+        String journal = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+        String[] records = journal.split("\n", -1);
+        if (records.length < 2 || !records[0].equals(STORE_ID)) {
+            LOGGER.warning("Ignoring " + journalFile + " as it is not a Stream Management state journal");
+            return;
+        }
+
+        // Note that the last element is either empty, or a torn record, as every complete record ends with a newline.
+        for (int i = 1; i < records.length - 1; i++) {
+            try {
+                apply(records[i]);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Invalid record in " + journalFile + ", dropping the state", e);
+                clearState();
+                return;
+            }
+        }
+    }
+
+    private void apply(String record) throws IOException {
+        char type = record.charAt(0);
+        String argument = record.length() > 2 ? record.substring(2) : null;
+        switch (type) {
+        case NEW_SESSION:
+            clearState();
+            active = true;
+            break;
+        case ENABLED:
+            String[] arguments = argument.split(" ");
+            maxResumptionTime = Integer.parseInt(arguments[0]);
+            smSessionId = Base64.decodeToString(arguments[1]);
+            user = JidCreate.entityFullFrom(Base64.decodeToString(arguments[2]));
+            break;
+        case STANZA_SENT:
+            unacknowledgedStanzas.add(argument);
+            break;
+        case SERVER_HANDLED_COUNT:
+            long handledCount = Long.parseLong(argument);
+            long ackedStanzasCount = SMUtils.calculateDelta(handledCount, serverHandledStanzasCount);
+            if (ackedStanzasCount > unacknowledgedStanzas.size()) {
+                throw new IllegalStateException("Server acknowledged " + ackedStanzasCount + " stanzas, but only "
+                                + unacknowledgedStanzas.size() + " are unacknowledged");
+            }
+            for (long i = 0; i < ackedStanzasCount; i++) {
+                unacknowledgedStanzas.poll();
+            }
+            serverHandledStanzasCount = handledCount;
+            break;
+        case SERVER_HANDLED_COUNT_BASE:
+            serverHandledStanzasCount = Long.parseLong(argument);
+            break;
+        case CLIENT_HANDLED_COUNT:
+            clientHandledStanzasCount = Long.parseLong(argument);
+            break;
+        case RESUMED:
+            unacknowledgedStanzas.clear();
+            break;
+        default:
+            throw new IllegalStateException("Unknown record type: " + type);
+        }
+    }
+
+    private void clearState() {
+        active = false;
+        smSessionId = null;
+        user = null;
+        maxResumptionTime = -1;
+        clientHandledStanzasCount = 0;
+        serverHandledStanzasCount = 0;
+        unacknowledgedStanzas.clear();
+    }
+
+    private synchronized void record(char type, String argument) {
+        if (closed) {
+            LOGGER.fine("Ignoring Stream Management state change, as " + journalFile + " was closed");
+            return;
+        }
+        // Nothing to record if there is no session, e.g., because the last one was not resumable.
+        if (!active && type != NEW_SESSION) {
+            return;
+        }
+
+        String record = argument == null ? String.valueOf(type) : type + " " + argument;
+        try {
+            apply(record);
+            if (type == NEW_SESSION || writer == null) {
+                // A new session invalidates everything recorded before. If there is no writer, because a previous
+                // compaction failed, the snapshot also contains this record.
+                compact();
+                return;
+            }
+            writeRecord(writer, record);
+            if (type != STANZA_SENT) {
+                writer.flush();
+            }
+            timestamp = System.currentTimeMillis();
+            if (journalRecords > MIN_RECORDS_BEFORE_COMPACTION + 2 * unacknowledgedStanzas.size()) {
+                compact();
+            }
+        } catch (IOException | RuntimeException e) {
+            recordingFailed(e);
+        }
+    }
+
+    private void recordingFailed(Exception e) {
+        LOGGER.log(Level.WARNING, "Could not record Stream Management state in " + journalFile
+                        + ", dropping the state", e);
+        clearState();
+        try {
+            compact();
+        } catch (IOException e2) {
+            LOGGER.log(Level.WARNING, "Could not reset " + journalFile, e2);
+        }
+    }
+
+    private void writeRecord(Writer writer, String record) throws IOException {
+        writer.write(record);
+        writer.write('\n');
+        journalRecords++;
+    }
+
+    /**
+     * Replace the journal by a snapshot of the current state.
+     *
+     * @throws IOException if an I/O error occurs.
+     */
+    private void compact() throws IOException {
+        closeWriter();
+
+        File snapshotFile = new File(journalFile.getPath() + ".tmp");
+        journalRecords = 0;
+        try (Writer snapshotWriter = newWriter(snapshotFile, false)) {
+            snapshotWriter.write(STORE_ID);
+            snapshotWriter.write('\n');
+            if (active) {
+                writeRecord(snapshotWriter, String.valueOf(NEW_SESSION));
+                if (smSessionId != null) {
+                    writeRecord(snapshotWriter, ENABLED + " " + maxResumptionTime + ' ' + Base64.encode(smSessionId)
+                                    + ' ' + Base64.encode(user.toString()));
+                }
+                writeRecord(snapshotWriter, CLIENT_HANDLED_COUNT + " " + clientHandledStanzasCount);
+                writeRecord(snapshotWriter, SERVER_HANDLED_COUNT_BASE + " " + serverHandledStanzasCount);
+                for (String stanza : unacknowledgedStanzas) {
+                    writeRecord(snapshotWriter, STANZA_SENT + " " + stanza);
+                }
+            }
+        }
+        try {
+            Files.move(snapshotFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(snapshotFile.toPath(), journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        writer = newWriter(journalFile, true);
+    }
+
+    private static Writer newWriter(File file, boolean append) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), StandardCharsets.UTF_8));
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer == null) {
+            return;
+        }
+        writer.close();
+        writer = null;
+    }
+
+    @Override
+    public synchronized SmState load() {
+        if (!active || smSessionId == null) {
+            return null;
+        }
+
+        List<Stanza> stanzas = new ArrayList<>(unacknowledgedStanzas.size());
+        for (String encodedStanza : unacknowledgedStanzas) {
+            Stanza stanza;
+            try {
+                XmlPullParser parser = PacketParserUtils.getParserFor(
+                                STANZA_WRAPPER_START + Base64.decodeToString(encodedStanza) + STANZA_WRAPPER_END);
+                parser.nextTag();
+                stanza = PacketParserUtils.parseStanza(parser, XmlEnvironment.EMPTY, JxmppContext.getDefaultContext());
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Could not parse unacknowledged stanza from " + journalFile, e);
+                return null;
+            }
+            stanzas.add(stanza);
+        }
+
+        return new SmState(smSessionId, user, maxResumptionTime, timestamp, clientHandledStanzasCount,
+                        serverHandledStanzasCount, stanzas);
+    }
+
+    @Override
+    public void streamManagementEnableRequested() {
+        record(NEW_SESSION, null);
+    }
+
+    @Override
+    public void streamManagementEnabled(String smSessionId, EntityFullJid user, int maxResumptionTime) {
+        record(ENABLED, maxResumptionTime + " " + Base64.encode(smSessionId) + ' ' + Base64.encode(user.toString()));
+    }
+
+    @Override
+    public void stanzaSent(Stanza stanza) {
+        stanzaSent(stanza, stanza.toXML());
+    }
+
+    @Override
+    public void stanzaSent(Stanza stanza, CharSequence stanzaXml) {
+        record(STANZA_SENT, Base64.encode(stanzaXml.toString()));
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            recordingFailed(e);
+        }
+    }
+
+    @Override
+    public void serverHandledStanzasCountUpdated(long serverHandledStanzasCount) {
+        record(SERVER_HANDLED_COUNT, Long.toString(serverHandledStanzasCount));
+    }
+
+    @Override
+    public void clientHandledStanzasCountUpdated(long clientHandledStanzasCount) {
+        record(CLIENT_HANDLED_COUNT, Long.toString(clientHandledStanzasCount));
+    }
+
+    @Override
+    public void streamResumed() {
+        record(RESUMED, null);
+    }
+
+    @Override
+    public synchronized void reset() {
+        clearState();
+        if (closed) {
+            // Do not bring the journal of a closed store back to life.
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not reset " + journalFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        closeWriter();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm.store;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Stanza;
+
+import org.jxmpp.jid.EntityFullJid;
+
+/**
+ * The persisted state of a resumable Stream Management (XEP-0198) session, as returned by {@link SmStateStore#load()}.
+ */
+public final class SmState {
+
+    private final String smSessionId;
+
+    private final EntityFullJid user;
+
+    private final int maxResumptionTime;
+
+    private final long timestamp;
+
+    private final long clientHandledStanzasCount;
+
+    private final long serverHandledStanzasCount;
+
+    private final List<Stanza> unacknowledgedStanzas;
+
+    public SmState(String smSessionId, EntityFullJid user, int maxResumptionTime, long timestamp,
+                    long clientHandledStanzasCount, long serverHandledStanzasCount,
+                    List<Stanza> unacknowledgedStanzas) {
+        this.smSessionId = smSessionId;
+        this.user = user;
+        this.maxResumptionTime = maxResumptionTime;
+        this.timestamp = timestamp;
+        this.clientHandledStanzasCount = clientHandledStanzasCount;
+        this.serverHandledStanzasCount = serverHandledStanzasCount;
+        this.unacknowledgedStanzas = Collections.unmodifiableList(unacknowledgedStanzas);
+    }
+
+    /**
+     * Get the ID of the resumable stream.
+     *
+     * @return the Stream Management session ID.
+     */
+    public String getSmSessionId() {
+        return smSessionId;
+    }
+
+    /**
+     * Get the full JID the stream was bound to.
+     *
+     * @return the full JID of the stream.
+     */
+    public EntityFullJid getUser() {
+        return user;
+    }
+
+    /**
+     * Get the maximum resumption time in seconds as announced by the server, or a value less or equal to zero if the
+     * server did not announce one.
+     *
+     * @return the server's maximum resumption time in seconds.
+     */
+    public int getMaxResumptionTime() {
+        return maxResumptionTime;
+    }
+
+    /**
+     * Get the timestamp, in milliseconds since the epoch, of the last update of this state.
+     *
+     * @return the timestamp of the last update.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getClientHandledStanzasCount() {
+        return clientHandledStanzasCount;
+    }
+
+    public long getServerHandledStanzasCount() {
+        return serverHandledStanzasCount;
+    }
+
+    /**
+     * Get the stanzas which have not been acknowledged by the server, in the order they have been sent.
+     *
+     * @return the unacknowledged stanzas.
+     */
+    public List<Stanza> getUnacknowledgedStanzas() {
+        return unacknowledgedStanzas;
+    }
+
+    @Override
+    public String toString() {
+        return "SmState[smSessionId=" + smSessionId + ", user=" + user + ", clientHandledStanzasCount="
+                        + clientHandledStanzasCount + ", serverHandledStanzasCount=" + serverHandledStanzasCount
+                        + ", unacknowledgedStanzas=" + unacknowledgedStanzas.size() + ']';
+    }
+}
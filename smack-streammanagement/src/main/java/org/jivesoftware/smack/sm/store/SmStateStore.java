@@ -0,0 +1,108 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm.store;
+
+import org.jivesoftware.smack.packet.Stanza;
+
+import org.jxmpp.jid.EntityFullJid;
+
+/**
+ * This is an interface for a persistent store of the Stream Management (XEP-0198) state, which allows a connection
+ * to resume the stream of a previous connection, even if the previous connection was established by a different
+ * process.
+ * <p>
+ * The connection reports every change of the state to the store, in the order the changes happen. Implementations
+ * must be thread-safe, as the methods are invoked by the connection's reader and writer threads.
+ * </p>
+ */
+public interface SmStateStore {
+
+    /**
+     * Load the state of the last resumable stream from this store.
+     *
+     * @return the state of the last resumable stream, or <code>null</code> if there is none.
+     */
+    SmState load();
+
+    /**
+     * Invoked once the client requested to enable Stream Management. This starts a new session, the state of a
+     * previous session is no longer valid.
+     */
+    void streamManagementEnableRequested();
+
+    /**
+     * Invoked once the server confirmed that Stream Management is enabled and that the stream is resumable.
+     *
+     * @param smSessionId the ID of the resumable stream.
+     * @param user the full JID the stream is bound to.
+     * @param maxResumptionTime the server's maximum resumption time in seconds, or a value less or equal to zero.
+     */
+    void streamManagementEnabled(String smSessionId, EntityFullJid user, int maxResumptionTime);
+
+    /**
+     * Invoked for every stanza that was sent while Stream Management is enabled, right before it is put on the wire.
+     *
+     * @param stanza the sent stanza.
+     */
+    void stanzaSent(Stanza stanza);
+
+    /**
+     * Invoked for every stanza that was sent while Stream Management is enabled, right before it is put on the wire,
+     * with the XML the connection serialized the stanza to. Implementations storing the stanza's XML should override
+     * this method to avoid serializing the stanza a second time.
+     *
+     * @param stanza the sent stanza.
+     * @param stanzaXml the XML of the stanza as it is put on the wire.
+     */
+    default void stanzaSent(Stanza stanza, CharSequence stanzaXml) {
+        stanzaSent(stanza);
+    }
+
+    /**
+     * Invoked once the connection wrote a batch of stanzas and is about to flush them to the server. Implementations
+     * may buffer the state changes caused by sent stanzas until then.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Invoked when the server acknowledged the handling of stanzas. The acknowledged stanzas are the ones at the head
+     * of the unacknowledged stanzas.
+     *
+     * @param serverHandledStanzasCount the new count of stanzas handled by the server.
+     */
+    void serverHandledStanzasCountUpdated(long serverHandledStanzasCount);
+
+    /**
+     * Invoked when the count of stanzas handled by the client was reported to the server, or is about to become
+     * relevant for a later resumption. Implementations may not get informed about every incoming stanza.
+     *
+     * @param clientHandledStanzasCount the count of stanzas handled by the client.
+     */
+    void clientHandledStanzasCountUpdated(long clientHandledStanzasCount);
+
+    /**
+     * Invoked after the stream was resumed and the acknowledgements of the server have been processed. All remaining
+     * unacknowledged stanzas are going to be resent, and hence will be reported via {@link #stanzaSent(Stanza)} again.
+     */
+    void streamResumed();
+
+    /**
+     * Reset the store by dropping the state. Invoked if the stream is no longer resumable.
+     */
+    void reset();
+}
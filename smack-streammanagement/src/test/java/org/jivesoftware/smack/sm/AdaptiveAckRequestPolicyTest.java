@@ -0,0 +1,135 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.sm.AdaptiveAckRequestPolicy.Decision;
+
+import org.junit.jupiter.api.Test;
+
+public class AdaptiveAckRequestPolicyTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SmAckMetrics metrics = new SmAckMetrics();
+
+    private final AdaptiveAckRequestPolicy policy = new AdaptiveAckRequestPolicy(metrics, 8, 1000);
+
+    @Test
+    public void ackRequestIsPiggybackedIfNoneIsOutstanding() {
+        assertEquals(Decision.none, policy.decide(0));
+
+        metrics.stanzaSent(10);
+        assertEquals(Decision.piggyback, policy.decide(0));
+
+        metrics.ackRequestSent(0);
+        assertEquals(Decision.none, policy.decide(0));
+    }
+
+    @Test
+    public void ackRequestIsOnlyRepeatedAfterOneRtt() {
+        // Establish a smoothed RTT of 100 milliseconds.
+        metrics.stanzaSent(10);
+        metrics.ackRequestSent(0);
+        metrics.ackAnswerReceived(1, 100 * MILLIS);
+        assertEquals(100 * MILLIS, metrics.getSmoothedAckRttNanos());
+
+        metrics.stanzaSent(10);
+        metrics.ackRequestSent(1000 * MILLIS);
+        metrics.stanzaSent(10);
+        assertEquals(Decision.none, policy.decide(1050 * MILLIS));
+        assertEquals(Decision.piggyback, policy.decide(1100 * MILLIS));
+    }
+
+    @Test
+    public void ackIsRequestedImmediatelyIfTooManyStanzasAreInFlight() {
+        metrics.stanzaSent(10);
+        metrics.ackRequestSent(0);
+        for (int i = 0; i < 6; i++) {
+            metrics.stanzaSent(10);
+        }
+        assertEquals(Decision.none, policy.decide(0));
+
+        metrics.stanzaSent(10);
+        assertEquals(8, metrics.getUnacknowledgedStanzasCount());
+        assertEquals(Decision.immediate, policy.decide(0));
+    }
+
+    @Test
+    public void ackIsRequestedImmediatelyIfTooManyBytesAreInFlight() {
+        metrics.stanzaSent(100);
+        metrics.ackRequestSent(0);
+        metrics.stanzaSent(800);
+        assertEquals(Decision.none, policy.decide(0));
+
+        metrics.stanzaSent(100);
+        assertEquals(1000, metrics.getBytesInFlight());
+        assertEquals(Decision.immediate, policy.decide(0));
+
+        // The first stanza is acknowledged, and its bytes are no longer in flight.
+        metrics.ackAnswerReceived(1, 10 * MILLIS);
+        assertEquals(900, metrics.getBytesInFlight());
+    }
+
+    @Test
+    public void ackRttsAreRecordedInHistogram() {
+        long now = 0;
+        for (long rttMillis : new long[] { 0, 3, 3, 100, 100000 }) {
+            metrics.stanzaSent(1);
+            metrics.ackRequestSent(now);
+            now += rttMillis * MILLIS;
+            metrics.ackAnswerReceived(1, now);
+        }
+
+        SmAckMetrics.Stats stats = metrics.getStats();
+        assertEquals(5, stats.ackRequestsSent);
+        assertEquals(5, stats.ackAnswersReceived);
+        assertEquals(0, stats.minAckRttMillis);
+        assertEquals(100000, stats.maxAckRttMillis);
+        assertEquals(1, stats.unacknowledgedStanzasHighWaterMark);
+
+        long[] expectedHistogram = new long[stats.ackRttBucketUpperBoundsMillis.length + 1];
+        // [0, 1)
+        expectedHistogram[0] = 1;
+        // [2, 4)
+        expectedHistogram[2] = 2;
+        // [64, 128)
+        expectedHistogram[7] = 1;
+        // [32768, ∞)
+        expectedHistogram[expectedHistogram.length - 1] = 1;
+        assertArrayEquals(expectedHistogram, stats.ackRttHistogram);
+    }
+
+    @Test
+    public void unacknowledgedStanzasHighWaterMarkIsRecorded() {
+        for (int i = 0; i < 100; i++) {
+            metrics.stanzaSent(1);
+        }
+        metrics.ackRequestSent(0);
+        metrics.ackAnswerReceived(90, 0);
+        metrics.stanzaSent(1);
+
+        SmAckMetrics.Stats stats = metrics.getStats();
+        assertEquals(11, stats.unacknowledgedStanzas);
+        assertEquals(11, stats.bytesInFlight);
+        assertEquals(100, stats.unacknowledgedStanzasHighWaterMark);
+    }
+}
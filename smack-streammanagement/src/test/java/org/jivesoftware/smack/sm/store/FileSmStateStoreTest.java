@@ -0,0 +1,252 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.sm.store;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jxmpp.jid.EntityFullJid;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class FileSmStateStoreTest extends SmackTestSuite {
+
+    private static final String SM_SESSION_ID = "sm-session 1";
+
+    private static final EntityFullJid USER = JidCreate.entityFullFromOrThrowUnchecked("juliet@example.org/balcony");
+
+    @TempDir
+    File tempDir;
+
+    private File journalFile() {
+        return new File(tempDir, "sm-state");
+    }
+
+    private static Message message(int i) {
+        return MessageBuilder.buildMessage("id-" + i)
+                        .to(JidCreate.entityBareFromOrThrowUnchecked("romeo@example.org"))
+                        .setBody("Message ä " + i + "\nwith a second line")
+                        .build();
+    }
+
+    private static void assertStanzaIds(List<Stanza> stanzas, int... ids) {
+        assertEquals(ids.length, stanzas.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals("id-" + ids[i], stanzas.get(i).getStanzaId());
+        }
+    }
+
+    @Test
+    public void emptyStoreHasNoState() throws IOException {
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            assertNull(store.load());
+        }
+    }
+
+    @Test
+    public void stateSurvivesReopening() throws IOException {
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            store.streamManagementEnableRequested();
+            store.stanzaSent(message(0));
+            store.streamManagementEnabled(SM_SESSION_ID, USER, 300);
+            for (int i = 1; i < 5; i++) {
+                store.stanzaSent(message(i));
+            }
+            store.serverHandledStanzasCountUpdated(2);
+            store.clientHandledStanzasCountUpdated(42);
+        }
+
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            SmState smState = store.load();
+            assertNotNull(smState);
+            assertEquals(SM_SESSION_ID, smState.getSmSessionId());
+            assertEquals(USER, smState.getUser());
+            assertEquals(300, smState.getMaxResumptionTime());
+            assertEquals(42, smState.getClientHandledStanzasCount());
+            assertEquals(2, smState.getServerHandledStanzasCount());
+            assertStanzaIds(smState.getUnacknowledgedStanzas(), 2, 3, 4);
+
+            Message message = (Message) smState.getUnacknowledgedStanzas().get(0);
+            assertEquals(message(2).getBody(), message.getBody());
+        }
+    }
+
+    @Test
+    public void resumedStreamRecordsResentStanzas() throws IOException {
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled(SM_SESSION_ID, USER, -1);
+            for (int i = 0; i < 3; i++) {
+                store.stanzaSent(message(i));
+            }
+        }
+
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            store.serverHandledStanzasCountUpdated(1);
+            store.streamResumed();
+            store.stanzaSent(message(1));
+            store.stanzaSent(message(2));
+            store.stanzaSent(message(3));
+
+            SmState smState = store.load();
+            assertNotNull(smState);
+            assertEquals(1, smState.getServerHandledStanzasCount());
+            assertStanzaIds(smState.getUnacknowledgedStanzas(), 1, 2, 3);
+        }
+    }
+
+    @Test
+    public void nonResumableStreamIsNotRecorded() throws IOException {
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            store.streamManagementEnableRequested();
+            store.stanzaSent(message(0));
+            assertNull(store.load());
+
+            store.reset();
+            store.stanzaSent(message(1));
+        }
+
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            assertNull(store.load());
+        }
+    }
+
+    @Test
+    public void newSessionDropsPreviousState() throws IOException {
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile())) {
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled(SM_SESSION_ID, USER, -1);
+            store.stanzaSent(message(0));
+            store.clientHandledStanzasCountUpdated(7);
+
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled("sm-session-2", USER, -1);
+            store.stanzaSent(message(1));
+
+            SmState smState = store.load();
+            assertNotNull(smState);
+            assertEquals("sm-session-2", smState.getSmSessionId());
+            assertEquals(0, smState.getClientHandledStanzasCount());
+            assertStanzaIds(smState.getUnacknowledgedStanzas(), 1);
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws IOException {
+        File journalFile = journalFile();
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile)) {
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled(SM_SESSION_ID, USER, -1);
+            store.stanzaSent(message(0));
+        }
+        // Simulate a process which died while writing a record.
+        Files.write(journalFile.toPath(), "S PG1lc3NhZ2".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile)) {
+            SmState smState = store.load();
+            assertNotNull(smState);
+            assertStanzaIds(smState.getUnacknowledgedStanzas(), 0);
+        }
+    }
+
+    @Test
+    public void journalIsCompacted() throws IOException {
+        File journalFile = journalFile();
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile)) {
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled(SM_SESSION_ID, USER, -1);
+            for (int i = 0; i < 10000; i++) {
+                store.stanzaSent(message(i));
+                store.serverHandledStanzasCountUpdated(i + 1);
+            }
+            store.stanzaSent(message(10000));
+
+            long journalLines = Files.readAllLines(journalFile.toPath()).size();
+            assertTrue(journalLines < 2 * 1024 + 10, "Journal was not compacted, it has " + journalLines + " lines");
+
+            SmState smState = store.load();
+            assertNotNull(smState);
+            assertEquals(10000, smState.getServerHandledStanzasCount());
+            assertStanzaIds(smState.getUnacknowledgedStanzas(), 10000);
+        }
+    }
+
+    @Test
+    public void closedStoreIsNotReopened() throws IOException {
+        File journalFile = journalFile();
+        FileSmStateStore store = FileSmStateStore.open(journalFile);
+        store.streamManagementEnableRequested();
+        store.streamManagementEnabled(SM_SESSION_ID, USER, 300);
+        store.stanzaSent(message(0));
+        store.close();
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+
+        store.reset();
+        assertNull(store.load());
+        store.streamManagementEnableRequested();
+        store.stanzaSent(message(1));
+        assertArrayEquals(journal, Files.readAllBytes(journalFile.toPath()));
+
+        try (FileSmStateStore reopenedStore = FileSmStateStore.open(journalFile)) {
+            assertStanzaIds(reopenedStore.load().getUnacknowledgedStanzas(), 0);
+        }
+    }
+
+    @Test
+    public void sentStanzasAreWrittenOnFlush() throws IOException {
+        File journalFile = journalFile();
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile)) {
+            store.streamManagementEnableRequested();
+            store.streamManagementEnabled(SM_SESSION_ID, USER, 300);
+            long journalLength = journalFile.length();
+
+            Message message = message(0);
+            store.stanzaSent(message, message.toXML());
+            assertEquals(journalLength, journalFile.length());
+
+            store.flush();
+            assertTrue(journalFile.length() > journalLength);
+            assertStanzaIds(store.load().getUnacknowledgedStanzas(), 0);
+        }
+    }
+
+    @Test
+    public void invalidJournalIsIgnored() throws IOException {
+        File journalFile = journalFile();
+        Files.write(journalFile.toPath(), "something else\n".getBytes(StandardCharsets.UTF_8));
+
+        try (FileSmStateStore store = FileSmStateStore.open(journalFile)) {
+            assertNull(store.load());
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,15 +17,22 @@
 package org.jivesoftware.smack.tcp;
 
 import java.io.IOException;
+import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import org.jivesoftware.smack.ScheduledAction;
 import org.jivesoftware.smack.SmackException.EndpointConnectionException;
 import org.jivesoftware.smack.c2s.internal.ModularXmppClientToServerConnectionInternal;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
@@ -35,57 +42,109 @@ import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint;
 import org.jivesoftware.smack.util.rce.RemoteConnectionException;
 
+/**
+ * The state of establishing a TCP connection to one of the discovered remote connection endpoints.
+ * <p>
+ * By default, the addresses of the endpoints are tried one after another, and the next address is only tried once
+ * the connection attempt to the previous one failed. If a connection attempt delay is configured, then the connection
+ * attempts are raced as described in RFC 8305 ("Happy Eyeballs"): the addresses are sorted so that the address families
+ * alternate, and the next connection attempt is started once the delay passed, or once the previous attempt failed,
+ * whatever happens first. The first connection attempt that succeeds is used, and all others are cancelled.
+ * </p>
+ */
 public final class ConnectionAttemptState {
 
+    private static final Logger LOGGER = Logger.getLogger(ConnectionAttemptState.class.getName());
+
     private final ModularXmppClientToServerConnectionInternal connectionInternal;
 
     private final XmppTcpTransportModule.XmppTcpNioTransport.DiscoveredTcpEndpoints discoveredEndpoints;
 
     private final EstablishingTcpConnectionState establishingTcpConnectionState;
 
-    // TODO: Check if we can re-use the socket channel in case some InetSocketAddress fail to connect to.
-    final SocketChannel socketChannel;
+    /**
+     * The delay between starting two connection attempts in milliseconds, or a negative value if the connection
+     * attempts are performed sequentially.
+     */
+    private final long connectionAttemptDelayMillis;
+
+    /**
+     * The connected socket channel. Only set once a connection attempt succeeded.
+     */
+    SocketChannel socketChannel;
 
     final List<RemoteConnectionException<?>> connectionExceptions;
 
     EndpointConnectionException connectionException;
-    boolean connected;
     long deadline;
 
-    final Iterator<Rfc6120TcpRemoteConnectionEndpoint> connectionEndpointIterator;
-    /** The current connection endpoint we are trying */
-    Rfc6120TcpRemoteConnectionEndpoint connectionEndpoint;
-    Iterator<? extends InetAddress> inetAddressIterator;
+    private final Iterator<RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint>> addressIterator;
+
+    private final List<ConnectionAttempt> pendingConnectionAttempts = new ArrayList<>();
+
+    private ScheduledAction nextConnectionAttemptAction;
+
+    /**
+     * Set once the winning connection attempt has been determined, the last connection attempt failed or we gave up.
+     */
+    private boolean finished;
+
+    private long firstConnectionAttemptNanos;
 
     ConnectionAttemptState(ModularXmppClientToServerConnectionInternal connectionInternal,
                     XmppTcpTransportModule.XmppTcpNioTransport.DiscoveredTcpEndpoints discoveredEndpoints,
-                    EstablishingTcpConnectionState establishingTcpConnectionState) throws IOException {
+                    EstablishingTcpConnectionState establishingTcpConnectionState, long connectionAttemptDelayMillis) {
         this.connectionInternal = connectionInternal;
         this.discoveredEndpoints = discoveredEndpoints;
         this.establishingTcpConnectionState = establishingTcpConnectionState;
-
-        socketChannel = SocketChannel.open();
-        socketChannel.configureBlocking(false);
+        this.connectionAttemptDelayMillis = connectionAttemptDelayMillis;
 
         List<Rfc6120TcpRemoteConnectionEndpoint> endpoints = discoveredEndpoints.result.discoveredRemoteConnectionEndpoints;
-        connectionEndpointIterator = endpoints.iterator();
-        connectionExceptions = new ArrayList<>(endpoints.size());
+        List<RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint>> addresses = new ArrayList<>(endpoints.size());
+        for (Rfc6120TcpRemoteConnectionEndpoint endpoint : endpoints) {
+            // Every valid connection addresspoint must have a non-empty collection of inet addresses.
+            assert !endpoint.getInetAddresses().isEmpty();
+            for (InetAddress inetAddress : endpoint.getInetAddresses()) {
+                addresses.add(new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(endpoint, inetAddress));
+            }
+        }
+        if (isRacing()) {
+            addresses = interleaveAddressFamilies(addresses);
+        }
+        addressIterator = addresses.iterator();
+        connectionExceptions = new ArrayList<>(addresses.size());
+    }
+
+    private boolean isRacing() {
+        return connectionAttemptDelayMillis >= 0;
     }
 
     StateTransitionResult.Failure establishTcpConnection() throws InterruptedException {
-        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address = nextAddress();
-        establishTcpConnection(address);
+        firstConnectionAttemptNanos = System.nanoTime();
+        startNextConnectionAttempt();
 
         synchronized (this) {
-            while (!connected && connectionException == null) {
-                final long now = System.currentTimeMillis();
-                if (now >= deadline) {
-                    return new StateTransitionResult.FailureCausedByTimeout("Timeout waiting to establish connection");
+            try {
+                while (socketChannel == null && connectionException == null) {
+                    if (finished) {
+                        // The winning connection attempt is about to hand over its socket channel.
+                        wait();
+                        continue;
+                    }
+                    final long now = System.currentTimeMillis();
+                    if (now >= deadline) {
+                        abort();
+                        return new StateTransitionResult.FailureCausedByTimeout("Timeout waiting to establish connection");
+                    }
+                    wait(deadline - now);
                 }
-                wait (deadline - now);
+            } catch (InterruptedException e) {
+                abort();
+                throw e;
             }
         }
-        if (connected) {
+
+        if (socketChannel != null) {
             assert connectionException == null;
             // Success case: we have been able to establish a connection to one remote endpoint.
             return null;
@@ -94,103 +153,251 @@ public final class ConnectionAttemptState {
         return new StateTransitionResult.FailureCausedByException<Exception>(connectionException);
     }
 
-    private void establishTcpConnection(
-                    RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address) {
-        TcpHostEvent.ConnectingToHostEvent connectingToHostEvent = new TcpHostEvent.ConnectingToHostEvent(
-                        establishingTcpConnectionState, address);
-        connectionInternal.invokeConnectionStateMachineListener(connectingToHostEvent);
+    private void startNextConnectionAttempt() {
+        ConnectionAttempt connectionAttempt;
+        synchronized (this) {
+            if (finished) {
+                return;
+            }
+
+            if (nextConnectionAttemptAction != null) {
+                nextConnectionAttemptAction.cancel();
+                nextConnectionAttemptAction = null;
+            }
 
-        final InetSocketAddress inetSocketAddress = address.getInetSocketAddress();
-        // TODO: Should use "connect timeout" instead of reply timeout. But first connect timeout needs to be moved from
-        // XMPPTCPConnectionConfiguration. into XMPPConnectionConfiguration.
-        deadline = System.currentTimeMillis() + connectionInternal.connection.getReplyTimeout();
+            if (!addressIterator.hasNext()) {
+                return;
+            }
+
+            connectionAttempt = new ConnectionAttempt(addressIterator.next());
+            pendingConnectionAttempts.add(connectionAttempt);
+
+            // TODO: Should use "connect timeout" instead of reply timeout. But first connect timeout needs to be moved from
+            // XMPPTCPConnectionConfiguration. into XMPPConnectionConfiguration.
+            deadline = System.currentTimeMillis() + connectionInternal.connection.getReplyTimeout();
+
+            if (isRacing() && addressIterator.hasNext()) {
+                // Scheduled actions are run by the reactor thread, which should not block on registering channels.
+                nextConnectionAttemptAction = connectionInternal.schedule(
+                                () -> connectionInternal.asyncGo(this::startNextConnectionAttempt),
+                                connectionAttemptDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        connectionAttempt.connect();
+    }
+
+    /**
+     * Give up on all connection attempts which are still pending. Must be called with this object's monitor held.
+     */
+    private void abort() {
+        finished = true;
+        cancelPendingConnectionAttempts();
+    }
+
+    private void cancelPendingConnectionAttempts() {
+        if (nextConnectionAttemptAction != null) {
+            nextConnectionAttemptAction.cancel();
+            nextConnectionAttemptAction = null;
+        }
+
+        for (ConnectionAttempt connectionAttempt : pendingConnectionAttempts) {
+            connectionAttempt.cancel();
+        }
+        pendingConnectionAttempts.clear();
+    }
+
+    private static void closeQuietly(SocketChannel socketChannel) {
+        if (socketChannel == null) {
+            return;
+        }
         try {
-            connected = socketChannel.connect(inetSocketAddress);
+            socketChannel.close();
         } catch (IOException e) {
-            onIOExceptionWhenEstablishingTcpConnection(e, address);
-            return;
+            LOGGER.log(Level.FINE, "Exception while closing socket channel of cancelled connection attempt", e);
         }
+    }
+
+    private final class ConnectionAttempt {
+
+        private final RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address;
+
+        private final long startNanos = System.nanoTime();
+
+        // The following fields are guarded by the monitor of the ConnectionAttemptState.
+        private SocketChannel attemptSocketChannel;
 
-        if (connected) {
-            TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = new TcpHostEvent.ConnectedToHostEvent(
-                            establishingTcpConnectionState, address, true);
-            connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
+        private boolean cancelled;
 
-            synchronized (this) {
-                notifyAll();
+        private ConnectionAttempt(RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address) {
+            this.address = address;
+        }
+
+        private void connect() {
+            TcpHostEvent.ConnectingToHostEvent connectingToHostEvent = new TcpHostEvent.ConnectingToHostEvent(
+                            establishingTcpConnectionState, address, startNanos - firstConnectionAttemptNanos);
+            connectionInternal.invokeConnectionStateMachineListener(connectingToHostEvent);
+
+            SocketChannel socketChannel;
+            try {
+                socketChannel = SocketChannel.open();
+                socketChannel.configureBlocking(false);
+            } catch (IOException e) {
+                onIOException(e);
+                return;
+            }
+
+            synchronized (ConnectionAttemptState.this) {
+                if (cancelled) {
+                    closeQuietly(socketChannel);
+                    return;
+                }
+                attemptSocketChannel = socketChannel;
+            }
+
+            final InetSocketAddress inetSocketAddress = address.getInetSocketAddress();
+            boolean connected;
+            try {
+                connected = socketChannel.connect(inetSocketAddress);
+            } catch (IOException e) {
+                onIOException(e);
+                return;
+            }
+
+            if (connected) {
+                onConnected(true);
+                return;
+            }
+
+            try {
+                connectionInternal.registerWithSelector(socketChannel, SelectionKey.OP_CONNECT,
+                        (selectedChannel, selectedSelectionKey) -> {
+                            SocketChannel selectedSocketChannel = (SocketChannel) selectedChannel;
+
+                            boolean finishConnected;
+                            try {
+                                finishConnected = selectedSocketChannel.finishConnect();
+                            } catch (IOException e) {
+                                Async.go(() -> onIOException(e));
+                                return;
+                            }
+
+                            if (!finishConnected) {
+                                Async.go(() -> onIOException(new IOException("finishConnect() failed")));
+                                return;
+                            }
+
+                            onConnected(false);
+                        });
+            } catch (ClosedChannelException e) {
+                onIOException(e);
             }
-            return;
         }
 
-        try {
-            connectionInternal.registerWithSelector(socketChannel, SelectionKey.OP_CONNECT,
-                    (selectedChannel, selectedSelectionKey) -> {
-                        SocketChannel selectedSocketChannel = (SocketChannel) selectedChannel;
-
-                        boolean finishConnected;
-                        try {
-                            finishConnected = selectedSocketChannel.finishConnect();
-                        } catch (IOException e) {
-                            Async.go(() -> onIOExceptionWhenEstablishingTcpConnection(e, address));
-                            return;
-                        }
-
-                        if (!finishConnected) {
-                            Async.go(() -> onIOExceptionWhenEstablishingTcpConnection(new IOException("finishConnect() failed"), address));
-                            return;
-                        }
-
-                        TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = new TcpHostEvent.ConnectedToHostEvent(
-                                        establishingTcpConnectionState, address, false);
-                        connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
-
-                        connected = true;
-                        synchronized (ConnectionAttemptState.this) {
-                            notifyAll();
-                        }
-                    });
-        } catch (ClosedChannelException e) {
-            onIOExceptionWhenEstablishingTcpConnection(e, address);
+        private void cancel() {
+            cancelled = true;
+            closeQuietly(attemptSocketChannel);
         }
-    }
 
-    private void onIOExceptionWhenEstablishingTcpConnection(IOException exception,
-                    RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> failedAddress) {
-        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> nextInetSocketAddress = nextAddress();
-        if (nextInetSocketAddress == null) {
-            connectionException = EndpointConnectionException.from(
-                            discoveredEndpoints.result.lookupFailures, connectionExceptions);
-            synchronized (this) {
-                notifyAll();
+        private void onConnected(boolean immediately) {
+            SocketChannel connectedSocketChannel;
+            synchronized (ConnectionAttemptState.this) {
+                if (cancelled || finished) {
+                    // Another connection attempt won the race.
+                    closeQuietly(attemptSocketChannel);
+                    return;
+                }
+                finished = true;
+                pendingConnectionAttempts.remove(this);
+                cancelPendingConnectionAttempts();
+                connectedSocketChannel = attemptSocketChannel;
+            }
+
+            try {
+                TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = new TcpHostEvent.ConnectedToHostEvent(
+                                establishingTcpConnectionState, address, immediately, System.nanoTime() - startNanos);
+                connectionInternal.invokeConnectionStateMachineListener(connectedToHostEvent);
+            } finally {
+                synchronized (ConnectionAttemptState.this) {
+                    socketChannel = connectedSocketChannel;
+                    ConnectionAttemptState.this.notifyAll();
+                }
             }
-            return;
         }
 
-        RemoteConnectionException<Rfc6120TcpRemoteConnectionEndpoint> rce = new RemoteConnectionException<>(
-                        failedAddress, exception);
-        connectionExceptions.add(rce);
+        private void onIOException(IOException exception) {
+            synchronized (ConnectionAttemptState.this) {
+                if (cancelled) {
+                    // Exceptions of cancelled connection attempts are expected, as their channel got closed.
+                    return;
+                }
+                pendingConnectionAttempts.remove(this);
+                closeQuietly(attemptSocketChannel);
+                connectionExceptions.add(new RemoteConnectionException<>(address, exception));
+            }
+
+            TcpHostEvent.ConnectionToHostFailedEvent connectionToHostFailedEvent = new TcpHostEvent.ConnectionToHostFailedEvent(
+                            establishingTcpConnectionState, address, exception, System.nanoTime() - startNanos);
+            connectionInternal.invokeConnectionStateMachineListener(connectionToHostFailedEvent);
 
-        TcpHostEvent.ConnectionToHostFailedEvent connectionToHostFailedEvent = new TcpHostEvent.ConnectionToHostFailedEvent(
-                        establishingTcpConnectionState, nextInetSocketAddress, exception);
-        connectionInternal.invokeConnectionStateMachineListener(connectionToHostFailedEvent);
+            synchronized (ConnectionAttemptState.this) {
+                if (finished) {
+                    return;
+                }
+                if (pendingConnectionAttempts.isEmpty() && !addressIterator.hasNext()) {
+                    finished = true;
+                    connectionException = EndpointConnectionException.from(
+                                    discoveredEndpoints.result.lookupFailures, connectionExceptions);
+                    ConnectionAttemptState.this.notifyAll();
+                    return;
+                }
+            }
 
-        establishTcpConnection(nextInetSocketAddress);
+            // Do not wait for the connection attempt delay to pass, but try the next address right away.
+            startNextConnectionAttempt();
+        }
     }
 
-    private RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> nextAddress() {
-        if (inetAddressIterator == null || !inetAddressIterator.hasNext()) {
-            if (!connectionEndpointIterator.hasNext()) {
-                return null;
-            }
+    /**
+     * Sort the given addresses so that their address families alternate, starting with the family of the first
+     * address, as described in RFC 8305 § 4. The relative order of the addresses within one family is preserved.
+     *
+     * @param <A> the type of the addresses.
+     * @param addresses the addresses.
+     * @return the addresses with alternating address families.
+     */
+    static <A extends RemoteConnectionEndpoint.InetSocketAddressCoupling<?>> List<A> interleaveAddressFamilies(
+                    List<A> addresses) {
+        if (addresses.isEmpty()) {
+            return addresses;
+        }
 
-            connectionEndpoint = connectionEndpointIterator.next();
-            inetAddressIterator = connectionEndpoint.getInetAddresses().iterator();
-            // Every valid connection addresspoint must have a non-empty collection of inet addresses.
-            assert inetAddressIterator.hasNext();
+        boolean firstIsInet6 = isInet6(addresses.get(0));
+        Queue<A> firstFamily = new ArrayDeque<>(addresses.size());
+        Queue<A> secondFamily = new ArrayDeque<>(addresses.size());
+        for (A address : addresses) {
+            if (isInet6(address) == firstIsInet6) {
+                firstFamily.add(address);
+            } else {
+                secondFamily.add(address);
+            }
         }
 
-        InetAddress inetAddress = inetAddressIterator.next();
+        List<A> res = new ArrayList<>(addresses.size());
+        while (!firstFamily.isEmpty() || !secondFamily.isEmpty()) {
+            A address = firstFamily.poll();
+            if (address != null) {
+                res.add(address);
+            }
+            address = secondFamily.poll();
+            if (address != null) {
+                res.add(address);
+            }
+        }
+        return res;
+    }
 
-        return new RemoteConnectionEndpoint.InetSocketAddressCoupling<>(connectionEndpoint, inetAddress);
+    private static boolean isInet6(RemoteConnectionEndpoint.InetSocketAddressCoupling<?> address) {
+        return address.getInetSocketAddress().getAddress() instanceof Inet6Address;
     }
 }
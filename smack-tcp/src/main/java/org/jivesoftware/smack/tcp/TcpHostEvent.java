@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2020 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@
 package org.jivesoftware.smack.tcp;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 import org.jivesoftware.smack.fsm.ConnectionStateEvent.DetailedTransitionIntoInformation;
 import org.jivesoftware.smack.fsm.State;
@@ -41,39 +42,91 @@ public abstract class TcpHostEvent extends DetailedTransitionIntoInformation {
     }
 
     public static final class ConnectingToHostEvent extends TcpHostEvent {
+        private final long sinceFirstAttemptNanos;
+
         ConnectingToHostEvent(State state,
-                        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address) {
+                        RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address,
+                        long sinceFirstAttemptNanos) {
             super(state, address);
+            this.sinceFirstAttemptNanos = sinceFirstAttemptNanos;
+        }
+
+        /**
+         * Get the time that passed between the start of the first connection attempt and the start of this attempt.
+         *
+         * @param unit the unit of the returned value.
+         * @return the time since the first connection attempt started.
+         */
+        public long getTimeSinceFirstAttempt(TimeUnit unit) {
+            return unit.convert(sinceFirstAttemptNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + " (+" + TimeUnit.NANOSECONDS.toMillis(sinceFirstAttemptNanos) + "ms)";
         }
     }
 
     public static final class ConnectedToHostEvent extends TcpHostEvent {
         private final boolean connectionEstablishedImmediately;
 
-        ConnectedToHostEvent(State state, RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address, boolean immediately) {
+        private final long attemptDurationNanos;
+
+        ConnectedToHostEvent(State state, RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address, boolean immediately,
+                        long attemptDurationNanos) {
             super(state, address);
             this.connectionEstablishedImmediately = immediately;
+            this.attemptDurationNanos = attemptDurationNanos;
+        }
+
+        /**
+         * Get the time it took to establish the connection to the host.
+         *
+         * @param unit the unit of the returned value.
+         * @return the duration of the successful connection attempt.
+         */
+        public long getAttemptDuration(TimeUnit unit) {
+            return unit.convert(attemptDurationNanos, TimeUnit.NANOSECONDS);
         }
 
         @Override
         public String toString() {
-            return super.toString() + (connectionEstablishedImmediately ? "" : " not") + " connected immediately";
+            return super.toString() + (connectionEstablishedImmediately ? "" : " not") + " connected immediately after "
+                            + TimeUnit.NANOSECONDS.toMillis(attemptDurationNanos) + "ms";
         }
     }
 
     public static final class ConnectionToHostFailedEvent extends TcpHostEvent {
         private final IOException ioException;
 
+        private final long attemptDurationNanos;
+
         ConnectionToHostFailedEvent(State state,
                         RemoteConnectionEndpoint.InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address,
-                        IOException ioException) {
+                        IOException ioException, long attemptDurationNanos) {
             super(state, address);
             this.ioException = ioException;
+            this.attemptDurationNanos = attemptDurationNanos;
+        }
+
+        public IOException getIOException() {
+            return ioException;
+        }
+
+        /**
+         * Get the time that passed between starting the connection attempt and its failure.
+         *
+         * @param unit the unit of the returned value.
+         * @return the duration of the failed connection attempt.
+         */
+        public long getAttemptDuration(TimeUnit unit) {
+            return unit.convert(attemptDurationNanos, TimeUnit.NANOSECONDS);
         }
 
         @Override
         public String toString() {
-            return super.toString() + ioException;
+            return super.toString() + " failed after " + TimeUnit.NANOSECONDS.toMillis(attemptDurationNanos) + "ms: "
+                            + ioException;
         }
     }
 }
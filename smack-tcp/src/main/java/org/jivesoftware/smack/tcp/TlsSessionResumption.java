@@ -0,0 +1,139 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+/**
+ * Manages and observes the TLS session resumption of the connections using the same {@link XmppTcpTransportModuleDescriptor}.
+ * <p>
+ * The TLS sessions are cached by the client session context of the {@link SSLContext}, which holds TLS 1.2 session IDs
+ * and tickets as well as TLS 1.3 pre-shared keys (session tickets). The sessions are looked up by the XMPP service
+ * domain and the port of the remote endpoint. Since the {@link SSLContext} is created by the connection configuration,
+ * resumption only works for connections sharing the same configuration, or configurations whose
+ * {@link org.jivesoftware.smack.util.SslContextFactory} returns the same {@link SSLContext}.
+ * </p>
+ * <p>
+ * A resumed session skips the certificate exchange and hence the, potentially expensive, certificate verification. It
+ * does not skip DANE verification, as this is performed against the peer certificates stored in the resumed session.
+ * </p>
+ */
+public final class TlsSessionResumption {
+
+    private final int sessionCacheSize;
+
+    private final int sessionLifetimeSeconds;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    TlsSessionResumption(int sessionCacheSize, int sessionLifetimeSeconds) {
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionLifetimeSeconds = sessionLifetimeSeconds;
+    }
+
+    /**
+     * Apply the configured capacity and lifetime to the client session context of the given SSL context.
+     *
+     * @param sslContext the SSL context.
+     */
+    void configure(SSLContext sslContext) {
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        if (sessionContext == null) {
+            // Session resumption is not supported by the SSLContext.
+            return;
+        }
+
+        if (sessionCacheSize >= 0 && sessionContext.getSessionCacheSize() != sessionCacheSize) {
+            sessionContext.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionLifetimeSeconds >= 0 && sessionContext.getSessionTimeout() != sessionLifetimeSeconds) {
+            sessionContext.setSessionTimeout(sessionLifetimeSeconds);
+        }
+    }
+
+    /**
+     * Record a finished TLS handshake.
+     *
+     * @param session the session established by the handshake.
+     * @param handshakeStartedMillis the wall clock time, in milliseconds since the epoch, when the handshake started.
+     * @return <code>true</code> if the session was resumed.
+     */
+    boolean recordHandshake(SSLSession session, long handshakeStartedMillis) {
+        return recordHandshake(session.getCreationTime(), handshakeStartedMillis);
+    }
+
+    boolean recordHandshake(long sessionCreationTimeMillis, long handshakeStartedMillis) {
+        // There is no API to ask an SSLEngine whether the session was resumed. But a resumed session keeps the
+        // creation time of the session established by the initial full handshake.
+        boolean resumed = sessionCreationTimeMillis < handshakeStartedMillis;
+        if (resumed) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return resumed;
+    }
+
+    /**
+     * Get the number of TLS handshakes which resumed a previous session.
+     *
+     * @return the number of resumed sessions.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of TLS handshakes which had to perform a full handshake.
+     *
+     * @return the number of full handshakes.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the configured maximum number of cached sessions, or a negative value if the default of the SSL context is
+     * used. A value of zero means that there is no limit.
+     *
+     * @return the maximum number of cached sessions.
+     */
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    /**
+     * Get the configured lifetime of cached sessions, or a negative value if the default of the SSL context is used. A
+     * value of zero means that the sessions do not expire.
+     *
+     * @param unit the unit of the returned value.
+     * @return the lifetime of cached sessions.
+     */
+    public long getSessionLifetime(TimeUnit unit) {
+        if (sessionLifetimeSeconds < 0) {
+            return -1;
+        }
+        return unit.convert(sessionLifetimeSeconds, TimeUnit.SECONDS);
+    }
+}
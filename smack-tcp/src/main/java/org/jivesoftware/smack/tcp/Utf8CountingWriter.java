@@ -0,0 +1,87 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer which counts the number of bytes the written characters take up once encoded as UTF-8. Surrogates are
+ * counted as two bytes each, so that a surrogate pair counts as the four bytes it is encoded to. Only the unlikely
+ * unpaired surrogate, which gets replaced by a single byte, is over-counted.
+ */
+final class Utf8CountingWriter extends Writer {
+
+    private final Writer wrappedWriter;
+
+    private long utf8Bytes;
+
+    Utf8CountingWriter(Writer wrappedWriter) {
+        this.wrappedWriter = wrappedWriter;
+    }
+
+    /**
+     * Get the number of UTF-8 bytes written so far. Should only be used by the thread writing to this writer.
+     *
+     * @return the number of UTF-8 bytes written.
+     */
+    long getUtf8Bytes() {
+        return utf8Bytes;
+    }
+
+    private static int utf8Length(char c) {
+        if (c < 0x80) {
+            return 1;
+        }
+        if (c < 0x800 || Character.isSurrogate(c)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        wrappedWriter.write(c);
+        utf8Bytes += utf8Length((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        wrappedWriter.write(cbuf, off, len);
+        for (int i = off; i < off + len; i++) {
+            utf8Bytes += utf8Length(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        wrappedWriter.write(str, off, len);
+        for (int i = off; i < off + len; i++) {
+            utf8Bytes += utf8Length(str.charAt(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        wrappedWriter.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        wrappedWriter.close();
+    }
+}
@@ -87,7 +87,9 @@ import org.jivesoftware.smack.packet.StreamOpen;
 import org.jivesoftware.smack.packet.TopLevelStreamElement;
 import org.jivesoftware.smack.proxy.ProxyInfo;
 import org.jivesoftware.smack.sasl.packet.SaslNonza;
+import org.jivesoftware.smack.sm.AdaptiveAckRequestPolicy;
 import org.jivesoftware.smack.sm.SMUtils;
+import org.jivesoftware.smack.sm.SmAckMetrics;
 import org.jivesoftware.smack.sm.StreamManagementException;
 import org.jivesoftware.smack.sm.StreamManagementException.StreamIdDoesNotMatchException;
 import org.jivesoftware.smack.sm.StreamManagementException.StreamManagementCounterError;
@@ -103,11 +105,13 @@ import org.jivesoftware.smack.sm.packet.StreamManagement.Resumed;
 import org.jivesoftware.smack.sm.packet.StreamManagement.StreamManagementFeature;
 import org.jivesoftware.smack.sm.predicates.Predicate;
 import org.jivesoftware.smack.sm.provider.ParseStreamManagement;
+import org.jivesoftware.smack.sm.store.SmState;
+import org.jivesoftware.smack.sm.store.SmStateStore;
 import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints;
 import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
-import org.jivesoftware.smack.util.ArrayBlockingQueueWithShutdown;
 import org.jivesoftware.smack.util.Async;
 import org.jivesoftware.smack.util.CloseableUtil;
+import org.jivesoftware.smack.util.MpscArrayQueueWithShutdown;
 import org.jivesoftware.smack.util.PacketParserUtils;
 import org.jivesoftware.smack.util.StringUtils;
 import org.jivesoftware.smack.util.TLSUtils;
@@ -117,6 +121,7 @@ import org.jivesoftware.smack.xml.SmackXmlParser;
 import org.jivesoftware.smack.xml.XmlPullParser;
 import org.jivesoftware.smack.xml.XmlPullParserException;
 
+import org.jxmpp.jid.EntityFullJid;
 import org.jxmpp.jid.impl.JidCreate;
 import org.jxmpp.jid.parts.Resourcepart;
 import org.jxmpp.stringprep.XmppStringprepException;
@@ -185,6 +190,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
     private static boolean useSmResumptionDefault = true;
 
+    private static boolean useAdaptiveAckRequestsDefault = false;
+
     /**
      * The stream ID of the stream that is currently resumable, i.e. the stream we hold the state
      * for in {@link #clientHandledStanzasCount}, {@link #serverHandledStanzasCount} and
@@ -244,6 +251,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
     private BlockingQueue<Stanza> unacknowledgedStanzas;
 
+    /**
+     * The store used to persist the Stream Management state, may be <code>null</code>.
+     */
+    private SmStateStore smStateStore;
+
     /**
      * Set to true if Stream Management was at least once enabled for this connection.
      */
@@ -282,6 +294,21 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
      */
     private final Set<StanzaFilter> requestAckPredicates = new LinkedHashSet<>();
 
+    /**
+     * If true, then the {@link #adaptiveAckRequestPolicy} is used instead of the {@link #requestAckPredicates}.
+     */
+    private boolean useAdaptiveAckRequests = useAdaptiveAckRequestsDefault;
+
+    private final SmAckMetrics smAckMetrics = new SmAckMetrics();
+
+    /**
+     * Counts the UTF-8 bytes written to the {@link #writer}, which feed the bytes in flight of {@link #smAckMetrics}.
+     */
+    private Utf8CountingWriter outgoingBytesCounter;
+
+    private final AdaptiveAckRequestPolicy adaptiveAckRequestPolicy = new AdaptiveAckRequestPolicy(smAckMetrics,
+                    PacketWriter.UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK, 64 * 1024);
+
     @SuppressWarnings("HidingField")
     private final XMPPTCPConnectionConfiguration config;
 
@@ -392,9 +419,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         // recommends to perform stream compression before resource binding.
         maybeEnableCompression();
 
+        final boolean resumptionOfRestoredSmStatePossible = maybeRestoreSmState();
+
         smResumedSyncPoint = SyncPointState.initial;
         smResumptionFailed = null;
-        if (isSmResumptionPossible()) {
+        if (resumptionOfRestoredSmStatePossible || isSmResumptionPossible()) {
             smResumedSyncPoint = SyncPointState.request_sent;
             sendNonza(new Resume(clientHandledStanzasCount, smSessionId));
             waitForConditionOrThrowConnectionException(() -> smResumedSyncPoint == SyncPointState.successful || smResumptionFailed != null, "resume previous stream");
@@ -549,6 +578,13 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 // Reset the stream management session id to null, since the stream is no longer resumable. Note that we
                 // keep the unacknowledgedStanzas queue, because we want to resend them when we are reconnected.
                 smSessionId = null;
+                if (smStateStore != null) {
+                    smStateStore.reset();
+                }
+            } else if (smStateStore != null) {
+                // Persist the current count, so that a resumption from the store does not cause the server to resend
+                // stanzas we already handled.
+                smStateStore.clientHandledStanzasCountUpdated(clientHandledStanzasCount);
             }
         } else {
             disconnectedButResumeable = false;
@@ -580,6 +616,10 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         if (!isSmEnabled())
             return;
 
+        // The adaptive ack request policy is applied by the writer thread.
+        if (useAdaptiveAckRequests)
+            return;
+
         if (element instanceof Stanza) {
             Stanza stanza = (Stanza) element;
             for (StanzaFilter requestAckPredicate : requestAckPredicates) {
@@ -708,7 +748,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
             os = compressionHandler.getOutputStream(os);
         }
         // OutputStreamWriter is already buffered, no need to wrap it into a BufferedWriter
-        writer = new OutputStreamWriter(os, "UTF-8");
+        outgoingBytesCounter = new Utf8CountingWriter(new OutputStreamWriter(os, "UTF-8"));
+        writer = outgoingBytesCounter;
         reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
 
         // If debugging is enabled, we open a window and write out all network traffic.
@@ -880,7 +921,8 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
      * @param writer TODO javadoc me please
      */
     protected void setWriter(Writer writer) {
-        this.writer = writer;
+        outgoingBytesCounter = new Utf8CountingWriter(writer);
+        this.writer = outgoingBytesCounter;
     }
 
     @Override
@@ -1052,6 +1094,13 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                                 smSessionId = null;
                             }
                             clientHandledStanzasCount = 0;
+                            if (smStateStore != null) {
+                                if (smSessionId != null) {
+                                    smStateStore.streamManagementEnabled(smSessionId, user, smServerMaxResumptionTime);
+                                } else {
+                                    smStateStore.reset();
+                                }
+                            }
                             smWasEnabledAtLeastOnce = true;
                             smEnabledSyncPoint = true;
                             notifyWaitingThreads();
@@ -1080,6 +1129,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                             // Then re-send what is left in the unacknowledged queue
                             List<Stanza> stanzasToResend = new ArrayList<>(unacknowledgedStanzas.size());
                             unacknowledgedStanzas.drainTo(stanzasToResend);
+                            if (smStateStore != null) {
+                                smStateStore.streamResumed();
+                            }
                             for (Stanza stanza : stanzasToResend) {
                                 XMPPTCPConnection.this.sendInternal(stanza);
                             }
@@ -1096,6 +1148,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                         case AckAnswer.ELEMENT:
                             AckAnswer ackAnswer = ParseStreamManagement.ackAnswer(parser);
                             processHandledCount(ackAnswer.getHandledCount());
+                            if (useAdaptiveAckRequests && isSmEnabled()
+                                            && adaptiveAckRequestPolicy.decide(System.nanoTime()) != AdaptiveAckRequestPolicy.Decision.none) {
+                                // Stanzas were sent after the answered ack request.
+                                requestSmAcknowledgementNonBlockingInternal();
+                            }
                             break;
                         case AckRequest.ELEMENT:
                             ParseStreamManagement.ackRequest(parser);
@@ -1192,8 +1249,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
         private final String threadName = "Smack Writer (" + getConnectionCounter() + ')';
 
-        private final ArrayBlockingQueueWithShutdown<Element> queue = new ArrayBlockingQueueWithShutdown<>(
-                        QUEUE_SIZE, true);
+        /**
+         * The outgoing elements. Application threads enqueue elements without contending on a lock, while the writer
+         * thread only parks if the queue is empty, and otherwise takes all available elements without a further wakeup.
+         */
+        private final MpscArrayQueueWithShutdown<Element> queue = new MpscArrayQueueWithShutdown<>(QUEUE_SIZE);
 
         /**
          * If set, the stanza writer is shut down
@@ -1214,6 +1274,11 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
         private boolean running;
 
+        /**
+         * Set if the adaptive ack request policy decided to piggyback an ack request onto the current write batch.
+         */
+        private boolean ackRequestDue;
+
         /**
         * Initializes the writer in order to be used. It is called at the first connection and also
         * is invoked if the connection is disconnected by an error.
@@ -1317,11 +1382,14 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
          * @return the next element for writing or null.
          */
         private Element nextStreamElement() {
-            // It is important the we check if the queue is empty before removing an element from it
-            if (queue.isEmpty()) {
-                shouldBundleAndDefer = true;
+            // Drain the queue without parking the writer thread, as long as there are elements available.
+            Element packet = queue.poll();
+            if (packet != null) {
+                return packet;
             }
-            Element packet = null;
+
+            // The queue is empty.
+            shouldBundleAndDefer = true;
             try {
                 packet = queue.take();
             }
@@ -1373,15 +1441,33 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                     if (element instanceof Stanza) {
                         packet = (Stanza) element;
                     }
+                    else if (element instanceof AckRequest) {
+                        smAckMetrics.ackRequestSent(System.nanoTime());
+                        ackRequestDue = false;
+                    }
+                    else if (element instanceof Resume) {
+                        smAckMetrics.streamManagementSessionStarted();
+                        ackRequestDue = false;
+                    }
                     else if (element instanceof Enable) {
+                        smAckMetrics.streamManagementSessionStarted();
+                        ackRequestDue = false;
                         // The client needs to add messages to the unacknowledged stanzas queue
                         // right after it sent 'enabled'. Stanza will be added once
                         // unacknowledgedStanzas is not null.
                         unacknowledgedStanzas = new ArrayBlockingQueue<>(UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE);
+                        if (smStateStore != null) {
+                            smStateStore.streamManagementEnableRequested();
+                        }
                     }
-                    maybeAddToUnacknowledgedStanzas(packet);
+                    final boolean tracked = maybeAddToUnacknowledgedStanzas(packet);
 
+                    final long utf8BytesBefore = outgoingBytesCounter.getUtf8Bytes();
                     CharSequence elementXml = element.toXML(outgoingStreamXmlEnvironment);
+                    if (tracked && smStateStore != null) {
+                        // Record the stanza before it is put on the wire, reusing its serialized form.
+                        smStateStore.stanzaSent(packet, elementXml);
+                    }
                     if (elementXml instanceof XmlStringBuilder) {
                         try {
                             ((XmlStringBuilder) elementXml).write(writer, outgoingStreamXmlEnvironment);
@@ -1394,7 +1480,33 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                         writer.write(elementXml.toString());
                     }
 
-                    if (queue.isEmpty()) {
+                    if (packet != null && unacknowledgedStanzas != null) {
+                        smAckMetrics.stanzaSent((int) (outgoingBytesCounter.getUtf8Bytes() - utf8BytesBefore));
+                        if (useAdaptiveAckRequests && isSmEnabled()) {
+                            switch (adaptiveAckRequestPolicy.decide(System.nanoTime())) {
+                            case immediate:
+                                writeAckRequest();
+                                break;
+                            case piggyback:
+                                ackRequestDue = true;
+                                break;
+                            case none:
+                                break;
+                            }
+                        }
+                    }
+
+                    final int queueSize = queue.size();
+                    smAckMetrics.outgoingQueueSize(queueSize);
+                    if (queueSize == 0) {
+                        if (ackRequestDue) {
+                            // Piggyback the ack request onto the batch, so that it covers all stanzas of the batch.
+                            writeAckRequest();
+                        }
+                        if (smStateStore != null) {
+                            // Flush the records of the batch's stanzas before the batch itself.
+                            smStateStore.flush();
+                        }
                         writer.flush();
                     }
                     if (packet != null) {
@@ -1404,14 +1516,19 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 if (!instantShutdown) {
                     // Flush out the rest of the queue.
                     try {
-                        while (!queue.isEmpty()) {
-                            Element packet = queue.remove();
+                        Element packet;
+                        while ((packet = queue.poll()) != null) {
                             if (packet instanceof Stanza) {
                                 Stanza stanza = (Stanza) packet;
-                                maybeAddToUnacknowledgedStanzas(stanza);
+                                if (maybeAddToUnacknowledgedStanzas(stanza) && smStateStore != null) {
+                                    smStateStore.stanzaSent(stanza);
+                                }
                             }
                             writer.write(packet.toXML().toString());
                         }
+                        if (smStateStore != null) {
+                            smStateStore.flush();
+                        }
                     }
                     catch (Exception e) {
                         LOGGER.log(Level.WARNING,
@@ -1468,12 +1585,33 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                     return;
                 }
                 if (element instanceof Stanza) {
-                    unacknowledgedStanzas.add((Stanza) element);
+                    Stanza stanza = (Stanza) element;
+                    unacknowledgedStanzas.add(stanza);
+                    if (smStateStore != null) {
+                        smStateStore.stanzaSent(stanza);
+                    }
                 }
             }
+            if (smStateStore != null) {
+                smStateStore.flush();
+            }
+        }
+
+        private void writeAckRequest() throws IOException {
+            writer.write(AckRequest.INSTANCE.toXML().toString());
+            smAckMetrics.ackRequestSent(System.nanoTime());
+            ackRequestDue = false;
         }
 
-        private void maybeAddToUnacknowledgedStanzas(Stanza stanza) throws IOException {
+        /**
+         * Add the stanza to the unacknowledged stanzas, if Stream Management is enabled. Note that the caller is
+         * responsible for reporting the stanza to the {@link SmStateStore}, if any.
+         *
+         * @param stanza the stanza, may be <code>null</code>.
+         * @return <code>true</code> if the stanza was added to the unacknowledged stanzas.
+         * @throws IOException if an I/O error occurs.
+         */
+        private boolean maybeAddToUnacknowledgedStanzas(Stanza stanza) throws IOException {
             // Check if the stream element should be put to the unacknowledgedStanza
             // queue. Note that we can not do the put() in sendStanzaInternal() and the
             // packet order is not stable at this point (sendStanzaInternal() can be
@@ -1482,7 +1620,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 // If the unacknowledgedStanza queue reaching its high water mark, request an new ack
                 // from the server in order to drain it
                 if (unacknowledgedStanzas.size() == UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK) {
-                    writer.write(AckRequest.INSTANCE.toXML().toString());
+                    writeAckRequest();
                 }
 
                 try {
@@ -1493,7 +1631,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
                 catch (InterruptedException e) {
                     throw new IllegalStateException(e);
                 }
+                return true;
             }
+            return false;
         }
     }
 
@@ -1530,6 +1670,40 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         XMPPTCPConnection.useSmResumptionDefault = useSmResumptionDefault;
     }
 
+    /**
+     * Set if the adaptive Stream Management ack request policy should be used by default for new connections.
+     *
+     * @param useAdaptiveAckRequestsDefault true to use the adaptive ack request policy for new connections.
+     * @see #setUseAdaptiveAckRequests(boolean)
+     */
+    public static void setUseAdaptiveAckRequestsDefault(boolean useAdaptiveAckRequestsDefault) {
+        XMPPTCPConnection.useAdaptiveAckRequestsDefault = useAdaptiveAckRequestsDefault;
+    }
+
+    /**
+     * Set if the adaptive Stream Management ack request policy should be used.
+     * <p>
+     * If enabled, then the request ack predicates of this connection are ignored. Instead, acks are requested based on
+     * the observed ack round-trip time, the bytes in flight and the number of unacknowledged stanzas, and the ack
+     * requests are piggybacked onto the write batches of the connection. See {@link AdaptiveAckRequestPolicy}.
+     * </p>
+     *
+     * @param useAdaptiveAckRequests true to use the adaptive ack request policy.
+     */
+    public void setUseAdaptiveAckRequests(boolean useAdaptiveAckRequests) {
+        this.useAdaptiveAckRequests = useAdaptiveAckRequests;
+    }
+
+    /**
+     * Get statistics about the Stream Management acknowledgements of this connection, like the histogram of the ack
+     * round-trip times and the high-water marks of the unacknowledged stanzas and outgoing queues.
+     *
+     * @return the Stream Management ack statistics.
+     */
+    public SmAckMetrics.Stats getSmAckStats() {
+        return smAckMetrics.getStats();
+    }
+
     /**
      * Set if Stream Management should be used if supported by the server.
      *
@@ -1552,6 +1726,72 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         this.useSmResumption = useSmResumption;
     }
 
+    /**
+     * Set the store used to persist the Stream Management state of this connection.
+     * <p>
+     * With a persistent store, a connection is able to resume the stream of a previous connection using the same store,
+     * even if the previous connection was established by a different process. This avoids the costs of a full
+     * re-login, i.e., resource binding, roster retrieval and the initial presence, after a process restart. Use
+     * {@link #instantShutdown()} instead of {@link #disconnect()} when shutting down the process, as the latter closes
+     * the stream, which then can no longer be resumed. Stanzas that were not acknowledged by the server are resent, even
+     * if the stream can not be resumed.
+     * </p>
+     * <p>
+     * The store must be set before the connection is logged in.
+     * </p>
+     *
+     * @param smStateStore the store, or <code>null</code> to not persist the Stream Management state.
+     * @see org.jivesoftware.smack.sm.store.FileSmStateStore
+     */
+    public void setSmStateStore(SmStateStore smStateStore) {
+        this.smStateStore = smStateStore;
+    }
+
+    /**
+     * Restore the Stream Management state from the {@link #smStateStore}, if there is one and if this connection has
+     * no Stream Management state of its own.
+     *
+     * @return true if the restored stream can be resumed.
+     */
+    private boolean maybeRestoreSmState() {
+        if (smStateStore == null || smSessionId != null || unacknowledgedStanzas != null) {
+            return false;
+        }
+
+        SmState smState = smStateStore.load();
+        if (smState == null) {
+            return false;
+        }
+
+        EntityFullJid smStateUser = smState.getUser();
+        CharSequence username = config.getUsername();
+        if (!smStateUser.asDomainBareJid().equals(getXMPPServiceDomain())
+                        || (username != null && !smStateUser.getLocalpart().toString().equals(username.toString()))) {
+            LOGGER.info("Ignoring persisted Stream Management state of " + smStateUser);
+            smStateStore.reset();
+            return false;
+        }
+
+        // Restore the unacknowledged stanzas in any case, so that they are resent even if resumption fails.
+        unacknowledgedStanzas = new ArrayBlockingQueue<>(Math.max(PacketWriter.UNACKKNOWLEDGED_STANZAS_QUEUE_SIZE,
+                        smState.getUnacknowledgedStanzas().size()));
+        unacknowledgedStanzas.addAll(smState.getUnacknowledgedStanzas());
+        clientHandledStanzasCount = smState.getClientHandledStanzasCount();
+        serverHandledStanzasCount = smState.getServerHandledStanzasCount();
+        smServerMaxResumptionTime = smState.getMaxResumptionTime();
+
+        long maxResumptionMillis = ((long) getMaxSmResumptionTime()) * 1000;
+        if (!useSmResumption || System.currentTimeMillis() > smState.getTimestamp() + maxResumptionMillis) {
+            return false;
+        }
+
+        smSessionId = smState.getSmSessionId();
+        // The resource is not going to be bound again if the stream is resumed.
+        user = smStateUser;
+        LOGGER.fine("Restored " + smState);
+        return true;
+    }
+
     /**
      * Set the preferred resumption time in seconds.
      * @param resumptionTime the preferred resumption time in seconds
@@ -1642,6 +1882,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
     private void sendSmAcknowledgementInternal() throws NotConnectedException, InterruptedException {
         AckAnswer ackAnswer = new AckAnswer(clientHandledStanzasCount);
+        if (smStateStore != null) {
+            smStateStore.clientHandledStanzasCountUpdated(clientHandledStanzasCount);
+        }
         // Do net put an ack to the queue if it has already been shutdown. Some servers, like ejabberd, like to request
         // an ack even after we have sent a stream close (and hence the queue was shutdown). If we would not check here,
         // then the ack would dangle around in the queue, and be sent on the next re-connection attempt even before the
@@ -1829,6 +2072,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         // respective. No need to reset them here.
         smSessionId = null;
         unacknowledgedStanzas = null;
+        if (smStateStore != null) {
+            smStateStore.reset();
+        }
     }
 
     /**
@@ -1849,6 +2095,7 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
 
     private void processHandledCount(long handledCount) throws StreamManagementCounterError {
         long ackedStanzasCount = SMUtils.calculateDelta(handledCount, serverHandledStanzasCount);
+        smAckMetrics.ackAnswerReceived(ackedStanzasCount, System.nanoTime());
         final List<Stanza> ackedStanzas = new ArrayList<>(
                         ackedStanzasCount <= Integer.MAX_VALUE ? (int) ackedStanzasCount
                                         : Integer.MAX_VALUE);
@@ -1912,6 +2159,9 @@ public class XMPPTCPConnection extends AbstractXMPPConnection {
         }
 
         serverHandledStanzasCount = handledCount;
+        if (smStateStore != null) {
+            smStateStore.serverHandledStanzasCountUpdated(handledCount);
+        }
     }
 
     /**
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2024 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,14 +25,17 @@ import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.security.cert.CertificateException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
@@ -68,6 +71,7 @@ import org.jivesoftware.smack.fsm.State;
 import org.jivesoftware.smack.fsm.StateDescriptor;
 import org.jivesoftware.smack.fsm.StateTransitionResult;
 import org.jivesoftware.smack.internal.SmackTlsContext;
+import org.jivesoftware.smack.packet.AbstractStreamClose;
 import org.jivesoftware.smack.packet.Stanza;
 import org.jivesoftware.smack.packet.StartTls;
 import org.jivesoftware.smack.packet.StreamClose;
@@ -80,11 +84,15 @@ import org.jivesoftware.smack.tcp.XmppTcpTransportModule.XmppTcpNioTransport.Dis
 import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints;
 import org.jivesoftware.smack.tcp.rce.RemoteXmppTcpConnectionEndpoints.Result;
 import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.ByteBufferPool;
 import org.jivesoftware.smack.util.CollectionUtil;
+import org.jivesoftware.smack.util.IncrementalXmppStreamParser;
 import org.jivesoftware.smack.util.StringUtils;
-import org.jivesoftware.smack.util.UTF8;
 import org.jivesoftware.smack.util.XmlStringBuilder;
+import org.jivesoftware.smack.util.XmlUtf8Serializer;
 import org.jivesoftware.smack.util.rce.RemoteConnectionEndpointLookupFailure;
+import org.jivesoftware.smack.xml.XmlPullParser;
+import org.jivesoftware.smack.xml.XmlPullParserException;
 
 import org.jxmpp.jid.DomainBareJid;
 import org.jxmpp.jid.Jid;
@@ -104,6 +112,18 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private static final int MAX_ELEMENT_SIZE = 64 * 1024;
 
+    private static final int OUTGOING_BUFFER_SIZE = 8 * 1024;
+
+    private static final int MAX_POOLED_OUTGOING_BUFFERS = 8;
+
+    private static final int MAX_TRACKED_OUTGOING_BUFFERS = 4 * MAX_POOLED_OUTGOING_BUFFERS;
+
+    /**
+     * If less than this number of bytes is remaining in the encode buffer, then it is handed over to the output filters
+     * instead of trying to coalesce further chunks into it.
+     */
+    private static final int MIN_ENCODE_BUFFER_REMAINING = 256;
+
     private final XmppTcpNioTransport tcpNioTransport;
 
     private SelectionKey selectionKey;
@@ -113,7 +133,35 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private TlsState tlsState;
 
-    private Iterator<CharSequence> outgoingCharSequenceIterator;
+    /**
+     * Serializes the currently outgoing element into the {@link #encodeBuffer}. Re-used for every element.
+     */
+    private final XmlUtf8Serializer outgoingSerializer = new XmlUtf8Serializer();
+
+    /**
+     * Set if the destination address changed, but the data of the element with the changed destination address has
+     * not been handed over to the output filters yet.
+     */
+    private boolean pendingDestinationAddressChanged;
+
+    private final ByteBufferPool outgoingBufferPool = new ByteBufferPool(OUTGOING_BUFFER_SIZE,
+                    MAX_POOLED_OUTGOING_BUFFERS, true);
+
+    /**
+     * The buffers acquired from the {@link #outgoingBufferPool} which were not released yet. Only those are released
+     * back into the pool, as the pruned network buffers may also be owned by output filters, which re-use them.
+     * Buffers consumed by an output filter, e.g. the compression filter, are never pruned and hence never released.
+     * Once too many buffers are tracked, the oldest one is forgotten, which only means that it is not pooled again.
+     */
+    private final ArrayDeque<ByteBuffer> acquiredOutgoingBuffers = new ArrayDeque<>(MAX_TRACKED_OUTGOING_BUFFERS);
+
+    /**
+     * The pooled direct buffer the outgoing elements are encoded into. Successive chunks and elements are coalesced
+     * into this buffer, before it is handed over as {@link #outgoingBuffer} to the output filters.
+     */
+    private ByteBuffer encodeBuffer;
+
+    private TopLevelStreamElement currentlyOutgonigTopLevelStreamElement;
 
     private final List<TopLevelStreamElement> currentlyOutgoingElements = new ArrayList<>();
     private final IdentityHashMap<ByteBuffer, List<TopLevelStreamElement>> bufferToElementMap = new IdentityHashMap<>();
@@ -187,19 +235,32 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         splitter = new Utf8ByteXmppXmlSplitter(xmppXmlSplitter);
     }
 
-    private final XmppElementCallback xmppElementCallback = new XmppElementCallback() {
-        private String streamOpen;
-        private String streamClose;
+    /**
+     * The long-lived parser of the incoming stream, which is fed with the complete top-level elements determined by the
+     * {@link #splitter}. Only accessed by the thread holding the {@link #channelSelectedCallbackLock}.
+     */
+    private final IncrementalXmppStreamParser incomingStreamParser = new IncrementalXmppStreamParser();
+
+    /**
+     * Set if either the incoming stream was closed or the closing stream tag was put on the wire, in which case the
+     * TCP connection is expected to be terminated. Only accessed by the thread holding the
+     * {@link #channelSelectedCallbackLock}.
+     */
+    private boolean endOfStreamExpected;
 
+    private final XmppElementCallback xmppElementCallback = new XmppElementCallback() {
         @Override
         public void onCompleteElement(String completeElement) {
-            assert streamOpen != null;
-            assert streamClose != null;
-
             connectionInternal.withSmackDebugger(debugger -> debugger.onIncomingElementCompleted());
 
-            String wrappedCompleteElement = streamOpen + completeElement + streamClose;
-            connectionInternal.parseAndProcessElement(wrappedCompleteElement);
+            XmlPullParser parser;
+            try {
+                parser = incomingStreamParser.feed(completeElement);
+            } catch (XmlPullParserException | IOException e) {
+                connectionInternal.notifyConnectionError(e);
+                return;
+            }
+            connectionInternal.parseAndProcessElement(parser);
         }
 
 
@@ -211,19 +272,13 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             }
 
             final String prefixXmlns = "xmlns:" + prefix;
-            // TODO: Use the return value of onStreamOpen(), which now returns the
-            // corresponding stream close tag, instead of creating it here.
-            final StringBuilder streamClose = new StringBuilder(32);
             final StringBuilder streamOpen = new StringBuilder(256);
 
             streamOpen.append('<');
-            streamClose.append("</");
             if (StringUtils.isNotEmpty(prefix)) {
                 streamOpen.append(prefix).append(':');
-                streamClose.append(prefix).append(':');
             }
             streamOpen.append("stream");
-            streamClose.append("stream>");
             for (Map.Entry<String, String> entry : attributes.entrySet()) {
                 String attributeName = entry.getKey();
                 String attributeValue = entry.getValue();
@@ -250,10 +305,16 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             }
             streamOpen.append('>');
 
-            this.streamOpen = streamOpen.toString();
-            this.streamClose = streamClose.toString();
+            XmlPullParser parser;
+            endOfStreamExpected = false;
 
-            connectionInternal.onStreamOpen(this.streamOpen);
+            try {
+                parser = incomingStreamParser.streamOpened(streamOpen);
+            } catch (XmlPullParserException | IOException e) {
+                // Should never happen.
+                throw new AssertionError(e);
+            }
+            connectionInternal.onStreamOpen(parser);
         }
 
         @Override
@@ -262,6 +323,8 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 LOGGER.log(STREAM_OPEN_CLOSE_DEBUG_LOG_LEVEL, "Stream of " + this + " closed");
             }
 
+            endOfStreamExpected = true;
+
            connectionInternal.onStreamClosed();
         }
     };
@@ -286,11 +349,11 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         try {
             boolean destinationAddressChanged = false;
             boolean isLastPartOfElement = false;
-            TopLevelStreamElement currentlyOutgonigTopLevelStreamElement = null;
-            StringBuilder outgoingStreamForDebugger = null;
 
             writeLoop: while (true) {
-                final boolean moreDataAvailable = !isLastPartOfElement || !connectionInternal.outgoingElementsQueue.isEmpty();
+                final boolean moreDataAvailable = !isLastPartOfElement || outgoingSerializer.hasRemaining()
+                                || (encodeBuffer != null && encodeBuffer.position() > 0)
+                                || !connectionInternal.outgoingElementsQueue.isEmpty();
 
                 if (filteredOutgoingBuffer != null || !networkOutgoingBuffers.isEmpty()) {
                     if (filteredOutgoingBuffer != null) {
@@ -327,6 +390,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
                     for (Buffer prunedBuffer : prunedBuffers) {
                         List<TopLevelStreamElement> sendElements = bufferToElementMap.remove(prunedBuffer);
+                        releaseOutgoingBuffer((ByteBuffer) prunedBuffer);
                         if (sendElements == null) {
                             continue;
                         }
@@ -347,10 +411,6 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
                     if (outgoingBuffer != null) {
                         totalBytesWrittenBeforeFilter += outgoingBuffer.remaining();
-                        if (isLastPartOfElement) {
-                            assert currentlyOutgonigTopLevelStreamElement != null;
-                            currentlyOutgoingElements.add(currentlyOutgonigTopLevelStreamElement);
-                        }
                     }
 
                     ByteBuffer outputFilterInputData = outgoingBuffer;
@@ -396,50 +456,73 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     if (destinationAddressChanged) {
                         destinationAddressChanged = false;
                     }
-                } else if (outgoingCharSequenceIterator != null) {
-                    CharSequence nextCharSequence = outgoingCharSequenceIterator.next();
-                    outgoingBuffer = UTF8.encode(nextCharSequence);
-                    if (!outgoingCharSequenceIterator.hasNext()) {
-                        outgoingCharSequenceIterator = null;
-                        isLastPartOfElement = true;
-                    } else {
+                } else if (outgoingSerializer.hasRemaining()) {
+                    if (encodeBuffer == null) {
+                        encodeBuffer = acquireOutgoingBuffer();
+                    }
+
+                    boolean elementWritten = outgoingSerializer.writeTo(encodeBuffer);
+                    if (!elementWritten) {
+                        // The encode buffer is full, hand it over to the filters and continue serializing the current
+                        // element into the next buffer.
+                        handOverEncodeBuffer();
                         isLastPartOfElement = false;
+                        destinationAddressChanged = pendingDestinationAddressChanged;
+                        pendingDestinationAddressChanged = false;
+                        continue;
                     }
 
-                    final SmackDebugger debugger = connectionInternal.smackDebugger;
-                    if (debugger != null) {
-                        if (outgoingStreamForDebugger == null) {
-                            outgoingStreamForDebugger = new StringBuilder();
-                        }
-                        outgoingStreamForDebugger.append(nextCharSequence);
+                    // The current element was serialized completely.
+                    assert currentlyOutgonigTopLevelStreamElement != null;
+                    currentlyOutgoingElements.add(currentlyOutgonigTopLevelStreamElement);
 
-                        if (isLastPartOfElement) {
-                            try {
-                                outputDebugSplitter.append(outgoingStreamForDebugger);
-                            } catch (IOException e) {
-                                throw new AssertionError(e);
-                            }
-                            debugger.onOutgoingElementCompleted();
-                            outgoingStreamForDebugger = null;
-                        }
+                    // Coalesce the successive elements into the current encode buffer until it is (almost) full or
+                    // there is no more data to write.
+                    boolean moreDataToEncode = !connectionInternal.outgoingElementsQueue.isEmpty();
+                    if (!moreDataToEncode || encodeBuffer.remaining() < MIN_ENCODE_BUFFER_REMAINING) {
+                        handOverEncodeBuffer();
+                        isLastPartOfElement = true;
+                        destinationAddressChanged = pendingDestinationAddressChanged;
+                        pendingDestinationAddressChanged = false;
                     }
                 } else if (!connectionInternal.outgoingElementsQueue.isEmpty()) {
-                    currentlyOutgonigTopLevelStreamElement = connectionInternal.outgoingElementsQueue.poll();
+                    currentlyOutgonigTopLevelStreamElement = connectionInternal.pollOutgoingElement();
+                    if (currentlyOutgonigTopLevelStreamElement instanceof AbstractStreamClose) {
+                        endOfStreamExpected = true;
+                    }
                     if (currentlyOutgonigTopLevelStreamElement instanceof Stanza) {
                         Stanza currentlyOutgoingStanza = (Stanza) currentlyOutgonigTopLevelStreamElement;
                         Jid currentDestinationAddress = currentlyOutgoingStanza.getTo();
-                        destinationAddressChanged = !JidUtil.equals(lastDestinationAddress, currentDestinationAddress);
+                        boolean currentDestinationAddressChanged = !JidUtil.equals(lastDestinationAddress, currentDestinationAddress);
                         lastDestinationAddress = currentDestinationAddress;
+                        if (currentDestinationAddressChanged) {
+                            if (encodeBuffer != null && encodeBuffer.position() > 0) {
+                                // The filters need to see the change of the destination address at the first data
+                                // of this element, hence do not coalesce it with the data of the previous elements.
+                                handOverEncodeBuffer();
+                                isLastPartOfElement = true;
+                            }
+                            pendingDestinationAddressChanged = true;
+                        }
                     }
                     CharSequence nextCharSequence = currentlyOutgonigTopLevelStreamElement.toXML(StreamOpen.CLIENT_NAMESPACE);
-                    if (nextCharSequence instanceof XmlStringBuilder) {
-                        XmlStringBuilder xmlStringBuilder = (XmlStringBuilder) nextCharSequence;
-                        XmlEnvironment outgoingStreamXmlEnvironment = connectionInternal.getOutgoingStreamXmlEnvironment();
-                        outgoingCharSequenceIterator = xmlStringBuilder.toList(outgoingStreamXmlEnvironment).iterator();
-                    } else {
-                        outgoingCharSequenceIterator = Collections.singletonList(nextCharSequence).iterator();
+                    XmlEnvironment outgoingStreamXmlEnvironment = connectionInternal.getOutgoingStreamXmlEnvironment();
+                    outgoingSerializer.reset(nextCharSequence, outgoingStreamXmlEnvironment);
+
+                    final SmackDebugger debugger = connectionInternal.smackDebugger;
+                    if (debugger != null) {
+                        CharSequence outgoingElementForDebugger = nextCharSequence;
+                        if (nextCharSequence instanceof XmlStringBuilder) {
+                            outgoingElementForDebugger = ((XmlStringBuilder) nextCharSequence).toXML(
+                                            outgoingStreamXmlEnvironment);
+                        }
+                        try {
+                            outputDebugSplitter.append(outgoingElementForDebugger);
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                        debugger.onOutgoingElementCompleted();
                     }
-                    assert outgoingCharSequenceIterator != null;
                 } else {
                     // There is nothing more to write.
                     break;
@@ -473,14 +556,13 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                             + " for " + this + ". This probably means that the TCP connection was terminated.");
                     // According to the socket channel javadoc section about "asynchronous reads" a socket channel's
                     // read() may return -1 if the input side of a socket is shut down.
-                     // Note that we do not call notifyConnectionError() here because the connection may be
-                    // cleanly shutdown which would also cause read() to return '-1. I assume that this socket
-                    // will be selected again, on which read() would throw an IOException, which will be caught
-                    // and invoke notifyConnectionError() (see a few lines above).
-                    /*
-                    IOException exception = new IOException("NIO read() returned " + bytesRead);
-                    notifyConnectionError(exception);
-                    */
+                    // Note that we only call notifyConnectionError() if the stream was not closed, because the
+                    // connection may be cleanly shutdown which would also cause read() to return '-1'. Otherwise, the
+                    // remote end terminated the TCP connection unexpectedly, which would not be noticed until the
+                    // next write.
+                    if (!endOfStreamExpected) {
+                        handleReadWriteIoException(new IOException("NIO read() returned " + bytesRead));
+                    }
                     return;
                 }
 
@@ -554,6 +636,39 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         connectionInternal.setInterestOps(selectionKey, newInterestedOps);
     }
 
+    private ByteBuffer acquireOutgoingBuffer() {
+        ByteBuffer buffer = outgoingBufferPool.acquire();
+        if (acquiredOutgoingBuffers.size() >= MAX_TRACKED_OUTGOING_BUFFERS) {
+            acquiredOutgoingBuffers.pollFirst();
+        }
+        acquiredOutgoingBuffers.addLast(buffer);
+        return buffer;
+    }
+
+    /**
+     * Release the given buffer back into the pool, if it was acquired from the pool.
+     *
+     * @param buffer the buffer which is no longer used.
+     */
+    @SuppressWarnings("ReferenceEquality")
+    private void releaseOutgoingBuffer(ByteBuffer buffer) {
+        for (Iterator<ByteBuffer> it = acquiredOutgoingBuffers.iterator(); it.hasNext();) {
+            // Compare by identity, as ByteBuffer.equals() compares the remaining content.
+            if (it.next() == buffer) {
+                it.remove();
+                outgoingBufferPool.release(buffer);
+                return;
+            }
+        }
+    }
+
+    private void handOverEncodeBuffer() {
+        assert outgoingBuffer == null;
+        ((java.nio.Buffer) encodeBuffer).flip();
+        outgoingBuffer = encodeBuffer;
+        encodeBuffer = null;
+    }
+
     private void handleReadWriteIoException(IOException e) {
         if (e instanceof ClosedChannelException && !tcpNioTransport.isConnected()) {
             // The connection is already closed.
@@ -760,7 +875,7 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             // The fields inetSocketAddress and failedAddresses are handed over from LookupHostAddresses to
             // ConnectingToHost.
             ConnectionAttemptState connectionAttemptState = new ConnectionAttemptState(connectionInternal, discoveredTcpEndpoints,
-                    this);
+                    this, moduleDescriptor.getConnectionAttemptDelayMillis());
             StateTransitionResult.Failure failure = connectionAttemptState.establishTcpConnection();
             if (failure != null) {
                 return failure;
@@ -876,6 +991,8 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             channelSelectedCallbackLock.lock();
             try {
                 pendingOutputFilterData = true;
+                tlsState.handshakeStartedMillis = System.currentTimeMillis();
+                tlsState.handshakeStartedNanos = System.nanoTime();
                 // The beginHandshake() is possibly not really required here, but it does not hurt either.
                 tlsState.engine.beginHandshake();
                 tlsState.handshakeStatus = TlsHandshakeStatus.initiated;
@@ -910,6 +1027,24 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
     private static final Level SSL_ENGINE_DEBUG_LOG_LEVEL = Level.FINEST;
 
+    /**
+     * The executor running the delegated tasks of the SSLEngines of all connections. Those tasks are CPU bound, for
+     * example certificate verification, hence running more of them in parallel than there are processors would only
+     * slow down every handshake, which matters if many connections reconnect at the same time.
+     */
+    private static final ThreadPoolExecutor SSL_ENGINE_DELEGATED_TASK_EXECUTOR;
+
+    static {
+        final int threadCount = Runtime.getRuntime().availableProcessors();
+        SSL_ENGINE_DELEGATED_TASK_EXECUTOR = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<>(), runnable -> {
+                            Thread thread = new Thread(runnable, "Smack SSLEngine Delegated Task Executor");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        SSL_ENGINE_DELEGATED_TASK_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     private static void debugLogSslEngineResult(String operation, SSLEngineResult result) {
         if (!LOGGER.isLoggable(SSL_ENGINE_DEBUG_LOG_LEVEL)) {
             return;
@@ -943,9 +1078,16 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         private long unwrapInBytes;
         private long unwrapOutBytes;
 
+        private long handshakeStartedMillis;
+        private long handshakeStartedNanos;
+        private long handshakeDurationNanos = -1;
+        private boolean sessionResumed;
+
         private TlsState(SmackTlsContext smackTlsContext) throws IOException {
             this.smackTlsContext = smackTlsContext;
 
+            moduleDescriptor.getTlsSessionResumption().configure(smackTlsContext.sslContext);
+
             // Call createSSLEngine()'s variant with two parameters as this allows for TLS session resumption.
 
             // Note that it is not really clear what the value of peer host should be. It could be A) the XMPP service's
@@ -1024,10 +1166,15 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                 switch (engineResultStatus) {
                 case OK:
                     // No need to outputData.compact() here, since we do not reuse the buffer.
-                    // Clean up the pending output data.
-                    pruneBufferList(pendingOutputData);
+                    // Clean up the pending output data and release the consumed buffers back into the pool.
+                    for (Buffer prunedBuffer : pruneBufferList(pendingOutputData)) {
+                        releaseOutgoingBuffer((ByteBuffer) prunedBuffer);
+                    }
                     return new OutputResult(!pendingOutputData.isEmpty(), myNetData);
                 case CLOSED:
+                    for (ByteBuffer pendingBuffer : pendingOutputData) {
+                        releaseOutgoingBuffer(pendingBuffer);
+                    }
                     pendingOutputData.clear();
                     return OutputResult.NO_OUTPUT;
                 case BUFFER_OVERFLOW:
@@ -1167,13 +1314,18 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     }
 
                     Runnable wrappedDelegatedTask = () -> {
-                        delegatedTask.run();
-                        int wrappedCurrentPendingDelegatedTasks = pendingDelegatedTasks.decrementAndGet();
-                        if (wrappedCurrentPendingDelegatedTasks == 0) {
-                            callChannelSelectedCallback(true, true);
+                        try {
+                            delegatedTask.run();
+                        } finally {
+                            int wrappedCurrentPendingDelegatedTasks = pendingDelegatedTasks.decrementAndGet();
+                            if (wrappedCurrentPendingDelegatedTasks == 0) {
+                                // Do not occupy a thread of the bounded delegated task executor with the I/O of the
+                                // channel selected callback.
+                                connectionInternal.asyncGo(() -> callChannelSelectedCallback(true, true));
+                            }
                         }
                     };
-                    connectionInternal.asyncGo(wrappedDelegatedTask);
+                    SSL_ENGINE_DELEGATED_TASK_EXECUTOR.execute(wrappedDelegatedTask);
                 }
                 break;
             case FINISHED:
@@ -1194,6 +1346,9 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         }
 
         private void onHandshakeFinished() {
+            handshakeDurationNanos = System.nanoTime() - handshakeStartedNanos;
+            sessionResumed = moduleDescriptor.getTlsSessionResumption().recordHandshake(engine.getSession(),
+                            handshakeStartedMillis);
             handshakeStatus = TlsHandshakeStatus.successful;
             connectionInternal.notifyWaitingThreads();
         }
@@ -1221,6 +1376,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             return new TlsStateStats(this);
         }
 
+        private TlsSessionResumption getTlsSessionResumption() {
+            return moduleDescriptor.getTlsSessionResumption();
+        }
+
         @Override
         public void closeInputOutput() {
             engine.closeOutbound();
@@ -1254,6 +1413,14 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         public final long unwrapOutBytes;
         public final double unwrapRatio;
 
+        /**
+         * The duration of the TLS handshake in milliseconds, or -1 if the handshake did not finish (yet).
+         */
+        public final double handshakeDurationMillis;
+        public final boolean sessionResumed;
+        public final long sessionResumptionHits;
+        public final long sessionResumptionMisses;
+
         private TlsStateStats(TlsState tlsState) {
             wrapOutBytes = tlsState.wrapOutBytes;
             wrapInBytes = tlsState.wrapInBytes;
@@ -1262,6 +1429,14 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             unwrapOutBytes = tlsState.unwrapOutBytes;
             unwrapInBytes = tlsState.unwrapInBytes;
             unwrapRatio = (double) unwrapInBytes / unwrapOutBytes;
+
+            long handshakeDurationNanos = tlsState.handshakeDurationNanos;
+            handshakeDurationMillis = handshakeDurationNanos < 0 ? -1 : handshakeDurationNanos / 1_000_000d;
+            sessionResumed = tlsState.sessionResumed;
+
+            TlsSessionResumption tlsSessionResumption = tlsState.getTlsSessionResumption();
+            sessionResumptionHits = tlsSessionResumption.getHits();
+            sessionResumptionMisses = tlsSessionResumption.getMisses();
         }
 
         private transient String toStringCache;
@@ -1279,6 +1454,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
                     + "unwrap-in-bytes: " + unwrapInBytes + '\n'
                     + "unwrap-out-bytes: " + unwrapOutBytes + '\n'
                     + "unwrap-ratio: " + unwrapRatio + '\n'
+                    + "handshake-duration-millis: " + handshakeDurationMillis + '\n'
+                    + "session-resumed: " + sessionResumed + '\n'
+                    + "session-resumption-hits: " + sessionResumptionHits + '\n'
+                    + "session-resumption-misses: " + sessionResumptionMisses + '\n'
                     ;
 
             return toStringCache;
@@ -1357,6 +1536,9 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
         public final long callbackPreemtBecauseBytesRead;
         public final int sslEngineDelegatedTasks;
         public final int maxPendingSslEngineDelegatedTasks;
+        public final int outgoingBufferPoolSize;
+        public final long outgoingBufferPoolHits;
+        public final long outgoingBufferPoolMisses;
 
         private Stats(XmppTcpTransportModule connection) {
             totalBytesWritten = connection.totalBytesWritten;
@@ -1381,6 +1563,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
 
             sslEngineDelegatedTasks = connection.sslEngineDelegatedTasks;
             maxPendingSslEngineDelegatedTasks = connection.maxPendingSslEngineDelegatedTasks;
+
+            outgoingBufferPoolSize = connection.outgoingBufferPool.getPooledBufferCount();
+            outgoingBufferPoolHits = connection.outgoingBufferPool.getHits();
+            outgoingBufferPoolMisses = connection.outgoingBufferPool.getMisses();
         }
 
         private transient String toStringCache;
@@ -1410,6 +1596,10 @@ public class XmppTcpTransportModule extends ModularXmppClientToServerConnectionM
             + "callback-preemt-because-bytes-written: " + callbackPreemtBecauseBytesWritten + '\n'
             + "ssl-engine-delegated-tasks: " + sslEngineDelegatedTasks + '\n'
             + "max-pending-ssl-engine-delegated-tasks: " + maxPendingSslEngineDelegatedTasks + '\n'
+            + "Outgoing buffer pool\n"
+            + "size: " + outgoingBufferPoolSize + '\n'
+            + "hits: " + outgoingBufferPoolHits + '\n'
+            + "misses: " + outgoingBufferPoolMisses + '\n'
             ;
 
             return toStringCache;
@@ -1,6 +1,6 @@
 /**
  *
- * Copyright 2019-2024 Florian Schmaus
+ * Copyright 2019-2026 Florian Schmaus
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.jivesoftware.smack.tcp;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
 import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionModuleDescriptor;
@@ -28,12 +29,22 @@ import org.jivesoftware.smack.tcp.XmppTcpTransportModule.EstablishingTcpConnecti
 
 public class XmppTcpTransportModuleDescriptor extends ModularXmppClientToServerConnectionModuleDescriptor {
 
+    public static final long DEFAULT_CONNECTION_ATTEMPT_DELAY_MILLIS = 250;
+
+    public static final long MINIMUM_CONNECTION_ATTEMPT_DELAY_MILLIS = 10;
+
     private final boolean startTls;
     private final boolean directTls;
 
+    private final long connectionAttemptDelayMillis;
+
+    private final TlsSessionResumption tlsSessionResumption;
+
     public XmppTcpTransportModuleDescriptor(Builder builder) {
         startTls = builder.startTls;
         directTls = builder.directTls;
+        connectionAttemptDelayMillis = builder.connectionAttemptDelayMillis;
+        tlsSessionResumption = new TlsSessionResumption(builder.tlsSessionCacheSize, builder.tlsSessionLifetimeSeconds);
     }
 
     @Override
@@ -63,6 +74,36 @@ public class XmppTcpTransportModuleDescriptor extends ModularXmppClientToServerC
         return directTls;
     }
 
+    /**
+     * Check if connection attempts to the remote endpoints are raced against each other, as described in RFC 8305
+     * ("Happy Eyeballs").
+     *
+     * @return <code>true</code> if connection attempts are raced.
+     * @see Builder#enableHappyEyeballs()
+     */
+    public boolean isHappyEyeballsEnabled() {
+        return connectionAttemptDelayMillis >= 0;
+    }
+
+    /**
+     * Get the delay between starting two consecutive connection attempts, or a negative value if the connection
+     * attempts are performed sequentially.
+     *
+     * @return the connection attempt delay in milliseconds.
+     */
+    public long getConnectionAttemptDelayMillis() {
+        return connectionAttemptDelayMillis;
+    }
+
+    /**
+     * Get the TLS session resumption facility shared by all connections using this descriptor.
+     *
+     * @return the TLS session resumption facility.
+     */
+    public TlsSessionResumption getTlsSessionResumption() {
+        return tlsSessionResumption;
+    }
+
     public static final class Builder extends ModularXmppClientToServerConnectionModuleDescriptor.Builder {
 
         // Invoked via reflection.
@@ -75,6 +116,12 @@ public class XmppTcpTransportModuleDescriptor extends ModularXmppClientToServerC
 
         private boolean directTls = false;
 
+        private long connectionAttemptDelayMillis = -1;
+
+        private int tlsSessionCacheSize = -1;
+
+        private int tlsSessionLifetimeSeconds = -1;
+
         public Builder disableDirectTls() {
             directTls = false;
             return this;
@@ -85,6 +132,79 @@ public class XmppTcpTransportModuleDescriptor extends ModularXmppClientToServerC
             return this;
         }
 
+        /**
+         * Race the connection attempts to the discovered remote endpoints against each other, as described in RFC 8305
+         * ("Happy Eyeballs"), using the default connection attempt delay of 250 milliseconds.
+         *
+         * @return a reference to this builder.
+         * @see #setConnectionAttemptDelay(long, TimeUnit)
+         */
+        public Builder enableHappyEyeballs() {
+            return setConnectionAttemptDelay(DEFAULT_CONNECTION_ATTEMPT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Race the connection attempts to the discovered remote endpoints against each other. The addresses of the
+         * endpoints are sorted so that the address families alternate, and a new connection attempt is started every
+         * time the given delay passed without the previous attempts succeeding, or once the previous attempt failed.
+         * The first connection attempt that succeeds is used, all others are cancelled.
+         * <p>
+         * RFC 8305 recommends a delay of 250 milliseconds and says that it should not be lower than 10 milliseconds.
+         * </p>
+         *
+         * @param delay the delay between two connection attempts.
+         * @param unit the unit of the delay.
+         * @return a reference to this builder.
+         */
+        public Builder setConnectionAttemptDelay(long delay, TimeUnit unit) {
+            long delayMillis = unit.toMillis(delay);
+            if (delayMillis < MINIMUM_CONNECTION_ATTEMPT_DELAY_MILLIS) {
+                throw new IllegalArgumentException("The connection attempt delay must be at least "
+                                + MINIMUM_CONNECTION_ATTEMPT_DELAY_MILLIS + "ms");
+            }
+            connectionAttemptDelayMillis = delayMillis;
+            return this;
+        }
+
+        public Builder disableHappyEyeballs() {
+            connectionAttemptDelayMillis = -1;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of TLS sessions cached for resumption. If not set, the default of the
+         * {@link javax.net.ssl.SSLContext} is used.
+         *
+         * @param tlsSessionCacheSize the maximum number of cached TLS sessions, or zero for no limit.
+         * @return a reference to this builder.
+         * @see TlsSessionResumption
+         */
+        public Builder setTlsSessionCacheSize(int tlsSessionCacheSize) {
+            if (tlsSessionCacheSize < 0) {
+                throw new IllegalArgumentException("The TLS session cache size must not be negative");
+            }
+            this.tlsSessionCacheSize = tlsSessionCacheSize;
+            return this;
+        }
+
+        /**
+         * Set the time after which cached TLS sessions can no longer be resumed. If not set, the default of the
+         * {@link javax.net.ssl.SSLContext} is used.
+         *
+         * @param lifetime the lifetime of cached TLS sessions, or zero if they should not expire.
+         * @param unit the unit of the lifetime.
+         * @return a reference to this builder.
+         * @see TlsSessionResumption
+         */
+        public Builder setTlsSessionLifetime(long lifetime, TimeUnit unit) {
+            long lifetimeSeconds = unit.toSeconds(lifetime);
+            if (lifetimeSeconds < 0 || lifetimeSeconds > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid TLS session lifetime: " + lifetime + " " + unit);
+            }
+            tlsSessionLifetimeSeconds = (int) lifetimeSeconds;
+            return this;
+        }
+
         @Override
         protected XmppTcpTransportModuleDescriptor build() {
             return new XmppTcpTransportModuleDescriptor(this);
@@ -0,0 +1,247 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.jivesoftware.smack.ConnectionListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.bind2.Bind2ModuleDescriptor;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.isr.InstantStreamResumptionModuleDescriptor;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.sm.StreamManagementModule;
+import org.jivesoftware.smack.sm.StreamManagementModuleDescriptor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class Bind2ModuleTest {
+
+    private MockXmppServer server;
+
+    private ModularXmppClientToServerConnection connection;
+
+    private StreamManagementModule smModule;
+
+    private final List<Boolean> authenticatedResumed = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch connectionClosedOnError = new CountDownLatch(1);
+
+    private void connect(MockXmppServer server) throws Exception {
+        this.server = server;
+
+        ModularXmppClientToServerConnectionConfiguration configuration = server.newConfigurationBuilder()
+                        .addModule(StreamManagementModuleDescriptor.class)
+                        .addModule(Bind2ModuleDescriptor.class)
+                        .addModule(InstantStreamResumptionModuleDescriptor.class)
+                        .build();
+        connection = new ModularXmppClientToServerConnection(configuration);
+        connection.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void authenticated(XMPPConnection connection, boolean resumed) {
+                authenticatedResumed.add(resumed);
+            }
+
+            @Override
+            public void connectionClosedOnError(Exception e) {
+                connectionClosedOnError.countDown();
+            }
+        });
+        smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+
+        connection.connect().login();
+    }
+
+    @AfterEach
+    public void disconnect() throws Exception {
+        connection.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void loginBindsResourceAndEnablesStreamManagementInline() throws Exception {
+        connect(new Sasl2MockXmppServer());
+
+        assertEquals(MockXmppServer.BOUND_JID, connection.getUser().toString());
+        assertTrue(smModule.isSmEnabled());
+        assertTrue(smModule.isSmResumptionPossible());
+        assertEquals(List.of(false), authenticatedResumed);
+
+        // Authentication, resource binding and enabling Stream Management are performed with a single request.
+        String authenticate = server.nextElement();
+        assertTrue(authenticate.startsWith("<authenticate "), "Expected SASL2 authenticate, got: " + authenticate);
+        assertTrue(authenticate.contains("<bind xmlns='urn:xmpp:bind:0'"), authenticate);
+        assertTrue(authenticate.contains("<enable "), authenticate);
+        assertEquals(0, server.getResourceBindingsCount());
+
+        // The initial presence is the first element after the authentication.
+        String presence = server.nextElement();
+        assertTrue(presence.startsWith("<presence"), "Expected initial presence, got: " + presence);
+
+        connection.sendStanza(newMessage(0));
+        assertEquals("id-0", MockXmppServer.parseStanza(nextElementStartingWith("<message")).getStanzaId());
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the stanza to be acknowledged");
+    }
+
+    @Test
+    public void streamIsResumedInlineAfterConnectionLoss() throws Exception {
+        Sasl2MockXmppServer server = new Sasl2MockXmppServer();
+        connect(server);
+
+        loseConnectionWithUnacknowledgedStanza(server);
+        connection.connect().login();
+
+        assertTrue(smModule.isSmEnabled());
+        assertEquals(List.of(false, true), authenticatedResumed);
+        assertEquals(MockXmppServer.BOUND_JID, connection.getUser().toString());
+
+        String authenticate = nextElementStartingWith("<authenticate ");
+        assertNotNull(authenticate);
+        assertTrue(authenticate.contains("<resume "), authenticate);
+        // The unacknowledged stanza is resent, and no initial presence is sent after the resumption.
+        String element = nextElementExcept("<r ");
+        assertTrue(element.startsWith("<message"), "Expected resent message, got: " + element);
+        assertEquals("id-1", MockXmppServer.parseStanza(element).getStanzaId());
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the resent stanza to be acknowledged");
+    }
+
+    @Test
+    public void resourceIsBoundIfInlineResumptionFails() throws Exception {
+        Sasl2MockXmppServer server = new Sasl2MockXmppServer();
+        connect(server);
+
+        loseConnectionWithUnacknowledgedStanza(server);
+        server.resumeInline = false;
+        connection.connect().login();
+
+        assertTrue(smModule.isSmEnabled());
+        assertEquals(List.of(false, false), authenticatedResumed);
+
+        String authenticate = nextElementStartingWith("<authenticate ");
+        assertNotNull(authenticate);
+        assertTrue(authenticate.contains("<resume "), authenticate);
+        assertTrue(authenticate.contains("<bind xmlns='urn:xmpp:bind:0'"), authenticate);
+
+        // The unacknowledged stanza of the previous session is resent on the new session.
+        String element = nextElementExcept("<r ");
+        assertTrue(element.startsWith("<message"), "Expected resent message, got: " + element);
+        assertEquals("id-1", MockXmppServer.parseStanza(element).getStanzaId());
+    }
+
+    @Test
+    public void unacknowledgedStanzasAreResentIfInlineEnableIsDeclined() throws Exception {
+        Sasl2MockXmppServer server = new Sasl2MockXmppServer();
+        connect(server);
+
+        loseConnectionWithUnacknowledgedStanza(server);
+        smModule.setStreamResumptionEnabled(false);
+        server.enableInline = false;
+        connection.connect().login();
+
+        assertFalse(smModule.isSmEnabled());
+        assertEquals(List.of(false, false), authenticatedResumed);
+
+        String authenticate = nextElementStartingWith("<authenticate ");
+        assertNotNull(authenticate);
+        assertFalse(authenticate.contains("<resume "), authenticate);
+        assertTrue(authenticate.contains("<enable "), authenticate);
+
+        // The unacknowledged stanza of the previous session is resent, although Stream Management was not enabled.
+        String element = nextElementExcept("<r ");
+        assertTrue(element.startsWith("<message"), "Expected resent message, got: " + element);
+        assertEquals("id-1", MockXmppServer.parseStanza(element).getStanzaId());
+    }
+
+    @Test
+    public void loginFallsBackToSaslAndResourceBindingWithoutSasl2() throws Exception {
+        connect(new StreamManagementMockXmppServer());
+
+        assertEquals(MockXmppServer.BOUND_JID, connection.getUser().toString());
+        assertEquals(1, server.getResourceBindingsCount());
+        assertTrue(smModule.isSmEnabled());
+    }
+
+    private void loseConnectionWithUnacknowledgedStanza(StreamManagementMockXmppServer server) throws Exception {
+        connection.sendStanza(newMessage(0));
+        nextElementStartingWith("<message");
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the first stanza to be acknowledged");
+
+        // Let the server pretend that the next message has not been handled.
+        server.answerAckRequests = false;
+        final long handledStanzasBefore = server.handledStanzas.get();
+        connection.sendStanza(newMessage(1));
+        nextElementStartingWith("<message");
+        waitFor(() -> server.handledStanzas.get() > handledStanzasBefore, "the server to count");
+        server.resumeHandledCount = handledStanzasBefore;
+        assertEquals(1, smModule.getUnacknowledgedStanzasCount());
+
+        server.getLastSession().close();
+        assertTrue(connectionClosedOnError.await(30, TimeUnit.SECONDS), "Connection loss not detected");
+        waitFor(() -> !connection.isConnected(), "the connection to be disconnected");
+        assertFalse(smModule.isSmEnabled());
+        assertTrue(smModule.isSmResumptionPossible());
+        server.answerAckRequests = true;
+    }
+
+    private static Message newMessage(int i) throws IOException {
+        return MessageBuilder.buildMessage("id-" + i)
+                        .to(JidCreate.entityBareFrom("juliet@example.org"))
+                        .setBody("Message " + i)
+                        .build();
+    }
+
+    private String nextElementStartingWith(String prefix) throws InterruptedException {
+        String element;
+        do {
+            element = server.nextElement();
+        } while (element != null && !element.startsWith(prefix));
+        return element;
+    }
+
+    private String nextElementExcept(String prefix) throws InterruptedException {
+        String element;
+        do {
+            element = server.nextElement();
+        } while (element != null && element.startsWith(prefix));
+        assertNotNull(element);
+        return element;
+    }
+
+    private static void waitFor(BooleanSupplier condition, String waitFor) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timeout while waiting for " + waitFor);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
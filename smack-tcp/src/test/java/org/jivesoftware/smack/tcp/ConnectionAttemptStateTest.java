@@ -0,0 +1,114 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.datatypes.UInt16;
+import org.jivesoftware.smack.tcp.rce.IpTcpRemoteConnectionEndpoint;
+import org.jivesoftware.smack.tcp.rce.Rfc6120TcpRemoteConnectionEndpoint;
+import org.jivesoftware.smack.util.rce.RemoteConnectionEndpoint.InetSocketAddressCoupling;
+
+import org.junit.jupiter.api.Test;
+
+public class ConnectionAttemptStateTest {
+
+    private static InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> address(String host, String ip)
+                    throws Exception {
+        InetAddress inetAddress = InetAddress.getByName(ip);
+        Rfc6120TcpRemoteConnectionEndpoint endpoint = IpTcpRemoteConnectionEndpoint.from(host, UInt16.from(5222),
+                        inetAddress);
+        return new InetSocketAddressCoupling<>(endpoint, inetAddress);
+    }
+
+    @Test
+    public void addressFamiliesAreInterleaved() throws Exception {
+        InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> a6 = address("a", "2001:db8::1");
+        InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> a4 = address("a", "192.0.2.1");
+        InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> b6 = address("b", "2001:db8::2");
+        InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> c6 = address("c", "2001:db8::3");
+        InetSocketAddressCoupling<Rfc6120TcpRemoteConnectionEndpoint> c4 = address("c", "192.0.2.3");
+
+        assertEquals(Arrays.asList(a6, a4, b6, c4, c6),
+                        ConnectionAttemptState.interleaveAddressFamilies(Arrays.asList(a6, b6, c6, a4, c4)));
+
+        // The family of the first address comes first.
+        assertEquals(Arrays.asList(a4, a6, c4, b6, c6),
+                        ConnectionAttemptState.interleaveAddressFamilies(Arrays.asList(a4, a6, b6, c6, c4)));
+
+        // A single address family keeps its order.
+        assertEquals(Arrays.asList(c6, a6, b6),
+                        ConnectionAttemptState.interleaveAddressFamilies(Arrays.asList(c6, a6, b6)));
+
+        assertEquals(new ArrayList<>(), ConnectionAttemptState.interleaveAddressFamilies(new ArrayList<>()));
+    }
+
+    @Test
+    public void connectionAttemptDelayIsValidated() throws Exception {
+        try (MockXmppServer server = new MockXmppServer()) {
+            XmppTcpTransportModuleDescriptor.Builder builder = server.newConfigurationBuilder()
+                            .with(XmppTcpTransportModuleDescriptor.Builder.class);
+            assertThrows(IllegalArgumentException.class, () -> builder.setConnectionAttemptDelay(5, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void connectWithHappyEyeballs() throws Exception {
+        try (MockXmppServer server = new MockXmppServer()) {
+            ModularXmppClientToServerConnectionConfiguration configuration = server.newConfigurationBuilder()
+                            .removeModule(XmppTcpTransportModuleDescriptor.class)
+                            .with(XmppTcpTransportModuleDescriptor.Builder.class)
+                            .enableHappyEyeballs()
+                            .buildModule()
+                            .build();
+            ModularXmppClientToServerConnection connection = new ModularXmppClientToServerConnection(configuration);
+
+            List<TcpHostEvent> tcpHostEvents = new CopyOnWriteArrayList<>();
+            connection.addConnectionStateMachineListener((event, c) -> {
+                if (event instanceof TcpHostEvent) {
+                    tcpHostEvents.add((TcpHostEvent) event);
+                }
+            });
+
+            connection.connect().login();
+            try {
+                assertTrue(connection.isAuthenticated());
+                assertEquals(2, tcpHostEvents.size(), tcpHostEvents.toString());
+
+                TcpHostEvent.ConnectingToHostEvent connectingToHostEvent = (TcpHostEvent.ConnectingToHostEvent) tcpHostEvents.get(0);
+                assertTrue(connectingToHostEvent.getTimeSinceFirstAttempt(TimeUnit.NANOSECONDS) >= 0);
+
+                TcpHostEvent.ConnectedToHostEvent connectedToHostEvent = (TcpHostEvent.ConnectedToHostEvent) tcpHostEvents.get(1);
+                assertTrue(connectedToHostEvent.getAttemptDuration(TimeUnit.NANOSECONDS) >= 0);
+                assertEquals(server.getPort(), connectedToHostEvent.getAddress().getInetSocketAddress().getPort());
+            } finally {
+                connection.disconnect();
+            }
+        }
+    }
+}
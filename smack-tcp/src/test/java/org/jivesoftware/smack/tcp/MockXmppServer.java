@@ -0,0 +1,311 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jivesoftware.smack.ConnectionConfiguration.SecurityMode;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.packet.Stanza;
+import org.jivesoftware.smack.packet.StreamOpen;
+import org.jivesoftware.smack.util.PacketParserUtils;
+
+import org.jxmpp.xml.splitter.XmppElementCallback;
+import org.jxmpp.xml.splitter.XmppXmlSplitter;
+
+/**
+ * A minimal XMPP server on the loopback interface for testing the modular client-to-server connection. It performs
+ * SASL ANONYMOUS authentication and resource binding. All other top-level elements received from the client are put
+ * into a queue, from which tests can take them, and passed to {@link #handleElement(Session, String)}, which can be
+ * overridden to implement further server behavior.
+ */
+public class MockXmppServer implements Closeable {
+
+    public static final String DOMAIN = "example.org";
+
+    public static final String BOUND_JID = "anon@" + DOMAIN + "/mock";
+
+    private static final Pattern ID_ATTRIBUTE_PATTERN = Pattern.compile("id=['\"]([^'\"]*)['\"]");
+
+    private final ServerSocket serverSocket;
+
+    private final BlockingQueue<String> receivedElements = new LinkedBlockingQueue<>();
+
+    private final List<Session> sessions = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger resourceBindings = new AtomicInteger();
+
+    private volatile String additionalStreamFeatures = "";
+
+    public MockXmppServer() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptThread = new Thread(this::acceptLoop, "MockXmppServer Accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public ModularXmppClientToServerConnectionConfiguration.Builder newConfigurationBuilder() throws IOException {
+        return ModularXmppClientToServerConnectionConfiguration.builder()
+                        .setXmppDomain(DOMAIN)
+                        .setHostAddress(InetAddress.getLoopbackAddress())
+                        .setPort(getPort())
+                        .setSecurityMode(SecurityMode.disabled)
+                        .performSaslAnonymousAuthentication()
+                        .removeAllModules()
+                        .addModule(XmppTcpTransportModuleDescriptor.class);
+    }
+
+    /**
+     * Set additional stream features which are announced after the authentication.
+     *
+     * @param additionalStreamFeatures the additional stream features.
+     */
+    public void setAdditionalStreamFeatures(String additionalStreamFeatures) {
+        this.additionalStreamFeatures = additionalStreamFeatures;
+    }
+
+    public String nextElement() throws InterruptedException {
+        return receivedElements.poll(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Take the next received element which is not a presence.
+     *
+     * @return the next received element.
+     * @throws InterruptedException if interrupted.
+     */
+    public String nextNonPresenceElement() throws InterruptedException {
+        String element;
+        do {
+            element = nextElement();
+        } while (element != null && element.startsWith("<presence"));
+        return element;
+    }
+
+    /**
+     * Get the number of resource bindings performed by this server.
+     *
+     * @return the number of resource bindings.
+     */
+    public int getResourceBindingsCount() {
+        return resourceBindings.get();
+    }
+
+    public List<Session> getSessions() {
+        return sessions;
+    }
+
+    public Session getLastSession() {
+        return sessions.get(sessions.size() - 1);
+    }
+
+    /**
+     * Handle the given top-level element received from the client. The default implementation does nothing.
+     *
+     * @param session the session the element was received on.
+     * @param element the element.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void handleElement(Session session, String element) throws IOException {
+    }
+
+    protected String getStreamFeatures(Session session) {
+        if (!session.authenticated) {
+            return "<mechanisms xmlns='urn:ietf:params:xml:ns:xmpp-sasl'><mechanism>ANONYMOUS</mechanism></mechanisms>";
+        }
+        return "<bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'/>" + additionalStreamFeatures;
+    }
+
+    public static String getId(String element) {
+        Matcher matcher = ID_ATTRIBUTE_PATTERN.matcher(element);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1);
+    }
+
+    /**
+     * Parse the given stanza received from the client. The stanzas send by the client do usually not declare the
+     * 'jabber:client' namespace, as it is inherited from the stream element.
+     *
+     * @param element the stanza received from the client.
+     * @param <S> the type of the stanza.
+     * @return the parsed stanza.
+     * @throws Exception if the stanza could not be parsed.
+     */
+    @SuppressWarnings("TypeParameterUnusedInFormals")
+    public static <S extends Stanza> S parseStanza(String element) throws Exception {
+        int elementNameEnd = element.indexOf(' ');
+        int startTagEnd = element.indexOf('>');
+        if (elementNameEnd < 0 || startTagEnd < elementNameEnd) {
+            elementNameEnd = startTagEnd;
+            if (element.charAt(elementNameEnd - 1) == '/') {
+                elementNameEnd--;
+            }
+        }
+        String namespacedElement = element.substring(0, elementNameEnd) + " xmlns='" + StreamOpen.CLIENT_NAMESPACE + "'"
+                        + element.substring(elementNameEnd);
+        return PacketParserUtils.parseStanza(namespacedElement);
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Session session = new Session(socket);
+            sessions.add(session);
+            Thread sessionThread = new Thread(session::readLoop, "MockXmppServer Session " + sessions.size());
+            sessionThread.setDaemon(true);
+            sessionThread.start();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Session session : sessions) {
+            session.close();
+        }
+    }
+
+    public final class Session implements Closeable {
+        private final Socket socket;
+        private final OutputStream outputStream;
+
+        private volatile boolean authenticated;
+
+        private Session(Socket socket) {
+            this.socket = socket;
+            try {
+                this.outputStream = socket.getOutputStream();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public boolean isAuthenticated() {
+            return authenticated;
+        }
+
+        public synchronized void send(String xml) throws IOException {
+            outputStream.write(xml.getBytes(StandardCharsets.UTF_8));
+            outputStream.flush();
+        }
+
+        private void readLoop() {
+            XmppElementCallback callback = new XmppElementCallback() {
+                @Override
+                public void onCompleteElement(String completeElement) {
+                    try {
+                        onElement(completeElement);
+                    } catch (IOException e) {
+                        close();
+                    }
+                }
+
+                @Override
+                public void streamOpened(String prefix, Map<String, String> attributes) {
+                    try {
+                        send("<?xml version='1.0'?><stream:stream xmlns='jabber:client'"
+                                        + " xmlns:stream='http://etherx.jabber.org/streams' id='mock-stream'"
+                                        + " from='" + DOMAIN + "' version='1.0'>"
+                                        + "<stream:features>" + getStreamFeatures(Session.this) + "</stream:features>");
+                    } catch (IOException e) {
+                        close();
+                    }
+                }
+
+                @Override
+                public void streamClosed() {
+                    try {
+                        send("</stream:stream>");
+                    } catch (IOException e) {
+                        // Ignore, we are closing anyway.
+                    }
+                    close();
+                }
+            };
+            // Note that we do not use Utf8ByteXmppXmlSplitter here, as it does not decode four byte UTF-8 sequences
+            // correctly.
+            XmppXmlSplitter splitter = new XmppXmlSplitter(1024 * 1024, callback);
+
+            char[] buffer = new char[4096];
+            try {
+                Reader reader = new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8);
+                int read;
+                while ((read = reader.read(buffer)) >= 0) {
+                    splitter.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                // Connection closed.
+            } finally {
+                close();
+            }
+        }
+
+        private void onElement(String element) throws IOException {
+            if (element.startsWith("<auth ")) {
+                authenticated = true;
+                send("<success xmlns='urn:ietf:params:xml:ns:xmpp-sasl'/>");
+                return;
+            }
+            if (element.startsWith("<iq") && element.contains("urn:ietf:params:xml:ns:xmpp-bind")) {
+                resourceBindings.incrementAndGet();
+                send("<iq type='result' id='" + getId(element) + "'><bind xmlns='urn:ietf:params:xml:ns:xmpp-bind'><jid>"
+                                + BOUND_JID + "</jid></bind></iq>");
+                return;
+            }
+
+            receivedElements.add(element);
+            handleElement(this, element);
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore.
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.IOException;
+
+/**
+ * A {@link StreamManagementMockXmppServer} which additionally supports Extensible SASL Profile (SASL2, XEP-0388) with
+ * Bind 2 (XEP-0386) and the inline Stream Management (XEP-0198) enable and resume requests.
+ */
+public class Sasl2MockXmppServer extends StreamManagementMockXmppServer {
+
+    /**
+     * If false, then inline resume requests fail and the Bind 2 request is processed instead.
+     */
+    volatile boolean resumeInline = true;
+
+    /**
+     * If false, then inline enable requests are declined.
+     */
+    volatile boolean enableInline = true;
+
+    public Sasl2MockXmppServer() throws IOException {
+    }
+
+    @Override
+    protected String getStreamFeatures(Session session) {
+        String streamFeatures = super.getStreamFeatures(session);
+        if (session.isAuthenticated()) {
+            return streamFeatures;
+        }
+        return streamFeatures
+                        + "<authentication xmlns='urn:xmpp:sasl:2'><mechanism>ANONYMOUS</mechanism><inline>"
+                        + "<sm xmlns='urn:xmpp:sm:3'/>"
+                        + "<bind xmlns='urn:xmpp:bind:0'><inline><feature var='urn:xmpp:sm:3'/></inline></bind>"
+                        + "</inline></authentication>";
+    }
+
+    @Override
+    protected void handleElement(Session session, String element) throws IOException {
+        if (!element.startsWith("<authenticate ")) {
+            super.handleElement(session, element);
+            return;
+        }
+
+        StringBuilder success = new StringBuilder("<success xmlns='urn:xmpp:sasl:2'><authorization-identifier>")
+                        .append(BOUND_JID)
+                        .append("</authorization-identifier>");
+        if (element.contains("<resume ")) {
+            if (resumeInline) {
+                long h = resumeHandledCount >= 0 ? resumeHandledCount : handledStanzas.get();
+                handledStanzas.set(h);
+                success.append("<resumed xmlns='urn:xmpp:sm:3' previd='" + SM_ID + "' h='" + h + "'/></success>");
+                session.send(success.toString());
+                return;
+            }
+            success.append("<failed xmlns='urn:xmpp:sm:3'/>");
+        }
+
+        success.append("<bound xmlns='urn:xmpp:bind:0'>");
+        if (element.contains("<enable ") && enableInline) {
+            handledStanzas.set(0);
+            success.append("<enabled xmlns='urn:xmpp:sm:3' id='" + SM_ID + "' resume='true'/>");
+        }
+        success.append("</bound></success>");
+        session.send(success.toString());
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MockXmppServer} which supports Stream Management (XEP-0198). Every stream is resumable, and the server
+ * counts every stanza it receives as handled.
+ */
+public class StreamManagementMockXmppServer extends MockXmppServer {
+
+    public static final String SM_ID = "mock-sm-id";
+
+    final AtomicLong handledStanzas = new AtomicLong();
+
+    /**
+     * If false, then acknowledgement requests of the client are ignored.
+     */
+    volatile boolean answerAckRequests = true;
+
+    /**
+     * If non-negative, then this is reported as handled count when a stream is resumed.
+     */
+    volatile long resumeHandledCount = -1;
+
+    public StreamManagementMockXmppServer() throws IOException {
+        setAdditionalStreamFeatures("<sm xmlns='urn:xmpp:sm:3'/>");
+    }
+
+    @Override
+    protected void handleElement(Session session, String element) throws IOException {
+        if (element.startsWith("<enable ")) {
+            handledStanzas.set(0);
+            session.send("<enabled xmlns='urn:xmpp:sm:3' id='" + SM_ID + "' resume='true'/>");
+        } else if (element.startsWith("<resume ")) {
+            long h = resumeHandledCount >= 0 ? resumeHandledCount : handledStanzas.get();
+            handledStanzas.set(h);
+            session.send("<resumed xmlns='urn:xmpp:sm:3' previd='" + SM_ID + "' h='" + h + "'/>");
+        } else if (element.startsWith("<r ")) {
+            if (answerAckRequests) {
+                session.send("<a xmlns='urn:xmpp:sm:3' h='" + handledStanzas.get() + "'/>");
+            }
+        } else if (element.startsWith("<message") || element.startsWith("<presence")
+                        || element.startsWith("<iq")) {
+            handledStanzas.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jivesoftware.smack.ConnectionListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.sm.StreamManagementModule;
+import org.jivesoftware.smack.sm.StreamManagementModuleDescriptor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class StreamManagementModuleTest {
+
+    private static final Pattern H_ATTRIBUTE_PATTERN = Pattern.compile("h=['\"](\\d+)['\"]");
+
+    private StreamManagementMockXmppServer server;
+
+    private ModularXmppClientToServerConnection connection;
+
+    private StreamManagementModule smModule;
+
+    private final List<Boolean> authenticatedResumed = new CopyOnWriteArrayList<>();
+
+    private final CountDownLatch connectionClosedOnError = new CountDownLatch(1);
+
+    @BeforeEach
+    public void connect() throws Exception {
+        server = new StreamManagementMockXmppServer();
+
+        ModularXmppClientToServerConnectionConfiguration configuration = server.newConfigurationBuilder()
+                        .addModule(StreamManagementModuleDescriptor.class)
+                        .build();
+        connection = new ModularXmppClientToServerConnection(configuration);
+        connection.addConnectionListener(new ConnectionListener() {
+            @Override
+            public void authenticated(XMPPConnection connection, boolean resumed) {
+                authenticatedResumed.add(resumed);
+            }
+
+            @Override
+            public void connectionClosedOnError(Exception e) {
+                connectionClosedOnError.countDown();
+            }
+        });
+        smModule = connection.getConnectionModuleFor(StreamManagementModuleDescriptor.class);
+
+        connection.connect().login();
+    }
+
+    @AfterEach
+    public void disconnect() throws Exception {
+        connection.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void streamManagementIsEnabledAndStanzasAreAcknowledged() throws Exception {
+        assertTrue(smModule.isSmEnabled());
+        assertTrue(smModule.isSmResumptionPossible());
+        assertEquals(1, server.getResourceBindingsCount());
+        List<String> acknowledgedStanzaIds = new CopyOnWriteArrayList<>();
+        smModule.addStanzaAcknowledgedListener(stanza -> {
+            // Ignore the initial presence, which may get acknowledged together with the messages.
+            if (stanza instanceof Message) {
+                acknowledgedStanzaIds.add(stanza.getStanzaId());
+            }
+        });
+
+        for (int i = 0; i < 10; i++) {
+            connection.sendStanza(newMessage(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("id-" + i, MockXmppServer.parseStanza(nextMessage()).getStanzaId());
+        }
+
+        // Every message triggers an acknowledgement request.
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "all stanzas to be acknowledged");
+        waitFor(() -> acknowledgedStanzaIds.size() == 10, "the stanza acknowledged listeners");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("id-" + i, acknowledgedStanzaIds.get(i));
+        }
+
+        // The client answers acknowledgement requests of the server with the number of handled stanzas.
+        for (int i = 0; i < 3; i++) {
+            server.getLastSession().send("<message from='juliet@example.org/balcony' to='" + MockXmppServer.BOUND_JID
+                            + "' id='in-" + i + "'><body>" + i + "</body></message>");
+        }
+        server.getLastSession().send("<r xmlns='urn:xmpp:sm:3'/>");
+        String ackAnswer = nextElementStartingWith("<a ");
+        assertNotNull(ackAnswer);
+        assertEquals(3, getHandledCount(ackAnswer));
+    }
+
+    @Test
+    public void streamIsResumedAfterConnectionLoss() throws Exception {
+        connection.sendStanza(newMessage(0));
+        nextMessage();
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the first stanza to be acknowledged");
+
+        // Let the server pretend that only the first of the next three messages has been handled.
+        server.answerAckRequests = false;
+        final long handledStanzasBefore = server.handledStanzas.get();
+        for (int i = 1; i <= 3; i++) {
+            connection.sendStanza(newMessage(i));
+        }
+        for (int i = 1; i <= 3; i++) {
+            assertEquals("id-" + i, MockXmppServer.parseStanza(nextMessage()).getStanzaId());
+        }
+        waitFor(() -> server.handledStanzas.get() >= handledStanzasBefore + 3, "the server to count");
+        server.resumeHandledCount = server.handledStanzas.get() - 2;
+        assertEquals(3, smModule.getUnacknowledgedStanzasCount());
+
+        // Drop the connection.
+        server.getLastSession().close();
+        assertTrue(connectionClosedOnError.await(30, TimeUnit.SECONDS), "Connection loss not detected");
+        waitFor(() -> !connection.isConnected(), "the connection to be disconnected");
+        assertFalse(smModule.isSmEnabled());
+        assertTrue(smModule.isSmResumptionPossible());
+
+        server.answerAckRequests = true;
+        connection.connect().login();
+
+        assertTrue(smModule.isSmEnabled());
+        assertEquals(List.of(false, true), authenticatedResumed);
+        assertEquals(MockXmppServer.BOUND_JID, connection.getUser().toString());
+        // No new resource was bound.
+        assertEquals(1, server.getResourceBindingsCount());
+
+        // The two unacknowledged stanzas are resent, and no initial presence is sent after the resumption.
+        String resumeElement = nextElementStartingWith("<resume ");
+        assertNotNull(resumeElement);
+        for (int i = 2; i <= 3; i++) {
+            String element = nextElementExcept("<r ");
+            assertTrue(element.startsWith("<message"), "Expected resent message, got: " + element);
+            assertEquals("id-" + i, MockXmppServer.parseStanza(element).getStanzaId());
+        }
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the resent stanzas to be acknowledged");
+
+        connection.sendStanza(newMessage(4));
+        assertEquals("id-4", MockXmppServer.parseStanza(nextMessage()).getStanzaId());
+    }
+
+    @Test
+    public void ackIsRequestedAtHighWaterMarkAndOverflowDisablesResumption() throws Exception {
+        // Get the initial presence acknowledged, so that the queue is empty.
+        smModule.requestSmAcknowledgement();
+        waitFor(() -> smModule.getUnacknowledgedStanzasCount() == 0, "the initial presence to be acknowledged");
+        smModule.setRequestAckPredicate(stanza -> false);
+        server.answerAckRequests = false;
+
+        final int highWaterMark = StreamManagementModule.UNACKNOWLEDGED_STANZAS_QUEUE_SIZE_HIGH_WATER_MARK;
+        for (int i = 0; i < highWaterMark; i++) {
+            connection.sendStanza(newMessage(i));
+        }
+        for (int i = 0; i < highWaterMark; i++) {
+            assertEquals("id-" + i, MockXmppServer.parseStanza(nextMessage()).getStanzaId());
+        }
+        // The acknowledgement is requested once the high-water mark is reached, although the predicate never matches.
+        assertNotNull(nextElementStartingWith("<r "));
+        assertTrue(smModule.isSmResumptionPossible());
+
+        final int queueSize = StreamManagementModule.UNACKNOWLEDGED_STANZAS_QUEUE_SIZE;
+        for (int i = highWaterMark; i <= queueSize; i++) {
+            connection.sendStanza(newMessage(i));
+        }
+        // The overflow drops the unacknowledged stanzas and makes the stream not resumable, but the stanzas are sent.
+        waitFor(() -> !smModule.isSmResumptionPossible(), "the unacknowledged stanzas queue to overflow");
+        assertEquals(0, smModule.getUnacknowledgedStanzasCount());
+        assertTrue(smModule.isSmEnabled());
+        String lastMessage;
+        do {
+            lastMessage = nextMessage();
+            assertNotNull(lastMessage);
+        } while (!("id-" + queueSize).equals(MockXmppServer.parseStanza(lastMessage).getStanzaId()));
+    }
+
+    private static Message newMessage(int i) throws IOException {
+        return MessageBuilder.buildMessage("id-" + i)
+                        .to(JidCreate.entityBareFrom("juliet@example.org"))
+                        .setBody("Message " + i)
+                        .build();
+    }
+
+    private String nextMessage() throws InterruptedException {
+        return nextElementStartingWith("<message");
+    }
+
+    private String nextElementStartingWith(String prefix) throws InterruptedException {
+        String element;
+        do {
+            element = server.nextElement();
+        } while (element != null && !element.startsWith(prefix));
+        return element;
+    }
+
+    private String nextElementExcept(String prefix) throws InterruptedException {
+        String element;
+        do {
+            element = server.nextElement();
+        } while (element != null && element.startsWith(prefix));
+        assertNotNull(element);
+        return element;
+    }
+
+    private static long getHandledCount(String element) {
+        Matcher matcher = H_ATTRIBUTE_PATTERN.matcher(element);
+        assertTrue(matcher.find(), "No 'h' attribute in " + element);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static void waitFor(BooleanSupplier condition, String waitFor) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timeout while waiting for " + waitFor);
+            }
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.junit.jupiter.api.Test;
+
+public class TlsSessionResumptionTest {
+
+    private static SSLContext newSslContext() throws Exception {
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, null, null);
+        return sslContext;
+    }
+
+    @Test
+    public void configureSetsCapacityAndLifetime() throws Exception {
+        SSLContext sslContext = newSslContext();
+        TlsSessionResumption tlsSessionResumption = new TlsSessionResumption(42, 600);
+        tlsSessionResumption.configure(sslContext);
+
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        assertEquals(42, sessionContext.getSessionCacheSize());
+        assertEquals(600, sessionContext.getSessionTimeout());
+        assertEquals(10, tlsSessionResumption.getSessionLifetime(TimeUnit.MINUTES));
+    }
+
+    @Test
+    public void defaultsOfSslContextAreKept() throws Exception {
+        SSLContext sslContext = newSslContext();
+        SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+        int defaultCacheSize = sessionContext.getSessionCacheSize();
+        int defaultTimeout = sessionContext.getSessionTimeout();
+
+        TlsSessionResumption tlsSessionResumption = new TlsSessionResumption(-1, -1);
+        tlsSessionResumption.configure(sslContext);
+
+        assertEquals(defaultCacheSize, sessionContext.getSessionCacheSize());
+        assertEquals(defaultTimeout, sessionContext.getSessionTimeout());
+        assertEquals(-1, tlsSessionResumption.getSessionLifetime(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void handshakesAreCountedAsHitsAndMisses() {
+        TlsSessionResumption tlsSessionResumption = new TlsSessionResumption(-1, -1);
+
+        // A full handshake creates a new session.
+        assertFalse(tlsSessionResumption.recordHandshake(1000, 1000));
+        assertFalse(tlsSessionResumption.recordHandshake(1005, 1000));
+        // A resumed session was created before the handshake started.
+        assertTrue(tlsSessionResumption.recordHandshake(500, 1000));
+
+        assertEquals(1, tlsSessionResumption.getHits());
+        assertEquals(2, tlsSessionResumption.getMisses());
+    }
+
+    @Test
+    public void descriptorBuilderConfiguresTlsSessionResumption() throws Exception {
+        try (MockXmppServer server = new MockXmppServer()) {
+            XmppTcpTransportModuleDescriptor descriptor = server.newConfigurationBuilder()
+                            .with(XmppTcpTransportModuleDescriptor.Builder.class)
+                            .setTlsSessionCacheSize(100)
+                            .setTlsSessionLifetime(2, TimeUnit.HOURS)
+                            .build();
+
+            TlsSessionResumption tlsSessionResumption = descriptor.getTlsSessionResumption();
+            assertEquals(100, tlsSessionResumption.getSessionCacheSize());
+            assertEquals(7200, tlsSessionResumption.getSessionLifetime(TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class Utf8CountingWriterTest {
+
+    @Test
+    public void countsUtf8Bytes() throws IOException {
+        String text = "<body>aä€😀</body>";
+        StringWriter stringWriter = new StringWriter();
+        Utf8CountingWriter writer = new Utf8CountingWriter(stringWriter);
+
+        writer.write(text.substring(0, 8));
+        writer.write(text.charAt(8));
+        writer.write(text.toCharArray(), 9, text.length() - 9);
+
+        assertEquals(text, stringWriter.toString());
+        assertEquals(text.getBytes(StandardCharsets.UTF_8).length, writer.getUtf8Bytes());
+    }
+}
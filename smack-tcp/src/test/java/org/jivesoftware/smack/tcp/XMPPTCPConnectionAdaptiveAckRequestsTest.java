@@ -0,0 +1,91 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import org.jivesoftware.smack.ConnectionConfiguration.SecurityMode;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.sm.SmAckMetrics;
+
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class XMPPTCPConnectionAdaptiveAckRequestsTest {
+
+    private static final int MESSAGES = 200;
+
+    @Test
+    public void ackRequestsAreBatched() throws Exception {
+        try (StreamManagementMockXmppServer server = new StreamManagementMockXmppServer()) {
+            XMPPTCPConnectionConfiguration configuration = XMPPTCPConnectionConfiguration.builder()
+                            .setXmppDomain(MockXmppServer.DOMAIN)
+                            .setHostAddress(InetAddress.getLoopbackAddress())
+                            .setPort(server.getPort())
+                            .setSecurityMode(SecurityMode.disabled)
+                            .performSaslAnonymousAuthentication()
+                            .build();
+
+            XMPPTCPConnection connection = new XMPPTCPConnection(configuration);
+            connection.setUseAdaptiveAckRequests(true);
+            connection.connect().login();
+            assertTrue(connection.isSmEnabled());
+
+            for (int i = 0; i < MESSAGES; i++) {
+                connection.sendStanza(MessageBuilder.buildMessage("id-" + i)
+                                .to(JidCreate.entityBareFrom("juliet@example.org"))
+                                .setBody("Message " + i)
+                                .build());
+            }
+
+            int receivedMessages = 0;
+            int receivedAckRequests = 0;
+            while (receivedMessages < MESSAGES) {
+                String element = server.nextElement();
+                assertNotNull(element);
+                if (element.startsWith("<message")) {
+                    assertEquals("id-" + receivedMessages, MockXmppServer.getId(element));
+                    receivedMessages++;
+                } else if (element.startsWith("<r ")) {
+                    receivedAckRequests++;
+                }
+            }
+
+            // Wait until every stanza, including the initial presence, got acknowledged.
+            final long deadline = System.currentTimeMillis() + 30000;
+            SmAckMetrics.Stats stats = connection.getSmAckStats();
+            while (stats.unacknowledgedStanzas > 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Stanzas not acknowledged: " + stats);
+                Thread.sleep(10);
+                stats = connection.getSmAckStats();
+            }
+
+            // The adaptive policy does not request an ack for every message, unlike the default predicate.
+            assertTrue(receivedAckRequests < MESSAGES / 2, "Too many ack requests: " + receivedAckRequests);
+            assertTrue(stats.ackRequestsSent > 0);
+            assertEquals(stats.ackRequestsSent, Arrays.stream(stats.ackRttHistogram).sum(), stats.toString());
+            assertTrue(stats.unacknowledgedStanzasHighWaterMark >= 1);
+
+            connection.disconnect();
+        }
+    }
+}
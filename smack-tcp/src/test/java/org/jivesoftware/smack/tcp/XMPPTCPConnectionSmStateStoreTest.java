@@ -0,0 +1,119 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.jivesoftware.smack.ConnectionConfiguration.SecurityMode;
+import org.jivesoftware.smack.ConnectionListener;
+import org.jivesoftware.smack.XMPPConnection;
+import org.jivesoftware.smack.packet.MessageBuilder;
+import org.jivesoftware.smack.sm.store.FileSmStateStore;
+import org.jivesoftware.smack.test.util.SmackTestSuite;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class XMPPTCPConnectionSmStateStoreTest extends SmackTestSuite {
+
+    @TempDir
+    File tempDir;
+
+    @Test
+    public void newConnectionResumesStreamFromPersistedState() throws Exception {
+        File journalFile = new File(tempDir, "sm-state");
+
+        try (StreamManagementMockXmppServer server = new StreamManagementMockXmppServer()) {
+            XMPPTCPConnectionConfiguration configuration = XMPPTCPConnectionConfiguration.builder()
+                            .setXmppDomain(MockXmppServer.DOMAIN)
+                            .setHostAddress(InetAddress.getLoopbackAddress())
+                            .setPort(server.getPort())
+                            .setSecurityMode(SecurityMode.disabled)
+                            .performSaslAnonymousAuthentication()
+                            .build();
+
+            XMPPTCPConnection connection = new XMPPTCPConnection(configuration);
+            FileSmStateStore smStateStore = FileSmStateStore.open(journalFile);
+            connection.setSmStateStore(smStateStore);
+            connection.connect().login();
+            assertTrue(connection.isSmEnabled());
+
+            // Let the server pretend that only the initial presence and the first message have been handled.
+            server.answerAckRequests = false;
+            for (int i = 1; i <= 3; i++) {
+                connection.sendStanza(MessageBuilder.buildMessage("id-" + i)
+                                .to(JidCreate.entityBareFrom("juliet@example.org"))
+                                .setBody("Message " + i)
+                                .build());
+            }
+            for (int i = 1; i <= 3; i++) {
+                String element = nextElementStartingWith(server, "<message");
+                assertEquals("id-" + i, MockXmppServer.getId(element));
+            }
+            server.resumeHandledCount = 2;
+
+            // Simulate a process restart.
+            connection.instantShutdown();
+            assertTrue(connection.isSmResumptionPossible());
+            smStateStore.close();
+
+            XMPPTCPConnection newConnection = new XMPPTCPConnection(configuration);
+            List<Boolean> authenticatedResumed = new CopyOnWriteArrayList<>();
+            newConnection.addConnectionListener(new ConnectionListener() {
+                @Override
+                public void authenticated(XMPPConnection connection, boolean resumed) {
+                    authenticatedResumed.add(resumed);
+                }
+            });
+            try (FileSmStateStore newSmStateStore = FileSmStateStore.open(journalFile)) {
+                newConnection.setSmStateStore(newSmStateStore);
+                newConnection.connect().login();
+
+                assertEquals(List.of(true), authenticatedResumed);
+                assertEquals(MockXmppServer.BOUND_JID, newConnection.getUser().toString());
+                assertEquals(1, server.getResourceBindingsCount());
+
+                String resume = nextElementStartingWith(server, "<resume ");
+                assertNotNull(resume);
+                assertTrue(resume.contains(StreamManagementMockXmppServer.SM_ID), resume);
+                for (int i = 2; i <= 3; i++) {
+                    String element = nextElementStartingWith(server, "<message");
+                    assertEquals("id-" + i, MockXmppServer.getId(element));
+                }
+
+                newConnection.disconnect();
+            }
+        }
+    }
+
+    private static String nextElementStartingWith(MockXmppServer server, String prefix) throws InterruptedException {
+        String element;
+        do {
+            element = server.nextElement();
+        } while (element != null && !element.startsWith(prefix));
+        assertNotNull(element, "Did not receive " + prefix);
+        return element;
+    }
+}
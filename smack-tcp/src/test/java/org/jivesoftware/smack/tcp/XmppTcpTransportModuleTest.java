@@ -0,0 +1,107 @@
+/**
+ *
+ * Copyright 2026 Florian Schmaus
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jivesoftware.smack.tcp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnection;
+import org.jivesoftware.smack.c2s.ModularXmppClientToServerConnectionConfiguration;
+import org.jivesoftware.smack.filter.StanzaTypeFilter;
+import org.jivesoftware.smack.packet.Message;
+import org.jivesoftware.smack.packet.MessageBuilder;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jxmpp.jid.impl.JidCreate;
+
+public class XmppTcpTransportModuleTest {
+
+    private static final String LARGE_BODY_PREFIX;
+
+    static {
+        StringBuilder sb = new StringBuilder(5000);
+        for (int i = 0; i < 5000; i++) {
+            sb.append('ä');
+        }
+        LARGE_BODY_PREFIX = sb.toString();
+    }
+
+    private MockXmppServer server;
+
+    private ModularXmppClientToServerConnection connection;
+
+    @BeforeEach
+    public void connect() throws Exception {
+        server = new MockXmppServer();
+        ModularXmppClientToServerConnectionConfiguration configuration = server.newConfigurationBuilder().build();
+        connection = new ModularXmppClientToServerConnection(configuration);
+        connection.connect().login();
+    }
+
+    @AfterEach
+    public void disconnect() throws Exception {
+        connection.disconnect();
+        server.close();
+    }
+
+    @Test
+    public void outgoingElementsAreEncodedIntoPooledBuffers() throws Exception {
+        final int messageCount = 500;
+        CountDownLatch sentLatch = new CountDownLatch(messageCount);
+        connection.addStanzaSendingListener(stanza -> sentLatch.countDown(), StanzaTypeFilter.MESSAGE);
+
+        for (int i = 0; i < messageCount; i++) {
+            final String body;
+            if (i % 100 == 0) {
+                // Larger than a single pooled buffer, with multi-byte characters.
+                body = LARGE_BODY_PREFIX + "😀" + i;
+            } else {
+                body = "Message " + i + " ☃";
+            }
+            Message message = MessageBuilder.buildMessage("id-" + i)
+                            .to(JidCreate.entityBareFrom("juliet@example.org"))
+                            .setBody(body)
+                            .build();
+            connection.sendStanza(message);
+        }
+
+        for (int i = 0; i < messageCount; i++) {
+            String element = server.nextNonPresenceElement();
+            assertNotNull(element, "Did not receive message " + i);
+            Message message = MockXmppServer.parseStanza(element);
+            assertEquals("id-" + i, message.getStanzaId());
+            if (i % 100 == 0) {
+                assertEquals(LARGE_BODY_PREFIX + "😀" + i, message.getBody());
+            } else {
+                assertEquals("Message " + i + " ☃", message.getBody());
+            }
+        }
+
+        assertTrue(sentLatch.await(30, TimeUnit.SECONDS), "Not all stanza sending listeners have been invoked");
+
+        XmppTcpTransportModule.Stats stats = (XmppTcpTransportModule.Stats) connection.getStats().transportsStats
+                        .get(XmppTcpTransportModuleDescriptor.class);
+        assertTrue(stats.outgoingBufferPoolHits > 0, "Expected outgoing buffer pool hits: " + stats);
+        assertTrue(stats.outgoingBufferPoolMisses <= stats.outgoingBufferPoolHits, "Too many pool misses: " + stats);
+    }
+}